@@ -60,6 +60,10 @@ export interface GraphNodeResponse {
   textType: TextType;
   /** 文本内容 */
   text: string;
+  /** 排队等待执行时的队列位置，从 1 开始 */
+  queuePosition?: number;
+  /** 重新输出时需要从该步骤末尾撤回的字符数 */
+  discardedChars?: number;
   /** 是否发生错误 */
   error: boolean;
   /** 是否已完成 */
@@ -70,6 +74,8 @@ export enum GraphEventType {
   NODE_OUTPUT = "NODE_OUTPUT",
   FINAL_ANSWER = "FINAL_ANSWER",
   HUMAN_FEEDBACK_REQUIRED = "HUMAN_FEEDBACK_REQUIRED",
+  QUEUED = "QUEUED",
+  OUTPUT_RESTART = "OUTPUT_RESTART",
 }
 
 /**
@@ -94,6 +100,9 @@ export enum TextType {
 
 const API_BASE_URL = "/api";
 
+/** 连接中断后允许浏览器自动重连的次数，后端在宽限期内保留运行并补发事件 */
+const MAX_RECONNECT_ATTEMPTS = 3;
+
 /**
  * @description 图搜索业务逻辑处理类
  */
@@ -132,10 +141,12 @@ class GraphService {
     const eventSource = new EventSource(url);
 
     let latestThreadId = request.threadId;
+    let reconnectAttempts = 0;
 
     eventSource.onmessage = async (event) => {
       try {
         const nodeResponse: GraphNodeResponse = JSON.parse(event.data);
+        reconnectAttempts = 0;
         latestThreadId = nodeResponse.threadId || latestThreadId;
         console.log(
           `Node: ${nodeResponse.nodeName}, message: ${nodeResponse.text}, type: ${nodeResponse.textType}`,
@@ -174,6 +185,18 @@ class GraphService {
       if (eventSource.readyState === EventSource.CLOSED) {
         return;
       }
+      // EventSource.CONNECTING = 0: the browser is reconnecting with Last-Event-ID,
+      // and the backend replays missed events of the same run
+      if (
+        eventSource.readyState === EventSource.CONNECTING &&
+        reconnectAttempts < MAX_RECONNECT_ATTEMPTS
+      ) {
+        reconnectAttempts++;
+        console.warn(
+          `EventSource reconnecting (${reconnectAttempts}/${MAX_RECONNECT_ATTEMPTS})`,
+        );
+        return;
+      }
       console.error("EventSource error:", _error);
       if (onError) {
         await onError(new Error("Stream connection failed"));
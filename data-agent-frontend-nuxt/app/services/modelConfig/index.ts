@@ -42,6 +42,8 @@ export interface ModelConfig {
   modelName: string;
   /** 模型类型 */
   modelType: ModelType;
+  /** 模型档位，仅对话模型有效，为空表示默认档位 */
+  tier?: string | null;
   /** 温度参数 (0-2) */
   temperature?: number;
   /** 最大生成 Token 数 */
@@ -35,6 +35,7 @@ import datasourceService, {
 } from '~/services/datasource/index';
 import { resolveActiveDatasource } from '~/utils/datasourceSelection';
 import { applyReportContent } from '~/utils/reportTimeline';
+import { discardTrailingText } from '~/utils/workflowTimeline';
 
 export type Datasource = BaseDatasource & { isActive?: boolean };
 
@@ -414,9 +415,24 @@ export const useChatStore = defineStore('chat', () => {
 					awaitingHumanFeedback = true;
 					return;
 				}
+				if (response.eventType === GraphEventType.QUEUED) {
+					// 排队事件只用于保持连接，后续事件到达即表示运行已开始
+					return;
+				}
 
 				const responseStepId =
 					response.stepId || `${response.nodeName}:${response.attempt || 1}`;
+				if (response.eventType === GraphEventType.OUTPUT_RESTART) {
+					// 结构化输出未通过校验，撤回已展示的部分，随后的事件是重新输出的内容
+					if (currentStepId === responseStepId) {
+						discardTrailingText(
+							sessionState.nodeBlocks[currentBlockIndex],
+							response.discardedChars || 0,
+						);
+						scheduleViewSync();
+					}
+					return;
+				}
 				const isNewStep = currentStepId !== responseStepId;
 				if (isNewStep) {
 					sessionState.nodeBlocks.push([{ ...response }]);
@@ -17,6 +17,7 @@
 import { describe, expect, it } from 'vitest';
 import { TextType, type GraphNodeResponse } from '../services/graph/index';
 import {
+	discardTrailingText,
 	groupWorkflowTimeline,
 	segmentWorkflowContent,
 } from './workflowTimeline';
@@ -135,4 +136,24 @@ describe('segmentWorkflowContent', () => {
 		expect(segments).toHaveLength(2);
 		expect(segments.every((segment) => segment.kind === 'code')).toBe(true);
 	});
+
+	it('discards the rejected structured output across streamed events', () => {
+		const block = [
+			event('SemanticConsistencyNode', '开始语义一致性校验\n'),
+			event('SemanticConsistencyNode', '{"pass'),
+			event('SemanticConsistencyNode', 'ed": tr'),
+		];
+
+		discardTrailingText(block, '{"passed": tr'.length);
+
+		expect(block.map((item) => item.text)).toEqual(['开始语义一致性校验\n']);
+	});
+
+	it('trims a partially discarded event', () => {
+		const block = [event('IntentRecognitionNode', 'status\n{"bad"')];
+
+		discardTrailingText(block, '{"bad"'.length);
+
+		expect(block[0]?.text).toBe('status\n');
+	});
 });
@@ -109,3 +109,31 @@ export function groupWorkflowTimeline(
 
 	return groups;
 }
+
+/**
+ * Removes the last `count` characters shown for a step. The backend sends this when a
+ * structured output failed validation and the model is about to write it again, so the
+ * rejected attempt does not stay in front of the repaired one.
+ */
+export function discardTrailingText(
+	block: GraphNodeResponse[] | undefined,
+	count: number,
+): void {
+	if (!block) return;
+	let remaining = count;
+	while (remaining > 0 && block.length > 0) {
+		const last = block[block.length - 1]!;
+		const text = last.text || '';
+		if (text.length > remaining) {
+			last.text = text.slice(0, text.length - remaining);
+			return;
+		}
+		remaining -= text.length;
+		if (block.length === 1) {
+			// keep the step's first event, it identifies the block
+			last.text = '';
+			return;
+		}
+		block.pop();
+	}
+}
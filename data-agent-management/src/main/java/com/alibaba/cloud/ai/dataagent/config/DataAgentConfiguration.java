@@ -15,14 +15,26 @@
  */
 package com.alibaba.cloud.ai.dataagent.config;
 
+import com.alibaba.cloud.ai.dataagent.mapper.GraphRunOwnerMapper;
+import com.alibaba.cloud.ai.dataagent.prompt.SchemaPromptCompactor;
 import com.alibaba.cloud.ai.dataagent.properties.CodeExecutorProperties;
 import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import com.alibaba.cloud.ai.dataagent.properties.FileStorageProperties;
 import com.alibaba.cloud.ai.dataagent.properties.OssStorageProperties;
 import com.alibaba.cloud.ai.dataagent.service.file.FileStorageService;
 import com.alibaba.cloud.ai.dataagent.service.file.FileStorageServiceFactory;
+import com.alibaba.cloud.ai.dataagent.service.graph.Context.InMemoryStreamContextRegistry;
+import com.alibaba.cloud.ai.dataagent.service.graph.Context.JdbcStreamContextRegistry;
+import com.alibaba.cloud.ai.dataagent.service.graph.Context.StreamContextRegistry;
+import com.alibaba.cloud.ai.dataagent.service.graph.SmileStateSerializer;
+import com.alibaba.cloud.ai.dataagent.service.graph.TieredCheckpointSaver;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.LocalStateValueStore;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
 import com.alibaba.cloud.ai.dataagent.service.langfuse.NodeTracingLifecycleListener;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
+import com.alibaba.cloud.ai.dataagent.service.llm.impls.CachingLlmService;
+import com.alibaba.cloud.ai.dataagent.service.llm.impls.CoalescingLlmService;
 import com.alibaba.cloud.ai.dataagent.service.llm.impls.StreamLlmService;
 import com.alibaba.cloud.ai.dataagent.service.vectorstore.SimpleVectorStoreInitialization;
 import com.alibaba.cloud.ai.dataagent.service.vectorstore.MetadataAwareSimpleVectorStore;
@@ -33,7 +45,12 @@ import com.alibaba.cloud.ai.dataagent.splitter.ParagraphTextSplitter;
 import com.alibaba.cloud.ai.dataagent.util.McpServerToolUtil;
 import com.alibaba.cloud.ai.dataagent.util.NodeBeanUtil;
 import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.AiModelRegistry;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.CachingEmbeddingModel;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.CoalescingEmbeddingModel;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.ProviderRateLimiter;
 import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.EmbeddingModelCompatibilityValidator;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.MicroBatchingEmbeddingModel;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.PinnedEmbeddingModel;
 import com.alibaba.cloud.ai.dataagent.strategy.EnhancedTokenCountBatchingStrategy;
 import com.alibaba.cloud.ai.dataagent.workflow.dispatcher.*;
 import com.alibaba.cloud.ai.dataagent.workflow.node.*;
@@ -47,8 +64,11 @@ import com.alibaba.cloud.ai.graph.checkpoint.config.SaverConfig;
 import com.alibaba.cloud.ai.graph.checkpoint.savers.MemorySaver;
 import com.alibaba.cloud.ai.graph.checkpoint.savers.mysql.CreateOption;
 import com.alibaba.cloud.ai.graph.checkpoint.savers.mysql.MysqlSaver;
+import com.alibaba.cloud.ai.graph.serializer.StateSerializer;
 import com.alibaba.cloud.ai.graph.exception.GraphStateException;
 import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.embedding.BatchingStrategy;
 import org.springframework.ai.embedding.EmbeddingModel;
@@ -81,10 +101,14 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
 
 import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
@@ -114,8 +138,25 @@ public class DataAgentConfiguration implements DisposableBean {
 
 	@Bean
 	@ConditionalOnMissingBean(LlmService.class)
-	public LlmService llmService(AiModelRegistry aiModelRegistry) {
-		return new StreamLlmService(aiModelRegistry);
+	public LlmService llmService(AiModelRegistry aiModelRegistry, DataAgentProperties properties,
+			MeterRegistry meterRegistry) {
+		LlmService llmService = new StreamLlmService(aiModelRegistry, properties.getHedging(), meterRegistry);
+		if (properties.getSingleFlight().isLlmEnabled()) {
+			llmService = new CoalescingLlmService(llmService, aiModelRegistry, meterRegistry);
+		}
+		if (properties.getLlmCache().isEnabled()) {
+			return new CachingLlmService(llmService, aiModelRegistry, properties.getLlmCache(), meterRegistry);
+		}
+		return llmService;
+	}
+
+	/**
+	 * 未引入 actuator 时使用全局注册表，引入后由 actuator 提供的注册表接管
+	 */
+	@Bean
+	@ConditionalOnMissingBean(MeterRegistry.class)
+	public MeterRegistry meterRegistry() {
+		return Metrics.globalRegistry;
 	}
 
 	@Bean
@@ -229,6 +270,7 @@ public class DataAgentConfiguration implements DisposableBean {
 			.addNode(PYTHON_ANALYZE_NODE, nodeBeanUtil.getNodeBeanAsync(PythonAnalyzeNode.class))
 			.addNode(REPORT_GENERATOR_NODE, nodeBeanUtil.getNodeBeanAsync(ReportGeneratorNode.class))
 			.addNode(SEMANTIC_CONSISTENCY_NODE, nodeBeanUtil.getNodeBeanAsync(SemanticConsistencyNode.class))
+			.addNode(PARALLEL_SQL_EXECUTE_NODE, nodeBeanUtil.getNodeBeanAsync(ParallelSqlExecuteNode.class))
 			.addNode(HUMAN_FEEDBACK_NODE, nodeBeanUtil.getNodeBeanAsync(HumanFeedbackNode.class));
 
 		stateGraph.addEdge(START, INTENT_RECOGNITION_NODE)
@@ -262,6 +304,8 @@ public class DataAgentConfiguration implements DisposableBean {
 					// If validation passes, proceed to the correct execution node
 					SQL_GENERATE_NODE, SQL_GENERATE_NODE, PYTHON_GENERATE_NODE, PYTHON_GENERATE_NODE,
 					REPORT_GENERATOR_NODE, REPORT_GENERATOR_NODE,
+					// Independent SQL steps are executed together
+					PARALLEL_SQL_EXECUTE_NODE, PARALLEL_SQL_EXECUTE_NODE,
 					// If human review is enabled, go to human_feedback node
 					HUMAN_FEEDBACK_NODE, HUMAN_FEEDBACK_NODE,
 					// If max repair attempts are reached, end the process
@@ -284,7 +328,9 @@ public class DataAgentConfiguration implements DisposableBean {
 			.addConditionalEdges(SEMANTIC_CONSISTENCY_NODE, edge_async(new SemanticConsistenceDispatcher()),
 					Map.of(SQL_GENERATE_NODE, SQL_GENERATE_NODE, SQL_EXECUTE_NODE, SQL_EXECUTE_NODE))
 			.addConditionalEdges(SQL_EXECUTE_NODE, edge_async(new SQLExecutorDispatcher()),
-					Map.of(SQL_GENERATE_NODE, SQL_GENERATE_NODE, PLAN_EXECUTOR_NODE, PLAN_EXECUTOR_NODE));
+					Map.of(SQL_GENERATE_NODE, SQL_GENERATE_NODE, PLAN_EXECUTOR_NODE, PLAN_EXECUTOR_NODE))
+			.addConditionalEdges(PARALLEL_SQL_EXECUTE_NODE, edge_async(new ParallelSqlExecuteDispatcher()),
+					Map.of(PLAN_EXECUTOR_NODE, PLAN_EXECUTOR_NODE, END, END));
 
 		GraphRepresentation graphRepresentation = stateGraph.getGraph(GraphRepresentation.Type.PLANTUML,
 				"workflow graph");
@@ -302,10 +348,29 @@ public class DataAgentConfiguration implements DisposableBean {
 	@Bean
 	@ConditionalOnProperty(name = "spring.ai.alibaba.data-agent.checkpoint.type", havingValue = "mysql",
 			matchIfMissing = true)
-	public BaseCheckpointSaver mysqlCheckpointSaver(StateGraph nl2sqlGraph, DataSource dataSource) {
+	public BaseCheckpointSaver mysqlCheckpointSaver(StateGraph nl2sqlGraph, DataSource dataSource,
+			DataAgentProperties properties) {
+		return buildMysqlSaver(nl2sqlGraph, dataSource, properties);
+	}
+
+	/**
+	 * 分层检查点：热层在内存中读写，后台按间隔合并写入 MySQL，人工反馈中断前同步落库。
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "spring.ai.alibaba.data-agent.checkpoint.type", havingValue = "tiered")
+	public TieredCheckpointSaver tieredCheckpointSaver(StateGraph nl2sqlGraph, DataSource dataSource,
+			DataAgentProperties properties, MeterRegistry meterRegistry) {
+		return new TieredCheckpointSaver(buildMysqlSaver(nl2sqlGraph, dataSource, properties),
+				properties.getCheckpoint().getTiered(), Set.of(HUMAN_FEEDBACK_NODE), meterRegistry);
+	}
+
+	private static MysqlSaver buildMysqlSaver(StateGraph nl2sqlGraph, DataSource dataSource,
+			DataAgentProperties properties) {
+		StateSerializer stateSerializer = "smile".equalsIgnoreCase(properties.getCheckpoint().getSerializer())
+				? new SmileStateSerializer(SmileStateSerializer.defaultTypeTable()) : nl2sqlGraph.getStateSerializer();
 		return MysqlSaver.builder()
 			.dataSource(dataSource)
-			.stateSerializer(nl2sqlGraph.getStateSerializer())
+			.stateSerializer(stateSerializer)
 			.createOption(CreateOption.CREATE_IF_NOT_EXISTS)
 			.build();
 	}
@@ -316,6 +381,50 @@ public class DataAgentConfiguration implements DisposableBean {
 		return MemorySaver.builder().build();
 	}
 
+	/**
+	 * 图状态大值的外部存储，默认写入本地目录。可声明自定义 {@link StateValueStore} Bean 替换为共享存储
+	 */
+	@Bean
+	@ConditionalOnMissingBean(StateValueStore.class)
+	public StateValueStore localStateValueStore(DataAgentProperties properties) {
+		return new LocalStateValueStore(Path.of(properties.getStateOffload().getPath()));
+	}
+
+	@Bean
+	public StateValueOffloader stateValueOffloader(StateValueStore stateValueStore, DataAgentProperties properties) {
+		if (properties.getStateOffload().isEnabled() && stateValueStore instanceof LocalStateValueStore
+				&& "jdbc".equals(properties.getStream().getRegistry().getType())) {
+			// 人工反馈恢复与断线重连可能落到其他节点，本节点目录中的内容在那里读不到
+			log.warn(
+					"State offload writes to the node-local directory {} in a multi-node deployment; "
+							+ "point it at shared storage or declare a shared StateValueStore bean",
+					properties.getStateOffload().getPath());
+		}
+		return new StateValueOffloader(stateValueStore, properties.getStateOffload());
+	}
+
+	/**
+	 * 图运行流上下文注册表。单节点部署使用内存实现；多节点部署使用 jdbc，在管理库中登记运行归属，
+	 * 使停止、人工反馈恢复与断线重连请求落到任意节点都能转发到运行所在节点。
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "spring.ai.alibaba.data-agent.stream.registry.type", havingValue = "memory",
+			matchIfMissing = true)
+	public StreamContextRegistry inMemoryStreamContextRegistry() {
+		return new InMemoryStreamContextRegistry();
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "spring.ai.alibaba.data-agent.stream.registry.type", havingValue = "jdbc")
+	public StreamContextRegistry jdbcStreamContextRegistry(GraphRunOwnerMapper graphRunOwnerMapper,
+			DataAgentProperties properties, @Value("${server.port:8080}") int serverPort) throws UnknownHostException {
+		DataAgentProperties.Stream.Registry registry = properties.getStream().getRegistry();
+		String nodeId = StringUtils.hasText(registry.getNodeId()) ? registry.getNodeId() : UUID.randomUUID().toString();
+		String nodeAddress = StringUtils.hasText(registry.getNodeAddress()) ? registry.getNodeAddress()
+				: "http://" + InetAddress.getLocalHost().getHostAddress() + ":" + serverPort;
+		return new JdbcStreamContextRegistry(graphRunOwnerMapper, nodeId, nodeAddress, registry);
+	}
+
 	@Bean
 	public CompileConfig nl2sqlGraphCompileConfig(BaseCheckpointSaver checkpointSaver,
 			NodeTracingLifecycleListener nodeTracingLifecycleListener) {
@@ -361,21 +470,39 @@ public class DataAgentConfiguration implements DisposableBean {
 	@ConditionalOnMissingBean(BatchingStrategy.class)
 	public BatchingStrategy customBatchingStrategy(DataAgentProperties properties) {
 		// 使用增强的批处理策略，同时考虑token数量和文本数量限制
-		EncodingType encodingType;
+		return new EnhancedTokenCountBatchingStrategy(resolveEncodingType(properties),
+				properties.getEmbeddingBatch().getMaxTokenCount(),
+				properties.getEmbeddingBatch().getReservePercentage(),
+				properties.getEmbeddingBatch().getMaxTextCount());
+	}
+
+	/**
+	 * Schema 提示词压缩器，与向量化批处理使用相同的 token 编码
+	 */
+	@Bean
+	public SchemaPromptCompactor schemaPromptCompactor(DataAgentProperties properties, MeterRegistry meterRegistry) {
+		return new SchemaPromptCompactor(properties.getSchemaPrompt(), resolveEncodingType(properties), meterRegistry);
+	}
+
+	/**
+	 * 模型调用限流器，与向量化批处理使用相同的 token 编码估算请求 token 数
+	 */
+	@Bean
+	public ProviderRateLimiter providerRateLimiter(DataAgentProperties properties, MeterRegistry meterRegistry) {
+		return new ProviderRateLimiter(properties.getModelRateLimit(), resolveEncodingType(properties), meterRegistry);
+	}
+
+	private static EncodingType resolveEncodingType(DataAgentProperties properties) {
 		try {
 			Optional<EncodingType> encodingTypeOptional = EncodingType
 				.fromName(properties.getEmbeddingBatch().getEncodingType());
-			encodingType = encodingTypeOptional.orElse(EncodingType.CL100K_BASE);
+			return encodingTypeOptional.orElse(EncodingType.CL100K_BASE);
 		}
 		catch (Exception e) {
 			log.warn("Unknown encodingType '{}', falling back to CL100K_BASE",
 					properties.getEmbeddingBatch().getEncodingType());
-			encodingType = EncodingType.CL100K_BASE;
+			return EncodingType.CL100K_BASE;
 		}
-
-		return new EnhancedTokenCountBatchingStrategy(encodingType, properties.getEmbeddingBatch().getMaxTokenCount(),
-				properties.getEmbeddingBatch().getReservePercentage(),
-				properties.getEmbeddingBatch().getMaxTextCount());
 	}
 
 	@Bean
@@ -403,7 +530,8 @@ public class DataAgentConfiguration implements DisposableBean {
 	@Bean
 	@Primary
 	public EmbeddingModel embeddingModel(AiModelRegistry registry,
-			EmbeddingModelCompatibilityValidator embeddingModelCompatibilityValidator) {
+			EmbeddingModelCompatibilityValidator embeddingModelCompatibilityValidator, DataAgentProperties properties,
+			MeterRegistry meterRegistry) {
 
 		// 1. 定义目标源 (TargetSource)
 		TargetSource targetSource = new TargetSource() {
@@ -438,8 +566,20 @@ public class DataAgentConfiguration implements DisposableBean {
 		// 代理接口
 		proxyFactory.addInterface(EmbeddingModel.class);
 
-		// 3. 返回动态生成的代理对象
-		return (EmbeddingModel) proxyFactory.getProxy();
+		// 3. 返回动态生成的代理对象，按需将并发请求合并为批量请求、合并进行中的相同请求、缓存查询文本的向量，并固定多类型检索的查询向量
+		EmbeddingModel proxy = (EmbeddingModel) proxyFactory.getProxy();
+		if (properties.getEmbeddingMicroBatch().isEnabled()) {
+			proxy = new MicroBatchingEmbeddingModel(proxy, properties.getEmbeddingMicroBatch().getWindowMs(),
+					properties.getEmbeddingBatch().getMaxTextCount(), meterRegistry);
+		}
+		if (properties.getSingleFlight().isEmbeddingEnabled()) {
+			proxy = new CoalescingEmbeddingModel(proxy, registry, meterRegistry);
+		}
+		if (properties.getQueryEmbeddingCache().isEnabled()) {
+			proxy = new CachingEmbeddingModel(proxy, registry, properties.getQueryEmbeddingCache(), meterRegistry);
+		}
+		// 多类型检索期间固定查询向量，不依赖查询向量缓存
+		return new PinnedEmbeddingModel(proxy, registry);
 	}
 
 	@Bean(name = "dbOperationExecutor")
@@ -118,6 +118,9 @@ public final class Constant {
 
 	public static final String SEMANTIC_CONSISTENCY_NODE = "SEMANTIC_CONSISTENCY_NODE";
 
+	// 并行执行计划中互不依赖的SQL步骤
+	public static final String PARALLEL_SQL_EXECUTE_NODE = "PARALLEL_SQL_EXECUTE_NODE";
+
 	public static final String HUMAN_FEEDBACK_NODE = "HUMAN_FEEDBACK_NODE";
 
 	// Keys related to Python code execution
@@ -17,6 +17,7 @@ package com.alibaba.cloud.ai.dataagent.controller;
 
 import com.alibaba.cloud.ai.dataagent.exception.InternalServerException;
 import com.alibaba.cloud.ai.dataagent.exception.InvalidInputException;
+import com.alibaba.cloud.ai.dataagent.exception.TooManyRequestsException;
 import com.alibaba.cloud.ai.dataagent.vo.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -47,6 +48,13 @@ public class GlobalExceptionHandler {
 		return ApiResponse.error(e.getMessage());
 	}
 
+	@ExceptionHandler(TooManyRequestsException.class)
+	@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+	public ApiResponse<Object> handleTooManyRequestsException(TooManyRequestsException e) {
+		log.warn("Too many requests: {}", e.getMessage());
+		return ApiResponse.error(e.getMessage());
+	}
+
 	@ExceptionHandler(ResponseStatusException.class)
 	public ResponseEntity<ApiResponse<Object>> handleResponseStatusException(ResponseStatusException e) {
 		String message = e.getReason() == null ? e.getStatusCode().toString() : e.getReason();
@@ -17,18 +17,26 @@ package com.alibaba.cloud.ai.dataagent.controller;
 
 import com.alibaba.cloud.ai.dataagent.dto.GraphRequest;
 import com.alibaba.cloud.ai.dataagent.enums.GraphEventType;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.graph.Context.StreamContextRegistry;
 import com.alibaba.cloud.ai.dataagent.service.graph.GraphService;
+import com.alibaba.cloud.ai.dataagent.service.graph.StreamRunForwarder;
 import com.alibaba.cloud.ai.dataagent.vo.GraphNodeResponse;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.util.Optional;
 
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.STREAM_EVENT_COMPLETE;
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.STREAM_EVENT_ERROR;
@@ -46,6 +54,10 @@ public class GraphController {
 
 	private final GraphService graphService;
 
+	private final DataAgentProperties properties;
+
+	private final StreamRunForwarder streamRunForwarder;
+
 	@GetMapping(value = "/stream/search", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
 	public Flux<ServerSentEvent<GraphNodeResponse>> streamSearch(@RequestParam("agentId") String agentId,
 			@RequestParam(value = "conversationId", required = false) String conversationId,
@@ -53,14 +65,43 @@ public class GraphController {
 			@RequestParam(value = "humanFeedback", required = false) boolean humanFeedback,
 			@RequestParam(value = "humanFeedbackContent", required = false) String humanFeedbackContent,
 			@RequestParam(value = "rejectedPlan", required = false) boolean rejectedPlan,
-			@RequestParam(value = "nl2sqlOnly", required = false) boolean nl2sqlOnly, ServerHttpResponse response) {
+			@RequestParam(value = "nl2sqlOnly", required = false) boolean nl2sqlOnly,
+			@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId, ServerHttpRequest httpRequest,
+			ServerHttpResponse response) {
 		// Set SSE-related HTTP headers
 		response.getHeaders().add("Cache-Control", "no-cache");
 		response.getHeaders().add("Connection", "keep-alive");
 		response.getHeaders().add("Access-Control-Allow-Origin", "*");
 
-		Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = Sinks.many().unicast().onBackpressureBuffer();
+		// 断线重连与人工反馈恢复需要由持有运行的节点处理
+		String ownedThreadId = StringUtils.hasText(lastEventId) && lastEventId.lastIndexOf(':') > 0
+				? lastEventId.substring(0, lastEventId.lastIndexOf(':'))
+				: StringUtils.hasText(humanFeedbackContent) ? threadId : null;
+		Optional<StreamContextRegistry.Owner> owner = streamRunForwarder.remoteOwner(ownedThreadId,
+				httpRequest.getHeaders());
+		if (owner.isPresent()) {
+			return streamRunForwarder.forwardStream(owner.get(), httpRequest, agentId);
+		}
+
+		// EventSource 断线重连时会携带 Last-Event-ID（格式为 threadId:序号），此时接回原运行而不是重新执行
+		if (StringUtils.hasText(lastEventId)) {
+			// 重连时先补发重放缓冲中的事件，发送缓冲需要额外容纳这部分
+			Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = newSink(
+					properties.getStream().getReplayBufferSize() + properties.getStream().getSinkBufferSize());
+			if (graphService.resumeStream(sink, agentId, lastEventId)) {
+				GraphRequest resumed = GraphRequest.builder()
+					.agentId(agentId)
+					.threadId(lastEventId.substring(0, lastEventId.lastIndexOf(':')))
+					.build();
+				return toEventStream(sink, resumed);
+			}
+			return Flux.just(ServerSentEvent
+				.builder(GraphNodeResponse.error(agentId, threadId, "Stream run is no longer available"))
+				.event(STREAM_EVENT_ERROR)
+				.build());
+		}
 
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = newSink(properties.getStream().getSinkBufferSize());
 		GraphRequest request = GraphRequest.builder()
 			.agentId(agentId)
 			.conversationId(conversationId)
@@ -72,7 +113,20 @@ public class GraphController {
 			.nl2sqlOnly(nl2sqlOnly)
 			.build();
 		graphService.graphStreamProcess(sink, request);
+		return toEventStream(sink, request);
+	}
+
+	/**
+	 * 创建有界的发送缓冲，慢客户端写满后由服务层按溢出策略处理
+	 */
+	private static Sinks.Many<ServerSentEvent<GraphNodeResponse>> newSink(int capacity) {
+		return Sinks.many()
+			.unicast()
+			.onBackpressureBuffer(Queues.<ServerSentEvent<GraphNodeResponse>>get(capacity).get());
+	}
 
+	private Flux<ServerSentEvent<GraphNodeResponse>> toEventStream(Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink,
+			GraphRequest request) {
 		return sink.asFlux().filter(sse -> {
 			// 1. 如果 event 是 "complete" 或 "error"，直接放行（不管 text 是否为空）
 			if (STREAM_EVENT_COMPLETE.equals(sse.event()) || STREAM_EVENT_ERROR.equals(sse.event())) {
@@ -91,7 +145,7 @@ public class GraphController {
 			.doOnCancel(() -> {
 				log.info("Client disconnected from stream, threadId: {}", request.getThreadId());
 				if (request.getThreadId() != null) {
-					graphService.stopStreamProcessing(request.getThreadId());
+					graphService.detachStream(request.getThreadId(), sink);
 				}
 			})
 			.doOnError(e -> {
@@ -104,15 +158,19 @@ public class GraphController {
 	}
 
 	@PostMapping("/stream/stop")
-	public ResponseEntity<Void> stopStream(@RequestParam("conversationId") String conversationId,
-			@RequestParam(value = "threadId", required = false) String threadId) {
+	public Mono<ResponseEntity<Void>> stopStream(@RequestParam("conversationId") String conversationId,
+			@RequestParam(value = "threadId", required = false) String threadId, ServerHttpRequest httpRequest) {
 		if (StringUtils.hasText(threadId)) {
-			graphService.stopStreamProcessing(threadId);
+			if (streamRunForwarder.remoteOwner(threadId, httpRequest.getHeaders()).isEmpty()) {
+				graphService.stopStreamProcessing(threadId);
+			}
 		}
 		else {
 			graphService.stopStreamProcessingByConversationId(conversationId);
 		}
-		return ResponseEntity.noContent().build();
+		// 运行在其他节点上时转发到归属节点
+		return streamRunForwarder.forwardStop(conversationId, threadId, httpRequest.getHeaders())
+			.thenReturn(ResponseEntity.noContent().build());
 	}
 
 }
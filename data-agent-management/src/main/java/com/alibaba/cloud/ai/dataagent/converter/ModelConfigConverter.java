@@ -43,6 +43,7 @@ public class ModelConfigConverter {
 			.isActive(entity.getIsActive())
 			.apiKey(entity.getApiKey())
 			.modelType(entity.getModelType().getCode())
+			.tier(entity.getTier())
 			.completionsPath(entity.getCompletionsPath())
 			.embeddingsPath(entity.getEmbeddingsPath())
 			.proxyEnabled(entity.getProxyEnabled())
@@ -82,6 +83,7 @@ public class ModelConfigConverter {
 		entity.setTemperature(dto.getTemperature());
 		entity.setMaxTokens(dto.getMaxTokens());
 		entity.setModelType(ModelType.fromCode(dto.getModelType()));
+		entity.setTier(normalizeTier(dto.getModelType(), dto.getTier()));
 		entity.setCompletionsPath(dto.getCompletionsPath());
 		entity.setEmbeddingsPath(dto.getEmbeddingsPath());
 		entity.setProxyEnabled(dto.getProxyEnabled());
@@ -98,4 +100,14 @@ public class ModelConfigConverter {
 		return entity;
 	}
 
+	/**
+	 * 档位仅对 CHAT 模型生效，空白视为默认档位
+	 */
+	public static String normalizeTier(String modelType, String tier) {
+		if (!ModelType.CHAT.getCode().equals(modelType) || !StringUtils.hasText(tier)) {
+			return null;
+		}
+		return tier.trim();
+	}
+
 }
@@ -46,6 +46,9 @@ public class ModelConfigDTO {
 	@InEnum(value = ModelType.class, message = "CHAT/EMBEDDING 之一")
 	private String modelType;
 
+	// 模型档位，仅 CHAT 类型有效，为空表示默认档位，例如 "fast"
+	private String tier;
+
 	// 仅当厂商路径非标准时填写，例如 "/custom/chat"
 	private String completionsPath;
 
@@ -22,6 +22,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -39,6 +41,12 @@ public class ExecutionStep {
 	@JsonPropertyDescription("工具参数")
 	private ToolParameters toolParameters;
 
+	// 为 null 时视为依赖上一个步骤，按顺序执行；互不依赖的连续 SQL 步骤会并行执行
+	@JsonProperty("depends_on")
+	@JsonPropertyDescription("当前步骤依赖的前序步骤号列表，不依赖任何前序步骤结果时填空数组")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private List<Integer> dependsOn;
+
 	@Data
 	@NoArgsConstructor
 	@AllArgsConstructor
@@ -70,7 +78,7 @@ public class ExecutionStep {
 	@Override
 	public String toString() {
 		return "ExecutionStep{" + "step=" + step + ", toolToUse='" + toolToUse + '\'' + ", toolParameters="
-				+ toolParameters + '}';
+				+ toolParameters + ", dependsOn=" + dependsOn + '}';
 	}
 
 }
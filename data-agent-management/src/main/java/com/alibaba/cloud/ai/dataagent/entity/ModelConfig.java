@@ -46,6 +46,9 @@ public class ModelConfig {
 	// 可选值："CHAT", "EMBEDDING"
 	private ModelType modelType;
 
+	// 模型档位（仅 CHAT 类型），为空表示默认档位
+	private String tier;
+
 	private String completionsPath;
 
 	private String embeddingsPath;
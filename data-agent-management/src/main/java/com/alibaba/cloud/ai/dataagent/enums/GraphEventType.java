@@ -21,6 +21,13 @@ public enum GraphEventType {
 
 	FINAL_ANSWER,
 
-	HUMAN_FEEDBACK_REQUIRED
+	HUMAN_FEEDBACK_REQUIRED,
+
+	QUEUED,
+
+	/**
+	 * 结构化输出未通过校验、即将重新输出，客户端应撤回该步骤末尾 discardedChars 个已展示的字符
+	 */
+	OUTPUT_RESTART
 
 }
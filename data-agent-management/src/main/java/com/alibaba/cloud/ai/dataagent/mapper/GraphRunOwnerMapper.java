@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.mapper;
+
+import com.alibaba.cloud.ai.dataagent.entity.GraphRunOwner;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface GraphRunOwnerMapper {
+
+	@Insert("""
+			INSERT INTO graph_run_owner (thread_id, conversation_id, node_id, node_address, heartbeat_time)
+			VALUES (#{threadId}, #{conversationId}, #{nodeId}, #{nodeAddress}, #{heartbeatTime})
+			""")
+	int insert(GraphRunOwner owner);
+
+	/**
+	 * Take over an existing run record, e.g. when a human feedback resume is handled by
+	 * another node
+	 */
+	@Update("""
+			UPDATE graph_run_owner SET
+				conversation_id = #{conversationId},
+				node_id = #{nodeId},
+				node_address = #{nodeAddress},
+				heartbeat_time = #{heartbeatTime}
+			WHERE thread_id = #{threadId}
+			""")
+	int updateByThreadId(GraphRunOwner owner);
+
+	/**
+	 * Query the owner of a run whose node is still alive
+	 */
+	@Select("""
+			SELECT * FROM graph_run_owner
+			WHERE thread_id = #{threadId} AND heartbeat_time >= #{aliveAfter}
+			""")
+	GraphRunOwner selectAliveByThreadId(@Param("threadId") String threadId,
+			@Param("aliveAfter") LocalDateTime aliveAfter);
+
+	/**
+	 * Query owners of all runs in a conversation whose nodes are still alive
+	 */
+	@Select("""
+			SELECT * FROM graph_run_owner
+			WHERE conversation_id = #{conversationId} AND heartbeat_time >= #{aliveAfter}
+			""")
+	List<GraphRunOwner> selectAliveByConversationId(@Param("conversationId") String conversationId,
+			@Param("aliveAfter") LocalDateTime aliveAfter);
+
+	/**
+	 * Refresh the heartbeat of every run held by a node
+	 */
+	@Update("""
+			UPDATE graph_run_owner
+			SET heartbeat_time = #{heartbeatTime}
+			WHERE node_id = #{nodeId}
+			""")
+	int updateHeartbeatByNodeId(@Param("nodeId") String nodeId, @Param("heartbeatTime") LocalDateTime heartbeatTime);
+
+	/**
+	 * Only the owning node may release a run, a node that has since taken it over keeps
+	 * it
+	 */
+	@Delete("""
+			DELETE FROM graph_run_owner
+			WHERE thread_id = #{threadId} AND node_id = #{nodeId}
+			""")
+	int deleteByThreadIdAndNodeId(@Param("threadId") String threadId, @Param("nodeId") String nodeId);
+
+	@Delete("""
+			DELETE FROM graph_run_owner
+			WHERE node_id = #{nodeId}
+			""")
+	int deleteByNodeId(@Param("nodeId") String nodeId);
+
+	/**
+	 * Remove runs of nodes that stopped sending heartbeats
+	 */
+	@Delete("""
+			DELETE FROM graph_run_owner
+			WHERE heartbeat_time < #{aliveAfter}
+			""")
+	int deleteExpired(@Param("aliveAfter") LocalDateTime aliveAfter);
+
+}
@@ -25,7 +25,7 @@ public interface ModelConfigMapper {
 
 	@Select("""
 			SELECT id, provider, base_url, api_key, model_name, temperature, is_active, max_tokens,
-			       model_type, completions_path, embeddings_path, created_time, updated_time, is_deleted,
+			       model_type, tier, completions_path, embeddings_path, created_time, updated_time, is_deleted,
 			       proxy_enabled, proxy_host, proxy_port, proxy_username, proxy_password
 			FROM model_config WHERE is_deleted = 0 ORDER BY created_time DESC
 			""")
@@ -33,27 +33,50 @@ public interface ModelConfigMapper {
 
 	@Select("""
 			SELECT id, provider, base_url, api_key, model_name, temperature, is_active, max_tokens,
-			       model_type, completions_path, embeddings_path, created_time, updated_time, is_deleted,
+			       model_type, tier, completions_path, embeddings_path, created_time, updated_time, is_deleted,
 			       proxy_enabled, proxy_host, proxy_port, proxy_username, proxy_password
 			FROM model_config WHERE id = #{id} AND is_deleted = 0
 			""")
 	ModelConfig findById(Integer id);
 
+	/**
+	 * 查询指定类型与档位下激活的模型，tier 为空时查询默认档位
+	 */
 	@Select("""
-			SELECT id, provider, base_url, api_key, model_name, temperature, is_active, max_tokens,
-			       model_type, completions_path, embeddings_path, created_time, updated_time, is_deleted,
-			       proxy_enabled, proxy_host, proxy_port, proxy_username, proxy_password
-			FROM model_config WHERE model_type = #{modelType} AND is_active = 1 AND is_deleted = 0 LIMIT 1
+			<script>
+			   SELECT id, provider, base_url, api_key, model_name, temperature, is_active, max_tokens,
+			          model_type, tier, completions_path, embeddings_path, created_time, updated_time, is_deleted,
+			          proxy_enabled, proxy_host, proxy_port, proxy_username, proxy_password
+			   FROM model_config WHERE model_type = #{modelType} AND is_active = 1 AND is_deleted = 0
+			   <choose>
+			      <when test='tier != null and tier != ""'>AND tier = #{tier}</when>
+			      <otherwise>AND (tier IS NULL OR tier = '')</otherwise>
+			   </choose>
+			   LIMIT 1
+			</script>
 			""")
-	ModelConfig selectActiveByType(@Param("modelType") String modelType);
+	ModelConfig selectActiveByType(@Param("modelType") String modelType, @Param("tier") String tier);
 
-	@Update("UPDATE model_config SET is_active = 0 WHERE model_type = #{modelType} AND id != #{currentId} AND is_deleted = 0")
-	void deactivateOthers(@Param("modelType") String modelType, @Param("currentId") Integer currentId);
+	/**
+	 * 取消同类型同档位下其他模型的激活状态
+	 */
+	@Update("""
+			<script>
+			   UPDATE model_config SET is_active = 0
+			   WHERE model_type = #{modelType} AND id != #{currentId} AND is_deleted = 0
+			   <choose>
+			      <when test='tier != null and tier != ""'>AND tier = #{tier}</when>
+			      <otherwise>AND (tier IS NULL OR tier = '')</otherwise>
+			   </choose>
+			</script>
+			""")
+	void deactivateOthers(@Param("modelType") String modelType, @Param("tier") String tier,
+			@Param("currentId") Integer currentId);
 
 	@Select("""
 			<script>
 			   SELECT id, provider, base_url, api_key, model_name, temperature, is_active, max_tokens,
-			          model_type, completions_path, embeddings_path, created_time, updated_time, is_deleted,
+			          model_type, tier, completions_path, embeddings_path, created_time, updated_time, is_deleted,
 			          proxy_enabled, proxy_host, proxy_port, proxy_username, proxy_password
 			   FROM model_config
 			   <where>
@@ -85,10 +108,10 @@ public interface ModelConfigMapper {
 
 	@Insert("""
 			INSERT INTO model_config (provider, base_url, api_key, model_name, temperature, is_active, max_tokens,
-			                         model_type, completions_path, embeddings_path, created_time, updated_time, is_deleted,
+			                         model_type, tier, completions_path, embeddings_path, created_time, updated_time, is_deleted,
 			                         proxy_enabled, proxy_host, proxy_port, proxy_username, proxy_password)
 			VALUES (#{provider}, #{baseUrl}, #{apiKey}, #{modelName}, #{temperature}, #{isActive}, #{maxTokens},
-			        #{modelType}, #{completionsPath}, #{embeddingsPath}, NOW(), NOW(), 0,
+			        #{modelType}, #{tier}, #{completionsPath}, #{embeddingsPath}, NOW(), NOW(), 0,
 			        #{proxyEnabled}, #{proxyHost}, #{proxyPort}, #{proxyUsername}, #{proxyPassword})
 			""")
 	@Options(useGeneratedKeys = true, keyProperty = "id", keyColumn = "id")
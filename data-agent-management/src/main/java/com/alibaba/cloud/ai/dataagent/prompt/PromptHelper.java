@@ -39,12 +39,16 @@ import java.util.*;
 import java.util.stream.Collectors;
 import org.springframework.ai.converter.BeanOutputConverter;
 
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.FEASIBILITY_ASSESSMENT_NODE;
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.SQL_GENERATE_NODE;
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.TABLE_RELATION_NODE;
 import static com.alibaba.cloud.ai.dataagent.util.ReportTemplateUtil.cleanJsonExample;
 
 public class PromptHelper {
 
-	public static String buildMixSelectorPrompt(String evidence, String question, SchemaDTO schemaDTO) {
-		String schemaInfo = buildMixMacSqlDbPrompt(schemaDTO, true);
+	public static String buildMixSelectorPrompt(String evidence, String question, SchemaDTO schemaDTO,
+			SchemaPromptCompactor compactor) {
+		String schemaInfo = compactor.render(schemaDTO, true, question, TABLE_RELATION_NODE);
 		Map<String, Object> params = new HashMap<>();
 		params.put("schema_info", schemaInfo);
 		params.put("question", question);
@@ -56,18 +60,59 @@ public class PromptHelper {
 	}
 
 	public static String buildMixMacSqlDbPrompt(SchemaDTO schemaDTO, Boolean withColumnType) {
+		List<String> tablePrompts = new ArrayList<>();
+		for (TableDTO tableDTO : canonicalTables(schemaDTO)) {
+			tablePrompts.add(buildMixMacSqlTablePrompt(tableDTO, withColumnType));
+		}
+		return buildMixMacSqlDbPrompt(schemaDTO, tablePrompts);
+	}
+
+	static String buildMixMacSqlDbPrompt(SchemaDTO schemaDTO, List<String> tablePrompts) {
 		StringBuilder sb = new StringBuilder();
 		sb.append("【DB_ID】 ").append(schemaDTO.getName() == null ? "" : schemaDTO.getName()).append("\n");
-		for (TableDTO tableDTO : schemaDTO.getTable()) {
-			sb.append(buildMixMacSqlTablePrompt(tableDTO, withColumnType)).append("\n");
+		for (String tablePrompt : tablePrompts) {
+			sb.append(tablePrompt).append("\n");
 		}
 		if (CollectionUtils.isNotEmpty(schemaDTO.getForeignKeys())) {
-			sb.append("【Foreign keys】\n").append(StringUtils.join(schemaDTO.getForeignKeys(), "\n"));
+			List<String> foreignKeys = schemaDTO.getForeignKeys().stream().sorted().toList();
+			sb.append("【Foreign keys】\n").append(StringUtils.join(foreignKeys, "\n"));
 		}
 		return sb.toString();
 	}
 
+	/**
+	 * 按表名排序的表，召回顺序不同的同一组表渲染出相同的 Schema，便于模型服务复用提示词前缀缓存
+	 */
+	static List<TableDTO> canonicalTables(SchemaDTO schemaDTO) {
+		return schemaDTO.getTable()
+			.stream()
+			.sorted(Comparator.comparing(TableDTO::getName, Comparator.nullsLast(Comparator.naturalOrder())))
+			.toList();
+	}
+
+	/**
+	 * 主键在前（按主键声明顺序），其余字段按字段名排序
+	 */
+	static List<ColumnDTO> canonicalColumns(TableDTO tableDTO) {
+		List<String> primaryKeys = Optional.ofNullable(tableDTO.getPrimaryKeys()).orElse(List.of());
+		return tableDTO.getColumn()
+			.stream()
+			.sorted(Comparator
+				.comparingInt((ColumnDTO column) -> primaryKeys.contains(column.getName())
+						? primaryKeys.indexOf(column.getName()) : primaryKeys.size())
+				.thenComparing(ColumnDTO::getName, Comparator.nullsLast(Comparator.naturalOrder())))
+			.toList();
+	}
+
 	public static String buildMixMacSqlTablePrompt(TableDTO tableDTO, Boolean withColumnType) {
+		List<String> columnLines = new ArrayList<>();
+		for (ColumnDTO columnDTO : canonicalColumns(tableDTO)) {
+			columnLines.add(buildMixMacSqlColumnPrompt(tableDTO, columnDTO, withColumnType, true, true));
+		}
+		return buildMixMacSqlTablePrompt(tableDTO, columnLines);
+	}
+
+	static String buildMixMacSqlTablePrompt(TableDTO tableDTO, List<String> columnLines) {
 		StringBuilder sb = new StringBuilder();
 		// sb.append("# Table:
 		// ").append(tableDTO.getName()).append(StringUtils.isBlank(tableDTO.getDescription())
@@ -81,41 +126,45 @@ public class PromptHelper {
 			sb.append("\n");
 		}
 		sb.append("[\n");
-		List<String> columnLines = new ArrayList<>();
-		for (ColumnDTO columnDTO : tableDTO.getColumn()) {
-			StringBuilder line = new StringBuilder();
-			line.append("(")
-				.append(columnDTO.getName())
-				.append(BooleanUtils.isTrue(withColumnType)
-						? ":" + StringUtils.defaultString(columnDTO.getType(), "").toUpperCase(Locale.ROOT) : "");
-			if (!StringUtils.equals(columnDTO.getDescription(), columnDTO.getName())) {
-				line.append(", ").append(StringUtils.defaultString(columnDTO.getDescription(), ""));
-			}
-			if (CollectionUtils.isNotEmpty(tableDTO.getPrimaryKeys())
-					&& tableDTO.getPrimaryKeys().contains(columnDTO.getName())) {
-				line.append(", Primary Key");
-			}
-			List<String> enumData = Optional.ofNullable(columnDTO.getData())
-				.orElse(new ArrayList<>())
-				.stream()
-				.filter(d -> !StringUtils.isEmpty(d))
-				.collect(Collectors.toList());
-			if (CollectionUtils.isNotEmpty(enumData) && !"id".equals(columnDTO.getName())) {
-				line.append(", Examples: [");
-				List<String> data = new ArrayList<>(enumData.subList(0, Math.min(3, enumData.size())));
-				line.append(StringUtils.join(data, ",")).append("]");
-			}
-
-			line.append(")");
-			columnLines.add(line.toString());
-		}
 		sb.append(StringUtils.join(columnLines, ",\n"));
 		sb.append("\n]");
 		return sb.toString();
 	}
 
-	public static String buildNewSqlGeneratorPrompt(SqlGenerationDTO sqlGenerationDTO) {
-		String schemaInfo = buildMixMacSqlDbPrompt(sqlGenerationDTO.getSchemaDTO(), true);
+	static String buildMixMacSqlColumnPrompt(TableDTO tableDTO, ColumnDTO columnDTO, Boolean withColumnType,
+			boolean withDescription, boolean withExamples) {
+		StringBuilder line = new StringBuilder();
+		line.append("(")
+			.append(columnDTO.getName())
+			.append(BooleanUtils.isTrue(withColumnType)
+					? ":" + StringUtils.defaultString(columnDTO.getType(), "").toUpperCase(Locale.ROOT) : "");
+		if (withDescription && !StringUtils.equals(columnDTO.getDescription(), columnDTO.getName())) {
+			line.append(", ").append(StringUtils.defaultString(columnDTO.getDescription(), ""));
+		}
+		if (CollectionUtils.isNotEmpty(tableDTO.getPrimaryKeys())
+				&& tableDTO.getPrimaryKeys().contains(columnDTO.getName())) {
+			line.append(", Primary Key");
+		}
+		List<String> enumData = Optional.ofNullable(columnDTO.getData())
+			.orElse(new ArrayList<>())
+			.stream()
+			.filter(d -> !StringUtils.isEmpty(d))
+			.collect(Collectors.toList());
+		if (withExamples && CollectionUtils.isNotEmpty(enumData) && !"id".equals(columnDTO.getName())) {
+			line.append(", Examples: [");
+			List<String> data = new ArrayList<>(enumData.subList(0, Math.min(3, enumData.size())));
+			line.append(StringUtils.join(data, ",")).append("]");
+		}
+
+		line.append(")");
+		return line.toString();
+	}
+
+	public static String buildNewSqlGeneratorPrompt(SqlGenerationDTO sqlGenerationDTO,
+			SchemaPromptCompactor compactor) {
+		String schemaInfo = compactor.render(sqlGenerationDTO.getSchemaDTO(), true,
+				relevanceText(sqlGenerationDTO.getQuery(), sqlGenerationDTO.getExecutionDescription()),
+				SQL_GENERATE_NODE);
 		Map<String, Object> params = new HashMap<>();
 		params.put("dialect", sqlGenerationDTO.getDialect());
 		params.put("question", sqlGenerationDTO.getQuery());
@@ -164,8 +213,11 @@ public class PromptHelper {
 		return PromptConstant.getReportGeneratorPlainPromptTemplate().render(params);
 	}
 
-	public static String buildSqlErrorFixerPrompt(SqlGenerationDTO sqlGenerationDTO) {
-		String schemaInfo = buildMixMacSqlDbPrompt(sqlGenerationDTO.getSchemaDTO(), true);
+	public static String buildSqlErrorFixerPrompt(SqlGenerationDTO sqlGenerationDTO, SchemaPromptCompactor compactor) {
+		String schemaInfo = compactor.render(sqlGenerationDTO.getSchemaDTO(), true,
+				relevanceText(sqlGenerationDTO.getQuery(), sqlGenerationDTO.getExecutionDescription(),
+						sqlGenerationDTO.getSql()),
+				SQL_GENERATE_NODE);
 
 		Map<String, Object> params = new HashMap<>();
 		params.put("dialect", sqlGenerationDTO.getDialect());
@@ -283,12 +335,13 @@ public class PromptHelper {
 	 * @param recalledSchema 召回的数据库Schema
 	 * @param evidence 参考信息
 	 * @param multiTurn 多轮对话历史
+	 * @param compactor 按可行性评估的 token 预算渲染 Schema
 	 * @return 可行性评估提示词
 	 */
 	public static String buildFeasibilityAssessmentPrompt(String canonicalQuery, SchemaDTO recalledSchema,
-			String evidence, String multiTurn) {
+			String evidence, String multiTurn, SchemaPromptCompactor compactor) {
 		Map<String, Object> params = new HashMap<>();
-		String schemaInfo = buildMixMacSqlDbPrompt(recalledSchema, true);
+		String schemaInfo = compactor.render(recalledSchema, true, canonicalQuery, FEASIBILITY_ASSESSMENT_NODE);
 		params.put("canonical_query", canonicalQuery != null ? canonicalQuery : "");
 		params.put("recalled_schema", schemaInfo);
 		params.put("evidence", evidence != null ? evidence : "");
@@ -315,6 +368,13 @@ public class PromptHelper {
 		return PromptConstant.getEvidenceQueryRewritePromptTemplate().render(params);
 	}
 
+	/**
+	 * 拼接用于评估 Schema 字段相关度的文本
+	 */
+	public static String relevanceText(String... parts) {
+		return Arrays.stream(parts).filter(StringUtils::isNotBlank).collect(Collectors.joining("\n"));
+	}
+
 	/**
 	 * 渲染优化提示词模板
 	 * @param optimizationPrompt 优化提示词模板
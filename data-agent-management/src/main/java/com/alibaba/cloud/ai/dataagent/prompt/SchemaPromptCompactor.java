@@ -0,0 +1,260 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.prompt;
+
+import com.alibaba.cloud.ai.dataagent.dto.schema.ColumnDTO;
+import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
+import com.alibaba.cloud.ai.dataagent.dto.schema.TableDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 按 token 预算渲染 Schema 提示词。
+ * <p>
+ * 完整 Schema 不超过调用范围的预算时原样返回；超出时先按字段与查询文本的相关度排序，再从相关度最低的字段开始，依次去掉示例值、字段描述，最后去掉整个字段，
+ * 直到满足预算。主键与外键字段不会被去掉。token 数使用与向量化批处理相同的 jtokkit 编码计算。
+ * <p>
+ * 指标：dataagent.prompt.schema.tokens（渲染后的 token 数）与
+ * dataagent.prompt.schema.tokens.saved（节省的 token 数），标签为调用范围 scope。
+ */
+@Slf4j
+public class SchemaPromptCompactor {
+
+	private static final String UNKNOWN_SCOPE = "unknown";
+
+	private final DataAgentProperties.SchemaPrompt properties;
+
+	private final Encoding encoding;
+
+	private final MeterRegistry meterRegistry;
+
+	public SchemaPromptCompactor(DataAgentProperties.SchemaPrompt properties, EncodingType encodingType,
+			MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.encoding = Encodings.newLazyEncodingRegistry().getEncoding(encodingType);
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * 按调用范围的 token 预算渲染 Schema，超出预算时按字段与查询的相关度压缩
+	 * @param query 用于评估字段相关度的文本，如用户问题、执行步骤或待校验的 SQL
+	 * @param scope 调用范围（图节点名），决定 token 预算
+	 */
+	public String render(SchemaDTO schemaDTO, Boolean withColumnType, String query, String scope) {
+		String full = PromptHelper.buildMixMacSqlDbPrompt(schemaDTO, withColumnType);
+		if (!properties.isEnabled()) {
+			return full;
+		}
+		String scopeTag = StringUtils.defaultIfBlank(scope, UNKNOWN_SCOPE);
+		int fullTokens = encoding.countTokens(full);
+		int budget = properties.getScopeMaxTokens().getOrDefault(scopeTag, properties.getMaxTokens());
+		if (fullTokens <= budget) {
+			record(scopeTag, fullTokens, 0);
+			return full;
+		}
+
+		List<TableDTO> tables = PromptHelper.canonicalTables(schemaDTO);
+		List<ColumnEntry> entries = new ArrayList<>();
+		Set<String> foreignKeyColumns = foreignKeyColumns(schemaDTO.getForeignKeys());
+		String normalizedQuery = StringUtils.defaultString(query).toLowerCase(Locale.ROOT);
+		for (TableDTO table : tables) {
+			List<ColumnDTO> columns = PromptHelper.canonicalColumns(table);
+			for (int i = 0; i < columns.size(); i++) {
+				entries
+					.add(new ColumnEntry(table, columns.get(i), i, withColumnType, normalizedQuery, foreignKeyColumns));
+			}
+		}
+
+		// 相关度低的字段先压缩，相关度相同时靠后的字段先压缩
+		List<ColumnEntry> order = entries.stream()
+			.sorted(Comparator.comparingDouble((ColumnEntry entry) -> entry.score)
+				.thenComparing(entry -> entry.position, Comparator.reverseOrder()))
+			.toList();
+		int tokens = fullTokens;
+		for (Level level : List.of(Level.NO_EXAMPLES, Level.NO_DESCRIPTION, Level.DROPPED)) {
+			for (ColumnEntry entry : order) {
+				if (tokens <= budget) {
+					break;
+				}
+				if (level == Level.DROPPED && entry.required) {
+					continue;
+				}
+				tokens -= entry.cost(entry.level) - entry.cost(level);
+				entry.level = level;
+			}
+		}
+
+		List<String> tablePrompts = new ArrayList<>();
+		int index = 0;
+		for (TableDTO table : tables) {
+			List<String> columnLines = new ArrayList<>();
+			for (int i = 0; i < table.getColumn().size(); i++) {
+				ColumnEntry entry = entries.get(index++);
+				if (entry.level != Level.DROPPED) {
+					columnLines.add(entry.line(entry.level));
+				}
+			}
+			tablePrompts.add(PromptHelper.buildMixMacSqlTablePrompt(table, columnLines));
+		}
+		String compacted = PromptHelper.buildMixMacSqlDbPrompt(schemaDTO, tablePrompts);
+		int compactedTokens = encoding.countTokens(compacted);
+		long dropped = entries.stream().filter(entry -> entry.level == Level.DROPPED).count();
+		log.debug("Compacted schema prompt for scope {} from {} to {} tokens (budget {}), dropped {} of {} columns",
+				scopeTag, fullTokens, compactedTokens, budget, dropped, entries.size());
+		record(scopeTag, compactedTokens, fullTokens - compactedTokens);
+		return compacted;
+	}
+
+	/**
+	 * 字段与查询文本的相关度：字段名、字段名片段、描述的字符二元组与示例值在查询中出现的程度
+	 */
+	static double relevance(String query, ColumnDTO column) {
+		if (StringUtils.isEmpty(query)) {
+			return 0;
+		}
+		double score = 0;
+		String name = StringUtils.defaultString(column.getName()).toLowerCase(Locale.ROOT);
+		if (name.length() > 1 && query.contains(name)) {
+			score += 3;
+		}
+		for (String part : name.split("[_\\s]+")) {
+			if (part.length() > 1 && !part.equals(name) && query.contains(part)) {
+				score += 1;
+			}
+		}
+		String description = StringUtils.defaultString(column.getDescription()).toLowerCase(Locale.ROOT);
+		if (description.length() > 1 && !description.equals(name)) {
+			if (query.contains(description)) {
+				score += 3;
+			}
+			else {
+				score += 2 * bigramOverlap(query, description);
+			}
+		}
+		if (CollectionUtils.isNotEmpty(column.getData())) {
+			boolean sampleMentioned = column.getData()
+				.stream()
+				.filter(value -> value != null && value.length() > 1)
+				.anyMatch(value -> query.contains(value.toLowerCase(Locale.ROOT)));
+			if (sampleMentioned) {
+				score += 2;
+			}
+		}
+		return score;
+	}
+
+	private static double bigramOverlap(String query, String text) {
+		String compact = text.replaceAll("\\s+", "");
+		int total = compact.length() - 1;
+		if (total <= 0) {
+			return 0;
+		}
+		int matched = 0;
+		for (int i = 0; i < total; i++) {
+			if (query.contains(compact.substring(i, i + 2))) {
+				matched++;
+			}
+		}
+		return (double) matched / total;
+	}
+
+	/**
+	 * 外键关系形如 "订单表.订单ID=订单详情表.订单ID"，返回其中的 "表名.字段名"（小写）
+	 */
+	private static Set<String> foreignKeyColumns(List<String> foreignKeys) {
+		Set<String> columns = new HashSet<>();
+		if (foreignKeys == null) {
+			return columns;
+		}
+		for (String foreignKey : foreignKeys) {
+			for (String side : StringUtils.defaultString(foreignKey).split("=")) {
+				if (StringUtils.isNotBlank(side)) {
+					columns.add(side.trim().toLowerCase(Locale.ROOT));
+				}
+			}
+		}
+		return columns;
+	}
+
+	private void record(String scope, int tokens, int saved) {
+		meterRegistry.summary("dataagent.prompt.schema.tokens", "scope", scope).record(tokens);
+		meterRegistry.summary("dataagent.prompt.schema.tokens.saved", "scope", scope).record(saved);
+	}
+
+	private enum Level {
+
+		FULL, NO_EXAMPLES, NO_DESCRIPTION, DROPPED
+
+	}
+
+	private final class ColumnEntry {
+
+		private final TableDTO table;
+
+		private final ColumnDTO column;
+
+		private final int position;
+
+		private final Boolean withColumnType;
+
+		private final double score;
+
+		private final boolean required;
+
+		private final int[] costs = new int[Level.values().length];
+
+		private Level level = Level.FULL;
+
+		private ColumnEntry(TableDTO table, ColumnDTO column, int position, Boolean withColumnType, String query,
+				Set<String> foreignKeyColumns) {
+			this.table = table;
+			this.column = column;
+			this.position = position;
+			this.withColumnType = withColumnType;
+			this.score = relevance(query, column);
+			this.required = (table.getPrimaryKeys() != null && table.getPrimaryKeys().contains(column.getName()))
+					|| foreignKeyColumns.contains((table.getName() + "." + column.getName()).toLowerCase(Locale.ROOT));
+			// 字段行之间以 ",\n" 分隔，计入分隔符的 token
+			for (Level candidate : List.of(Level.FULL, Level.NO_EXAMPLES, Level.NO_DESCRIPTION)) {
+				costs[candidate.ordinal()] = encoding.countTokens(line(candidate) + ",\n");
+			}
+		}
+
+		private String line(Level candidate) {
+			return PromptHelper.buildMixMacSqlColumnPrompt(table, column, withColumnType,
+					candidate.compareTo(Level.NO_DESCRIPTION) < 0, candidate == Level.FULL);
+		}
+
+		private int cost(Level candidate) {
+			return costs[candidate.ordinal()];
+		}
+
+	}
+
+}
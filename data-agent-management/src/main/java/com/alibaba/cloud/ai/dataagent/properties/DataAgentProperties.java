@@ -16,10 +16,16 @@
 package com.alibaba.cloud.ai.dataagent.properties;
 
 import com.alibaba.cloud.ai.dataagent.constant.Constant;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Getter
 @Setter
 @ConfigurationProperties(prefix = Constant.PROJECT_PROPERTIES_PREFIX)
@@ -77,6 +83,611 @@ public class DataAgentProperties {
 	 */
 	private Long enrichSqlResultTimeout = 15000L;
 
+	private Stream stream = new Stream();
+
+	private Admission admission = new Admission();
+
+	private SchemaPrefetch schemaPrefetch = new SchemaPrefetch();
+
+	private PlanExecution planExecution = new PlanExecution();
+
+	private CheckpointProperties checkpoint = new CheckpointProperties();
+
+	private StateOffload stateOffload = new StateOffload();
+
+	private LlmCache llmCache = new LlmCache();
+
+	private SemanticCache semanticCache = new SemanticCache();
+
+	private SingleFlight singleFlight = new SingleFlight();
+
+	private EmbeddingMicroBatch embeddingMicroBatch = new EmbeddingMicroBatch();
+
+	private QueryEmbeddingCache queryEmbeddingCache = new QueryEmbeddingCache();
+
+	private ModelTiers modelTiers = new ModelTiers();
+
+	private Hedging hedging = new Hedging();
+
+	private ModelConnectionPool modelConnectionPool = new ModelConnectionPool();
+
+	private ModelRateLimit modelRateLimit = new ModelRateLimit();
+
+	private SchemaPrompt schemaPrompt = new SchemaPrompt();
+
+	@Getter
+	@Setter
+	public static class SchemaPrompt {
+
+		/**
+		 * 是否按 token 预算压缩 Schema 提示词
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * 单次调用中 Schema 部分的默认 token 预算
+		 */
+		private int maxTokens = 8000;
+
+		/**
+		 * 按调用范围（图节点名）覆盖 token 预算
+		 */
+		private Map<String, Integer> scopeMaxTokens = new HashMap<>();
+
+	}
+
+	@Getter
+	@Setter
+	public static class ModelConnectionPool {
+
+		/**
+		 * 每个厂商到单个目标地址的最大连接数
+		 */
+		private int maxConnections = 100;
+
+		/**
+		 * 按厂商标识覆盖最大连接数，如 deepseek: 200
+		 */
+		private Map<String, Integer> providerMaxConnections = new HashMap<>();
+
+		/**
+		 * 等待空闲连接的超时时间（毫秒）
+		 */
+		private long pendingAcquireTimeoutMs = 45000;
+
+		/**
+		 * 连接空闲超过该时间（毫秒）后被回收
+		 */
+		private long maxIdleTimeMs = 60000;
+
+		/**
+		 * 连接的最长存活时间（毫秒）
+		 */
+		private long maxLifeTimeMs = 600000;
+
+		/**
+		 * 后台回收空闲连接的间隔（毫秒）
+		 */
+		private long evictIntervalMs = 30000;
+
+		private long connectTimeoutMs = 10000;
+
+		/**
+		 * 两次读取响应数据之间的最长间隔（毫秒）
+		 */
+		private long responseTimeoutMs = 180000;
+
+		/**
+		 * HTTPS 地址的流式调用是否协商 HTTP/2，服务端不支持时回退到 HTTP/1.1
+		 */
+		private boolean http2Enabled = true;
+
+		/**
+		 * 模型激活时预先建立的连接数，为 0 表示不预热
+		 */
+		private int warmupConnections = 2;
+
+		/**
+		 * 预热的最长等待时间（毫秒），超时后仍切换到新模型
+		 */
+		private long warmupTimeoutMs = 5000;
+
+	}
+
+	@Getter
+	@Setter
+	public static class ModelRateLimit {
+
+		/**
+		 * 是否对对话与向量模型调用限流
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * 每个模型每分钟的请求数上限，不大于 0 时不限制
+		 */
+		private int requestsPerMinute = 0;
+
+		/**
+		 * 每个模型每分钟的 token 数上限，不大于 0 时不限制
+		 */
+		private long tokensPerMinute = 0;
+
+		/**
+		 * 按厂商标识或“厂商/模型名”覆盖上限，如 deepseek 或 deepseek/deepseek-chat，后者优先
+		 */
+		private Map<String, Limit> overrides = new HashMap<>();
+
+		/**
+		 * 对话请求预留的输出 token 数，与提示词的估算 token 数一起计入，响应返回后按实际用量校正
+		 */
+		private int completionTokenReserve = 512;
+
+		/**
+		 * 收到 429 时速率乘以该系数
+		 */
+		private double decreaseFactor = 0.5;
+
+		/**
+		 * 每次成功调用后速率系数增加的值，最多恢复到配置的上限
+		 */
+		private double increaseStep = 0.05;
+
+		/**
+		 * 速率系数的下限
+		 */
+		private double minRateFactor = 0.1;
+
+		/**
+		 * 429 响应没有 Retry-After 时暂停放行的时间（毫秒）
+		 */
+		private long defaultRetryAfterMs = 1000;
+
+		/**
+		 * 收到 429 后重新排队重试的次数，流式调用只在尚未输出内容时重试
+		 */
+		private int maxThrottleRetries = 2;
+
+		/**
+		 * 排队等待的最长时间（毫秒），超时后调用失败
+		 */
+		private long maxQueueWaitMs = 60000;
+
+		@Getter
+		@Setter
+		public static class Limit {
+
+			private int requestsPerMinute;
+
+			private long tokensPerMinute;
+
+		}
+
+	}
+
+	@Getter
+	@Setter
+	public static class Hedging {
+
+		/**
+		 * 是否启用对冲请求：流式调用在首个响应超时后向对冲档位的模型再发一次请求，取先返回者并取消另一个
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * 首个响应的等待预算（毫秒），超时后发起对冲请求
+		 */
+		private long firstResponseBudgetMs = 3000;
+
+		/**
+		 * 对冲请求使用的模型档位，需与调用范围的模型不同
+		 */
+		private String hedgeTier = "backup";
+
+		/**
+		 * 调用在返回任何内容前失败时依次尝试的模型档位，为空表示不回退
+		 */
+		private List<String> fallbackTiers = new ArrayList<>();
+
+	}
+
+	@Getter
+	@Setter
+	public static class ModelTiers {
+
+		/**
+		 * 调用范围（图节点或提示词类型，见 LlmCallScope）到模型档位的映射，未映射的范围使用默认档位。 档位未配置激活的对话模型时回退到默认模型
+		 */
+		private Map<String, String> scopes = new HashMap<>(Map.of(Constant.INTENT_RECOGNITION_NODE, "fast",
+				Constant.EVIDENCE_RECALL_NODE, "fast", Constant.FEASIBILITY_ASSESSMENT_NODE, "fast",
+				LlmCallScope.SESSION_TITLE, "fast", LlmCallScope.SQL_RESULT_CHART, "fast"));
+
+	}
+
+	@Getter
+	@Setter
+	public static class SemanticCache {
+
+		/**
+		 * 是否对相似问题复用历史成功运行的计划与 SQL
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * 规范化问题向量的余弦相似度不低于该值时视为同一问题
+		 */
+		private double similarityThreshold = 0.95;
+
+		/**
+		 * 每个智能体、数据源与运行模式最多保留的条目数，超出后淘汰最早写入的条目
+		 */
+		private int maxEntriesPerAgent = 500;
+
+		/**
+		 * 条目的有效期（毫秒）
+		 */
+		private long ttlMs = 24L * 3600 * 1000;
+
+		/**
+		 * 进行中运行的登记保留时间（毫秒），运行中途停止时由此回收
+		 */
+		private long runTtlMs = 1800000;
+
+	}
+
+	@Getter
+	@Setter
+	public static class LlmCache {
+
+		/**
+		 * 是否启用精确匹配的 LLM 响应缓存
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * 启用缓存的图节点，提示词需完全由智能体配置与用户问题决定
+		 */
+		private List<String> nodes = new ArrayList<>(List.of(Constant.INTENT_RECOGNITION_NODE,
+				Constant.EVIDENCE_RECALL_NODE, Constant.FEASIBILITY_ASSESSMENT_NODE, Constant.TABLE_RELATION_NODE));
+
+		/**
+		 * 最多缓存的响应数，超出后淘汰最久未访问的条目
+		 */
+		private int maxEntries = 2000;
+
+		/**
+		 * 缓存条目的有效期（毫秒）
+		 */
+		private long ttlMs = 3600000;
+
+	}
+
+	@Getter
+	@Setter
+	public static class SingleFlight {
+
+		/**
+		 * 是否合并进行中的相同 LLM 请求
+		 */
+		private boolean llmEnabled = false;
+
+		/**
+		 * 是否合并进行中的相同向量化请求
+		 */
+		private boolean embeddingEnabled = false;
+
+	}
+
+	@Getter
+	@Setter
+	public static class EmbeddingMicroBatch {
+
+		/**
+		 * 是否将并发的少量文本向量化请求合并为一次批量请求
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * 有其他请求正在进行时，第一个请求等待其他请求加入的时间（毫秒），批次达到 embedding-batch.max-text-count
+		 * 时立即发送；没有并发请求时不等待
+		 */
+		private long windowMs = 5;
+
+	}
+
+	@Getter
+	@Setter
+	public static class QueryEmbeddingCache {
+
+		/**
+		 * 是否缓存检索查询文本的向量
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * 最多缓存的向量数，超出后淘汰最久未访问的条目
+		 */
+		private int maxEntries = 5000;
+
+	}
+
+	@Getter
+	@Setter
+	public static class StateOffload {
+
+		/**
+		 * 是否将超过阈值的 SQL 结果、Schema 等大状态值写入外部存储，状态中只保留引用。默认存储为本节点目录， 多节点部署需先替换为共享的
+		 * {@code StateValueStore} 再开启
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * 状态值序列化后超过该字符数时写入外部存储
+		 */
+		private int thresholdChars = 16 * 1024;
+
+		/**
+		 * 本地存储目录，多节点部署时需为共享目录
+		 */
+		private String path = "./data/state-values";
+
+		/**
+		 * 外部存储内容的保留时间（毫秒），超过后由后台清理。需长于人工反馈暂停的最长等待时间
+		 */
+		private long retentionMs = 7L * 24 * 3600 * 1000;
+
+		/**
+		 * 后台清理过期内容的间隔（毫秒）
+		 */
+		private long purgeIntervalMs = 3600000;
+
+		/**
+		 * 进程内缓存的外部存储内容总字符数上限，按最近使用淘汰
+		 */
+		private long cacheMaxChars = 32L * 1024 * 1024;
+
+	}
+
+	@Getter
+	@Setter
+	public static class CheckpointProperties {
+
+		/**
+		 * 检查点存储类型：mysql、memory 或 tiered（内存热层 + 异步批量写入 MySQL）
+		 */
+		private String type = "mysql";
+
+		/**
+		 * MySQL 检查点的状态序列化方式：jackson（图默认的 JSON 文本）或 smile（二进制，保留 DTO 具体类型）。切换前需确保没有暂停中的运行
+		 */
+		private String serializer = "jackson";
+
+		private Tiered tiered = new Tiered();
+
+		@Getter
+		@Setter
+		public static class Tiered {
+
+			/**
+			 * 热层最多缓存的线程数，超出后淘汰最久未访问且已落库的线程
+			 */
+			private int hotMaxThreads = 1000;
+
+			/**
+			 * 热层线程的空闲保留时间（毫秒），超时且已落库后淘汰
+			 */
+			private long hotTtlMs = 1800000;
+
+			/**
+			 * 热层中每个线程保留的最近检查点数，更早的检查点被丢弃；冷层本就只持久化最新检查点
+			 */
+			private int hotMaxCheckpointsPerThread = 10;
+
+			/**
+			 * 后台落库间隔（毫秒），即进程异常退出时最多丢失的检查点时间窗口
+			 */
+			private long flushIntervalMs = 1000;
+
+			/**
+			 * 待落库线程数达到该值时立即触发一次后台落库
+			 */
+			private int maxPendingThreads = 200;
+
+		}
+
+	}
+
+	@Getter
+	@Setter
+	public static class PlanExecution {
+
+		/**
+		 * 单次运行中同时执行的互不依赖SQL步骤数上限，不大于 1 时按顺序逐步执行
+		 */
+		private int maxParallelSqlSteps = 4;
+
+		/**
+		 * 是否在计划流式输出时，第一个步骤一解析完成就提前为其生成SQL，计划校验通过后由SQL生成节点直接使用
+		 */
+		private boolean speculativeFirstStep = true;
+
+		/**
+		 * 未被取走的提前生成结果的保留时间（毫秒），运行中途停止或人工复核等待过久时由此回收
+		 */
+		private long speculationTtlMs = 120000;
+
+	}
+
+	@Getter
+	@Setter
+	public static class SchemaPrefetch {
+
+		/**
+		 * 是否在证据召回开始时用原始问题预取表与列，和证据召回、问题改写并行执行
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * 改写后的问题与原始问题的相似度不低于该值时复用预取结果，否则按改写后的问题重新召回
+		 */
+		private double minQuerySimilarity = 0.5;
+
+		/**
+		 * 召回节点等待预取完成的最长时间（毫秒），超时后按改写后的问题重新召回
+		 */
+		private long waitTimeoutMs = 5000;
+
+		/**
+		 * 未被召回节点取走的预取结果的保留时间（毫秒），运行中途停止时由此回收
+		 */
+		private long ttlMs = 120000;
+
+		/**
+		 * 执行预取的线程数。预取使用独立线程池，不占用数据库操作线程池
+		 */
+		private int threads = 2;
+
+		/**
+		 * 预取线程池的等待队列长度，队列已满时放弃本次预取，由召回节点正常召回
+		 */
+		private int queueCapacity = 16;
+
+	}
+
+	@Getter
+	@Setter
+	public static class Admission {
+
+		/**
+		 * 是否启用运行准入控制，默认关闭，按模型供应商与数据库的承载能力设置上限后再开启
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * 全局同时执行的运行数上限
+		 */
+		private int maxConcurrentRuns = 32;
+
+		/**
+		 * 单个智能体同时执行的运行数上限
+		 */
+		private int maxConcurrentRunsPerAgent = 4;
+
+		/**
+		 * 等待队列长度上限，队列已满时拒绝新的运行并返回 429
+		 */
+		private int maxQueueSize = 100;
+
+		/**
+		 * 启动排队结束运行的线程数，启动任务超出 {@link #maxConcurrentRuns} 个时该运行以失败结束
+		 */
+		private int startThreads = 4;
+
+		/**
+		 * 各智能体排队时的调度权重，key 为智能体 ID，未配置的智能体权重为 1
+		 */
+		private Map<String, Integer> agentWeights = new HashMap<>();
+
+	}
+
+	@Getter
+	@Setter
+	public static class Stream {
+
+		/**
+		 * 每个运行保留的可重放 SSE 事件数上限，客户端携带 Last-Event-ID 重连时从中补发
+		 */
+		private int replayBufferSize = 1000;
+
+		/**
+		 * 可重放事件的文本总字符数上限，超出后从最早的事件开始淘汰
+		 */
+		private int replayBufferMaxChars = 512 * 1024;
+
+		/**
+		 * 客户端断开后保留运行的宽限期（毫秒），期间重连可继续接收输出。0 表示断开即取消运行
+		 */
+		private long reconnectGraceMs = 30000;
+
+		/**
+		 * 同一节点、同一文本类型的连续 token 片段合并发送的时间窗口（毫秒）。0 表示不合并，逐片段发送
+		 */
+		private long coalesceWindowMs = 30;
+
+		/**
+		 * 合并片段的字符数上限，达到后立即发送
+		 */
+		private int coalesceMaxChars = 2048;
+
+		/**
+		 * 每个 SSE 连接的发送缓冲事件数上限，防止慢客户端导致堆内存无界增长
+		 */
+		private int sinkBufferSize = 256;
+
+		/**
+		 * 上报 Langfuse 的运行输出字符数上限，超出部分截断。只影响追踪，不影响节点结果
+		 */
+		private int traceOutputMaxChars = 256 * 1024;
+
+		/**
+		 * 发送缓冲写满时的处理策略
+		 */
+		private OverflowPolicy overflowPolicy = OverflowPolicy.DETACH;
+
+		private Registry registry = new Registry();
+
+		public enum OverflowPolicy {
+
+			/**
+			 * 断开慢客户端的连接但保留运行，客户端重连后从重放缓冲补齐
+			 */
+			DETACH,
+
+			/**
+			 * 直接停止运行
+			 */
+			CANCEL
+
+		}
+
+		@Getter
+		@Setter
+		public static class Registry {
+
+			/**
+			 * 运行归属的登记方式：memory 只在单节点内有效；jdbc 写入管理库，多节点部署时把停止、人工反馈恢复与断线重连转发到运行所在节点
+			 */
+			private String type = "memory";
+
+			/**
+			 * 本节点 ID，为空时启动时随机生成
+			 */
+			private String nodeId;
+
+			/**
+			 * 其他节点访问本节点的地址，如 http://10.0.0.12:8065。为空时使用本机 IP 与 server.port
+			 */
+			private String nodeAddress;
+
+			/**
+			 * 节点刷新所持有运行心跳的间隔（毫秒）
+			 */
+			private long heartbeatIntervalMs = 10000;
+
+			/**
+			 * 心跳超过该时长（毫秒）未刷新的节点视为已下线，其运行不再转发
+			 */
+			private long ownerTimeoutMs = 30000;
+
+			/**
+			 * 等待人工反馈的运行保留归属的最长时间（毫秒），超过后不再刷新心跳并删除记录，之后的反馈恢复由收到请求的节点处理
+			 */
+			private long awaitingFeedbackTtlMs = 24L * 3600 * 1000;
+
+		}
+
+	}
+
 	@Getter
 	@Setter
 	public static class ReportTemplate {
@@ -17,55 +17,154 @@ package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
 
 import com.alibaba.cloud.ai.dataagent.enums.ModelType;
 import com.alibaba.cloud.ai.dataagent.dto.ModelConfigDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class AiModelRegistry {
 
+	/**
+	 * 默认档位，即未设置档位的激活对话模型
+	 */
+	public static final String DEFAULT_TIER = "default";
+
 	private final DynamicModelFactory modelFactory;
 
 	private final ModelConfigDataService modelConfigDataService;
 
-	// 缓存对象 (volatile 保证可见性)
-	private volatile ChatClient currentChatClient;
+	private final DataAgentProperties properties;
+
+	// 缓存对象 (volatile 保证可见性)，客户端与配置整体替换
+	private volatile ActiveChatClient currentChat;
 
 	private volatile EmbeddingModel currentEmbeddingModel;
 
+	// 非默认档位的对话模型，档位未配置激活模型时缓存为空，回退到默认模型
+	private volatile Map<String, Optional<ActiveChatClient>> tierChatClients = new ConcurrentHashMap<>();
+
+	// 刷新代数，预热完成时代数已变化说明有更新的刷新，放弃本次替换
+	private final AtomicLong chatGeneration = new AtomicLong();
+
+	private final AtomicLong embeddingGeneration = new AtomicLong();
+
 	// =========================================================
 	// 1. 获取 ChatClient (懒加载 + 缓存)
 	// =========================================================
 	public ChatClient getChatClient() {
-		if (currentChatClient == null) {
+		return activeChat().client();
+	}
+
+	private ActiveChatClient activeChat() {
+		ActiveChatClient active = currentChat;
+		if (active == null) {
 			synchronized (this) {
-				if (currentChatClient == null) {
+				active = currentChat;
+				if (active == null) {
 					log.info("Initializing global ChatClient...");
 					try {
 						ModelConfigDTO config = modelConfigDataService.getActiveConfigByType(ModelType.CHAT);
 						if (config != null) {
-							ChatModel chatModel = modelFactory.createChatModel(config);
-							// 核心：基于新 Model 创建新 Client，彻底消除旧参数缓存
-							currentChatClient = ChatClient.builder(chatModel).build();
+							active = createChatClient(config);
+							currentChat = active;
 						}
 					}
 					catch (Exception e) {
 						throw new IllegalStateException("Failed to initialize the active CHAT model", e);
 					}
 
-					if (currentChatClient == null) {
+					if (active == null) {
 						throw new IllegalStateException(
 								"No active CHAT model configured. Please configure it in the dashboard.");
 					}
 				}
 			}
 		}
-		return currentChatClient;
+		return active;
+	}
+
+	/**
+	 * 当前对话模型的配置，用于区分不同模型的调用结果（如响应缓存键）
+	 */
+	public ModelConfigDTO getChatModelConfig() {
+		return activeChat().config();
+	}
+
+	/**
+	 * 获取调用范围（图节点或提示词类型）映射档位下的 ChatClient，档位未配置激活模型时返回默认模型
+	 */
+	public ChatClient getChatClient(String scope) {
+		return tierChatClient(scope).map(ActiveChatClient::client).orElseGet(this::getChatClient);
+	}
+
+	/**
+	 * 调用范围实际使用的对话模型配置
+	 */
+	public ModelConfigDTO getChatModelConfig(String scope) {
+		return tierChatClient(scope).map(ActiveChatClient::config).orElseGet(this::getChatModelConfig);
+	}
+
+	/**
+	 * 调用范围实际使用的档位，映射档位不可用时为 {@link #DEFAULT_TIER}
+	 */
+	public String getEffectiveTier(String scope) {
+		return tierChatClient(scope).isPresent() ? resolveTier(scope) : DEFAULT_TIER;
+	}
+
+	/**
+	 * 调用范围映射的档位，未映射时为 {@link #DEFAULT_TIER}
+	 */
+	public String resolveTier(String scope) {
+		String tier = scope == null ? null : properties.getModelTiers().getScopes().get(scope);
+		return StringUtils.hasText(tier) ? tier.trim() : DEFAULT_TIER;
+	}
+
+	/**
+	 * 指定档位下激活模型的 ChatClient，档位未配置激活模型时为空，不回退到默认模型
+	 */
+	public Optional<ChatClient> findChatClient(String tier) {
+		if (!StringUtils.hasText(tier) || DEFAULT_TIER.equals(tier.trim())) {
+			return Optional.of(getChatClient());
+		}
+		return tierChatClients.computeIfAbsent(tier.trim(), this::createTierChatClient).map(ActiveChatClient::client);
+	}
+
+	private Optional<ActiveChatClient> tierChatClient(String scope) {
+		String tier = resolveTier(scope);
+		if (DEFAULT_TIER.equals(tier)) {
+			return Optional.empty();
+		}
+		return tierChatClients.computeIfAbsent(tier, this::createTierChatClient);
+	}
+
+	private Optional<ActiveChatClient> createTierChatClient(String tier) {
+		log.info("Initializing ChatClient for model tier [{}]...", tier);
+		try {
+			ModelConfigDTO config = modelConfigDataService.getActiveConfigByType(ModelType.CHAT, tier);
+			if (config == null) {
+				log.info("No active CHAT model for tier [{}], falling back to the default model", tier);
+				return Optional.empty();
+			}
+			return Optional.of(createChatClient(config));
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Failed to initialize the CHAT model of tier " + tier, e);
+		}
 	}
 
 	// =========================================================
@@ -100,14 +199,85 @@ public class AiModelRegistry {
 	// 3. 刷新/重置缓存 (用于热切换)
 	// =========================================================
 
+	/**
+	 * 按当前激活配置重建对话模型（含已加载的档位），预热连接后整体替换，替换前请求仍使用旧模型。构建失败时抛出异常，旧模型保持不变
+	 */
 	public void refreshChat() {
-		this.currentChatClient = null;
-		log.info("Chat cache cleared.");
+		long generation = chatGeneration.incrementAndGet();
+		ModelConfigDTO config = modelConfigDataService.getActiveConfigByType(ModelType.CHAT);
+		if (config == null) {
+			synchronized (this) {
+				this.currentChat = null;
+				this.tierChatClients = new ConcurrentHashMap<>();
+			}
+			log.info("Chat cache cleared.");
+			return;
+		}
+
+		ActiveChatClient next;
+		try {
+			next = createChatClient(config);
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Failed to initialize the active CHAT model", e);
+		}
+		Map<String, Optional<ActiveChatClient>> tiers = new ConcurrentHashMap<>();
+		tierChatClients.keySet().forEach(tier -> tiers.put(tier, createTierChatClient(tier)));
+
+		List<Mono<Void>> warmups = new ArrayList<>();
+		warmups.add(modelFactory.warmUp(config));
+		tiers.values().forEach(tier -> tier.ifPresent(client -> warmups.add(modelFactory.warmUp(client.config()))));
+		Mono.when(warmups).onErrorComplete().doFinally(signal -> {
+			synchronized (this) {
+				if (generation != chatGeneration.get()) {
+					return;
+				}
+				this.currentChat = next;
+				this.tierChatClients = tiers;
+			}
+			log.info("Chat model switched to [{}].", config.getModelName());
+		}).subscribe();
 	}
 
+	/**
+	 * 按当前激活配置重建向量模型，预热连接后替换。构建失败时抛出异常，旧模型保持不变
+	 */
 	public void refreshEmbedding() {
-		this.currentEmbeddingModel = null;
-		log.info("Embedding cache cleared.");
+		long generation = embeddingGeneration.incrementAndGet();
+		ModelConfigDTO config = modelConfigDataService.getActiveConfigByType(ModelType.EMBEDDING);
+		if (config == null) {
+			synchronized (this) {
+				this.currentEmbeddingModel = null;
+			}
+			log.info("Embedding cache cleared.");
+			return;
+		}
+
+		EmbeddingModel next;
+		try {
+			next = modelFactory.createEmbeddingModel(config);
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Failed to initialize the active EMBEDDING model", e);
+		}
+		modelFactory.warmUp(config).onErrorComplete().doFinally(signal -> {
+			synchronized (this) {
+				if (generation != embeddingGeneration.get()) {
+					return;
+				}
+				this.currentEmbeddingModel = next;
+			}
+			log.info("Embedding model switched to [{}].", config.getModelName());
+		}).subscribe();
+	}
+
+	private ActiveChatClient createChatClient(ModelConfigDTO config) {
+		ChatModel chatModel = modelFactory.createChatModel(config);
+		// 核心：基于新 Model 创建新 Client，彻底消除旧参数缓存
+		return new ActiveChatClient(ChatClient.builder(chatModel).build(), config);
+	}
+
+	private record ActiveChatClient(ChatClient client, ModelConfigDTO config) {
 	}
 
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 检索查询文本的向量缓存。
+ * <p>
+ * 向量库在检索时用同一个向量模型 Bean 为查询文本单独向量化，相同问题在证据召回、Schema 召回与不同用户之间反复出现。单条文本的交互调用按
+ * 规范化文本（去掉首尾空白、合并连续空白）与选项缓存向量，命中时不再调用向量模型。多条文本的批量请求与后台调用（入库向量化）不经过缓存。 条目数按 LRU
+ * 限制；{@link AiModelRegistry} 切换向量模型后首次访问时清空缓存。
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+	private final EmbeddingModel delegate;
+
+	private final AiModelRegistry registry;
+
+	private final MeterRegistry meterRegistry;
+
+	private final LinkedHashMap<CacheKey, float[]> cache;
+
+	/**
+	 * 缓存中的向量所属的模型实例
+	 */
+	private EmbeddingModel cachedModel;
+
+	public CachingEmbeddingModel(EmbeddingModel delegate, AiModelRegistry registry,
+			DataAgentProperties.QueryEmbeddingCache properties, MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.registry = registry;
+		this.meterRegistry = meterRegistry;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CacheKey, float[]> eldest) {
+				return size() > properties.getMaxEntries();
+			}
+		};
+		meterRegistry.gauge("dataagent.embedding.cache.entries", this, model -> model.size());
+	}
+
+	@Override
+	public EmbeddingResponse call(EmbeddingRequest request) {
+		List<String> texts = request.getInstructions();
+		if (texts.size() != 1 || !StringUtils.hasText(texts.get(0))
+				|| ModelCallPriority.current() == ModelCallPriority.BACKGROUND) {
+			return delegate.call(request);
+		}
+		EmbeddingModel model = registry.getEmbeddingModel();
+		CacheKey key = CacheKey.of(texts.get(0), request.getOptions());
+		float[] cached = lookup(model, key);
+		if (cached != null) {
+			meterRegistry.counter("dataagent.embedding.cache.requests", "result", "hit").increment();
+			return new EmbeddingResponse(List.of(new Embedding(cached.clone(), 0)));
+		}
+		meterRegistry.counter("dataagent.embedding.cache.requests", "result", "miss").increment();
+		EmbeddingResponse response = delegate.call(request);
+		if (response.getResults().size() == 1 && response.getResult().getOutput() != null) {
+			store(model, key, response.getResult().getOutput().clone());
+		}
+		return response;
+	}
+
+	@Override
+	public float[] embed(Document document) {
+		return delegate.embed(document);
+	}
+
+	@Override
+	public int dimensions() {
+		return delegate.dimensions();
+	}
+
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	private float[] lookup(EmbeddingModel model, CacheKey key) {
+		synchronized (cache) {
+			if (model != cachedModel) {
+				// 向量模型已切换，旧模型的向量不能再用
+				cache.clear();
+				cachedModel = model;
+			}
+			return cache.get(key);
+		}
+	}
+
+	private void store(EmbeddingModel model, CacheKey key, float[] vector) {
+		synchronized (cache) {
+			if (model == cachedModel) {
+				cache.put(key, vector);
+			}
+		}
+	}
+
+	private record CacheKey(String text, String model, Integer dimensions) {
+
+		private static CacheKey of(String text, EmbeddingOptions options) {
+			return new CacheKey(text.strip().replaceAll("\\s+", " "), options == null ? null : options.getModel(),
+					options == null ? null : options.getDimensions());
+		}
+
+	}
+
+}
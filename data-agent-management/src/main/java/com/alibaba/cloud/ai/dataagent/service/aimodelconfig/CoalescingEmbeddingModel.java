@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 合并进行中的相同向量化请求（single-flight）。
+ * <p>
+ * 当前向量模型、输入文本与选项都相同的请求在上游返回前再次到达时，等待同一个共享的 {@link Mono} 结果，而不是再次调用向量模型。
+ * 上游调用由第一个请求发起，其他调用方中断或取消不影响该调用与其余调用方；上游出错时所有调用方都收到该错误。
+ */
+public class CoalescingEmbeddingModel implements EmbeddingModel {
+
+	private final EmbeddingModel delegate;
+
+	private final AiModelRegistry registry;
+
+	private final MeterRegistry meterRegistry;
+
+	private final ConcurrentHashMap<RequestKey, Mono<EmbeddingResponse>> inFlight = new ConcurrentHashMap<>();
+
+	public CoalescingEmbeddingModel(EmbeddingModel delegate, AiModelRegistry registry, MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.registry = registry;
+		this.meterRegistry = meterRegistry;
+		meterRegistry.gauge("dataagent.singleflight.inflight", Tags.of("type", "embedding"), this,
+				model -> model.inFlight());
+	}
+
+	@Override
+	public EmbeddingResponse call(EmbeddingRequest request) {
+		return callShared(request).block();
+	}
+
+	/**
+	 * 返回共享的向量化结果，相同的进行中请求得到同一个 Mono
+	 */
+	public Mono<EmbeddingResponse> callShared(EmbeddingRequest request) {
+		EmbeddingOptions options = request.getOptions();
+		// 模型实例随热切换而变化，作为键的一部分避免新旧模型的结果互相复用
+		RequestKey key = new RequestKey(registry.getEmbeddingModel(), List.copyOf(request.getInstructions()),
+				options == null ? null : options.getModel(), options == null ? null : options.getDimensions());
+		AtomicBoolean leader = new AtomicBoolean();
+		Mono<EmbeddingResponse> shared = inFlight.computeIfAbsent(key, k -> {
+			leader.set(true);
+			AtomicReference<Mono<EmbeddingResponse>> self = new AtomicReference<>();
+			self.set(Mono.fromCallable(() -> delegate.call(request))
+				.doFinally(signal -> inFlight.remove(k, self.get()))
+				.share());
+			return self.get();
+		});
+		meterRegistry
+			.counter("dataagent.singleflight.requests", "type", "embedding", "result",
+					leader.get() ? "leader" : "coalesced")
+			.increment();
+		return shared;
+	}
+
+	@Override
+	public float[] embed(Document document) {
+		return delegate.embed(document);
+	}
+
+	@Override
+	public int dimensions() {
+		return delegate.dimensions();
+	}
+
+	public int inFlight() {
+		return inFlight.size();
+	}
+
+	private record RequestKey(EmbeddingModel model, List<String> instructions, String optionsModel,
+			Integer dimensions) {
+	}
+
+}
@@ -18,12 +18,6 @@ package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
 import com.alibaba.cloud.ai.dataagent.dto.ModelConfigDTO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.hc.client5.http.auth.AuthScope;
-import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
-import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.HttpHost;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.document.MetadataMode;
 import org.springframework.ai.embedding.EmbeddingModel;
@@ -40,14 +34,17 @@ import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.netty.http.client.HttpClient;
-import reactor.netty.transport.ProxyProvider;
+import reactor.core.publisher.Mono;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DynamicModelFactory {
 
+	private final ProviderConnectionManager connectionManager;
+
+	private final ProviderRateLimiter rateLimiter;
+
 	/**
 	 * 统一使用 OpenAiChatModel，通过 baseUrl 实现多厂商兼容
 	 */
@@ -64,7 +61,8 @@ public class DynamicModelFactory {
 			.apiKey(apiKey)
 			.baseUrl(config.getBaseUrl())
 			.restClientBuilder(getProxiedRestClientBuilder(config))
-			.webClientBuilder(getProxiedWebClientBuilder(config));
+			.webClientBuilder(getProxiedWebClientBuilder(config))
+			.responseErrorHandler(new ProviderResponseErrorHandler());
 
 		if (StringUtils.hasText(config.getCompletionsPath())) {
 			apiBuilder.completionsPath(config.getCompletionsPath());
@@ -78,8 +76,13 @@ public class DynamicModelFactory {
 			.maxTokens(config.getMaxTokens())
 			.streamUsage(true)
 			.build();
-		// 4. 返回统一的 OpenAiChatModel
-		return OpenAiChatModel.builder().openAiApi(openAiApi).defaultOptions(openAiChatOptions).build();
+		// 4. 返回统一的 OpenAiChatModel，经按厂商与模型划分的限流器调用
+		OpenAiChatModel chatModel = OpenAiChatModel.builder()
+			.openAiApi(openAiApi)
+			.defaultOptions(openAiChatOptions)
+			.build();
+		return new RateLimitedChatModel(chatModel, rateLimiter,
+				ProviderRateLimiter.key(config.getProvider(), config.getModelName()));
 	}
 
 	/**
@@ -95,16 +98,26 @@ public class DynamicModelFactory {
 			.apiKey(apiKey)
 			.baseUrl(config.getBaseUrl())
 			.restClientBuilder(getProxiedRestClientBuilder(config))
-			.webClientBuilder(getProxiedWebClientBuilder(config));
+			.webClientBuilder(getProxiedWebClientBuilder(config))
+			.responseErrorHandler(new ProviderResponseErrorHandler());
 
 		if (StringUtils.hasText(config.getEmbeddingsPath())) {
 			apiBuilder.embeddingsPath(config.getEmbeddingsPath());
 		}
 
 		OpenAiApi openAiApi = apiBuilder.build();
-		return new OpenAiEmbeddingModel(openAiApi, MetadataMode.EMBED,
+		EmbeddingModel embeddingModel = new OpenAiEmbeddingModel(openAiApi, MetadataMode.EMBED,
 				OpenAiEmbeddingOptions.builder().model(config.getModelName()).build(),
 				RetryUtils.DEFAULT_RETRY_TEMPLATE);
+		return new RateLimitedEmbeddingModel(embeddingModel, rateLimiter,
+				ProviderRateLimiter.key(config.getProvider(), config.getModelName()));
+	}
+
+	/**
+	 * 预先建立到模型地址的连接，模型激活时在切换前调用
+	 */
+	public Mono<Void> warmUp(ModelConfigDTO config) {
+		return connectionManager.warmUp(config);
 	}
 
 	private static void checkBasic(ModelConfigDTO config) {
@@ -116,50 +129,13 @@ public class DynamicModelFactory {
 	}
 
 	private RestClient.Builder getProxiedRestClientBuilder(ModelConfigDTO config) {
-		if (config.getProxyEnabled() == null || !config.getProxyEnabled()) {
-			return RestClient.builder();
-		}
-
-		// 打印同步代理日志
-		log.info("【Proxy-Init】Model [{}] is using SYNC proxy -> {}:{}", config.getModelName(), config.getProxyHost(),
-				config.getProxyPort());
-
-		BasicCredentialsProvider credsProvider = new BasicCredentialsProvider();
-		if (StringUtils.hasText(config.getProxyUsername())) {
-			log.info("【Proxy-Auth】Enabling Basic Auth for SYNC proxy, user: {}", config.getProxyUsername());
-			credsProvider.setCredentials(new AuthScope(config.getProxyHost(), config.getProxyPort()),
-					new UsernamePasswordCredentials(config.getProxyUsername(),
-							config.getProxyPassword().toCharArray()));
-		}
-
-		CloseableHttpClient httpClient = HttpClients.custom()
-			.setProxy(new HttpHost(config.getProxyHost(), config.getProxyPort()))
-			.setDefaultCredentialsProvider(credsProvider)
-			.build();
-
-		return RestClient.builder().requestFactory(new HttpComponentsClientHttpRequestFactory(httpClient));
+		return RestClient.builder()
+			.requestFactory(new HttpComponentsClientHttpRequestFactory(connectionManager.blockingClient(config)));
 	}
 
 	private WebClient.Builder getProxiedWebClientBuilder(ModelConfigDTO config) {
-		if (config.getProxyEnabled() == null || !config.getProxyEnabled()) {
-			return WebClient.builder();
-		}
-
-		log.info("【Proxy-Init】Model [{}] is using ASYNC (Netty) proxy -> {}:{}", config.getModelName(),
-				config.getProxyHost(), config.getProxyPort());
-
-		HttpClient nettyClient = HttpClient.create().responseTimeout(java.time.Duration.ofMinutes(3)).proxy(p -> {
-			ProxyProvider.Builder proxyBuilder = p.type(ProxyProvider.Proxy.HTTP)
-				.host(config.getProxyHost())
-				.port(config.getProxyPort());
-
-			if (StringUtils.hasText(config.getProxyUsername())) {
-				log.info("【Proxy-Auth】Enabling Basic Auth for ASYNC proxy, user: {}", config.getProxyUsername());
-				proxyBuilder.username(config.getProxyUsername()).password(s -> config.getProxyPassword());
-			}
-		});
-
-		return WebClient.builder().clientConnector(new ReactorClientHttpConnector(nettyClient));
+		return WebClient.builder()
+			.clientConnector(new ReactorClientHttpConnector(connectionManager.streamingClient(config)));
 	}
 
 }
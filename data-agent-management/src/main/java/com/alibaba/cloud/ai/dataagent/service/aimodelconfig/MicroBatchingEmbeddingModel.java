@@ -0,0 +1,237 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.metadata.EmptyUsage;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 将并发到达的少量文本向量化请求合并为一次批量请求（micro-batching）。
+ * <p>
+ * 批次的第一个请求作为发送方，开启批次时如有其他请求正在进行，等待一个时间窗口让其他请求加入，批次文本数达到上限时立即发送；没有并发请求时立即发送，
+ * 单个请求不承担等待窗口。发送方在自己的线程上调用向量模型，
+ * 再按各请求的位置切分结果。选项或调用优先级不同的请求不会合并，文本数达到上限的请求直接调用向量模型。批量调用出错时批次内所有请求都收到该错误。
+ * <p>
+ * 指标：请求耗时 dataagent.embedding.microbatch.latency（含等待窗口），每批文本数
+ * dataagent.embedding.microbatch.size， 每批请求数 dataagent.embedding.microbatch.requests。
+ */
+public class MicroBatchingEmbeddingModel implements EmbeddingModel {
+
+	private final EmbeddingModel delegate;
+
+	private final long windowMs;
+
+	private final int maxTextCount;
+
+	private final Timer latency;
+
+	private final DistributionSummary batchSize;
+
+	private final DistributionSummary batchRequests;
+
+	private final Map<BatchKey, Batch> open = new HashMap<>();
+
+	/**
+	 * 正在进行的合批请求数，由 open 保护
+	 */
+	private int inFlight;
+
+	/**
+	 * @param delegate 向量模型
+	 * @param windowMs 等待其他请求加入的时间（毫秒）
+	 * @param maxTextCount 单批最大文本数
+	 * @param meterRegistry 指标注册表
+	 */
+	public MicroBatchingEmbeddingModel(EmbeddingModel delegate, long windowMs, int maxTextCount,
+			MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.windowMs = Math.max(0, windowMs);
+		this.maxTextCount = Math.max(1, maxTextCount);
+		this.latency = Timer.builder("dataagent.embedding.microbatch.latency")
+			.publishPercentiles(0.5, 0.95, 0.99)
+			.register(meterRegistry);
+		this.batchSize = DistributionSummary.builder("dataagent.embedding.microbatch.size")
+			.serviceLevelObjectives(1, 2, 4, 8, 16, 32)
+			.register(meterRegistry);
+		this.batchRequests = DistributionSummary.builder("dataagent.embedding.microbatch.requests")
+			.serviceLevelObjectives(1, 2, 4, 8, 16, 32)
+			.register(meterRegistry);
+	}
+
+	@Override
+	public EmbeddingResponse call(EmbeddingRequest request) {
+		List<String> texts = request.getInstructions();
+		if (texts.isEmpty() || texts.size() >= maxTextCount) {
+			return delegate.call(request);
+		}
+		long start = System.nanoTime();
+		BatchKey key = BatchKey.of(request.getOptions());
+		Batch batch;
+		int offset;
+		boolean sender = false;
+		boolean concurrent = false;
+		synchronized (open) {
+			inFlight++;
+			batch = open.get(key);
+			if (batch != null && batch.texts.size() + texts.size() > maxTextCount) {
+				// 放不下，当前批次立即发送
+				open.remove(key);
+				batch.full.countDown();
+				batch = null;
+			}
+			if (batch == null) {
+				batch = new Batch(request.getOptions());
+				open.put(key, batch);
+				sender = true;
+				concurrent = inFlight > 1;
+			}
+			offset = batch.texts.size();
+			batch.texts.addAll(texts);
+			batch.requests++;
+			if (batch.texts.size() >= maxTextCount) {
+				open.remove(key);
+				batch.full.countDown();
+			}
+		}
+		if (sender) {
+			send(key, batch, concurrent);
+		}
+		try {
+			return slice(batch.result.join(), offset, texts.size(), batch.requests == 1);
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+		finally {
+			synchronized (open) {
+				inFlight--;
+			}
+			latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public float[] embed(Document document) {
+		return delegate.embed(document);
+	}
+
+	@Override
+	public int dimensions() {
+		return delegate.dimensions();
+	}
+
+	/**
+	 * @param concurrent 开启批次时是否有其他请求正在进行，没有时不等待窗口，直接发送
+	 */
+	private void send(BatchKey key, Batch batch, boolean concurrent) {
+		if (concurrent) {
+			try {
+				batch.full.await(windowMs, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		List<String> texts;
+		synchronized (open) {
+			open.remove(key, batch);
+			texts = List.copyOf(batch.texts);
+		}
+		batchSize.record(texts.size());
+		batchRequests.record(batch.requests);
+		try {
+			batch.result.complete(delegate.call(new EmbeddingRequest(texts, batch.options)));
+		}
+		catch (RuntimeException e) {
+			batch.result.completeExceptionally(e);
+		}
+	}
+
+	private static EmbeddingResponse slice(EmbeddingResponse response, int offset, int count, boolean whole) {
+		List<Embedding> results = response.getResults()
+			.stream()
+			.sorted(Comparator.comparing(Embedding::getIndex, Comparator.nullsLast(Comparator.naturalOrder())))
+			.toList();
+		if (results.size() < offset + count) {
+			throw new IllegalStateException(
+					"Embedding model returned " + results.size() + " vectors for " + (offset + count) + " texts");
+		}
+		if (whole) {
+			return response;
+		}
+		List<Embedding> embeddings = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			embeddings.add(new Embedding(results.get(offset + i).getOutput(), i));
+		}
+		// 用量属于整个批次，不分摊到单个请求
+		EmbeddingResponseMetadata metadata = response.getMetadata();
+		return new EmbeddingResponse(embeddings,
+				new EmbeddingResponseMetadata(metadata == null ? null : metadata.getModel(), new EmptyUsage()));
+	}
+
+	private static final class Batch {
+
+		private final EmbeddingOptions options;
+
+		private final List<String> texts = new ArrayList<>();
+
+		private final CountDownLatch full = new CountDownLatch(1);
+
+		private final CompletableFuture<EmbeddingResponse> result = new CompletableFuture<>();
+
+		private int requests;
+
+		private Batch(EmbeddingOptions options) {
+			this.options = options;
+		}
+
+	}
+
+	/**
+	 * 能合并为同一批次的请求：选项相同且调用优先级相同，优先级决定批量请求在限流器中的排队顺序
+	 */
+	private record BatchKey(String model, Integer dimensions, ModelCallPriority priority) {
+
+		private static BatchKey of(EmbeddingOptions options) {
+			return new BatchKey(options == null ? null : options.getModel(),
+					options == null ? null : options.getDimensions(), ModelCallPriority.current());
+		}
+
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.function.Supplier;
+
+/**
+ * 模型调用的优先级，{@link ProviderRateLimiter} 排队时交互调用先于后台调用放行。
+ * <p>
+ * 默认为交互调用。后台任务（如向量化入库）在当前线程上用 {@link #callInBackground(Supplier)} 标记；流式调用也可在 Reactor
+ * Context 中用 {@link #background()} 标记。
+ */
+public enum ModelCallPriority {
+
+	/**
+	 * 图运行等用户正在等待结果的调用
+	 */
+	INTERACTIVE,
+
+	/**
+	 * 知识与 Schema 向量化等后台调用
+	 */
+	BACKGROUND;
+
+	private static final String CONTEXT_KEY = ModelCallPriority.class.getName();
+
+	private static final ThreadLocal<ModelCallPriority> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * 当前线程上的优先级
+	 */
+	public static ModelCallPriority current() {
+		ModelCallPriority priority = CURRENT.get();
+		return priority != null ? priority : INTERACTIVE;
+	}
+
+	/**
+	 * Reactor Context 中的优先级，未设置时取当前线程上的优先级
+	 */
+	public static ModelCallPriority current(ContextView context) {
+		return context.<ModelCallPriority>getOrEmpty(CONTEXT_KEY).orElseGet(ModelCallPriority::current);
+	}
+
+	/**
+	 * 以后台优先级执行，期间当前线程上的模型调用都按后台调用排队
+	 */
+	public static <T> T callInBackground(Supplier<T> action) {
+		ModelCallPriority previous = CURRENT.get();
+		CURRENT.set(BACKGROUND);
+		try {
+			return action.get();
+		}
+		finally {
+			if (previous != null) {
+				CURRENT.set(previous);
+			}
+			else {
+				CURRENT.remove();
+			}
+		}
+	}
+
+	/**
+	 * 以后台优先级执行
+	 */
+	public static void runInBackground(Runnable action) {
+		callInBackground(() -> {
+			action.run();
+			return null;
+		});
+	}
+
+	/**
+	 * 将流式调用标记为后台调用的 Reactor Context
+	 */
+	public static Context background() {
+		return Context.of(CONTEXT_KEY, BACKGROUND);
+	}
+
+}
@@ -37,4 +37,9 @@ public interface ModelConfigDataService {
 
 	ModelConfigDTO getActiveConfigByType(ModelType modelType);
 
+	/**
+	 * 获取指定档位下激活的配置，tier 为空时等同于默认档位
+	 */
+	ModelConfigDTO getActiveConfigByType(ModelType modelType, String tier);
+
 }
@@ -28,6 +28,7 @@ import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import static com.alibaba.cloud.ai.dataagent.converter.ModelConfigConverter.toDTO;
@@ -48,11 +49,11 @@ public class ModelConfigDataServiceImpl implements ModelConfigDataService {
 	@Transactional(rollbackFor = Exception.class)
 	@Override
 	public void switchActiveStatus(Integer id, ModelType type) {
-		// 1. 禁用同类型其他配置
-		modelConfigMapper.deactivateOthers(type.getCode(), id);
+		// 1. 禁用同类型同档位的其他配置
+		ModelConfig entity = modelConfigMapper.findById(id);
+		modelConfigMapper.deactivateOthers(type.getCode(), entity != null ? entity.getTier() : null, id);
 
 		// 2. 启用当前配置
-		ModelConfig entity = modelConfigMapper.findById(id);
 		if (entity != null) {
 			entity.setIsActive(true);
 			entity.setUpdatedTime(LocalDateTime.now());
@@ -84,6 +85,7 @@ public class ModelConfigDataServiceImpl implements ModelConfigDataService {
 		if (dto.getEmbeddingsPath() != null) {
 			dto.setEmbeddingsPath(dto.getEmbeddingsPath().trim());
 		}
+		dto.setTier(ModelConfigConverter.normalizeTier(dto.getModelType(), dto.getTier()));
 	}
 
 	/**
@@ -103,6 +105,10 @@ public class ModelConfigDataServiceImpl implements ModelConfigDataService {
 		if (!entity.getModelType().getCode().equals(dto.getModelType()))
 			throw new RuntimeException("模型类型不允许修改");
 
+		// 不准更改档位，避免同一档位下出现多个激活配置
+		if (!Objects.equals(entity.getTier(), dto.getTier()))
+			throw new RuntimeException("模型档位不允许修改");
+
 		// 2. 合并字段
 		mergeDtoToEntity(dto, entity);
 		entity.setUpdatedTime(LocalDateTime.now());
@@ -160,9 +166,15 @@ public class ModelConfigDataServiceImpl implements ModelConfigDataService {
 
 	@Override
 	public ModelConfigDTO getActiveConfigByType(ModelType modelType) {
-		ModelConfig entity = modelConfigMapper.selectActiveByType(modelType.getCode());
+		return getActiveConfigByType(modelType, null);
+	}
+
+	@Override
+	public ModelConfigDTO getActiveConfigByType(ModelType modelType, String tier) {
+		ModelConfig entity = modelConfigMapper.selectActiveByType(modelType.getCode(), tier);
 		if (entity == null) {
-			log.warn("Activation model configuration of type [{}] not found, attempting to downgrade...", modelType);
+			log.warn("Activation model configuration of type [{}] tier [{}] not found, attempting to downgrade...",
+					modelType, StringUtils.hasText(tier) ? tier : "default");
 			return null;
 		}
 		return toDTO(entity);
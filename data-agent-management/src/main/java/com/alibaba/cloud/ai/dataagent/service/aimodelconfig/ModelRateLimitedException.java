@@ -0,0 +1,70 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * 模型厂商返回 429，携带响应中 Retry-After 指定的等待时间
+ */
+public class ModelRateLimitedException extends NonTransientAiException {
+
+	private final Duration retryAfter;
+
+	public ModelRateLimitedException(String message, Duration retryAfter) {
+		super(message);
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * @return 厂商要求的等待时间，响应未指定时为 null
+	 */
+	public Duration getRetryAfter() {
+		return retryAfter;
+	}
+
+	/**
+	 * 解析 Retry-After 头，支持秒数与 HTTP 日期两种格式
+	 * @return 等待时间，头为空或无法解析时为 null
+	 */
+	public static Duration parseRetryAfter(String header) {
+		if (!StringUtils.hasText(header)) {
+			return null;
+		}
+		String value = header.trim();
+		try {
+			return Duration.ofMillis(Math.max(0, (long) (Double.parseDouble(value) * 1000)));
+		}
+		catch (NumberFormatException e) {
+			// 不是秒数，按 HTTP 日期解析
+		}
+		try {
+			Duration duration = Duration.between(ZonedDateTime.now(),
+					ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+			return duration.isNegative() ? Duration.ZERO : duration;
+		}
+		catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在一次检索期间固定查询文本的向量。
+ * <p>
+ * 向量库只接受查询文本，检索时用同一个向量模型 Bean 自行向量化。调用方先用 {@link #pin(String)} 向量化一次查询，在返回的 {@link Pin}
+ * 关闭前，任意线程上相同文本、默认选项的单条交互调用都直接返回该向量，不依赖查询向量缓存是否开启。 {@link AiModelRegistry}
+ * 切换向量模型后旧模型的向量不再返回。
+ */
+public class PinnedEmbeddingModel implements EmbeddingModel {
+
+	private final EmbeddingModel delegate;
+
+	private final AiModelRegistry registry;
+
+	private final Map<String, Pin> pins = new HashMap<>();
+
+	public PinnedEmbeddingModel(EmbeddingModel delegate, AiModelRegistry registry) {
+		this.delegate = delegate;
+		this.registry = registry;
+	}
+
+	/**
+	 * 向量化查询文本并固定结果，直到返回的 {@link Pin} 关闭；同一文本已被固定时复用已有向量
+	 */
+	public Pin pin(String text) {
+		EmbeddingModel model = registry.getEmbeddingModel();
+		synchronized (pins) {
+			Pin existing = pins.get(text);
+			if (existing != null && existing.model == model) {
+				existing.references++;
+				return existing;
+			}
+		}
+		float[] vector = delegate.embed(text);
+		synchronized (pins) {
+			Pin existing = pins.get(text);
+			if (existing != null && existing.model == model) {
+				existing.references++;
+				return existing;
+			}
+			Pin pin = new Pin(text, model, vector);
+			pins.put(text, pin);
+			return pin;
+		}
+	}
+
+	@Override
+	public EmbeddingResponse call(EmbeddingRequest request) {
+		float[] pinned = lookup(request);
+		if (pinned != null) {
+			return new EmbeddingResponse(List.of(new Embedding(pinned.clone(), 0)));
+		}
+		return delegate.call(request);
+	}
+
+	@Override
+	public float[] embed(Document document) {
+		return delegate.embed(document);
+	}
+
+	@Override
+	public int dimensions() {
+		return delegate.dimensions();
+	}
+
+	public int size() {
+		synchronized (pins) {
+			return pins.size();
+		}
+	}
+
+	private float[] lookup(EmbeddingRequest request) {
+		List<String> texts = request.getInstructions();
+		EmbeddingOptions options = request.getOptions();
+		if (texts.size() != 1 || !StringUtils.hasText(texts.get(0))
+				|| ModelCallPriority.current() == ModelCallPriority.BACKGROUND
+				|| (options != null && (options.getModel() != null || options.getDimensions() != null))) {
+			return null;
+		}
+		Pin pin;
+		synchronized (pins) {
+			pin = pins.get(texts.get(0));
+		}
+		// 向量模型已切换，旧模型的向量不能再用
+		return pin != null && pin.model == registry.getEmbeddingModel() ? pin.vector : null;
+	}
+
+	/**
+	 * 固定的查询向量，关闭后不再返回；同一文本的多次固定全部关闭后才释放
+	 */
+	public final class Pin implements AutoCloseable {
+
+		private final String text;
+
+		private final EmbeddingModel model;
+
+		private final float[] vector;
+
+		private int references = 1;
+
+		private Pin(String text, EmbeddingModel model, float[] vector) {
+			this.text = text;
+			this.model = model;
+			this.vector = vector;
+		}
+
+		@Override
+		public void close() {
+			synchronized (pins) {
+				if (--references == 0) {
+					pins.remove(text, this);
+				}
+			}
+		}
+
+	}
+
+}
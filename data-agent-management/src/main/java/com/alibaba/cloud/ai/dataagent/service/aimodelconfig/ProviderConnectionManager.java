@@ -0,0 +1,272 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import com.alibaba.cloud.ai.dataagent.dto.ModelConfigDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.auth.AuthScope;
+import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
+import org.apache.hc.client5.http.classic.methods.HttpHead;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.transport.ProxyProvider;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模型厂商的共享 HTTP 连接池。
+ * <p>
+ * 每个厂商一组连接池：流式调用使用 reactor-netty 的 {@link ConnectionProvider}，HTTPS 地址协商
+ * HTTP/2；阻塞调用（结构化输出、向量化） 使用 Apache HttpClient
+ * 的连接池。同一厂商的所有模型实例共享连接，模型切换不再重建连接池。空闲连接在后台回收，模型激活时可预先建立连接。
+ * <p>
+ * reactor-netty 连接池的指标（reactor.netty.connection.provider.*，含获取连接耗时）注册到全局 Micrometer
+ * 注册表，Apache 连接池的指标 （httpcomponents.httpclient.pool.*）注册到应用的注册表，标签均为 model-{厂商标识}。
+ */
+@Slf4j
+@Component
+public class ProviderConnectionManager {
+
+	private static final String DEFAULT_PROVIDER = "default";
+
+	private final DataAgentProperties.ModelConnectionPool properties;
+
+	private final MeterRegistry meterRegistry;
+
+	private final Map<String, ProviderPool> pools = new ConcurrentHashMap<>();
+
+	public ProviderConnectionManager(DataAgentProperties properties, MeterRegistry meterRegistry) {
+		this.properties = properties.getModelConnectionPool();
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * 流式调用（WebClient）使用的 HttpClient，按配置附加代理
+	 */
+	public HttpClient streamingClient(ModelConfigDTO config) {
+		HttpClient client = HttpClient.create(pool(config.getProvider()).connectionProvider())
+			.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeoutMs())
+			.responseTimeout(Duration.ofMillis(properties.getResponseTimeoutMs()));
+		if (properties.isHttp2Enabled() && isHttps(config.getBaseUrl())) {
+			client = client.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+		}
+		if (!isProxyEnabled(config)) {
+			return client;
+		}
+
+		log.info("【Proxy-Init】Model [{}] is using ASYNC (Netty) proxy -> {}:{}", config.getModelName(),
+				config.getProxyHost(), config.getProxyPort());
+		return client.proxy(p -> {
+			ProxyProvider.Builder proxyBuilder = p.type(ProxyProvider.Proxy.HTTP)
+				.host(config.getProxyHost())
+				.port(config.getProxyPort());
+
+			if (StringUtils.hasText(config.getProxyUsername())) {
+				log.info("【Proxy-Auth】Enabling Basic Auth for ASYNC proxy, user: {}", config.getProxyUsername());
+				proxyBuilder.username(config.getProxyUsername()).password(s -> config.getProxyPassword());
+			}
+		});
+	}
+
+	/**
+	 * 阻塞调用（RestClient）使用的 HttpClient，按配置附加代理。代理客户端共享厂商的连接池，关闭时不关闭连接池
+	 */
+	public CloseableHttpClient blockingClient(ModelConfigDTO config) {
+		ProviderPool pool = pool(config.getProvider());
+		if (!isProxyEnabled(config)) {
+			return pool.httpClient();
+		}
+
+		// 打印同步代理日志
+		log.info("【Proxy-Init】Model [{}] is using SYNC proxy -> {}:{}", config.getModelName(), config.getProxyHost(),
+				config.getProxyPort());
+
+		BasicCredentialsProvider credsProvider = new BasicCredentialsProvider();
+		if (StringUtils.hasText(config.getProxyUsername())) {
+			log.info("【Proxy-Auth】Enabling Basic Auth for SYNC proxy, user: {}", config.getProxyUsername());
+			credsProvider.setCredentials(new AuthScope(config.getProxyHost(), config.getProxyPort()),
+					new UsernamePasswordCredentials(config.getProxyUsername(),
+							config.getProxyPassword().toCharArray()));
+		}
+
+		return HttpClients.custom()
+			.setConnectionManager(pool.connectionManager())
+			.setConnectionManagerShared(true)
+			.setDefaultRequestConfig(requestConfig())
+			.disableAutomaticRetries()
+			.setProxy(new HttpHost(config.getProxyHost(), config.getProxyPort()))
+			.setDefaultCredentialsProvider(credsProvider)
+			.build();
+	}
+
+	/**
+	 * 预先与模型地址建立连接（含 TLS 握手），流式与阻塞两个连接池各建立配置数量的连接。预热失败或超时不影响后续调用
+	 */
+	public Mono<Void> warmUp(ModelConfigDTO config) {
+		int connections = properties.getWarmupConnections();
+		if (connections <= 0 || !StringUtils.hasText(config.getBaseUrl())) {
+			return Mono.empty();
+		}
+		String baseUrl = config.getBaseUrl();
+		HttpClient streaming = streamingClient(config);
+		CloseableHttpClient blocking = blockingClient(config);
+		// 各连接独立建立，单个失败不影响其他连接
+		Mono<Void> streamingWarmup = Flux.range(0, connections)
+			.flatMap(i -> streaming.head()
+				.uri(baseUrl)
+				.response()
+				.then()
+				.onErrorResume(e -> warmupFailed(config, "streaming", e)), connections)
+			.then();
+		Mono<Void> blockingWarmup = Flux.range(0, connections)
+			.flatMap(i -> Mono.fromCallable(() -> blocking.execute(new HttpHead(baseUrl), response -> null))
+				.subscribeOn(Schedulers.boundedElastic())
+				.then()
+				.onErrorResume(e -> warmupFailed(config, "blocking", e)), connections)
+			.then();
+		long start = System.nanoTime();
+		return Mono.when(streamingWarmup, blockingWarmup)
+			.timeout(Duration.ofMillis(properties.getWarmupTimeoutMs()))
+			.doOnSuccess(v -> log.info("Connection warm-up for model [{}] finished in {}ms", config.getModelName(),
+					(System.nanoTime() - start) / 1_000_000))
+			.onErrorResume(e -> {
+				log.warn("Connection warm-up for model [{}] did not finish: {}", config.getModelName(), e.toString());
+				return Mono.empty();
+			})
+			.doFinally(signal -> {
+				if (blocking != pool(config.getProvider()).httpClient()) {
+					closeQuietly(blocking);
+				}
+			});
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		pools.values().forEach(pool -> {
+			pool.connectionProvider().disposeLater().block(Duration.ofSeconds(5));
+			pool.httpClient().close(CloseMode.GRACEFUL);
+		});
+		pools.clear();
+	}
+
+	ConnectionProvider connectionProvider(String provider) {
+		return pool(provider).connectionProvider();
+	}
+
+	PoolingHttpClientConnectionManager connectionManager(String provider) {
+		return pool(provider).connectionManager();
+	}
+
+	private ProviderPool pool(String provider) {
+		String name = StringUtils.hasText(provider) ? provider.trim().toLowerCase(Locale.ROOT) : DEFAULT_PROVIDER;
+		return pools.computeIfAbsent(name, this::createPool);
+	}
+
+	private ProviderPool createPool(String provider) {
+		String name = "model-" + provider;
+		int maxConnections = properties.getProviderMaxConnections()
+			.getOrDefault(provider, properties.getMaxConnections());
+		log.info("Creating connection pool [{}] with max {} connections", name, maxConnections);
+
+		ConnectionProvider connectionProvider = ConnectionProvider.builder(name)
+			.maxConnections(maxConnections)
+			.pendingAcquireTimeout(Duration.ofMillis(properties.getPendingAcquireTimeoutMs()))
+			.maxIdleTime(Duration.ofMillis(properties.getMaxIdleTimeMs()))
+			.maxLifeTime(Duration.ofMillis(properties.getMaxLifeTimeMs()))
+			.evictInBackground(Duration.ofMillis(properties.getEvictIntervalMs()))
+			.metrics(true)
+			.build();
+
+		PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+			.setMaxConnTotal(maxConnections)
+			.setMaxConnPerRoute(maxConnections)
+			.setDefaultConnectionConfig(ConnectionConfig.custom()
+				.setConnectTimeout(Timeout.ofMilliseconds(properties.getConnectTimeoutMs()))
+				.setSocketTimeout(Timeout.ofMilliseconds(properties.getResponseTimeoutMs()))
+				.setTimeToLive(TimeValue.ofMilliseconds(properties.getMaxLifeTimeMs()))
+				.build())
+			.build();
+		new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, name).bindTo(meterRegistry);
+		CloseableHttpClient httpClient = HttpClients.custom()
+			.setConnectionManager(connectionManager)
+			.setDefaultRequestConfig(requestConfig())
+			// 429 交给 ProviderRateLimiter 统一退避，5xx 由 Spring AI 的重试模板处理
+			.disableAutomaticRetries()
+			.evictIdleConnections(TimeValue.ofMilliseconds(properties.getMaxIdleTimeMs()))
+			.evictExpiredConnections()
+			.build();
+		return new ProviderPool(connectionProvider, connectionManager, httpClient);
+	}
+
+	private RequestConfig requestConfig() {
+		return RequestConfig.custom()
+			.setConnectionRequestTimeout(Timeout.ofMilliseconds(properties.getPendingAcquireTimeoutMs()))
+			.build();
+	}
+
+	private static Mono<Void> warmupFailed(ModelConfigDTO config, String path, Throwable error) {
+		log.debug("Failed to warm up {} connections for model [{}]: {}", path, config.getModelName(), error.toString());
+		return Mono.empty();
+	}
+
+	private static void closeQuietly(CloseableHttpClient client) {
+		try {
+			client.close();
+		}
+		catch (IOException e) {
+			log.debug("Failed to close warm-up client: {}", e.getMessage());
+		}
+	}
+
+	private static boolean isProxyEnabled(ModelConfigDTO config) {
+		return config.getProxyEnabled() != null && config.getProxyEnabled();
+	}
+
+	private static boolean isHttps(String baseUrl) {
+		return baseUrl != null && baseUrl.regionMatches(true, 0, "https:", 0, 6);
+	}
+
+	private record ProviderPool(ConnectionProvider connectionProvider,
+			PoolingHttpClientConnectionManager connectionManager, CloseableHttpClient httpClient) {
+	}
+
+}
@@ -0,0 +1,554 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按厂商与模型划分的令牌桶限流器。
+ * <p>
+ * 每个模型一个桶，同时限制每分钟请求数与每分钟 token 数，token 数在请求前用 jtokkit 估算，响应返回后按厂商报告的实际用量校正。
+ * 额度不足的调用按优先级排队，{@link ModelCallPriority#INTERACTIVE} 先于
+ * {@link ModelCallPriority#BACKGROUND} 放行，同一优先级先到先得。收到 429 时按 AIMD 调整：速率系数乘以衰减系数并按
+ * Retry-After 暂停放行，之后每次成功调用加性恢复， 最多恢复到配置的上限。未配置任何上限的模型不经过限流器，由调用方直接透传。
+ * <p>
+ * 指标：排队耗时 dataagent.ratelimit.wait（标签 model、priority），排队数 dataagent.ratelimit.queued，速率系数
+ * dataagent.ratelimit.rate.factor，429 次数 dataagent.ratelimit.throttled。
+ */
+@Slf4j
+public class ProviderRateLimiter {
+
+	private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+	private final DataAgentProperties.ModelRateLimit properties;
+
+	private final Encoding encoding;
+
+	private final MeterRegistry meterRegistry;
+
+	private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+	private final Map<String, DataAgentProperties.ModelRateLimit.Limit> limits = new ConcurrentHashMap<>();
+
+	public ProviderRateLimiter(DataAgentProperties.ModelRateLimit properties, EncodingType encodingType,
+			MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.encoding = Encodings.newLazyEncodingRegistry().getEncoding(encodingType);
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * 限流键，同一厂商的同一模型共享额度
+	 */
+	public static String key(String provider, String modelName) {
+		String name = StringUtils.hasText(provider) ? provider.trim() : "default";
+		return (name + "/" + (modelName == null ? "" : modelName.trim())).toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * 是否对该模型限流，未启用限流或每分钟请求数与 token 数都未设上限时为 false，调用可以直接透传
+	 */
+	public boolean isLimited(String key) {
+		DataAgentProperties.ModelRateLimit.Limit limit = limitOf(key);
+		return properties.isEnabled() && (limit.getRequestsPerMinute() > 0 || limit.getTokensPerMinute() > 0);
+	}
+
+	/**
+	 * 是否限制该模型的 token 数，为 false 时调用方无需估算请求的 token 数
+	 */
+	public boolean limitsTokens(String key) {
+		return properties.isEnabled() && limitOf(key).getTokensPerMinute() > 0;
+	}
+
+	/**
+	 * 估算文本的 token 数
+	 */
+	public int estimateTokens(String text) {
+		return StringUtils.hasText(text) ? encoding.countTokens(text) : 0;
+	}
+
+	/**
+	 * 对话请求预留的输出 token 数
+	 */
+	public int completionTokenReserve() {
+		return Math.max(0, properties.getCompletionTokenReserve());
+	}
+
+	/**
+	 * 收到 429 后重新排队重试的次数
+	 */
+	public int maxThrottleRetries() {
+		return properties.isEnabled() ? Math.max(0, properties.getMaxThrottleRetries()) : 0;
+	}
+
+	/**
+	 * 申请一次调用的额度，额度足够时立即完成，否则排队等待
+	 * @param key 限流键
+	 * @param priority 调用优先级
+	 * @param tokens 估算的 token 数
+	 * @return 放行时完成；排队超时时以 {@link TransientAiException} 失败；取消订阅时退出队列
+	 */
+	public Mono<Void> acquire(String key, ModelCallPriority priority, long tokens) {
+		if (!properties.isEnabled()) {
+			return Mono.empty();
+		}
+		Bucket bucket = bucket(key);
+		if (bucket.tryAcquire(priority, Math.max(0, tokens))) {
+			return Mono.empty();
+		}
+		Mono<Void> permit = Mono.create(sink -> {
+			Waiter waiter = new Waiter(priority, Math.max(0, tokens), sink, System.nanoTime());
+			sink.onCancel(() -> bucket.cancel(waiter));
+			bucket.enqueue(waiter);
+		});
+		return permit.timeout(Duration.ofMillis(properties.getMaxQueueWaitMs()))
+			.onErrorMap(TimeoutException.class,
+					e -> new TransientAiException("Timed out waiting for the rate limit of model " + key, e));
+	}
+
+	/**
+	 * 调用成功：按实际用量校正 token 额度，并加性恢复速率
+	 * @param key 限流键
+	 * @param estimatedTokens 申请时估算的 token 数
+	 * @param actualTokens 厂商报告的实际 token 数，未知时为 0
+	 */
+	public void onSuccess(String key, long estimatedTokens, long actualTokens) {
+		if (properties.isEnabled()) {
+			bucket(key).succeeded(actualTokens > 0 ? estimatedTokens - actualTokens : 0);
+		}
+	}
+
+	/**
+	 * 调用被厂商限流：乘性降低速率并暂停放行
+	 * @param key 限流键
+	 * @param retryAfter 厂商要求的等待时间，为 null 时使用默认暂停时间
+	 */
+	public void onThrottled(String key, Duration retryAfter) {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		Duration pause = retryAfter != null ? retryAfter : Duration.ofMillis(properties.getDefaultRetryAfterMs());
+		meterRegistry.counter("dataagent.ratelimit.throttled", "model", key).increment();
+		log.warn("Model {} is rate limited by the provider, pausing for {}ms", key, pause.toMillis());
+		bucket(key).throttled(pause);
+	}
+
+	/**
+	 * 在限流下执行阻塞调用，被厂商限流时重新排队重试
+	 * @param key 限流键
+	 * @param tokens 估算的 token 数
+	 * @param call 模型调用
+	 * @param usage 从结果中取厂商报告的 token 数，未知时返回 0
+	 */
+	public <T> T execute(String key, long tokens, Supplier<T> call, ToLongFunction<T> usage) {
+		ModelCallPriority priority = ModelCallPriority.current();
+		for (int attempt = 0;; attempt++) {
+			acquire(key, priority, tokens).block();
+			try {
+				T result = call.get();
+				onSuccess(key, tokens, usage.applyAsLong(result));
+				return result;
+			}
+			catch (RuntimeException e) {
+				Optional<Duration> throttle = throttleOf(e);
+				if (throttle.isEmpty()) {
+					throw e;
+				}
+				onThrottled(key, throttle.get().isZero() ? null : throttle.get());
+				if (attempt >= maxThrottleRetries()) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 在限流下执行流式调用，被厂商限流且尚未输出内容时重新排队重试。优先级取自订阅时的 Reactor Context
+	 * @param key 限流键
+	 * @param tokens 估算的 token 数
+	 * @param call 模型调用，每次重试重新调用
+	 * @param usage 从输出中取厂商报告的累计 token 数，未知时返回 0
+	 */
+	public <T> Flux<T> stream(String key, long tokens, Supplier<Flux<T>> call, ToLongFunction<T> usage) {
+		return Flux.deferContextual(context -> {
+			ModelCallPriority priority = ModelCallPriority.current(context);
+			AtomicBoolean emitted = new AtomicBoolean();
+			AtomicLong used = new AtomicLong();
+			Flux<T> attempt = Flux.defer(() -> acquire(key, priority, tokens).thenMany(Flux.defer(call)))
+				.doOnNext(item -> {
+					emitted.set(true);
+					used.accumulateAndGet(usage.applyAsLong(item), Math::max);
+				})
+				.doOnComplete(() -> onSuccess(key, tokens, used.get()))
+				.doOnError(e -> throttleOf(e)
+					.ifPresent(retryAfter -> onThrottled(key, retryAfter.isZero() ? null : retryAfter)));
+			return attempt.retryWhen(Retry.max(maxThrottleRetries())
+				.filter(e -> !emitted.get() && throttleOf(e).isPresent())
+				.onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+		});
+	}
+
+	/**
+	 * 判断异常是否为厂商的 429 响应
+	 * @return 是 429 时返回厂商要求的等待时间，未指定时为 {@link Duration#ZERO}；否则为空
+	 */
+	public static Optional<Duration> throttleOf(Throwable error) {
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ModelRateLimitedException limited) {
+				return Optional.of(limited.getRetryAfter() != null ? limited.getRetryAfter() : Duration.ZERO);
+			}
+			if (cause instanceof WebClientResponseException response
+					&& response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+				Duration retryAfter = ModelRateLimitedException
+					.parseRetryAfter(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+				return Optional.of(retryAfter != null ? retryAfter : Duration.ZERO);
+			}
+			// Spring AI 默认的错误处理只保留状态码与响应体
+			if ((cause instanceof NonTransientAiException || cause instanceof TransientAiException)
+					&& cause.getMessage() != null && cause.getMessage().startsWith("429 ")) {
+				return Optional.of(Duration.ZERO);
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * 排队中的调用数
+	 */
+	public int queued(String key) {
+		Bucket bucket = buckets.get(key);
+		return bucket == null ? 0 : bucket.queued();
+	}
+
+	/**
+	 * 当前速率系数，1 表示按配置的上限放行
+	 */
+	public double rateFactor(String key) {
+		Bucket bucket = buckets.get(key);
+		return bucket == null ? 1.0 : bucket.rateFactor();
+	}
+
+	private Bucket bucket(String key) {
+		return buckets.computeIfAbsent(key, this::createBucket);
+	}
+
+	private Bucket createBucket(String key) {
+		DataAgentProperties.ModelRateLimit.Limit limit = limitOf(key);
+		Bucket bucket = new Bucket(key, limit.getRequestsPerMinute(), limit.getTokensPerMinute());
+		Tags tags = Tags.of("model", key);
+		meterRegistry.gauge("dataagent.ratelimit.queued", tags, bucket, Bucket::queued);
+		meterRegistry.gauge("dataagent.ratelimit.rate.factor", tags, bucket, Bucket::rateFactor);
+		return bucket;
+	}
+
+	/**
+	 * 模型生效的上限：厂商覆盖优先于全局配置，“厂商/模型名”覆盖优先于厂商覆盖
+	 */
+	private DataAgentProperties.ModelRateLimit.Limit limitOf(String key) {
+		return limits.computeIfAbsent(key, k -> {
+			int requestsPerMinute = properties.getRequestsPerMinute();
+			long tokensPerMinute = properties.getTokensPerMinute();
+			String provider = k.substring(0, k.indexOf('/'));
+			for (String override : new String[] { provider, k }) {
+				DataAgentProperties.ModelRateLimit.Limit limit = findOverride(override);
+				if (limit != null) {
+					requestsPerMinute = limit.getRequestsPerMinute();
+					tokensPerMinute = limit.getTokensPerMinute();
+				}
+			}
+			DataAgentProperties.ModelRateLimit.Limit effective = new DataAgentProperties.ModelRateLimit.Limit();
+			effective.setRequestsPerMinute(Math.max(0, requestsPerMinute));
+			effective.setTokensPerMinute(Math.max(0, tokensPerMinute));
+			return effective;
+		});
+	}
+
+	private DataAgentProperties.ModelRateLimit.Limit findOverride(String name) {
+		for (Map.Entry<String, DataAgentProperties.ModelRateLimit.Limit> entry : properties.getOverrides().entrySet()) {
+			if (entry.getKey().trim().equalsIgnoreCase(name)) {
+				return entry.getValue();
+			}
+		}
+		return null;
+	}
+
+	private final class Bucket {
+
+		private final String key;
+
+		private final double requestsPerMinute;
+
+		private final double tokensPerMinute;
+
+		private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+				Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::sequence));
+
+		private long sequence;
+
+		private double rateFactor = 1.0;
+
+		private double requestCredit;
+
+		private double tokenCredit;
+
+		private long refilledAtNanos;
+
+		private long pausedUntilNanos;
+
+		private Disposable scheduledDrain;
+
+		private long scheduledAtNanos;
+
+		private Bucket(String key, double requestsPerMinute, double tokensPerMinute) {
+			this.key = key;
+			this.requestsPerMinute = requestsPerMinute;
+			this.tokensPerMinute = tokensPerMinute;
+			this.requestCredit = requestsPerMinute;
+			this.tokenCredit = tokensPerMinute;
+			this.refilledAtNanos = System.nanoTime();
+			this.pausedUntilNanos = refilledAtNanos;
+		}
+
+		/**
+		 * 无人排队且额度足够时直接放行
+		 */
+		private boolean tryAcquire(ModelCallPriority priority, long tokens) {
+			synchronized (this) {
+				long now = System.nanoTime();
+				if (!waiters.isEmpty() || now < pausedUntilNanos) {
+					return false;
+				}
+				refill(now);
+				if (creditWaitNanos(tokens) > 0) {
+					return false;
+				}
+				consume(tokens);
+			}
+			recordWait(priority, 0);
+			return true;
+		}
+
+		private void enqueue(Waiter waiter) {
+			synchronized (this) {
+				waiter.sequence = sequence++;
+				waiters.add(waiter);
+			}
+			drain();
+		}
+
+		private void cancel(Waiter waiter) {
+			boolean removed;
+			synchronized (this) {
+				removed = waiters.remove(waiter);
+			}
+			if (removed) {
+				drain();
+			}
+		}
+
+		private void succeeded(long refundTokens) {
+			synchronized (this) {
+				if (tokensPerMinute > 0) {
+					tokenCredit = Math.min(tokenCapacity(), tokenCredit + refundTokens);
+				}
+				rateFactor = Math.min(1.0, rateFactor + properties.getIncreaseStep());
+			}
+			drain();
+		}
+
+		private void throttled(Duration pause) {
+			synchronized (this) {
+				long now = System.nanoTime();
+				refill(now);
+				rateFactor = Math.max(properties.getMinRateFactor(), rateFactor * properties.getDecreaseFactor());
+				requestCredit = Math.min(requestCredit, requestCapacity());
+				tokenCredit = Math.min(tokenCredit, tokenCapacity());
+				pausedUntilNanos = Math.max(pausedUntilNanos, now + pause.toNanos());
+			}
+			drain();
+		}
+
+		/**
+		 * 按优先级放行额度足够的调用，队首额度不足时在额度恢复的时间点再次放行
+		 */
+		private void drain() {
+			List<Waiter> granted = new ArrayList<>();
+			synchronized (this) {
+				long now = System.nanoTime();
+				refill(now);
+				while (!waiters.isEmpty()) {
+					Waiter head = waiters.peek();
+					long waitNanos = Math.max(pausedUntilNanos - now, creditWaitNanos(head.tokens()));
+					if (waitNanos > 0) {
+						schedule(now, waitNanos);
+						break;
+					}
+					consume(head.tokens());
+					granted.add(waiters.poll());
+				}
+			}
+			for (Waiter waiter : granted) {
+				recordWait(waiter.priority(), System.nanoTime() - waiter.enqueuedAtNanos());
+				waiter.sink().success();
+			}
+		}
+
+		private void consume(long tokens) {
+			if (requestsPerMinute > 0) {
+				requestCredit -= 1;
+			}
+			if (tokensPerMinute > 0) {
+				tokenCredit -= tokens;
+			}
+		}
+
+		private void recordWait(ModelCallPriority priority, long waitedNanos) {
+			Timer.builder("dataagent.ratelimit.wait")
+				.tags("model", key, "priority", priority.name().toLowerCase(Locale.ROOT))
+				.register(meterRegistry)
+				.record(waitedNanos, TimeUnit.NANOSECONDS);
+		}
+
+		private void refill(long now) {
+			double elapsedMinutes = (now - refilledAtNanos) / NANOS_PER_MINUTE;
+			refilledAtNanos = now;
+			requestCredit = Math.min(requestCapacity(), requestCredit + elapsedMinutes * requestCapacity());
+			tokenCredit = Math.min(tokenCapacity(), tokenCredit + elapsedMinutes * tokenCapacity());
+		}
+
+		/**
+		 * 额度恢复到足够放行所需的时间，超过桶容量的 token 数按桶满放行
+		 */
+		private long creditWaitNanos(long tokens) {
+			long waitNanos = 0;
+			if (requestsPerMinute > 0 && requestCredit < 1) {
+				waitNanos = (long) ((1 - requestCredit) / requestCapacity() * NANOS_PER_MINUTE);
+			}
+			double needed = Math.min(tokens, tokenCapacity());
+			if (tokensPerMinute > 0 && tokenCredit < needed) {
+				waitNanos = Math.max(waitNanos, (long) ((needed - tokenCredit) / tokenCapacity() * NANOS_PER_MINUTE));
+			}
+			return waitNanos;
+		}
+
+		private void schedule(long now, long delayNanos) {
+			long at = now + delayNanos;
+			// 已安排的放行尚未到期且不晚于所需时间
+			if (scheduledDrain != null && scheduledAtNanos > now && scheduledAtNanos <= at) {
+				return;
+			}
+			if (scheduledDrain != null) {
+				scheduledDrain.dispose();
+			}
+			scheduledAtNanos = at;
+			scheduledDrain = Schedulers.parallel().schedule(this::drain, Math.max(1, delayNanos), TimeUnit.NANOSECONDS);
+		}
+
+		private double requestCapacity() {
+			return requestsPerMinute * rateFactor;
+		}
+
+		private double tokenCapacity() {
+			return tokensPerMinute * rateFactor;
+		}
+
+		private synchronized int queued() {
+			return waiters.size();
+		}
+
+		private synchronized double rateFactor() {
+			return rateFactor;
+		}
+
+	}
+
+	private static final class Waiter {
+
+		private final ModelCallPriority priority;
+
+		private final long tokens;
+
+		private final MonoSink<Void> sink;
+
+		private final long enqueuedAtNanos;
+
+		private long sequence;
+
+		private Waiter(ModelCallPriority priority, long tokens, MonoSink<Void> sink, long enqueuedAtNanos) {
+			this.priority = priority;
+			this.tokens = tokens;
+			this.sink = sink;
+			this.enqueuedAtNanos = enqueuedAtNanos;
+		}
+
+		private ModelCallPriority priority() {
+			return priority;
+		}
+
+		private long tokens() {
+			return tokens;
+		}
+
+		private MonoSink<Void> sink() {
+			return sink;
+		}
+
+		private long enqueuedAtNanos() {
+			return enqueuedAtNanos;
+		}
+
+		private long sequence() {
+			return sequence;
+		}
+
+	}
+
+}
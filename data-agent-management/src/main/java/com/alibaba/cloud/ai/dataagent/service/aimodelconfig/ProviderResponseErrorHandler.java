@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import org.springframework.ai.retry.RetryUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.ResponseErrorHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 阻塞调用的错误处理：429 响应转为携带 Retry-After 的 {@link ModelRateLimitedException}，其余错误沿用 Spring AI
+ * 的默认处理
+ */
+class ProviderResponseErrorHandler implements ResponseErrorHandler {
+
+	private final ResponseErrorHandler delegate = RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER;
+
+	@Override
+	public boolean hasError(ClientHttpResponse response) throws IOException {
+		return delegate.hasError(response);
+	}
+
+	@Override
+	public void handleError(URI url, HttpMethod method, ClientHttpResponse response) throws IOException {
+		if (response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+			String body = StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+			throw new ModelRateLimitedException("429 - " + body,
+					ModelRateLimitedException.parseRetryAfter(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)));
+		}
+		delegate.handleError(url, method, response);
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+/**
+ * 经过 {@link ProviderRateLimiter} 限流的对话模型，请求 token 数按提示词估算并预留输出额度。 模型未配置上限时直接调用，不限制 token
+ * 数时不做估算。
+ */
+public class RateLimitedChatModel implements ChatModel {
+
+	private final ChatModel delegate;
+
+	private final ProviderRateLimiter rateLimiter;
+
+	private final String key;
+
+	public RateLimitedChatModel(ChatModel delegate, ProviderRateLimiter rateLimiter, String key) {
+		this.delegate = delegate;
+		this.rateLimiter = rateLimiter;
+		this.key = key;
+	}
+
+	@Override
+	public ChatResponse call(Prompt prompt) {
+		if (!rateLimiter.isLimited(key)) {
+			return delegate.call(prompt);
+		}
+		return rateLimiter.execute(key, estimateTokens(prompt), () -> delegate.call(prompt),
+				RateLimitedChatModel::usedTokens);
+	}
+
+	@Override
+	public Flux<ChatResponse> stream(Prompt prompt) {
+		if (!rateLimiter.isLimited(key)) {
+			return delegate.stream(prompt);
+		}
+		return rateLimiter.stream(key, estimateTokens(prompt), () -> delegate.stream(prompt),
+				RateLimitedChatModel::usedTokens);
+	}
+
+	@Override
+	public ChatOptions getDefaultOptions() {
+		return delegate.getDefaultOptions();
+	}
+
+	private long estimateTokens(Prompt prompt) {
+		if (!rateLimiter.limitsTokens(key)) {
+			return 0;
+		}
+		return (long) rateLimiter.estimateTokens(prompt.getContents()) + rateLimiter.completionTokenReserve();
+	}
+
+	private static long usedTokens(ChatResponse response) {
+		if (response == null || response.getMetadata() == null) {
+			return 0;
+		}
+		Usage usage = response.getMetadata().getUsage();
+		return usage == null || usage.getTotalTokens() == null ? 0 : usage.getTotalTokens();
+	}
+
+}
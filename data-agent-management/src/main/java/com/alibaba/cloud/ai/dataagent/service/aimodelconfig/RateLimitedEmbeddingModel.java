@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * 经过 {@link ProviderRateLimiter} 限流的向量模型，请求 token 数按输入文本估算。 模型未配置上限时直接调用，不限制 token
+ * 数时不做估算。
+ */
+public class RateLimitedEmbeddingModel implements EmbeddingModel {
+
+	private final EmbeddingModel delegate;
+
+	private final ProviderRateLimiter rateLimiter;
+
+	private final String key;
+
+	public RateLimitedEmbeddingModel(EmbeddingModel delegate, ProviderRateLimiter rateLimiter, String key) {
+		this.delegate = delegate;
+		this.rateLimiter = rateLimiter;
+		this.key = key;
+	}
+
+	@Override
+	public EmbeddingResponse call(EmbeddingRequest request) {
+		if (!rateLimiter.isLimited(key)) {
+			return delegate.call(request);
+		}
+		long tokens = rateLimiter.limitsTokens(key)
+				? request.getInstructions().stream().mapToLong(rateLimiter::estimateTokens).sum() : 0;
+		return rateLimiter.execute(key, tokens, () -> delegate.call(request), RateLimitedEmbeddingModel::usedTokens);
+	}
+
+	@Override
+	public float[] embed(Document document) {
+		if (!rateLimiter.isLimited(key)) {
+			return delegate.embed(document);
+		}
+		long tokens = rateLimiter.limitsTokens(key)
+				? rateLimiter.estimateTokens(document.getFormattedContent(MetadataMode.EMBED)) : 0;
+		return rateLimiter.execute(key, tokens, () -> delegate.embed(document), embedding -> 0);
+	}
+
+	@Override
+	public int dimensions() {
+		return delegate.dimensions();
+	}
+
+	private static long usedTokens(EmbeddingResponse response) {
+		if (response == null || response.getMetadata() == null) {
+			return 0;
+		}
+		Usage usage = response.getMetadata().getUsage();
+		return usage == null || usage.getTotalTokens() == null ? 0 : usage.getTotalTokens();
+	}
+
+}
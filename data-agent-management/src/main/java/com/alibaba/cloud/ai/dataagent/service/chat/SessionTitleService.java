@@ -16,6 +16,7 @@
 package com.alibaba.cloud.ai.dataagent.service.chat;
 
 import com.alibaba.cloud.ai.dataagent.entity.ChatSession;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -115,7 +116,8 @@ public class SessionTitleService {
 					%s
 					</user_message>
 					""".formatted(userMessage);
-			Flux<String> responseFlux = llmService.toStringFlux(llmService.call(systemPrompt, userPrompt));
+			Flux<String> responseFlux = llmService.toStringFlux(llmService.call(systemPrompt, userPrompt))
+				.contextWrite(LlmCallScope.of(LlmCallScope.SESSION_TITLE));
 			return responseFlux.collect(StringBuilder::new, StringBuilder::append)
 				.map(StringBuilder::toString)
 				.block(Duration.ofSeconds(15));
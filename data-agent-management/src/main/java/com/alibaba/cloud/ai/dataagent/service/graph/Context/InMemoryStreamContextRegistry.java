@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph.Context;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 单节点部署使用的注册表，只在本 JVM 内保存上下文，所有运行都视为由本节点持有
+ */
+public class InMemoryStreamContextRegistry implements StreamContextRegistry {
+
+	private final String nodeId;
+
+	private final ConcurrentHashMap<String, StreamContext> contexts = new ConcurrentHashMap<>();
+
+	public InMemoryStreamContextRegistry() {
+		this(UUID.randomUUID().toString());
+	}
+
+	public InMemoryStreamContextRegistry(String nodeId) {
+		this.nodeId = nodeId;
+	}
+
+	@Override
+	public String nodeId() {
+		return nodeId;
+	}
+
+	@Override
+	public StreamContext computeIfAbsent(String threadId, Function<String, StreamContext> factory) {
+		return contexts.computeIfAbsent(threadId, factory);
+	}
+
+	@Override
+	public StreamContext get(String threadId) {
+		return contexts.get(threadId);
+	}
+
+	@Override
+	public StreamContext remove(String threadId) {
+		return contexts.remove(threadId);
+	}
+
+	@Override
+	public boolean remove(String threadId, StreamContext context) {
+		return contexts.remove(threadId, context);
+	}
+
+	@Override
+	public void forEach(BiConsumer<String, StreamContext> action) {
+		contexts.forEach(action);
+	}
+
+	@Override
+	public void claim(String threadId, String conversationId) {
+	}
+
+	@Override
+	public void release(String threadId) {
+	}
+
+	@Override
+	public Optional<Owner> findRemoteOwner(String threadId) {
+		return Optional.empty();
+	}
+
+	@Override
+	public List<Owner> findRemoteOwners(String conversationId) {
+		return List.of();
+	}
+
+}
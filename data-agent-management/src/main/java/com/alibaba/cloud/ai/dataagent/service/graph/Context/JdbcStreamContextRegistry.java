@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph.Context;
+
+import com.alibaba.cloud.ai.dataagent.entity.GraphRunOwner;
+import com.alibaba.cloud.ai.dataagent.mapper.GraphRunOwnerMapper;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多节点部署使用的注册表。上下文仍保存在本 JVM 内，运行归属写入管理库的 graph_run_owner 表。
+ * <p>
+ * 节点定时刷新所持有运行的心跳，心跳超时的节点视为已下线，其运行由收到请求的节点在本地处理。 归属表读写失败时只记录日志，运行按单节点方式继续。
+ * 等待人工反馈的运行在本地已没有上下文，登记超过保留时间后释放归属，避免一直不恢复的运行永久占用记录。
+ */
+@Slf4j
+public class JdbcStreamContextRegistry extends InMemoryStreamContextRegistry {
+
+	private final GraphRunOwnerMapper mapper;
+
+	private final String nodeAddress;
+
+	private final long ownerTimeoutMs;
+
+	private final long awaitingFeedbackTtlMs;
+
+	/**
+	 * 本节点登记运行的时间
+	 */
+	private final ConcurrentHashMap<String, Long> claimTimes = new ConcurrentHashMap<>();
+
+	public JdbcStreamContextRegistry(GraphRunOwnerMapper mapper, String nodeId, String nodeAddress,
+			DataAgentProperties.Stream.Registry properties) {
+		super(nodeId);
+		this.mapper = mapper;
+		this.nodeAddress = nodeAddress;
+		this.ownerTimeoutMs = properties.getOwnerTimeoutMs();
+		this.awaitingFeedbackTtlMs = properties.getAwaitingFeedbackTtlMs();
+		log.info("Graph run registry node {} listening at {}", nodeId, nodeAddress);
+	}
+
+	@Override
+	public void claim(String threadId, String conversationId) {
+		GraphRunOwner owner = GraphRunOwner.builder()
+			.threadId(threadId)
+			.conversationId(conversationId)
+			.nodeId(nodeId())
+			.nodeAddress(nodeAddress)
+			.heartbeatTime(LocalDateTime.now())
+			.build();
+		claimTimes.put(threadId, System.currentTimeMillis());
+		try {
+			if (mapper.updateByThreadId(owner) == 0) {
+				try {
+					mapper.insert(owner);
+				}
+				catch (DuplicateKeyException e) {
+					// 另一个节点同时登记了同一运行，以后到者为准
+					mapper.updateByThreadId(owner);
+				}
+			}
+		}
+		catch (DataAccessException e) {
+			log.warn("Unable to claim graph run {} on node {}", threadId, nodeId(), e);
+		}
+	}
+
+	@Override
+	public void release(String threadId) {
+		claimTimes.remove(threadId);
+		try {
+			mapper.deleteByThreadIdAndNodeId(threadId, nodeId());
+		}
+		catch (DataAccessException e) {
+			log.warn("Unable to release graph run {} on node {}", threadId, nodeId(), e);
+		}
+	}
+
+	@Override
+	public Optional<Owner> findRemoteOwner(String threadId) {
+		try {
+			return Optional.ofNullable(mapper.selectAliveByThreadId(threadId, aliveAfter()))
+				.filter(this::isRemote)
+				.map(JdbcStreamContextRegistry::toOwner);
+		}
+		catch (DataAccessException e) {
+			log.warn("Unable to look up owner of graph run {}", threadId, e);
+			return Optional.empty();
+		}
+	}
+
+	@Override
+	public List<Owner> findRemoteOwners(String conversationId) {
+		try {
+			return mapper.selectAliveByConversationId(conversationId, aliveAfter())
+				.stream()
+				.filter(this::isRemote)
+				.map(JdbcStreamContextRegistry::toOwner)
+				.toList();
+		}
+		catch (DataAccessException e) {
+			log.warn("Unable to look up owners of conversation {}", conversationId, e);
+			return List.of();
+		}
+	}
+
+	/**
+	 * 释放等待人工反馈超时的运行，刷新本节点所持有运行的心跳，并清理已下线节点的记录
+	 */
+	@Scheduled(fixedDelayString = "${spring.ai.alibaba.data-agent.stream.registry.heartbeat-interval-ms:10000}")
+	public void heartbeat() {
+		long now = System.currentTimeMillis();
+		claimTimes.forEach((threadId, claimedAt) -> {
+			// 运行中的运行在本地有上下文；没有上下文的是等待人工反馈或重连宽限期内的运行
+			if (now - claimedAt >= awaitingFeedbackTtlMs && get(threadId) == null) {
+				log.info("Releasing graph run {} that has been awaiting human feedback for {} ms", threadId,
+						now - claimedAt);
+				release(threadId);
+			}
+		});
+		try {
+			mapper.updateHeartbeatByNodeId(nodeId(), LocalDateTime.now());
+			int expired = mapper.deleteExpired(aliveAfter());
+			if (expired > 0) {
+				log.info("Removed {} graph runs owned by offline nodes", expired);
+			}
+		}
+		catch (DataAccessException e) {
+			log.warn("Unable to refresh graph run heartbeats on node {}", nodeId(), e);
+		}
+	}
+
+	/**
+	 * 节点停止后运行随之结束，删除记录使后续请求在收到请求的节点上处理
+	 */
+	@PreDestroy
+	public void shutdown() {
+		claimTimes.clear();
+		try {
+			mapper.deleteByNodeId(nodeId());
+		}
+		catch (DataAccessException e) {
+			log.warn("Unable to remove graph runs of node {}", nodeId(), e);
+		}
+	}
+
+	private LocalDateTime aliveAfter() {
+		return LocalDateTime.now().minusNanos(ownerTimeoutMs * 1_000_000L);
+	}
+
+	private boolean isRemote(GraphRunOwner owner) {
+		return !nodeId().equals(owner.getNodeId());
+	}
+
+	private static Owner toOwner(GraphRunOwner owner) {
+		return new Owner(owner.getThreadId(), owner.getNodeId(), owner.getNodeAddress());
+	}
+
+}
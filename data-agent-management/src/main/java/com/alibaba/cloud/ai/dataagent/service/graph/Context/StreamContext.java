@@ -16,17 +16,24 @@
 package com.alibaba.cloud.ai.dataagent.service.graph.Context;
 
 import com.alibaba.cloud.ai.dataagent.enums.TextType;
+import com.alibaba.cloud.ai.dataagent.util.ChunkedTextBuffer;
 import com.alibaba.cloud.ai.dataagent.vo.GraphNodeResponse;
 import io.opentelemetry.api.trace.Span;
 import lombok.Data;
 import org.springframework.http.codec.ServerSentEvent;
 import reactor.core.Disposable;
+import reactor.core.Scannable;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * 流式处理上下文，封装每个 threadId 的所有相关状态
@@ -37,6 +44,16 @@ import java.util.Objects;
 @Data
 public class StreamContext {
 
+	private static final int DEFAULT_REPLAY_BUFFER_SIZE = 1000;
+
+	private static final int DEFAULT_REPLAY_BUFFER_MAX_CHARS = 512 * 1024;
+
+	private static final int DEFAULT_TRACE_OUTPUT_MAX_CHARS = 256 * 1024;
+
+	private String threadId;
+
+	private String agentId;
+
 	private String conversationId;
 
 	private Disposable disposable;
@@ -59,6 +76,283 @@ public class StreamContext {
 
 	private int stepSequence;
 
+	/**
+	 * 宽限期结束后取消运行的定时任务，客户端断开时设置，重连时取消
+	 */
+	private Disposable pendingStop;
+
+	/**
+	 * 运行的准入凭证，清理时释放执行额度或退出等待队列
+	 */
+	private Disposable admission;
+
+	/**
+	 * 可重放事件的环形缓冲，按事件序号递增，超出数量或字符上限时淘汰最早的事件
+	 */
+	private final Deque<ReplayEntry> replayBuffer = new ArrayDeque<>();
+
+	private final int replayBufferSize;
+
+	private final int replayBufferMaxChars;
+
+	private int replayBufferChars;
+
+	private long eventSequence;
+
+	private boolean finished;
+
+	/**
+	 * 等待合并发送的 token 片段：同一节点、同一步骤、同一文本类型的连续片段在时间窗口内合并为一个事件
+	 */
+	private GraphNodeResponse pendingChunk;
+
+	private final StringBuilder pendingChunkText = new StringBuilder();
+
+	private Disposable pendingFlush;
+
+	/**
+	 * 时间窗口到期后异步发送失败时的回调
+	 */
+	private Consumer<Sinks.EmitResult> deferredEmitFailureHandler;
+
+	/**
+	 * 本次运行实际推送的事件数
+	 */
+	private long emittedEvents;
+
+	/**
+	 * 被合并进前一个事件、没有单独推送的片段数
+	 */
+	private long coalescedChunks;
+
+	/**
+	 * 本次运行中 sink 发送缓冲的最高占用
+	 */
+	private int sinkHighWaterMark;
+
+	public StreamContext() {
+		this(DEFAULT_REPLAY_BUFFER_SIZE, DEFAULT_REPLAY_BUFFER_MAX_CHARS);
+	}
+
+	public StreamContext(int replayBufferSize, int replayBufferMaxChars) {
+		this.replayBufferSize = Math.max(0, replayBufferSize);
+		this.replayBufferMaxChars = Math.max(0, replayBufferMaxChars);
+	}
+
+	/**
+	 * 为事件分配递增的事件 ID 并写入重放缓冲；客户端在线时同时推送给当前 sink。 客户端已断开时事件只进入缓冲，返回 OK。
+	 * @param event 待发送的事件
+	 * @return 推送结果
+	 */
+	public synchronized Sinks.EmitResult emit(ServerSentEvent<GraphNodeResponse> event) {
+		Sinks.EmitResult flushResult = flushChunk();
+		Sinks.EmitResult result = emitNow(event);
+		return flushResult.isFailure() ? flushResult : result;
+	}
+
+	/**
+	 * 推送一个 token 片段。与待发送片段属于同一节点、同一步骤、同一文本类型时合并， 在时间窗口到期、字符数达到上限或遇到不可合并的事件时统一发送。
+	 * @param chunk 片段事件
+	 * @param windowMs 合并时间窗口，不大于 0 时立即发送
+	 * @param maxChars 合并后的字符数上限
+	 * @return 推送结果，片段仍在等待合并时返回 OK
+	 */
+	public synchronized Sinks.EmitResult emitChunk(GraphNodeResponse chunk, long windowMs, int maxChars) {
+		if (windowMs <= 0) {
+			return emit(ServerSentEvent.builder(chunk).build());
+		}
+		Sinks.EmitResult result = Sinks.EmitResult.OK;
+		if (pendingChunk != null && !canMerge(pendingChunk, chunk)) {
+			result = flushChunk();
+		}
+		if (pendingChunk == null) {
+			pendingChunk = chunk;
+			pendingChunkText.setLength(0);
+			pendingFlush = Mono.delay(Duration.ofMillis(windowMs)).subscribe(ignored -> flushDeferred());
+		}
+		else {
+			coalescedChunks++;
+		}
+		pendingChunkText.append(chunk.getText());
+		if (pendingChunkText.length() >= maxChars) {
+			Sinks.EmitResult flushResult = flushChunk();
+			result = result.isFailure() ? result : flushResult;
+		}
+		return result;
+	}
+
+	/**
+	 * 立即发送等待合并的片段
+	 * @return 推送结果，没有待发送片段时返回 OK
+	 */
+	public synchronized Sinks.EmitResult flushChunk() {
+		if (pendingFlush != null) {
+			pendingFlush.dispose();
+			pendingFlush = null;
+		}
+		if (pendingChunk == null) {
+			return Sinks.EmitResult.OK;
+		}
+		GraphNodeResponse merged = GraphNodeResponse.builder()
+			.agentId(pendingChunk.getAgentId())
+			.threadId(pendingChunk.getThreadId())
+			.eventType(pendingChunk.getEventType())
+			.stepId(pendingChunk.getStepId())
+			.attempt(pendingChunk.getAttempt())
+			.nodeName(pendingChunk.getNodeName())
+			.textType(pendingChunk.getTextType())
+			.text(pendingChunkText.toString())
+			.build();
+		pendingChunk = null;
+		pendingChunkText.setLength(0);
+		return emitNow(ServerSentEvent.builder(merged).build());
+	}
+
+	private void flushDeferred() {
+		Sinks.EmitResult result;
+		Consumer<Sinks.EmitResult> failureHandler;
+		synchronized (this) {
+			result = flushChunk();
+			failureHandler = deferredEmitFailureHandler;
+		}
+		// 在锁外回调，避免回调中停止运行时与其他线程互相等待
+		if (result.isFailure() && failureHandler != null) {
+			failureHandler.accept(result);
+		}
+	}
+
+	private static boolean canMerge(GraphNodeResponse pending, GraphNodeResponse next) {
+		return Objects.equals(pending.getNodeName(), next.getNodeName())
+				&& Objects.equals(pending.getStepId(), next.getStepId()) && pending.getTextType() == next.getTextType()
+				&& pending.getEventType() == next.getEventType();
+	}
+
+	private Sinks.EmitResult emitNow(ServerSentEvent<GraphNodeResponse> event) {
+		long sequence = ++eventSequence;
+		ServerSentEvent<GraphNodeResponse> identified = ServerSentEvent.builder(event.data())
+			.id(formatEventId(threadId, sequence))
+			.event(event.event())
+			.build();
+		bufferEvent(sequence, identified);
+		if (sink == null) {
+			return Sinks.EmitResult.OK;
+		}
+		Sinks.EmitResult result = sink.tryEmitNext(identified);
+		if (result.isSuccess()) {
+			emittedEvents++;
+			Integer buffered = Scannable.from(sink).scan(Scannable.Attr.BUFFERED);
+			if (buffered != null && buffered > sinkHighWaterMark) {
+				sinkHighWaterMark = buffered;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 标记运行已结束，在线的 sink 会收到完成信号，之后重连的客户端重放剩余事件后直接完成
+	 */
+	public synchronized void finish() {
+		flushChunk();
+		finished = true;
+		if (sink != null) {
+			sink.tryEmitComplete();
+		}
+	}
+
+	/**
+	 * 将重连的客户端挂到本运行上：先补发序号大于 lastSequence 的事件，再切换为新的 sink。
+	 * @param newSink 重连请求的 sink
+	 * @param lastSequence 客户端最后收到的事件序号
+	 * @return 缓冲中缺失客户端需要的事件（已被淘汰）时返回 false，此时不挂载
+	 */
+	public synchronized boolean attach(Sinks.Many<ServerSentEvent<GraphNodeResponse>> newSink, long lastSequence) {
+		ReplayEntry oldest = replayBuffer.peekFirst();
+		long firstAvailable = oldest != null ? oldest.sequence() : eventSequence + 1;
+		if (lastSequence + 1 < firstAvailable || lastSequence > eventSequence) {
+			return false;
+		}
+		if (pendingStop != null) {
+			pendingStop.dispose();
+			pendingStop = null;
+		}
+		for (ReplayEntry entry : replayBuffer) {
+			if (entry.sequence() > lastSequence) {
+				newSink.tryEmitNext(entry.event());
+			}
+		}
+		sink = newSink;
+		if (finished) {
+			newSink.tryEmitComplete();
+		}
+		return true;
+	}
+
+	/**
+	 * 客户端断开时解除 sink；仅当断开的正是当前 sink 时生效，避免覆盖已经重连的新 sink。
+	 * @param disconnectedSink 断开连接的 sink
+	 * @return 是否解除成功
+	 */
+	public synchronized boolean detach(Sinks.Many<ServerSentEvent<GraphNodeResponse>> disconnectedSink) {
+		if (sink == null || sink != disconnectedSink) {
+			return false;
+		}
+		sink = null;
+		return true;
+	}
+
+	public synchronized boolean isDetached() {
+		return sink == null;
+	}
+
+	public synchronized void setSink(Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink) {
+		this.sink = sink;
+	}
+
+	public synchronized Sinks.Many<ServerSentEvent<GraphNodeResponse>> getSink() {
+		return sink;
+	}
+
+	public synchronized void setPendingStop(Disposable pendingStop) {
+		if (this.pendingStop != null) {
+			this.pendingStop.dispose();
+		}
+		this.pendingStop = pendingStop;
+	}
+
+	/**
+	 * 设置准入凭证，上下文已清理时立即释放
+	 */
+	public void setAdmission(Disposable admission) {
+		synchronized (this) {
+			this.admission = admission;
+		}
+		if (isCleaned()) {
+			admission.dispose();
+		}
+	}
+
+	private void bufferEvent(long sequence, ServerSentEvent<GraphNodeResponse> event) {
+		if (replayBufferSize == 0) {
+			return;
+		}
+		int chars = textLength(event);
+		replayBuffer.addLast(new ReplayEntry(sequence, event, chars));
+		replayBufferChars += chars;
+		while (replayBuffer.size() > replayBufferSize
+				|| (replayBufferChars > replayBufferMaxChars && replayBuffer.size() > 1)) {
+			replayBufferChars -= replayBuffer.removeFirst().chars();
+		}
+	}
+
+	private static int textLength(ServerSentEvent<GraphNodeResponse> event) {
+		GraphNodeResponse data = event.data();
+		return data != null && data.getText() != null ? data.getText().length() : 0;
+	}
+
+	public static String formatEventId(String threadId, long sequence) {
+		return threadId + ":" + sequence;
+	}
+
 	public synchronized StepIdentity resolveStep(String nodeName) {
 		if (!Objects.equals(activeNode, nodeName)) {
 			activeNode = nodeName;
@@ -69,16 +363,27 @@ public class StreamContext {
 	}
 
 	/**
-	 * 收集流式输出内容，用于 Langfuse 上报
+	 * 收集流式输出内容，用于 Langfuse 上报。片段复制进定长字符块，超过上限的尾部不再保留
 	 */
-	private final StringBuilder outputCollector = new StringBuilder();
+	private ChunkedTextBuffer outputCollector = new ChunkedTextBuffer(DEFAULT_TRACE_OUTPUT_MAX_CHARS);
 
 	public void appendOutput(String chunk) {
 		outputCollector.append(chunk);
 	}
 
+	/**
+	 * 设置追踪输出的字符数上限，需在收集输出之前调用
+	 */
+	public void setTraceOutputMaxChars(int traceOutputMaxChars) {
+		this.outputCollector = new ChunkedTextBuffer(traceOutputMaxChars);
+	}
+
 	public String getCollectedOutput() {
-		return outputCollector.toString();
+		String output = outputCollector.toString();
+		if (outputCollector.isTruncated()) {
+			return output + "\n...[truncated " + outputCollector.truncatedChars() + " chars]";
+		}
+		return output;
 	}
 
 	/**
@@ -106,8 +411,21 @@ public class StreamContext {
 			}
 		}
 
+		Disposable localPendingStop = pendingStop;
+		if (localPendingStop != null) {
+			localPendingStop.dispose();
+		}
+		Disposable localPendingFlush = pendingFlush;
+		if (localPendingFlush != null) {
+			localPendingFlush.dispose();
+		}
+		Disposable localAdmission = admission;
+		if (localAdmission != null) {
+			localAdmission.dispose();
+		}
+
 		// 清理 Sink
-		Sinks.Many<ServerSentEvent<GraphNodeResponse>> localSink = sink;
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> localSink = getSink();
 		if (localSink != null) {
 			try {
 				localSink.tryEmitComplete();
@@ -128,4 +446,7 @@ public class StreamContext {
 	public record StepIdentity(String stepId, int attempt) {
 	}
 
+	private record ReplayEntry(long sequence, ServerSentEvent<GraphNodeResponse> event, int chars) {
+	}
+
 }
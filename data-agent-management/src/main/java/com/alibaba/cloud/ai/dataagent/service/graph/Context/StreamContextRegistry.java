@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph.Context;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 图运行流上下文的注册表。
+ * <p>
+ * 上下文持有 SSE sink 与图订阅，只能保存在运行所在的 JVM 内；注册表另外登记每个运行归属的节点，
+ * 多节点部署时收到请求的节点据此把停止、人工反馈恢复与断线重连转发到运行所在节点，不再依赖负载均衡的会话粘滞。
+ */
+public interface StreamContextRegistry {
+
+	/**
+	 * 本节点 ID
+	 */
+	String nodeId();
+
+	StreamContext computeIfAbsent(String threadId, Function<String, StreamContext> factory);
+
+	StreamContext get(String threadId);
+
+	StreamContext remove(String threadId);
+
+	boolean remove(String threadId, StreamContext context);
+
+	/**
+	 * 遍历本节点的上下文
+	 */
+	void forEach(BiConsumer<String, StreamContext> action);
+
+	/**
+	 * 登记本节点为运行的归属节点，已被其他节点登记时接管
+	 */
+	void claim(String threadId, String conversationId);
+
+	/**
+	 * 运行不再需要路由时释放归属。等待人工反馈的运行需要保留到反馈恢复
+	 */
+	void release(String threadId);
+
+	/**
+	 * 查找运行的归属节点
+	 * @return 运行由其他存活节点持有时返回该节点，由本节点持有或未登记时为空
+	 */
+	Optional<Owner> findRemoteOwner(String threadId);
+
+	/**
+	 * 查找会话中由其他存活节点持有的运行
+	 */
+	List<Owner> findRemoteOwners(String conversationId);
+
+	/**
+	 * 运行的归属节点
+	 *
+	 * @param threadId 运行 ID
+	 * @param nodeId 节点 ID
+	 * @param address 节点访问地址
+	 */
+	record Owner(String threadId, String nodeId, String address) {
+	}
+
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph;
+
+import com.alibaba.cloud.ai.dataagent.exception.TooManyRequestsException;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图运行的准入控制。
+ * <p>
+ * 限制全局与单个智能体同时执行的运行数，超出的运行进入有界等待队列，队列已满时拒绝。 等待中的运行按智能体的权重做步长调度（stride
+ * scheduling），权重越高的智能体出队越频繁，单个智能体的突发请求不会饿死其他智能体。
+ */
+@Slf4j
+@Component
+public class GraphRunAdmissionController {
+
+	private final DataAgentProperties.Admission properties;
+
+	private final Map<String, AgentState> agents = new LinkedHashMap<>();
+
+	private int runningTotal;
+
+	private int queuedTotal;
+
+	/**
+	 * 最近一次出队的步长位置，新进入排队的智能体从这里开始，避免积累的空闲额度造成突发
+	 */
+	private double virtualTime;
+
+	private final Counter rejectedCounter;
+
+	private final Timer queueWaitTimer;
+
+	public GraphRunAdmissionController(DataAgentProperties properties, MeterRegistry meterRegistry) {
+		this.properties = properties.getAdmission();
+		meterRegistry.gauge("dataagent.admission.running", this, controller -> controller.runningCount());
+		meterRegistry.gauge("dataagent.admission.queued", this, controller -> controller.queuedCount());
+		this.rejectedCounter = meterRegistry.counter("dataagent.admission.rejected");
+		this.queueWaitTimer = meterRegistry.timer("dataagent.admission.queue.wait");
+	}
+
+	/**
+	 * 申请执行一次运行
+	 * @param agentId 智能体 ID，用于单智能体并发限制与公平调度
+	 * @param listener 排队位置变化与排队结束后开始执行的回调，立即准入时不会回调
+	 * @return 准入凭证，运行结束或取消时需要释放
+	 * @throws TooManyRequestsException 需要排队且等待队列已满
+	 */
+	public Ticket submit(String agentId, Listener listener) {
+		Ticket ticket = new Ticket(agentId, listener);
+		if (!properties.isEnabled()) {
+			ticket.state = TicketState.RUNNING;
+			ticket.counted = false;
+			return ticket;
+		}
+		List<Runnable> notifications;
+		int queued;
+		synchronized (this) {
+			AgentState agent = agents.computeIfAbsent(agentId, k -> new AgentState(k, virtualTime));
+			if (agent.waiting.isEmpty() && canRun(agent)) {
+				markRunning(agent, ticket);
+				return ticket;
+			}
+			if (queuedTotal >= properties.getMaxQueueSize()) {
+				removeIfIdle(agent);
+				rejectedCounter.increment();
+				throw new TooManyRequestsException("Too many graph runs in progress, please retry later");
+			}
+			if (agent.waiting.isEmpty()) {
+				agent.pass = Math.max(agent.pass, virtualTime);
+			}
+			ticket.queuedAtNanos = System.nanoTime();
+			ticket.deferred = true;
+			agent.waiting.addLast(ticket);
+			queuedTotal++;
+			queued = queuedTotal;
+			notifications = positionUpdates();
+		}
+		log.info("Graph run for agent {} queued, total queued: {}", agentId, queued);
+		notifications.forEach(Runnable::run);
+		return ticket;
+	}
+
+	private void release(Ticket ticket) {
+		List<Runnable> notifications;
+		synchronized (this) {
+			AgentState agent = agents.get(ticket.agentId);
+			if (ticket.state == TicketState.RELEASED || agent == null) {
+				ticket.state = TicketState.RELEASED;
+				return;
+			}
+			if (ticket.state == TicketState.QUEUED) {
+				agent.waiting.remove(ticket);
+				queuedTotal--;
+			}
+			else {
+				agent.running--;
+				runningTotal--;
+			}
+			ticket.state = TicketState.RELEASED;
+			notifications = dispatch();
+			removeIfIdle(agent);
+			notifications.addAll(positionUpdates());
+		}
+		notifications.forEach(Runnable::run);
+	}
+
+	/**
+	 * 在有空闲额度时按步长调度依次放行等待中的运行
+	 */
+	private List<Runnable> dispatch() {
+		List<Runnable> admitted = new ArrayList<>();
+		while (runningTotal < properties.getMaxConcurrentRuns()) {
+			AgentState next = null;
+			for (AgentState agent : agents.values()) {
+				if (!agent.waiting.isEmpty() && canRun(agent) && (next == null || agent.pass < next.pass)) {
+					next = agent;
+				}
+			}
+			if (next == null) {
+				break;
+			}
+			Ticket ticket = next.waiting.pollFirst();
+			queuedTotal--;
+			virtualTime = next.pass;
+			next.pass += 1.0 / weightOf(next.agentId);
+			markRunning(next, ticket);
+			queueWaitTimer.record(System.nanoTime() - ticket.queuedAtNanos, TimeUnit.NANOSECONDS);
+			admitted.add(ticket.listener::onAdmitted);
+		}
+		return admitted;
+	}
+
+	/**
+	 * 按当前步长模拟出队顺序，计算每个等待运行的排队位置，只通知位置发生变化的运行
+	 */
+	private List<Runnable> positionUpdates() {
+		List<Runnable> updates = new ArrayList<>();
+		List<List<Ticket>> waiting = new ArrayList<>();
+		List<Double> strides = new ArrayList<>();
+		// 元素为 {下一次出队的步长位置, 智能体下标, 队内下标}
+		PriorityQueue<double[]> order = new PriorityQueue<>(Comparator.comparingDouble(entry -> entry[0]));
+		for (AgentState agent : agents.values()) {
+			if (!agent.waiting.isEmpty()) {
+				order.add(new double[] { agent.pass, waiting.size(), 0 });
+				waiting.add(new ArrayList<>(agent.waiting));
+				strides.add(1.0 / weightOf(agent.agentId));
+			}
+		}
+		int position = 0;
+		while (!order.isEmpty()) {
+			double[] entry = order.poll();
+			int agentIndex = (int) entry[1];
+			int ticketIndex = (int) entry[2];
+			List<Ticket> tickets = waiting.get(agentIndex);
+			Ticket ticket = tickets.get(ticketIndex);
+			position++;
+			if (ticket.position != position) {
+				ticket.position = position;
+				int reported = position;
+				updates.add(() -> ticket.listener.onQueued(reported));
+			}
+			if (ticketIndex + 1 < tickets.size()) {
+				order.add(new double[] { entry[0] + strides.get(agentIndex), agentIndex, ticketIndex + 1 });
+			}
+		}
+		return updates;
+	}
+
+	private boolean canRun(AgentState agent) {
+		return runningTotal < properties.getMaxConcurrentRuns()
+				&& agent.running < properties.getMaxConcurrentRunsPerAgent();
+	}
+
+	private void markRunning(AgentState agent, Ticket ticket) {
+		ticket.state = TicketState.RUNNING;
+		agent.running++;
+		runningTotal++;
+	}
+
+	private void removeIfIdle(AgentState agent) {
+		if (agent.running == 0 && agent.waiting.isEmpty()) {
+			agents.remove(agent.agentId);
+		}
+	}
+
+	private int weightOf(String agentId) {
+		Integer weight = properties.getAgentWeights().get(agentId);
+		return weight == null || weight <= 0 ? 1 : weight;
+	}
+
+	public synchronized int runningCount() {
+		return runningTotal;
+	}
+
+	public synchronized int queuedCount() {
+		return queuedTotal;
+	}
+
+	/**
+	 * 排队状态回调，均在锁外调用
+	 */
+	public interface Listener {
+
+		/**
+		 * 排队位置变化
+		 * @param position 从 1 开始的排队位置
+		 */
+		void onQueued(int position);
+
+		/**
+		 * 排队结束，可以开始执行
+		 */
+		void onAdmitted();
+
+	}
+
+	private enum TicketState {
+
+		QUEUED, RUNNING, RELEASED
+
+	}
+
+	private static final class AgentState {
+
+		private final String agentId;
+
+		private final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+
+		private int running;
+
+		private double pass;
+
+		private AgentState(String agentId, double pass) {
+			this.agentId = agentId;
+			this.pass = pass;
+		}
+
+	}
+
+	/**
+	 * 准入凭证。释放后归还执行额度，仍在排队时则退出队列
+	 */
+	public final class Ticket implements Disposable {
+
+		private final String agentId;
+
+		private final Listener listener;
+
+		private TicketState state = TicketState.QUEUED;
+
+		private boolean counted = true;
+
+		private boolean deferred;
+
+		private int position;
+
+		private long queuedAtNanos;
+
+		private Ticket(String agentId, Listener listener) {
+			this.agentId = agentId;
+			this.listener = listener;
+		}
+
+		/**
+		 * 是否进入了等待队列。为 true 时由 {@link Listener#onAdmitted()} 通知开始执行，否则调用方可以立即执行
+		 */
+		public boolean isDeferred() {
+			return deferred;
+		}
+
+		@Override
+		public void dispose() {
+			if (counted) {
+				release(this);
+			}
+			else {
+				state = TicketState.RELEASED;
+			}
+		}
+
+		@Override
+		public boolean isDisposed() {
+			synchronized (GraphRunAdmissionController.this) {
+				return state == TicketState.RELEASED;
+			}
+		}
+
+	}
+
+}
@@ -43,6 +43,22 @@ public interface GraphService {
 	 */
 	void graphStreamProcess(Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink, GraphRequest graphRequest);
 
+	/**
+	 * 客户端携带 Last-Event-ID 重连时，将新的 sink 挂到仍在运行（或刚结束）的图任务上并补发缺失的事件
+	 * @param sink 输出Sink
+	 * @param agentId 重连请求携带的智能体 ID，必须与运行所属智能体一致
+	 * @param lastEventId 客户端最后收到的事件 ID
+	 * @return 是否成功恢复；运行不存在、不属于该智能体或缺失事件已被淘汰时返回 false
+	 */
+	boolean resumeStream(Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink, String agentId, String lastEventId);
+
+	/**
+	 * 客户端断开连接。在重连宽限期内保留运行，超时后再停止；宽限期为 0 时立即停止
+	 * @param threadId 线程ID
+	 * @param sink 断开连接的 Sink
+	 */
+	void detachStream(String threadId, Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink);
+
 	/**
 	 * 停止指定 threadId 的流式处理
 	 * @param threadId 线程ID
@@ -15,35 +15,52 @@
  */
 package com.alibaba.cloud.ai.dataagent.service.graph;
 
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import com.alibaba.cloud.ai.dataagent.service.langfuse.LangfuseService;
 import com.alibaba.cloud.ai.dataagent.service.langfuse.NodeTracingLifecycleListener;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SpeculativeSqlService;
 import com.alibaba.cloud.ai.dataagent.enums.GraphEventType;
 import com.alibaba.cloud.ai.dataagent.enums.TextType;
 import com.alibaba.cloud.ai.dataagent.workflow.node.PlannerNode;
 import com.alibaba.cloud.ai.dataagent.dto.GraphRequest;
 import com.alibaba.cloud.ai.dataagent.service.graph.Context.MultiTurnContextManager;
 import com.alibaba.cloud.ai.dataagent.service.graph.Context.StreamContext;
+import com.alibaba.cloud.ai.dataagent.service.graph.Context.StreamContextRegistry;
+import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
 import com.alibaba.cloud.ai.dataagent.vo.GraphNodeResponse;
 import com.alibaba.cloud.ai.graph.*;
 import com.alibaba.cloud.ai.graph.checkpoint.BaseCheckpointSaver;
 import com.alibaba.cloud.ai.graph.exception.GraphRunnerException;
 import com.alibaba.cloud.ai.graph.exception.GraphStateException;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
 import io.opentelemetry.api.trace.Span;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
 
@@ -57,7 +74,12 @@ public class GraphServiceImpl implements GraphService {
 
 	private final BaseCheckpointSaver checkpointSaver;
 
-	private final ConcurrentHashMap<String, StreamContext> streamContextMap = new ConcurrentHashMap<>();
+	private final StreamContextRegistry streamContextRegistry;
+
+	/**
+	 * 客户端断开期间已结束的运行，在宽限期内保留以便重连的客户端补齐剩余事件
+	 */
+	private final ConcurrentHashMap<String, StreamContext> finishedContextMap = new ConcurrentHashMap<>();
 
 	private final MultiTurnContextManager multiTurnContextManager;
 
@@ -65,21 +87,58 @@ public class GraphServiceImpl implements GraphService {
 
 	private final NodeTracingLifecycleListener nodeTracingLifecycleListener;
 
+	private final DataAgentProperties.Stream streamProperties;
+
+	private final MeterRegistry meterRegistry;
+
+	private final GraphRunAdmissionController admissionController;
+
+	private final SpeculativeSqlService speculativeSqlService;
+
+	/**
+	 * 启动排队结束的运行。准入回调位于释放额度的线程上，不能在那里同步启动；同时放行的运行不超过全局并发上限，队列按此设限
+	 */
+	private final ThreadPoolExecutor admittedRunStarter;
+
 	public GraphServiceImpl(StateGraph stateGraph, CompileConfig compileConfig, BaseCheckpointSaver checkpointSaver,
 			ExecutorService executorService, MultiTurnContextManager multiTurnContextManager,
-			LangfuseService langfuseReporter, NodeTracingLifecycleListener nodeTracingLifecycleListener)
-			throws GraphStateException {
+			LangfuseService langfuseReporter, NodeTracingLifecycleListener nodeTracingLifecycleListener,
+			DataAgentProperties properties, MeterRegistry meterRegistry,
+			GraphRunAdmissionController admissionController, StreamContextRegistry streamContextRegistry,
+			SpeculativeSqlService speculativeSqlService) throws GraphStateException {
 		this.compiledGraph = stateGraph.compile(compileConfig);
 		this.checkpointSaver = checkpointSaver;
 		this.executor = executorService;
 		this.multiTurnContextManager = multiTurnContextManager;
 		this.langfuseReporter = langfuseReporter;
 		this.nodeTracingLifecycleListener = nodeTracingLifecycleListener;
+		this.streamProperties = properties.getStream();
+		this.meterRegistry = meterRegistry;
+		this.admissionController = admissionController;
+		this.streamContextRegistry = streamContextRegistry;
+		this.speculativeSqlService = speculativeSqlService;
+		DataAgentProperties.Admission admission = properties.getAdmission();
+		int startThreads = Math.max(1, admission.getStartThreads());
+		AtomicInteger threadCounter = new AtomicInteger();
+		this.admittedRunStarter = new ThreadPoolExecutor(startThreads, startThreads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, admission.getMaxConcurrentRuns())), runnable -> {
+					Thread thread = new Thread(runnable, "graph-run-starter-" + threadCounter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		this.admittedRunStarter.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	public void close() {
+		admittedRunStarter.shutdownNow();
 	}
 
 	@Override
 	public String nl2sql(String naturalQuery, String agentId) throws GraphRunnerException {
-		RunnableConfig config = RunnableConfig.builder().threadId(UUID.randomUUID().toString()).build();
+		String threadId = UUID.randomUUID().toString();
+		registerNewThread(threadId);
+		RunnableConfig config = RunnableConfig.builder().threadId(threadId).build();
 		try {
 			OverAllState state = compiledGraph
 				.invoke(Map.of(IS_ONLY_NL2SQL, true, INPUT_KEY, naturalQuery, AGENT_ID, agentId), config)
@@ -100,6 +159,7 @@ public class GraphServiceImpl implements GraphService {
 						? graphRequest.getThreadId() : UUID.randomUUID().toString());
 			}
 			graphRequest.setThreadId(UUID.randomUUID().toString());
+			registerNewThread(graphRequest.getThreadId());
 		}
 		else if (!StringUtils.hasText(graphRequest.getThreadId())) {
 			throw new IllegalArgumentException("Graph run ID is required when resuming human feedback");
@@ -110,10 +170,76 @@ public class GraphServiceImpl implements GraphService {
 			graphRequest.setConversationId(graphRequest.getThreadId());
 		}
 		String threadId = graphRequest.getThreadId();
+		// 人工反馈恢复会复用 threadId，上一段已结束运行的重放缓冲不再需要
+		finishedContextMap.remove(threadId);
 		// 创建或获取 StreamContext
-		StreamContext context = streamContextMap.computeIfAbsent(threadId, k -> new StreamContext());
+		StreamContext context = streamContextRegistry.computeIfAbsent(threadId, k -> {
+			StreamContext created = new StreamContext(streamProperties.getReplayBufferSize(),
+					streamProperties.getReplayBufferMaxChars());
+			created.setTraceOutputMaxChars(streamProperties.getTraceOutputMaxChars());
+			return created;
+		});
+		context.setThreadId(threadId);
+		context.setAgentId(graphRequest.getAgentId());
+		context.setDeferredEmitFailureHandler(result -> handleEmitFailure(threadId, result));
 		context.setConversationId(graphRequest.getConversationId());
 		context.setSink(sink);
+		GraphRunAdmissionController.Ticket ticket;
+		try {
+			ticket = admissionController.submit(graphRequest.getAgentId(), new GraphRunAdmissionController.Listener() {
+				@Override
+				public void onQueued(int position) {
+					context.emit(ServerSentEvent
+						.builder(GraphNodeResponse.queued(graphRequest.getAgentId(), threadId, position))
+						.build());
+				}
+
+				@Override
+				public void onAdmitted() {
+					// 排队结束时位于释放额度的线程上，异步启动避免阻塞上一个运行的收尾
+					try {
+						admittedRunStarter.execute(() -> {
+							try {
+								startRun(context, graphRequest);
+							}
+							catch (Exception e) {
+								handleStreamError(graphRequest, e);
+							}
+						});
+					}
+					catch (RejectedExecutionException e) {
+						handleStreamError(graphRequest, e);
+					}
+				}
+			});
+		}
+		catch (RuntimeException e) {
+			streamContextRegistry.remove(threadId, context);
+			throw e;
+		}
+		context.setAdmission(ticket);
+		streamContextRegistry.claim(threadId, graphRequest.getConversationId());
+		if (ticket.isDeferred()) {
+			log.info("Graph run queued for threadId: {}", threadId);
+		}
+		else {
+			startRun(context, graphRequest);
+		}
+	}
+
+	private void startRun(StreamContext context, GraphRequest graphRequest) {
+		String threadId = graphRequest.getThreadId();
+		if (streamContextRegistry.get(threadId) != context || context.isCleaned()) {
+			// 排队期间运行已被停止，清理时已归还准入额度
+			log.info("Graph run for threadId: {} was stopped while queued, skipping start", threadId);
+			return;
+		}
+		if (context.isDetached()) {
+			// 客户端在排队期间断开，不再启动运行，停止以归还准入额度
+			log.info("Client of threadId: {} disconnected while queued, cancelling run", threadId);
+			stopStreamProcessing(threadId);
+			return;
+		}
 		if (StringUtils.hasText(graphRequest.getHumanFeedbackContent())) {
 			handleHumanFeedback(graphRequest);
 		}
@@ -122,6 +248,67 @@ public class GraphServiceImpl implements GraphService {
 		}
 	}
 
+	@Override
+	public boolean resumeStream(Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink, String agentId,
+			String lastEventId) {
+		int separator = lastEventId != null ? lastEventId.lastIndexOf(':') : -1;
+		if (separator <= 0) {
+			return false;
+		}
+		String threadId = lastEventId.substring(0, separator);
+		long lastSequence;
+		try {
+			lastSequence = Long.parseLong(lastEventId.substring(separator + 1));
+		}
+		catch (NumberFormatException e) {
+			return false;
+		}
+		StreamContext context = streamContextRegistry.get(threadId);
+		if (context == null) {
+			context = finishedContextMap.get(threadId);
+		}
+		if (context != null && !Objects.equals(context.getAgentId(), agentId)) {
+			// threadId 可能被猜到或泄露，不允许以其他智能体的身份接管运行
+			log.warn("Rejecting resume of threadId: {} for agentId: {}, run belongs to another agent", threadId,
+					agentId);
+			return false;
+		}
+		if (context == null || !context.attach(sink, lastSequence)) {
+			log.info("Unable to resume stream for threadId: {} from event {}", threadId, lastSequence);
+			return false;
+		}
+		if (context.isFinished()) {
+			finishedContextMap.remove(threadId, context);
+		}
+		log.info("Client reconnected to stream, threadId: {}, replaying after event {}", threadId, lastSequence);
+		return true;
+	}
+
+	@Override
+	public void detachStream(String threadId, Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink) {
+		if (!StringUtils.hasText(threadId)) {
+			return;
+		}
+		long graceMs = streamProperties.getReconnectGraceMs();
+		StreamContext context = streamContextRegistry.get(threadId);
+		if (graceMs <= 0 || context == null) {
+			finishedContextMap.remove(threadId);
+			stopStreamProcessing(threadId);
+			return;
+		}
+		if (!context.detach(sink)) {
+			// 客户端已经用新的连接重连，旧连接的断开不影响运行
+			return;
+		}
+		log.info("Client detached from threadId: {}, keeping run alive for {} ms", threadId, graceMs);
+		context.setPendingStop(Mono.delay(Duration.ofMillis(graceMs)).subscribe(ignored -> {
+			if (streamContextRegistry.get(threadId) == context && context.isDetached()) {
+				log.info("Reconnect grace period expired for threadId: {}", threadId);
+				stopStreamProcessing(threadId);
+			}
+		}));
+	}
+
 	/**
 	 * 停止指定 threadId 的流式处理 线程安全：使用 remove 操作确保只有一个线程能获取到 context
 	 * @param threadId 线程ID
@@ -132,9 +319,11 @@ public class GraphServiceImpl implements GraphService {
 			return;
 		}
 		log.info("Stopping stream processing for threadId: {}", threadId);
-		StreamContext context = streamContextMap.remove(threadId);
+		finishedContextMap.remove(threadId);
+		StreamContext context = streamContextRegistry.remove(threadId);
 		multiTurnContextManager.discardPending(context != null ? context.getConversationId() : threadId);
 		if (context != null) {
+			recordStreamMetrics(context);
 			// 客户端断开，结束根 Langfuse span。必须在 discardThread 清理累加器之前，
 			// 否则根 span 的 token 汇总会被提前清空。
 			if (context.getSpan() != null && context.getSpan().isRecording()) {
@@ -146,9 +335,11 @@ public class GraphServiceImpl implements GraphService {
 		// 客户端断开是唯一绕过节点 after/onError 的路径：结束仍挂着的节点 span（标记为断开）
 		// 并清理计数器/累加器，否则会内存泄漏，且 Langfuse 上会留下永不结束的 span。
 		nodeTracingLifecycleListener.discardThread(threadId);
+		speculativeSqlService.discard(threadId);
 		// Dispose the graph subscription before releasing its checkpoint so a
 		// cancelled run cannot write another checkpoint after the release.
 		releaseCheckpoint(RunnableConfig.builder().threadId(threadId).build());
+		streamContextRegistry.release(threadId);
 	}
 
 	@Override
@@ -156,7 +347,7 @@ public class GraphServiceImpl implements GraphService {
 		if (!StringUtils.hasText(conversationId)) {
 			return;
 		}
-		streamContextMap.forEach((threadId, context) -> {
+		streamContextRegistry.forEach((threadId, context) -> {
 			if (conversationId.equals(context.getConversationId())) {
 				stopStreamProcessing(threadId);
 			}
@@ -174,7 +365,7 @@ public class GraphServiceImpl implements GraphService {
 				|| !StringUtils.hasText(query)) {
 			throw new IllegalArgumentException("Invalid arguments");
 		}
-		StreamContext context = streamContextMap.get(threadId);
+		StreamContext context = streamContextRegistry.get(threadId);
 		if (context == null || context.getSink() == null) {
 			throw new IllegalStateException("StreamContext not found for threadId: " + threadId);
 		}
@@ -205,7 +396,7 @@ public class GraphServiceImpl implements GraphService {
 				|| !StringUtils.hasText(feedbackContent)) {
 			throw new IllegalArgumentException("Invalid arguments");
 		}
-		StreamContext context = streamContextMap.get(threadId);
+		StreamContext context = streamContextRegistry.get(threadId);
 		if (context == null || context.getSink() == null) {
 			throw new IllegalStateException("StreamContext not found for threadId: " + threadId);
 		}
@@ -283,8 +474,9 @@ public class GraphServiceImpl implements GraphService {
 		String agentId = request.getAgentId();
 		String threadId = request.getThreadId();
 		log.error("Error in stream processing for threadId: {}: ", threadId, error);
-		StreamContext context = streamContextMap.remove(threadId);
+		StreamContext context = streamContextRegistry.remove(threadId);
 		multiTurnContextManager.discardPending(request.getConversationId());
+		speculativeSqlService.discard(threadId);
 		releaseCheckpoint(RunnableConfig.builder().threadId(threadId).build());
 		if (context != null && !context.isCleaned()) {
 			// 结束 Langfuse span（失败）。先结束根 span 取走 token 汇总，再清理 listener 侧残留。
@@ -294,17 +486,15 @@ public class GraphServiceImpl implements GraphService {
 			}
 			// 清理 listener 侧的 attempt 计数器与仍挂着的节点 span，避免无界增长。
 			nodeTracingLifecycleListener.finishThread(threadId);
-			if (context.getSink() != null && context.getSink().currentSubscriberCount() > 0) {
-				context.getSink()
-					.tryEmitNext(ServerSentEvent
-						.builder(GraphNodeResponse.error(agentId, threadId,
-								"Error in stream processing: " + error.getMessage()))
-						.event(STREAM_EVENT_ERROR)
-						.build());
-				context.getSink().tryEmitComplete();
-			}
-			// 清理资源（cleanup 内部已经保证只执行一次）
-			context.cleanup();
+			context.emit(ServerSentEvent
+				.builder(
+						GraphNodeResponse.error(agentId, threadId, "Error in stream processing: " + error.getMessage()))
+				.event(STREAM_EVENT_ERROR)
+				.build());
+			finishContext(threadId, context, false);
+		}
+		else {
+			streamContextRegistry.release(threadId);
 		}
 	}
 
@@ -319,9 +509,11 @@ public class GraphServiceImpl implements GraphService {
 		RunnableConfig config = RunnableConfig.builder().threadId(threadId).build();
 		boolean awaitingHumanFeedback = isAwaitingHumanFeedback(request, config);
 		if (!awaitingHumanFeedback) {
+			// 等待人工复核的运行在复核通过后仍会取走提前生成的 SQL
+			speculativeSqlService.discard(threadId);
 			releaseCheckpoint(config);
 		}
-		StreamContext context = streamContextMap.remove(threadId);
+		StreamContext context = streamContextRegistry.remove(threadId);
 		if (context != null && !context.isCleaned()) {
 			// 结束 Langfuse span（成功）。必须在清理节点级 accumulator 之前，否则根 span 拿不到 token 汇总。
 			if (context.getSpan() != null) {
@@ -332,10 +524,9 @@ public class GraphServiceImpl implements GraphService {
 			if (!awaitingHumanFeedback) {
 				nodeTracingLifecycleListener.finishThread(threadId);
 			}
-			if (context.getSink() != null && context.getSink().currentSubscriberCount() > 0) {
-				if (awaitingHumanFeedback) {
-					context.getSink()
-						.tryEmitNext(ServerSentEvent
+			if (awaitingHumanFeedback) {
+				context.emit(
+						ServerSentEvent
 							.builder(GraphNodeResponse.builder()
 								.agentId(agentId)
 								.threadId(threadId)
@@ -343,20 +534,42 @@ public class GraphServiceImpl implements GraphService {
 								.textType(TextType.TEXT)
 								.build())
 							.build());
-				}
-				if (StringUtils.hasText(context.getFinalAnswer())) {
-					context.getSink()
-						.tryEmitNext(ServerSentEvent
-							.builder(GraphNodeResponse.finalAnswer(agentId, threadId, context.getFinalAnswer()))
-							.build());
-				}
-				context.getSink()
-					.tryEmitNext(ServerSentEvent.builder(GraphNodeResponse.complete(agentId, threadId))
-						.event(STREAM_EVENT_COMPLETE)
-						.build());
-				context.getSink().tryEmitComplete();
 			}
-			context.cleanup();
+			if (StringUtils.hasText(context.getFinalAnswer())) {
+				context.emit(ServerSentEvent
+					.builder(GraphNodeResponse.finalAnswer(agentId, threadId, context.getFinalAnswer()))
+					.build());
+			}
+			context.emit(ServerSentEvent.builder(GraphNodeResponse.complete(agentId, threadId))
+				.event(STREAM_EVENT_COMPLETE)
+				.build());
+			finishContext(threadId, context, awaitingHumanFeedback);
+		}
+		else if (!awaitingHumanFeedback) {
+			streamContextRegistry.release(threadId);
+		}
+	}
+
+	/**
+	 * 结束运行的上下文。客户端处于断开状态时，在宽限期内保留上下文以便重连后补齐结尾事件。
+	 * @param keepOwnership 是否保留运行归属，等待人工反馈的运行需要由本节点接收反馈
+	 */
+	private void finishContext(String threadId, StreamContext context, boolean keepOwnership) {
+		recordStreamMetrics(context);
+		context.finish();
+		context.cleanup();
+		long graceMs = streamProperties.getReconnectGraceMs();
+		if (context.isDetached() && graceMs > 0) {
+			finishedContextMap.put(threadId, context);
+			context.setPendingStop(Mono.delay(Duration.ofMillis(graceMs))
+				.subscribe(ignored -> finishedContextMap.remove(threadId, context)));
+			if (!keepOwnership) {
+				// 重连可能落在其他节点，宽限期内保留归属；重连会取消上面的定时，因此单独计时
+				Mono.delay(Duration.ofMillis(graceMs)).subscribe(ignored -> streamContextRegistry.release(threadId));
+			}
+		}
+		else if (!keepOwnership) {
+			streamContextRegistry.release(threadId);
 		}
 	}
 
@@ -365,7 +578,7 @@ public class GraphServiceImpl implements GraphService {
 	 */
 	private void handleNodeOutput(GraphRequest request, NodeOutput output) {
 		log.debug("Received output: {}", output.getClass().getSimpleName());
-		StreamContext context = streamContextMap.get(request.getThreadId());
+		StreamContext context = streamContextRegistry.get(request.getThreadId());
 		if (context != null) {
 			output.state()
 				.value(FINAL_ANSWER)
@@ -380,9 +593,9 @@ public class GraphServiceImpl implements GraphService {
 
 	private void handleStreamNodeOutput(GraphRequest request, StreamingOutput output) {
 		String threadId = request.getThreadId();
-		StreamContext context = streamContextMap.get(threadId);
+		StreamContext context = streamContextRegistry.get(threadId);
 		// 检查是否已经停止处理
-		if (context == null || context.getSink() == null) {
+		if (context == null || context.isCleaned()) {
 			log.debug("Stream processing already stopped for threadId: {}, skipping output", threadId);
 			return;
 		}
@@ -390,6 +603,10 @@ public class GraphServiceImpl implements GraphService {
 		String chunk = output.chunk();
 		log.debug("Received Stream output: {}", chunk);
 
+		if (output.getOriginData() instanceof ChatResponse chatResponse && ChatResponseUtil.isRestart(chatResponse)) {
+			emitOutputRestart(request, context, node, ChatResponseUtil.getDiscardedChars(chatResponse));
+			return;
+		}
 		if (chunk == null || chunk.isEmpty()) {
 			return;
 		}
@@ -428,17 +645,80 @@ public class GraphServiceImpl implements GraphService {
 				.text(chunk)
 				.textType(textType)
 				.build();
-			// 检查发送是否成功，如果失败说明客户端已断开
-			Sinks.EmitResult result = context.getSink().tryEmitNext(ServerSentEvent.builder(response).build());
+			// 连续的同类片段在时间窗口内合并发送，减少事件数与序列化开销
+			Sinks.EmitResult result = context.emitChunk(response, streamProperties.getCoalesceWindowMs(),
+					streamProperties.getCoalesceMaxChars());
 			if (result.isFailure()) {
-				log.warn("Failed to emit data to sink for threadId: {}, result: {}. Stopping stream processing.",
-						threadId, result);
-				// 如果发送失败，停止处理
-				stopStreamProcessing(threadId);
+				handleEmitFailure(threadId, result);
 			}
 		}
 	}
 
+	/**
+	 * 通知客户端撤回结构化输出中未通过校验的部分，先发送等待合并的片段以保证顺序
+	 */
+	private void emitOutputRestart(GraphRequest request, StreamContext context, String node, int discardedChars) {
+		StreamContext.StepIdentity stepIdentity = context.resolveStep(node);
+		GraphNodeResponse response = GraphNodeResponse.builder()
+			.agentId(request.getAgentId())
+			.threadId(request.getThreadId())
+			.eventType(GraphEventType.OUTPUT_RESTART)
+			.stepId(stepIdentity.stepId())
+			.attempt(stepIdentity.attempt())
+			.nodeName(node)
+			.textType(TextType.TEXT)
+			.text("")
+			.discardedChars(discardedChars)
+			.build();
+		Sinks.EmitResult result = context.emit(ServerSentEvent.builder(response).build());
+		if (result.isFailure()) {
+			handleEmitFailure(request.getThreadId(), result);
+		}
+	}
+
+	/**
+	 * 处理发送失败。发送缓冲写满说明客户端消费过慢：按配置断开该连接并保留运行，或直接停止运行；其他失败说明客户端已断开。
+	 */
+	private void handleEmitFailure(String threadId, Sinks.EmitResult result) {
+		StreamContext context = streamContextRegistry.get(threadId);
+		if (result == Sinks.EmitResult.FAIL_OVERFLOW && context != null
+				&& streamProperties.getOverflowPolicy() == DataAgentProperties.Stream.OverflowPolicy.DETACH
+				&& streamProperties.getReconnectGraceMs() > 0) {
+			Sinks.Many<ServerSentEvent<GraphNodeResponse>> slowSink = context.getSink();
+			if (slowSink == null) {
+				return;
+			}
+			log.warn("Sink buffer full for threadId: {}, detaching slow client", threadId);
+			meterRegistry.counter("dataagent.stream.overflow", "policy", "detach").increment();
+			detachStream(threadId, slowSink);
+			// 正常结束旧连接，EventSource 会携带 Last-Event-ID 重连并从重放缓冲补齐
+			slowSink.tryEmitComplete();
+			return;
+		}
+		log.warn("Failed to emit data to sink for threadId: {}, result: {}. Stopping stream processing.", threadId,
+				result);
+		if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+			meterRegistry.counter("dataagent.stream.overflow", "policy", "cancel").increment();
+		}
+		stopStreamProcessing(threadId);
+	}
+
+	private void recordStreamMetrics(StreamContext context) {
+		meterRegistry.counter("dataagent.stream.events.emitted").increment(context.getEmittedEvents());
+		meterRegistry.counter("dataagent.stream.chunks.coalesced").increment(context.getCoalescedChunks());
+		meterRegistry.summary("dataagent.stream.sink.buffer.high-water").record(context.getSinkHighWaterMark());
+		DistributionSummary.builder("dataagent.stream.trace.output.chars")
+			.baseUnit("chars")
+			.register(meterRegistry)
+			.record(context.getOutputCollector().retainedChars());
+		DistributionSummary.builder("dataagent.stream.trace.output.allocated")
+			.baseUnit(BaseUnits.BYTES)
+			.register(meterRegistry)
+			.record(context.getOutputCollector().allocatedBytes());
+		meterRegistry.counter("dataagent.stream.trace.output.truncated.chars")
+			.increment(context.getOutputCollector().truncatedChars());
+	}
+
 	private boolean isAwaitingHumanFeedback(GraphRequest request, RunnableConfig config) {
 		if (!request.isHumanFeedback()) {
 			return false;
@@ -454,6 +734,12 @@ public class GraphServiceImpl implements GraphService {
 		}
 	}
 
+	private void registerNewThread(String threadId) {
+		if (checkpointSaver instanceof TieredCheckpointSaver tieredCheckpointSaver) {
+			tieredCheckpointSaver.registerNewThread(threadId);
+		}
+	}
+
 	private void releaseCheckpoint(RunnableConfig config) {
 		try {
 			checkpointSaver.release(config);
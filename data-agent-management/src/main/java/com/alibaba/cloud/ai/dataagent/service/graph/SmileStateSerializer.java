@@ -0,0 +1,229 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph;
+
+import com.alibaba.cloud.ai.dataagent.dto.datasource.SqlRetryDto;
+import com.alibaba.cloud.ai.dataagent.dto.prompt.QueryEnhanceOutputDTO;
+import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.serializer.StateSerializer;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.ai.document.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于 Jackson Smile 的二进制检查点序列化器。
+ * <p>
+ * 类型表中登记的 DTO（及其同类型列表）按别名写入，恢复后仍是具体类型，读取状态时无需再从 Map 转换；其余值按普通 JSON 结构写入。每个值编码为
+ * {@code [别名或 null, 值]}，列表别名带 {@value #LIST_SUFFIX} 后缀。别名而非类名写入存储， 恢复时只会实例化类型表中的类。
+ */
+public class SmileStateSerializer extends StateSerializer {
+
+	static final String LIST_SUFFIX = "[]";
+
+	private final ObjectMapper objectMapper;
+
+	private final Map<String, JavaType> typesByAlias = new HashMap<>();
+
+	private final Map<Class<?>, String> aliasesByType = new HashMap<>();
+
+	/**
+	 * @param typeTable 别名到类型的映射，别名会写入存储，已有检查点存在时不可修改
+	 */
+	public SmileStateSerializer(Map<String, Class<?>> typeTable) {
+		super(OverAllState::new);
+		SmileFactory factory = SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build();
+		this.objectMapper = new ObjectMapper(factory).findAndRegisterModules()
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+			.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+			.registerModule(new SimpleModule().addSerializer(Document.class, new DocumentSerializer())
+				.addDeserializer(Document.class, new DocumentDeserializer()));
+		typeTable.forEach((alias, type) -> {
+			typesByAlias.put(alias, objectMapper.constructType(type));
+			typesByAlias.put(alias + LIST_SUFFIX,
+					objectMapper.getTypeFactory().constructCollectionType(List.class, type));
+			aliasesByType.put(type, alias);
+		});
+	}
+
+	/**
+	 * NL2SQL 图状态中的 DTO 类型表
+	 */
+	public static Map<String, Class<?>> defaultTypeTable() {
+		Map<String, Class<?>> typeTable = new LinkedHashMap<>();
+		typeTable.put("schema", SchemaDTO.class);
+		typeTable.put("queryEnhance", QueryEnhanceOutputDTO.class);
+		typeTable.put("sqlRetry", SqlRetryDto.class);
+		typeTable.put("document", Document.class);
+		return typeTable;
+	}
+
+	@Override
+	public void writeData(Map<String, Object> data, ObjectOutput out) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+		try (JsonGenerator generator = objectMapper.createGenerator(buffer)) {
+			generator.writeStartObject();
+			for (Map.Entry<String, Object> entry : data.entrySet()) {
+				generator.writeFieldName(entry.getKey());
+				generator.writeStartArray();
+				String alias = aliasOf(entry.getValue());
+				if (alias == null) {
+					generator.writeNull();
+				}
+				else {
+					generator.writeString(alias);
+				}
+				objectMapper.writeValue(generator, entry.getValue());
+				generator.writeEndArray();
+			}
+			generator.writeEndObject();
+		}
+		out.writeInt(buffer.size());
+		out.write(buffer.toByteArray());
+	}
+
+	@Override
+	public Map<String, Object> readData(ObjectInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			throw new IOException("Malformed checkpoint state: negative length " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		Map<String, Object> data = new HashMap<>();
+		try (JsonParser parser = objectMapper.createParser(bytes)) {
+			expect(parser.nextToken(), JsonToken.START_OBJECT);
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String key = parser.currentName();
+				expect(parser.nextToken(), JsonToken.START_ARRAY);
+				String alias = parser.nextToken() == JsonToken.VALUE_NULL ? null : parser.getText();
+				parser.nextToken();
+				JavaType type = alias == null ? null : typesByAlias.get(alias);
+				data.put(key, type == null ? objectMapper.readValue(parser, Object.class)
+						: objectMapper.readValue(parser, type));
+				expect(parser.nextToken(), JsonToken.END_ARRAY);
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * 已登记类型返回其别名，元素全部为同一已登记类型的非空列表返回列表别名，其余返回 null
+	 */
+	private String aliasOf(Object value) {
+		if (value == null) {
+			return null;
+		}
+		String alias = aliasesByType.get(value.getClass());
+		if (alias != null) {
+			return alias;
+		}
+		if (value instanceof List<?> list && !list.isEmpty() && list.get(0) != null) {
+			String elementAlias = aliasesByType.get(list.get(0).getClass());
+			if (elementAlias != null && sameType(list, list.get(0).getClass())) {
+				return elementAlias + LIST_SUFFIX;
+			}
+		}
+		return null;
+	}
+
+	private static boolean sameType(Collection<?> values, Class<?> type) {
+		for (Object value : values) {
+			if (value == null || value.getClass() != type) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+		if (actual != expected) {
+			throw new IOException("Malformed checkpoint state: expected " + expected + " but was " + actual);
+		}
+	}
+
+	/**
+	 * Document 自带的 Jackson 构造器只接收 content 与 metadata，会丢失 id 与 score，这里按字段显式读写
+	 */
+	private static final class DocumentSerializer extends StdSerializer<Document> {
+
+		private DocumentSerializer() {
+			super(Document.class);
+		}
+
+		@Override
+		public void serialize(Document document, JsonGenerator generator, SerializerProvider provider)
+				throws IOException {
+			generator.writeStartObject();
+			generator.writeStringField("id", document.getId());
+			generator.writeStringField("text", document.getText());
+			generator.writeObjectField("metadata", document.getMetadata());
+			if (document.getScore() != null) {
+				generator.writeNumberField("score", document.getScore());
+			}
+			generator.writeEndObject();
+		}
+
+	}
+
+	private static final class DocumentDeserializer extends StdDeserializer<Document> {
+
+		private DocumentDeserializer() {
+			super(Document.class);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Document deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+			JsonNode node = parser.readValueAsTree();
+			Map<String, Object> metadata = node.hasNonNull("metadata")
+					? parser.getCodec().treeToValue(node.get("metadata"), Map.class) : Map.of();
+			Document.Builder builder = Document.builder()
+				.text(node.path("text").asText(""))
+				.metadata(metadata)
+				.score(node.hasNonNull("score") ? node.get("score").asDouble() : null);
+			if (node.hasNonNull("id")) {
+				builder.id(node.get("id").asText());
+			}
+			return builder.build();
+		}
+
+	}
+
+}
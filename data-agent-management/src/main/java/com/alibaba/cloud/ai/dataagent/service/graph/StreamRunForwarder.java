@@ -0,0 +1,151 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph;
+
+import com.alibaba.cloud.ai.dataagent.service.graph.Context.StreamContextRegistry;
+import com.alibaba.cloud.ai.dataagent.vo.GraphNodeResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.STREAM_EVENT_ERROR;
+import static com.alibaba.cloud.ai.dataagent.security.AgentApiKeyServerAuthenticationConverter.API_KEY_HEADER;
+
+/**
+ * 把针对其他节点所持有运行的请求转发到该节点。
+ * <p>
+ * 转发的请求携带 {@link #FORWARDED_HEADER}，接收节点直接在本地处理，不再二次转发，避免归属记录不一致时在节点间循环。
+ */
+@Slf4j
+@Component
+public class StreamRunForwarder {
+
+	public static final String FORWARDED_HEADER = "X-DataAgent-Forwarded-By";
+
+	private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(API_KEY_HEADER, HttpHeaders.AUTHORIZATION,
+			"Last-Event-ID");
+
+	private static final ParameterizedTypeReference<ServerSentEvent<GraphNodeResponse>> EVENT_TYPE = new ParameterizedTypeReference<>() {
+	};
+
+	private final StreamContextRegistry registry;
+
+	private final WebClient webClient;
+
+	public StreamRunForwarder(StreamContextRegistry registry, WebClient.Builder webClientBuilder) {
+		this.registry = registry;
+		this.webClient = webClientBuilder.build();
+	}
+
+	/**
+	 * 查找需要转发到的节点
+	 * @param threadId 运行 ID
+	 * @param headers 请求头，已被转发过的请求不再转发
+	 * @return 运行由其他节点持有时返回该节点
+	 */
+	public Optional<StreamContextRegistry.Owner> remoteOwner(String threadId, HttpHeaders headers) {
+		if (!StringUtils.hasText(threadId) || isForwarded(headers)) {
+			return Optional.empty();
+		}
+		return registry.findRemoteOwner(threadId);
+	}
+
+	/**
+	 * 把 SSE 请求转发到归属节点并透传其事件，事件 ID 不变，客户端之后的重连仍可被正确路由
+	 */
+	public Flux<ServerSentEvent<GraphNodeResponse>> forwardStream(StreamContextRegistry.Owner owner,
+			ServerHttpRequest request, String agentId) {
+		URI target = UriComponentsBuilder.fromUriString(owner.address())
+			.path(request.getURI().getRawPath())
+			.query(request.getURI().getRawQuery())
+			.build(true)
+			.toUri();
+		log.info("Forwarding stream of threadId: {} to node {}", owner.threadId(), owner.nodeId());
+		return webClient.get()
+			.uri(target)
+			.headers(headers -> copyHeaders(request.getHeaders(), headers))
+			.accept(MediaType.TEXT_EVENT_STREAM)
+			.retrieve()
+			.bodyToFlux(EVENT_TYPE)
+			.onErrorResume(e -> {
+				log.warn("Unable to forward stream of threadId: {} to node {}", owner.threadId(), owner.nodeId(), e);
+				return Mono.just(ServerSentEvent
+					.builder(
+							GraphNodeResponse.error(agentId, owner.threadId(), "Owning node of the run is unavailable"))
+					.event(STREAM_EVENT_ERROR)
+					.build());
+			});
+	}
+
+	/**
+	 * 把停止请求转发到持有运行的其他节点。未指定 threadId 时转发到会话中各运行的归属节点
+	 */
+	public Mono<Void> forwardStop(String conversationId, String threadId, HttpHeaders requestHeaders) {
+		if (isForwarded(requestHeaders)) {
+			return Mono.empty();
+		}
+		List<StreamContextRegistry.Owner> owners = StringUtils.hasText(threadId)
+				? registry.findRemoteOwner(threadId).map(List::of).orElse(List.of())
+				: registry.findRemoteOwners(conversationId);
+		return Flux.fromIterable(owners).flatMap(owner -> {
+			URI target = UriComponentsBuilder.fromUriString(owner.address())
+				.path("/api/stream/stop")
+				.queryParam("conversationId", conversationId)
+				.queryParam("threadId", owner.threadId())
+				.encode()
+				.build()
+				.toUri();
+			log.info("Forwarding stop of threadId: {} to node {}", owner.threadId(), owner.nodeId());
+			return webClient.post()
+				.uri(target)
+				.headers(headers -> copyHeaders(requestHeaders, headers))
+				.retrieve()
+				.toBodilessEntity()
+				.onErrorResume(e -> {
+					log.warn("Unable to forward stop of threadId: {} to node {}", owner.threadId(), owner.nodeId(), e);
+					return Mono.empty();
+				});
+		}).then();
+	}
+
+	private void copyHeaders(HttpHeaders from, HttpHeaders to) {
+		for (String name : FORWARDED_REQUEST_HEADERS) {
+			List<String> values = from.get(name);
+			if (values != null) {
+				to.put(name, values);
+			}
+		}
+		to.set(FORWARDED_HEADER, registry.nodeId());
+	}
+
+	private static boolean isForwarded(HttpHeaders headers) {
+		return headers != null && headers.containsKey(FORWARDED_HEADER);
+	}
+
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph;
+
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.alibaba.cloud.ai.graph.checkpoint.BaseCheckpointSaver;
+import com.alibaba.cloud.ai.graph.checkpoint.Checkpoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分层检查点存储。
+ * <p>
+ * 读写都落在进程内的热层（按线程 LRU 缓存，空闲超时淘汰），冷层存储（如 MysqlSaver）由后台线程按固定间隔批量写入。
+ * 同一线程在一个落库间隔内的多次写入合并为一次，只持久化最新的检查点；即将在中断节点（人工反馈）暂停时同步落库，保证暂停的运行可从冷层恢复。
+ * 进程异常退出时最多丢失一个落库间隔内的检查点。热层未命中时从冷层加载，本进程新建的线程冷层中不会有检查点，登记后不再查询冷层。 每个线程在热层只保留最近的若干个检查点。
+ */
+@Slf4j
+public class TieredCheckpointSaver implements BaseCheckpointSaver {
+
+	private final BaseCheckpointSaver coldSaver;
+
+	private final DataAgentProperties.CheckpointProperties.Tiered properties;
+
+	private final Set<String> interruptNodes;
+
+	/**
+	 * 访问顺序的线程表，用于 LRU 淘汰
+	 */
+	private final LinkedHashMap<String, ThreadEntry> threads = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final ScheduledExecutorService flusher;
+
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+	private final Counter coalescedCounter;
+
+	private final Counter flushFailureCounter;
+
+	private final Timer flushTimer;
+
+	/**
+	 * @param coldSaver 冷层存储
+	 * @param properties 热层与落库配置
+	 * @param interruptNodes 图在这些节点前中断，下一节点为其中之一的检查点会同步落库
+	 * @param meterRegistry 指标注册表
+	 */
+	public TieredCheckpointSaver(BaseCheckpointSaver coldSaver,
+			DataAgentProperties.CheckpointProperties.Tiered properties, Set<String> interruptNodes,
+			MeterRegistry meterRegistry) {
+		this.coldSaver = coldSaver;
+		this.properties = properties;
+		this.interruptNodes = Set.copyOf(interruptNodes);
+		meterRegistry.gauge("dataagent.checkpoint.pending", this, saver -> saver.pendingCount());
+		meterRegistry.gauge("dataagent.checkpoint.hot.threads", this, saver -> saver.hotCount());
+		this.coalescedCounter = meterRegistry.counter("dataagent.checkpoint.coalesced");
+		this.flushFailureCounter = meterRegistry.counter("dataagent.checkpoint.flush.failures");
+		this.flushTimer = meterRegistry.timer("dataagent.checkpoint.flush");
+		this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "checkpoint-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = Math.max(1, properties.getFlushIntervalMs());
+		this.flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public Collection<Checkpoint> list(RunnableConfig config) {
+		ThreadEntry entry = entry(config);
+		entry.lock.lock();
+		try {
+			return List.copyOf(entry.checkpoints);
+		}
+		finally {
+			entry.lock.unlock();
+		}
+	}
+
+	@Override
+	public Optional<Checkpoint> get(RunnableConfig config) {
+		ThreadEntry entry = entry(config);
+		entry.lock.lock();
+		try {
+			if (config.checkPointId().isPresent()) {
+				String checkpointId = config.checkPointId().get();
+				return entry.checkpoints.stream()
+					.filter(checkpoint -> checkpoint.getId().equals(checkpointId))
+					.findFirst();
+			}
+			return Optional.ofNullable(entry.checkpoints.peekFirst());
+		}
+		finally {
+			entry.lock.unlock();
+		}
+	}
+
+	@Override
+	public RunnableConfig put(RunnableConfig config, Checkpoint checkpoint) throws Exception {
+		String threadId = threadId(config);
+		ThreadEntry entry;
+		RunnableConfig result;
+		while (true) {
+			entry = entry(config);
+			entry.lock.lock();
+			try {
+				if (entry.evicted) {
+					// 取到后被并发淘汰，重新加载
+					continue;
+				}
+				result = apply(entry, config, checkpoint);
+				if (entry.dirty) {
+					coalescedCounter.increment();
+				}
+				entry.dirty = true;
+				break;
+			}
+			finally {
+				entry.lock.unlock();
+			}
+		}
+
+		if (interruptNodes.contains(checkpoint.getNextNodeId())) {
+			// 运行即将暂停等待人工反馈，恢复请求可能在很久之后到达，必须立即落库
+			flush(threadId, entry);
+		}
+		else if (pendingCount() >= properties.getMaxPendingThreads()) {
+			requestFlush();
+		}
+		return result;
+	}
+
+	private RunnableConfig apply(ThreadEntry entry, RunnableConfig config, Checkpoint checkpoint) {
+		if (config.checkPointId().isPresent()) {
+			String checkpointId = config.checkPointId().get();
+			int index = indexOf(entry.checkpoints, checkpointId);
+			if (index < 0) {
+				throw new NoSuchElementException("Checkpoint with id " + checkpointId + " not found!");
+			}
+			entry.checkpoints.set(index, checkpoint);
+			return config;
+		}
+		entry.checkpoints.push(checkpoint);
+		while (entry.checkpoints.size() > Math.max(1, properties.getHotMaxCheckpointsPerThread())) {
+			entry.checkpoints.removeLast();
+		}
+		return RunnableConfig.builder(config).checkPointId(checkpoint.getId()).build();
+	}
+
+	/**
+	 * 登记本进程新生成的线程 ID。新线程在冷层中没有检查点，首次读写直接使用空的热层条目，不再同步查询冷层
+	 * @param threadId 新生成的线程 ID
+	 */
+	public void registerNewThread(String threadId) {
+		synchronized (threads) {
+			ThreadEntry entry = threads.computeIfAbsent(threadId, k -> new ThreadEntry(new LinkedList<>()));
+			entry.lastAccessMillis = System.currentTimeMillis();
+		}
+	}
+
+	@Override
+	public Tag release(RunnableConfig config) throws Exception {
+		String threadId = threadId(config);
+		ThreadEntry entry;
+		synchronized (threads) {
+			entry = threads.remove(threadId);
+		}
+		if (entry == null) {
+			return coldSaver.release(config);
+		}
+		entry.lock.lock();
+		try {
+			entry.released = true;
+			entry.dirty = false;
+			Tag tag = new Tag(threadId, List.copyOf(entry.checkpoints));
+			if (entry.persistedCheckpointId != null) {
+				coldSaver.release(config);
+			}
+			return tag;
+		}
+		finally {
+			entry.lock.unlock();
+		}
+	}
+
+	/**
+	 * 将所有待落库的线程写入冷层，并淘汰超时或超量的热层线程
+	 */
+	public void flush() {
+		flushRequested.set(false);
+		List<Map.Entry<String, ThreadEntry>> pending;
+		synchronized (threads) {
+			pending = threads.entrySet()
+				.stream()
+				.filter(e -> e.getValue().dirty)
+				.map(e -> Map.entry(e.getKey(), e.getValue()))
+				.toList();
+		}
+		if (!pending.isEmpty()) {
+			flushTimer.record(() -> pending.forEach(e -> flush(e.getKey(), e.getValue())));
+		}
+		evict();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		flusher.shutdown();
+		try {
+			flusher.awaitTermination(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+	}
+
+	public int pendingCount() {
+		synchronized (threads) {
+			return (int) threads.values().stream().filter(entry -> entry.dirty).count();
+		}
+	}
+
+	public int hotCount() {
+		synchronized (threads) {
+			return threads.size();
+		}
+	}
+
+	private void flush(String threadId, ThreadEntry entry) {
+		entry.lock.lock();
+		try {
+			if (entry.released || !entry.dirty || entry.checkpoints.isEmpty()) {
+				return;
+			}
+			Checkpoint latest = entry.checkpoints.peekFirst();
+			RunnableConfig.Builder config = RunnableConfig.builder().threadId(threadId);
+			if (latest.getId().equals(entry.persistedCheckpointId)) {
+				config.checkPointId(latest.getId());
+			}
+			try {
+				coldSaver.put(config.build(), latest);
+				entry.persistedCheckpointId = latest.getId();
+				entry.dirty = false;
+			}
+			catch (Exception e) {
+				// 保留待落库状态，下一个落库周期重试
+				flushFailureCounter.increment();
+				log.warn("Failed to write checkpoint {} of thread {} to cold storage: {}", latest.getId(), threadId,
+						e.getMessage());
+			}
+		}
+		finally {
+			entry.lock.unlock();
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		}
+		catch (RuntimeException e) {
+			log.error("Checkpoint flush failed", e);
+		}
+	}
+
+	private void requestFlush() {
+		if (flushRequested.compareAndSet(false, true)) {
+			try {
+				flusher.execute(this::flushQuietly);
+			}
+			catch (RejectedExecutionException e) {
+				flushRequested.set(false);
+			}
+		}
+	}
+
+	private void evict() {
+		long expireBefore = System.currentTimeMillis() - properties.getHotTtlMs();
+		synchronized (threads) {
+			int overflow = threads.size() - properties.getHotMaxThreads();
+			Iterator<ThreadEntry> iterator = threads.values().iterator();
+			while (iterator.hasNext()) {
+				ThreadEntry entry = iterator.next();
+				if (entry.dirty || !(overflow > 0 || entry.lastAccessMillis < expireBefore)) {
+					continue;
+				}
+				// 正在被读写的线程跳过，留到下一轮
+				if (!entry.lock.tryLock()) {
+					continue;
+				}
+				try {
+					if (!entry.dirty) {
+						entry.evicted = true;
+						iterator.remove();
+						overflow--;
+					}
+				}
+				finally {
+					entry.lock.unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * 获取热层线程，未命中时从冷层加载。热层容量在每个落库周期末统一淘汰
+	 */
+	private ThreadEntry entry(RunnableConfig config) {
+		String threadId = threadId(config);
+		synchronized (threads) {
+			ThreadEntry entry = threads.get(threadId);
+			if (entry != null) {
+				entry.lastAccessMillis = System.currentTimeMillis();
+				return entry;
+			}
+		}
+		LinkedList<Checkpoint> loaded = new LinkedList<>(
+				coldSaver.list(RunnableConfig.builder().threadId(threadId).build()));
+		synchronized (threads) {
+			ThreadEntry entry = threads.computeIfAbsent(threadId, k -> new ThreadEntry(loaded));
+			entry.lastAccessMillis = System.currentTimeMillis();
+			return entry;
+		}
+	}
+
+	private static int indexOf(List<Checkpoint> checkpoints, String checkpointId) {
+		for (int i = 0; i < checkpoints.size(); i++) {
+			if (checkpoints.get(i).getId().equals(checkpointId)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static String threadId(RunnableConfig config) {
+		return config.threadId().orElse(THREAD_ID_DEFAULT);
+	}
+
+	private static final class ThreadEntry {
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private final LinkedList<Checkpoint> checkpoints;
+
+		/**
+		 * 冷层中该线程最新检查点的 ID，为 null 表示尚未落库
+		 */
+		private String persistedCheckpointId;
+
+		private volatile boolean dirty;
+
+		private boolean released;
+
+		private boolean evicted;
+
+		private volatile long lastAccessMillis;
+
+		private ThreadEntry(LinkedList<Checkpoint> loaded) {
+			this.checkpoints = loaded;
+			this.persistedCheckpointId = loaded.isEmpty() ? null : loaded.getFirst().getId();
+		}
+
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph.offload;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * 基于本地文件系统的状态值存储，按 key 前两位分目录保存。
+ */
+@Slf4j
+public class LocalStateValueStore implements StateValueStore {
+
+	private final Path basePath;
+
+	public LocalStateValueStore(Path basePath) {
+		this.basePath = basePath.toAbsolutePath().normalize();
+	}
+
+	@Override
+	public void put(String key, String content) {
+		Path file = resolve(key);
+		try {
+			if (Files.exists(file)) {
+				Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+				return;
+			}
+			Files.createDirectories(file.getParent());
+			// 先写临时文件再原子替换，避免并发读取到写了一半的内容
+			Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+			Files.writeString(temp, content, StandardCharsets.UTF_8);
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Failed to write state value " + key, e);
+		}
+	}
+
+	@Override
+	public Optional<String> get(String key) {
+		try {
+			return Optional.of(Files.readString(resolve(key), StandardCharsets.UTF_8));
+		}
+		catch (NoSuchFileException e) {
+			return Optional.empty();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Failed to read state value " + key, e);
+		}
+	}
+
+	@Override
+	public int deleteOlderThan(long epochMillis) {
+		if (!Files.isDirectory(basePath)) {
+			return 0;
+		}
+		List<Path> expired;
+		try (Stream<Path> files = Files.walk(basePath)) {
+			expired = files.filter(Files::isRegularFile).filter(file -> isOlderThan(file, epochMillis)).toList();
+		}
+		catch (IOException e) {
+			log.warn("Failed to scan state value directory {}: {}", basePath, e.getMessage());
+			return 0;
+		}
+		int deleted = 0;
+		for (Path file : expired) {
+			try {
+				if (Files.deleteIfExists(file)) {
+					deleted++;
+				}
+			}
+			catch (IOException e) {
+				log.warn("Failed to delete expired state value {}: {}", file, e.getMessage());
+			}
+		}
+		return deleted;
+	}
+
+	private Path resolve(String key) {
+		if (!key.matches("[0-9a-f]{16,}")) {
+			throw new IllegalArgumentException("Invalid state value key: " + key);
+		}
+		return basePath.resolve(key.substring(0, 2)).resolve(key);
+	}
+
+	private static boolean isOlderThan(Path file, long epochMillis) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis() < epochMillis;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph.offload;
+
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.util.JsonUtil;
+import com.alibaba.cloud.ai.dataagent.util.StateUtil;
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 图状态大值外置。
+ * <p>
+ * SQL 结果集、Schema 等序列化后超过阈值的状态值写入 {@link StateValueStore}，状态中只保留形如
+ * {@code state-value://<sha256>} 的引用，检查点与 Langfuse 属性的体积不再随结果大小增长。读取可能被外置的状态值的节点注入本组件， 通过
+ * {@link #getObjectValue} 等方法读取，引用按需解析并在进程内缓存。
+ */
+@Slf4j
+public class StateValueOffloader {
+
+	public static final String HANDLE_PREFIX = "state-value://";
+
+	private static final ObjectMapper OBJECT_MAPPER = JsonUtil.getObjectMapper();
+
+	private final StateValueStore store;
+
+	private final DataAgentProperties.StateOffload properties;
+
+	/**
+	 * 访问顺序的内容缓存，按总字符数 LRU 淘汰
+	 */
+	private final LinkedHashMap<String, String> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long cachedChars;
+
+	public StateValueOffloader(StateValueStore store, DataAgentProperties.StateOffload properties) {
+		this.store = store;
+		this.properties = properties;
+	}
+
+	/**
+	 * 状态值序列化后超过阈值时写入外部存储并返回引用，否则原样返回
+	 */
+	public Object offload(Object value) {
+		if (!properties.isEnabled() || value == null || isHandle(value)) {
+			return value;
+		}
+		String content;
+		try {
+			content = value instanceof String text ? text : OBJECT_MAPPER.writeValueAsString(value);
+		}
+		catch (JsonProcessingException e) {
+			log.warn("State value of type {} is not serializable, keeping it inline: {}",
+					value.getClass().getSimpleName(), e.getMessage());
+			return value;
+		}
+		if (content.length() <= properties.getThresholdChars()) {
+			return value;
+		}
+		String key = digest(content);
+		store.put(key, content);
+		cacheContent(key, content);
+		return HANDLE_PREFIX + key;
+	}
+
+	/**
+	 * 按条目外置字符串映射中的大值，已外置的条目保持原引用
+	 */
+	public Map<String, String> offloadEntries(Map<String, String> values) {
+		if (!properties.isEnabled() || values == null) {
+			return values;
+		}
+		Map<String, String> result = new HashMap<>(values.size());
+		values.forEach((key, value) -> result.put(key, (String) offload(value)));
+		return result;
+	}
+
+	/**
+	 * 解析引用，非引用值原样返回
+	 */
+	public String resolve(String value) {
+		if (!isHandle(value)) {
+			return value;
+		}
+		String key = value.substring(HANDLE_PREFIX.length());
+		synchronized (cache) {
+			String cached = cache.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		String content = store.get(key)
+			.orElseThrow(() -> new IllegalStateException("State value " + key + " is missing or has expired"));
+		cacheContent(key, content);
+		return content;
+	}
+
+	/**
+	 * 读取字符串状态值并解析引用
+	 */
+	public String getStringValue(OverAllState state, String key) {
+		return state.value(key)
+			.map(value -> resolve((String) value))
+			.orElseThrow(() -> new IllegalStateException("State key not found: " + key));
+	}
+
+	/**
+	 * 读取状态值并解析引用，再按 {@link StateUtil#getObjectValue(OverAllState, String, Class)} 的规则转换类型
+	 */
+	public <T> T getObjectValue(OverAllState state, String key, Class<T> type) {
+		return state.value(key)
+			.map(value -> StateUtil.deserializeIfNeeded(resolve(value, type), type))
+			.orElseThrow(() -> new IllegalStateException("State key not found: " + key));
+	}
+
+	/**
+	 * 读取状态值并解析引用，状态中没有该值时返回默认值
+	 */
+	public <T> T getObjectValue(OverAllState state, String key, Class<T> type, T defaultValue) {
+		return state.value(key)
+			.map(value -> StateUtil.deserializeIfNeeded(resolve(value, type), type))
+			.orElse(defaultValue);
+	}
+
+	/**
+	 * 将引用替换为内容；映射按条目外置，逐个条目解析
+	 */
+	private Object resolve(Object value, Class<?> type) {
+		if (isHandle(value)) {
+			String content = resolve((String) value);
+			if (type.equals(String.class) || type.equals(Object.class)) {
+				return content;
+			}
+			try {
+				return OBJECT_MAPPER.readValue(content, type);
+			}
+			catch (JsonProcessingException e) {
+				throw new IllegalStateException("Unable to restore offloaded state value as " + type.getSimpleName(),
+						e);
+			}
+		}
+		if (value instanceof Map<?, ?> map && map.values().stream().anyMatch(StateValueOffloader::isHandle)) {
+			Map<Object, Object> resolved = new HashMap<>(map.size());
+			map.forEach((k, v) -> resolved.put(k, isHandle(v) ? resolve((String) v) : v));
+			return resolved;
+		}
+		return value;
+	}
+
+	/**
+	 * 清理超过保留时间的外部存储内容
+	 */
+	@Scheduled(fixedDelayString = "${spring.ai.alibaba.data-agent.state-offload.purge-interval-ms:3600000}")
+	public void purgeExpired() {
+		int deleted = store.deleteOlderThan(System.currentTimeMillis() - properties.getRetentionMs());
+		if (deleted > 0) {
+			log.info("Purged {} expired offloaded state values", deleted);
+		}
+	}
+
+	public static boolean isHandle(Object value) {
+		return value instanceof String text && text.startsWith(HANDLE_PREFIX);
+	}
+
+	private void cacheContent(String key, String content) {
+		long maxChars = properties.getCacheMaxChars();
+		if (content.length() > maxChars) {
+			return;
+		}
+		synchronized (cache) {
+			String previous = cache.put(key, content);
+			if (previous != null) {
+				return;
+			}
+			cachedChars += content.length();
+			Iterator<String> iterator = cache.values().iterator();
+			while (cachedChars > maxChars && iterator.hasNext()) {
+				cachedChars -= iterator.next().length();
+				iterator.remove();
+			}
+		}
+	}
+
+	private static String digest(String content) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
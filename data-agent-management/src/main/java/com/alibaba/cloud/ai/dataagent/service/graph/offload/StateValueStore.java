@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph.offload;
+
+import java.util.Optional;
+
+/**
+ * 图状态大值的外部存储。内容按摘要寻址，同一内容只写入一次。
+ */
+public interface StateValueStore {
+
+	/**
+	 * 写入内容，key 已存在时只刷新其保留时间
+	 * @param key 内容摘要
+	 * @param content 序列化后的状态值
+	 */
+	void put(String key, String content);
+
+	/**
+	 * 读取内容，不存在（未写入或已过期清理）时返回空
+	 */
+	Optional<String> get(String key);
+
+	/**
+	 * 删除在该时间点之后未再写入的内容
+	 * @param epochMillis 截止时间
+	 * @return 删除的条数
+	 */
+	int deleteOlderThan(long epochMillis);
+
+}
@@ -119,7 +119,15 @@ public final class NodeIoRegistry {
 						List.of(PLAN_CURRENT_STEP, SQL_GENERATE_OUTPUT, AGENT_ID, SQL_EXECUTE_NODE_OUTPUT,
 								PLANNER_NODE_OUTPUT, IS_ONLY_NL2SQL, QUERY_ENHANCE_NODE_OUTPUT),
 						List.of(SQL_EXECUTE_NODE_OUTPUT, SQL_REGENERATE_REASON, SQL_RESULT_LIST_MEMORY,
-								PLAN_CURRENT_STEP, SQL_GENERATE_COUNT)));
+								PLAN_CURRENT_STEP, SQL_GENERATE_COUNT, PLANNER_NODE_OUTPUT)));
+
+		// 在一个节点内完成多个 SQL 步骤的生成、语义校验与执行
+		registry.put(PARALLEL_SQL_EXECUTE_NODE,
+				new NodeIo(
+						List.of(PLANNER_NODE_OUTPUT, PLAN_CURRENT_STEP, AGENT_ID, SQL_EXECUTE_NODE_OUTPUT, EVIDENCE,
+								TABLE_RELATION_OUTPUT, QUERY_ENHANCE_NODE_OUTPUT, DB_DIALECT_TYPE, IS_ONLY_NL2SQL),
+						List.of(SQL_EXECUTE_NODE_OUTPUT, SQL_GENERATE_OUTPUT, SQL_GENERATE_COUNT, SQL_REGENERATE_REASON,
+								SQL_RESULT_LIST_MEMORY, PLAN_CURRENT_STEP, PLANNER_NODE_OUTPUT)));
 
 		registry.put(PYTHON_GENERATE_NODE,
 				new NodeIo(
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.llm;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.Optional;
+
+/**
+ * LLM 调用所属的图节点，通过 Reactor Context 传递给 {@link LlmService} 的装饰器，用于按节点启用的策略（如响应缓存）。
+ * <p>
+ * 调用方在 {@link LlmService} 返回的 Flux 上追加 {@code .contextWrite(LlmCallScope.of(NODE))} 即可。
+ * 范围通常为图节点名称， 不属于某个节点的调用使用下方的提示词类型常量。
+ */
+public final class LlmCallScope {
+
+	/**
+	 * 会话标题生成
+	 */
+	public static final String SESSION_TITLE = "SESSION_TITLE";
+
+	/**
+	 * SQL 执行结果的图表配置生成
+	 */
+	public static final String SQL_RESULT_CHART = "SQL_RESULT_CHART";
+
+	private static final String CONTEXT_KEY = LlmCallScope.class.getName();
+
+	private LlmCallScope() {
+	}
+
+	public static Context of(String node) {
+		return Context.of(CONTEXT_KEY, node);
+	}
+
+	public static Optional<String> current(ContextView context) {
+		return context.getOrEmpty(CONTEXT_KEY);
+	}
+
+}
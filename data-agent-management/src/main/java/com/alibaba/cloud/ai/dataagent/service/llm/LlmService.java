@@ -24,8 +24,9 @@ public interface LlmService {
 	Flux<ChatResponse> call(String system, String user);
 
 	/**
-	 * Call the model with system and user messages plus Spring AI structured-output
-	 * validation.
+	 * Stream a structured response for system and user messages, validated against the
+	 * JSON schema derived from {@code outputType}.
+	 * @see #callUser(String, Class)
 	 */
 	Flux<ChatResponse> call(String system, String user, Class<?> outputType);
 
@@ -34,9 +35,12 @@ public interface LlmService {
 	Flux<ChatResponse> callUser(String user);
 
 	/**
-	 * Call the model with Spring AI's structured-output validation advisor. The advisor
-	 * validates the response against the schema derived from {@code outputType} and asks
-	 * the model to repair invalid output.
+	 * Stream a structured response. Chunks are emitted as they arrive while the JSON
+	 * structure is checked incrementally; when the output cannot match the schema derived
+	 * from {@code outputType}, a restart marker (see
+	 * {@link ChatResponseUtil#createRestartResponse(int)}) is emitted and the model is
+	 * asked to repair its output. Consumers aggregating the text must discard what they
+	 * collected before the marker, e.g. via {@link ChatResponseUtil#collectText(Flux)}.
 	 */
 	Flux<ChatResponse> callUser(String user, Class<?> outputType);
 
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.llm.impls;
+
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.AiModelRegistry;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatResponse;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 精确匹配的 LLM 响应缓存。
+ * <p>
+ * 仅对配置中启用的节点（见 {@link LlmCallScope}）生效，缓存键为当前对话模型、温度、系统与用户提示词及结构化输出类型的
+ * SHA-256。命中时按原顺序重放完整的 {@link ChatResponse} 流，重放的响应去掉 token 用量并以
+ * {@link #CACHED_METADATA_KEY} 标记，避免用量统计重复计入；未命中时透传上游，正常完成后才写入缓存，出错或取消不缓存。 条目数按 LRU 限制，超过
+ * TTL 后失效。
+ */
+public class CachingLlmService implements LlmService {
+
+	/**
+	 * 缓存重放的响应在元数据中携带该键，值为 true
+	 */
+	public static final String CACHED_METADATA_KEY = "dataagent.llm.cached";
+
+	private final LlmService delegate;
+
+	private final AiModelRegistry registry;
+
+	private final DataAgentProperties.LlmCache properties;
+
+	private final Set<String> nodes;
+
+	private final MeterRegistry meterRegistry;
+
+	private final LinkedHashMap<String, CacheEntry> cache;
+
+	public CachingLlmService(LlmService delegate, AiModelRegistry registry, DataAgentProperties.LlmCache properties,
+			MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.registry = registry;
+		this.properties = properties;
+		this.nodes = Set.copyOf(properties.getNodes());
+		this.meterRegistry = meterRegistry;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+				return size() > properties.getMaxEntries();
+			}
+		};
+		meterRegistry.gauge("dataagent.llm.cache.entries", this, service -> service.size());
+	}
+
+	@Override
+	public Flux<ChatResponse> call(String system, String user) {
+		return cached(system, user, null, () -> delegate.call(system, user));
+	}
+
+	@Override
+	public Flux<ChatResponse> call(String system, String user, Class<?> outputType) {
+		return cached(system, user, outputType, () -> delegate.call(system, user, outputType));
+	}
+
+	@Override
+	public Flux<ChatResponse> callSystem(String system) {
+		return cached(system, null, null, () -> delegate.callSystem(system));
+	}
+
+	@Override
+	public Flux<ChatResponse> callUser(String user) {
+		return cached(null, user, null, () -> delegate.callUser(user));
+	}
+
+	@Override
+	public Flux<ChatResponse> callUser(String user, Class<?> outputType) {
+		return cached(null, user, outputType, () -> delegate.callUser(user, outputType));
+	}
+
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	private Flux<ChatResponse> cached(String system, String user, Class<?> outputType,
+			Supplier<Flux<ChatResponse>> upstream) {
+		return Flux.deferContextual(context -> {
+			Optional<String> node = LlmCallScope.current(context).filter(nodes::contains);
+			if (node.isEmpty()) {
+				return upstream.get();
+			}
+			String key = key(node.get(), system, user, outputType);
+			List<ChatResponse> responses = lookup(key);
+			if (responses != null) {
+				meterRegistry.counter("dataagent.llm.cache.requests", "node", node.get(), "result", "hit").increment();
+				return Flux.fromIterable(responses);
+			}
+			meterRegistry.counter("dataagent.llm.cache.requests", "node", node.get(), "result", "miss").increment();
+			List<ChatResponse> collected = new ArrayList<>();
+			return upstream.get().doOnNext(collected::add).doOnComplete(() -> store(key, collected));
+		});
+	}
+
+	private List<ChatResponse> lookup(String key) {
+		synchronized (cache) {
+			CacheEntry entry = cache.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (System.currentTimeMillis() - entry.createdMillis() > properties.getTtlMs()) {
+				cache.remove(key);
+				return null;
+			}
+			return entry.responses();
+		}
+	}
+
+	private void store(String key, List<ChatResponse> responses) {
+		if (responses.isEmpty()) {
+			return;
+		}
+		synchronized (cache) {
+			cache.put(key, new CacheEntry(responses.stream().map(CachingLlmService::asCached).toList(),
+					System.currentTimeMillis()));
+		}
+	}
+
+	/**
+	 * 复制响应并去掉用量：命中时没有消耗 token，保留原用量会让下游的 token 统计重复计入
+	 */
+	private static ChatResponse asCached(ChatResponse response) {
+		ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder().keyValue(CACHED_METADATA_KEY, true);
+		ChatResponseMetadata source = response.getMetadata();
+		if (source != null) {
+			metadata.id(source.getId())
+				.model(source.getModel())
+				.rateLimit(source.getRateLimit())
+				.promptMetadata(source.getPromptMetadata());
+			source.entrySet().forEach(entry -> metadata.keyValue(entry.getKey(), entry.getValue()));
+		}
+		return ChatResponse.builder().generations(response.getResults()).metadata(metadata.build()).build();
+	}
+
+	private String key(String node, String system, String user, Class<?> outputType) {
+		return LlmRequestKey.of(registry.getChatModelConfig(node), system, user, outputType);
+	}
+
+	private record CacheEntry(List<ChatResponse> responses, long createdMillis) {
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.llm.impls;
+
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.AiModelRegistry;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.ai.chat.model.ChatResponse;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 合并进行中的相同 LLM 请求（single-flight）。
+ * <p>
+ * 同一节点、同一对话模型与提示词的请求在上游响应结束前再次到达时，不再发起新的调用，而是订阅同一个共享的响应流，并从头重放已收到的片段。
+ * 单个调用方取消只会退订自己，所有调用方都取消后才取消上游调用；上游出错时所有调用方都收到该错误。响应结束后请求即从进行中表移除，之后的相同请求会重新调用上游。
+ */
+public class CoalescingLlmService implements LlmService {
+
+	private final LlmService delegate;
+
+	private final AiModelRegistry registry;
+
+	private final MeterRegistry meterRegistry;
+
+	private final ConcurrentHashMap<String, Flux<ChatResponse>> inFlight = new ConcurrentHashMap<>();
+
+	public CoalescingLlmService(LlmService delegate, AiModelRegistry registry, MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.registry = registry;
+		this.meterRegistry = meterRegistry;
+		meterRegistry.gauge("dataagent.singleflight.inflight", Tags.of("type", "chat"), this,
+				service -> service.inFlight());
+	}
+
+	@Override
+	public Flux<ChatResponse> call(String system, String user) {
+		return coalesced(system, user, null, () -> delegate.call(system, user));
+	}
+
+	@Override
+	public Flux<ChatResponse> call(String system, String user, Class<?> outputType) {
+		return coalesced(system, user, outputType, () -> delegate.call(system, user, outputType));
+	}
+
+	@Override
+	public Flux<ChatResponse> callSystem(String system) {
+		return coalesced(system, null, null, () -> delegate.callSystem(system));
+	}
+
+	@Override
+	public Flux<ChatResponse> callUser(String user) {
+		return coalesced(null, user, null, () -> delegate.callUser(user));
+	}
+
+	@Override
+	public Flux<ChatResponse> callUser(String user, Class<?> outputType) {
+		return coalesced(null, user, outputType, () -> delegate.callUser(user, outputType));
+	}
+
+	public int inFlight() {
+		return inFlight.size();
+	}
+
+	private Flux<ChatResponse> coalesced(String system, String user, Class<?> outputType,
+			Supplier<Flux<ChatResponse>> upstream) {
+		return Flux.deferContextual(context -> {
+			String node = LlmCallScope.current(context).orElse(null);
+			String key = (node != null ? node : "") + ":"
+					+ LlmRequestKey.of(registry.getChatModelConfig(node), system, user, outputType);
+			AtomicBoolean leader = new AtomicBoolean();
+			Flux<ChatResponse> shared = inFlight.computeIfAbsent(key, k -> {
+				leader.set(true);
+				return share(k, upstream);
+			});
+			meterRegistry
+				.counter("dataagent.singleflight.requests", "type", "chat", "result",
+						leader.get() ? "leader" : "coalesced")
+				.increment();
+			return shared;
+		});
+	}
+
+	/**
+	 * 上游只在第一个订阅者到达时调用一次，片段缓存在 replay 中供后到的调用方重放；refCount 保证最后一个调用方退订时才取消上游
+	 */
+	private Flux<ChatResponse> share(String key, Supplier<Flux<ChatResponse>> upstream) {
+		AtomicReference<Flux<ChatResponse>> self = new AtomicReference<>();
+		self.set(Flux.defer(upstream).doFinally(signal -> inFlight.remove(key, self.get())).replay().refCount(1));
+		return self.get();
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.llm.impls;
+
+import com.alibaba.cloud.ai.dataagent.dto.ModelConfigDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * LLM 请求的摘要键：对话模型（供应商、地址、模型名、温度）、系统与用户提示词及结构化输出类型完全相同的请求得到相同的键
+ */
+final class LlmRequestKey {
+
+	private static final char SEPARATOR = '\u0000';
+
+	private LlmRequestKey() {
+	}
+
+	static String of(ModelConfigDTO model, String system, String user, Class<?> outputType) {
+		StringBuilder builder = new StringBuilder();
+		if (model != null) {
+			builder.append(model.getProvider())
+				.append(SEPARATOR)
+				.append(model.getBaseUrl())
+				.append(SEPARATOR)
+				.append(model.getModelName())
+				.append(SEPARATOR)
+				.append(model.getTemperature());
+		}
+		builder.append(SEPARATOR)
+			.append(system == null ? "" : "S" + system)
+			.append(SEPARATOR)
+			.append(user == null ? "" : "U" + user)
+			.append(SEPARATOR)
+			.append(outputType == null ? "" : outputType.getName());
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8)));
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+}
@@ -15,63 +15,349 @@
  */
 package com.alibaba.cloud.ai.dataagent.service.llm.impls;
 
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.AiModelRegistry;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
-import lombok.AllArgsConstructor;
-import org.springframework.ai.chat.client.advisor.StructuredOutputValidationAdvisor;
+import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.openai.api.OpenAiApi;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
 
-@AllArgsConstructor
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 基于 {@link AiModelRegistry} 的 LLM 调用实现。
+ * <p>
+ * 按 Reactor Context 中的调用范围（见
+ * {@link LlmCallScope}）选择模型档位，并按档位与节点记录调用耗时、首个响应耗时与令牌用量（含命中提示词前缀缓存的输入令牌）。
+ * 启用对冲后，调用在首个响应超出预算时向对冲档位的模型再发一次请求，先返回非空文本的一方胜出，另一方被取消。 调用在返回任何内容前失败时按回退档位依次重试。
+ * <p>
+ * 结构化输出同样以流式返回，内容边输出边下发，并由 {@link StructuredOutputValidator} 增量检查 JSON
+ * 结构；结构已无法成立或输出结束后未通过 Schema 校验时，发出重新输出标记（见
+ * {@link ChatResponseUtil#createRestartResponse(int)}），并在用户提示词后附上失败原因重新请求，最多
+ * {@value #MAX_REPAIR_ATTEMPTS} 次。
+ */
+@Slf4j
 public class StreamLlmService implements LlmService {
 
+	private static final String NO_SCOPE = "none";
+
+	private static final int MAX_REPAIR_ATTEMPTS = 2;
+
 	private final AiModelRegistry registry;
 
+	private final DataAgentProperties.Hedging hedging;
+
+	private final MeterRegistry meterRegistry;
+
+	private final Map<Class<?>, StructuredOutputValidator> validators = new ConcurrentHashMap<>();
+
+	public StreamLlmService(AiModelRegistry registry, DataAgentProperties.Hedging hedging,
+			MeterRegistry meterRegistry) {
+		this.registry = registry;
+		this.hedging = hedging;
+		this.meterRegistry = meterRegistry;
+	}
+
 	@Override
 	public Flux<ChatResponse> call(String system, String user) {
-		return registry.getChatClient().prompt().system(system).user(user).stream().chatResponse();
+		return observe(client -> client.prompt().system(system).user(user).stream().chatResponse());
 	}
 
 	@Override
 	public Flux<ChatResponse> call(String system, String user, Class<?> outputType) {
-		StructuredOutputValidationAdvisor advisor = StructuredOutputValidationAdvisor.builder()
-			.outputType(outputType)
-			.maxRepeatAttempts(2)
-			.build();
-		return Mono
-			.fromCallable(() -> registry.getChatClient()
-				.prompt()
-				.system(system)
-				.user(user)
-				.advisors(advisor)
-				.call()
-				.chatResponse())
-			.subscribeOn(Schedulers.boundedElastic())
-			.flux();
+		StructuredOutputValidator validator = validator(outputType);
+		return observe(client -> structured(validator,
+				feedback -> client.prompt().system(system).user(user + feedback).stream().chatResponse(), "",
+				MAX_REPAIR_ATTEMPTS));
 	}
 
 	@Override
 	public Flux<ChatResponse> callSystem(String system) {
-		return registry.getChatClient().prompt().system(system).stream().chatResponse();
+		return observe(client -> client.prompt().system(system).stream().chatResponse());
 	}
 
 	@Override
 	public Flux<ChatResponse> callUser(String user) {
-		return registry.getChatClient().prompt().user(user).stream().chatResponse();
+		return observe(client -> client.prompt().user(user).stream().chatResponse());
 	}
 
 	@Override
 	public Flux<ChatResponse> callUser(String user, Class<?> outputType) {
-		StructuredOutputValidationAdvisor advisor = StructuredOutputValidationAdvisor.builder()
-			.outputType(outputType)
-			.maxRepeatAttempts(2)
-			.build();
-		return Mono
-			.fromCallable(() -> registry.getChatClient().prompt().user(user).advisors(advisor).call().chatResponse())
-			.subscribeOn(Schedulers.boundedElastic())
-			.flux();
+		StructuredOutputValidator validator = validator(outputType);
+		return observe(client -> structured(validator,
+				feedback -> client.prompt().user(user + feedback).stream().chatResponse(), "", MAX_REPAIR_ATTEMPTS));
+	}
+
+	private StructuredOutputValidator validator(Class<?> outputType) {
+		return validators.computeIfAbsent(outputType, StructuredOutputValidator::new);
+	}
+
+	/**
+	 * 流式请求结构化输出，结构或 Schema 校验失败时发出重新输出标记并附上失败原因重新请求
+	 * @param request 根据附加在用户提示词后的修复说明发起请求
+	 * @param feedback 本次请求的修复说明，首次请求为空
+	 * @param repairsLeft 剩余修复次数，为 0 时不再校验，原样返回输出
+	 */
+	private Flux<ChatResponse> structured(StructuredOutputValidator validator,
+			Function<String, Flux<ChatResponse>> request, String feedback, int repairsLeft) {
+		if (repairsLeft <= 0) {
+			return request.apply(feedback);
+		}
+		return Flux.defer(() -> {
+			StructuredOutputValidator.Tracker tracker = validator.tracker();
+			StringBuilder output = new StringBuilder();
+			return request.apply(feedback).<ChatResponse>handle((response, sink) -> {
+				String chunk = ChatResponseUtil.getText(response);
+				Optional<String> error = tracker.append(chunk);
+				if (error.isPresent()) {
+					// 结构已无法成立，不必等待剩余输出；该分片未下发，不计入需撤回的字符数
+					sink.error(new InvalidStructuredOutputException("stream", error.get()));
+				}
+				else {
+					sink.next(response);
+					output.append(chunk);
+				}
+			})
+				.concatWith(Mono.defer(() -> validator.validate(output.toString())
+					.map(error -> Mono.<ChatResponse>error(new InvalidStructuredOutputException("final", error)))
+					.orElseGet(Mono::empty)))
+				.onErrorResume(InvalidStructuredOutputException.class, e -> {
+					log.warn("Structured output for {} failed {} validation, requesting repair: {}",
+							validator.getOutputType().getSimpleName(), e.stage, e.getMessage());
+					meterRegistry
+						.counter("dataagent.llm.structured.repairs", "type", validator.getOutputType().getSimpleName(),
+								"stage", e.stage)
+						.increment();
+					return Flux.just(ChatResponseUtil.createRestartResponse(output.length()))
+						.concatWith(structured(validator, request, repairFeedback(e.getMessage()), repairsLeft - 1));
+				});
+		});
+	}
+
+	private static String repairFeedback(String error) {
+		return "\n\n上一次输出未通过 JSON 校验，原因：" + error + "\n请重新输出完整且符合要求的 JSON。";
+	}
+
+	/**
+	 * 订阅时按调用范围解析 ChatClient，并记录本次调用的指标
+	 */
+	private Flux<ChatResponse> observe(Function<ChatClient, Flux<ChatResponse>> request) {
+		return Flux.deferContextual(context -> {
+			String scope = LlmCallScope.current(context).orElse(null);
+			ChatClient client = registry.getChatClient(scope);
+			String tier = registry.getEffectiveTier(scope);
+			String tierTag = tier != null ? tier : AiModelRegistry.DEFAULT_TIER;
+			String nodeTag = scope != null ? scope : NO_SCOPE;
+			long start = System.nanoTime();
+			AtomicBoolean first = new AtomicBoolean(true);
+			AtomicReference<Usage> usage = new AtomicReference<>();
+			Flux<ChatResponse> attempt = hedged(client, request, tierTag, nodeTag, start);
+			return withFallback(attempt, client, request, tierTag, nodeTag).doOnNext(response -> {
+				if (first.compareAndSet(true, false)) {
+					Timer.builder("dataagent.llm.first-response")
+						.tags("tier", tierTag, "node", nodeTag)
+						.register(meterRegistry)
+						.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+				}
+				Usage current = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+				if (current != null && tokens(current.getTotalTokens()) > 0) {
+					// 流式响应的用量通常只在最后一个分片中给出
+					usage.set(current);
+				}
+			}).doFinally(signal -> record(tierTag, nodeTag, signal, System.nanoTime() - start, usage.get()));
+		});
+	}
+
+	/**
+	 * 首个响应超出预算或主请求提前结束时，向对冲档位的模型发起第二个请求，先返回非空文本的一方胜出
+	 */
+	private Flux<ChatResponse> hedged(ChatClient client, Function<ChatClient, Flux<ChatResponse>> request, String tier,
+			String node, long start) {
+		Flux<ChatResponse> primary = request.apply(client);
+		if (!hedging.isEnabled()) {
+			return primary;
+		}
+		ChatClient hedgeClient = registry.findChatClient(hedging.getHedgeTier())
+			.filter(candidate -> candidate != client)
+			.orElse(null);
+		if (hedgeClient == null) {
+			return primary;
+		}
+		Sinks.Empty<Void> primaryTerminated = Sinks.empty();
+		AtomicBoolean launched = new AtomicBoolean();
+		AtomicBoolean decided = new AtomicBoolean();
+		Flux<ChatResponse> primaryBranch = withContent(primary).doOnTerminate(primaryTerminated::tryEmitEmpty)
+			.doOnNext(response -> decide(decided, launched, "primary", tier, node, start));
+		Flux<ChatResponse> hedgeBranch = Mono
+			.firstWithSignal(Mono.delay(Duration.ofMillis(hedging.getFirstResponseBudgetMs())).then(),
+					primaryTerminated.asMono())
+			.thenMany(Flux.defer(() -> {
+				launched.set(true);
+				log.debug("No response from tier [{}] within {}ms for [{}], hedging on tier [{}]", tier,
+						hedging.getFirstResponseBudgetMs(), node, hedging.getHedgeTier());
+				return withContent(request.apply(hedgeClient));
+			}))
+			.doOnNext(response -> decide(decided, launched, "hedge", tier, node, start));
+		return Flux.firstWithValue(primaryBranch, hedgeBranch)
+			.onErrorResume(StreamLlmService::completedWithoutContent, error -> Flux.empty())
+			.onErrorMap(StreamLlmService::primaryError);
+	}
+
+	/**
+	 * 暂存开头没有文本的分片，出现首个有文本的分片时一并下发，之后原样透传。 只有空分片的响应不产生任何元素，不会在对冲中胜出
+	 */
+	private static Flux<ChatResponse> withContent(Flux<ChatResponse> responses) {
+		return Flux.defer(() -> {
+			List<ChatResponse> leading = new ArrayList<>();
+			AtomicBoolean started = new AtomicBoolean();
+			return responses.concatMapIterable(response -> {
+				if (started.get()) {
+					return List.of(response);
+				}
+				leading.add(response);
+				if (ChatResponseUtil.getText(response).isEmpty()) {
+					return List.of();
+				}
+				started.set(true);
+				List<ChatResponse> released = new ArrayList<>(leading);
+				leading.clear();
+				return released;
+			});
+		});
+	}
+
+	private void decide(AtomicBoolean decided, AtomicBoolean launched, String winner, String tier, String node,
+			long start) {
+		if (!decided.compareAndSet(false, true) || !launched.get()) {
+			return;
+		}
+		meterRegistry.counter("dataagent.llm.hedges", "tier", tier, "node", node, "winner", winner).increment();
+		Timer.builder("dataagent.llm.hedge.first-response")
+			.tags("tier", tier, "node", node, "winner", winner)
+			.register(meterRegistry)
+			.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * 调用在返回任何内容前失败时按回退档位依次重试，已输出部分内容的调用不重试以免重复输出
+	 */
+	private Flux<ChatResponse> withFallback(Flux<ChatResponse> attempt, ChatClient client,
+			Function<ChatClient, Flux<ChatResponse>> request, String tier, String node) {
+		List<String> fallbackTiers = hedging.getFallbackTiers();
+		if (fallbackTiers == null || fallbackTiers.isEmpty()) {
+			return attempt;
+		}
+		AtomicBoolean emitted = new AtomicBoolean();
+		Flux<ChatResponse> chain = attempt.doOnNext(response -> emitted.set(true));
+		for (String fallbackTier : fallbackTiers) {
+			chain = chain.onErrorResume(error -> !emitted.get(),
+					error -> registry.findChatClient(fallbackTier)
+						.filter(candidate -> candidate != client)
+						.map(fallbackClient -> {
+							log.warn(
+									"LLM call on tier [{}] for [{}] failed before responding, falling back to tier [{}]: {}",
+									tier, node, fallbackTier, error.getMessage());
+							meterRegistry
+								.counter("dataagent.llm.fallbacks", "tier", tier, "node", node, "to", fallbackTier)
+								.increment();
+							return request.apply(fallbackClient).doOnNext(response -> emitted.set(true));
+						})
+						.orElseGet(() -> Flux.error(error)));
+		}
+		return chain;
+	}
+
+	/**
+	 * 主请求与对冲请求都没有返回文本且都未失败
+	 */
+	private static boolean completedWithoutContent(Throwable error) {
+		return error instanceof NoSuchElementException && error.getCause() != null
+				&& Exceptions.unwrapMultiple(error.getCause())
+					.stream()
+					.allMatch(NoSuchElementException.class::isInstance);
+	}
+
+	/**
+	 * 主请求与对冲请求都失败时，向调用方抛出主请求的异常
+	 */
+	private static Throwable primaryError(Throwable error) {
+		if (error instanceof NoSuchElementException && error.getCause() != null) {
+			List<Throwable> errors = Exceptions.unwrapMultiple(error.getCause());
+			if (!errors.isEmpty()) {
+				return errors.get(0);
+			}
+		}
+		return error;
+	}
+
+	private void record(String tier, String node, SignalType signal, long elapsedNanos, Usage usage) {
+		String outcome = switch (signal) {
+			case ON_COMPLETE -> "success";
+			case ON_ERROR -> "error";
+			default -> "cancel";
+		};
+		Timer.builder("dataagent.llm.latency")
+			.tags("tier", tier, "node", node, "outcome", outcome)
+			.register(meterRegistry)
+			.record(elapsedNanos, TimeUnit.NANOSECONDS);
+		if (usage != null) {
+			meterRegistry.counter("dataagent.llm.tokens", "tier", tier, "node", node, "type", "prompt")
+				.increment(tokens(usage.getPromptTokens()));
+			meterRegistry.counter("dataagent.llm.tokens", "tier", tier, "node", node, "type", "completion")
+				.increment(tokens(usage.getCompletionTokens()));
+			meterRegistry.counter("dataagent.llm.tokens", "tier", tier, "node", node, "type", "cached")
+				.increment(cachedTokens(usage));
+		}
+	}
+
+	/**
+	 * 命中模型服务提示词前缀缓存的输入令牌数，取自 OpenAI 兼容协议的 prompt_tokens_details.cached_tokens
+	 */
+	private static int cachedTokens(Usage usage) {
+		if (usage.getNativeUsage() instanceof OpenAiApi.Usage nativeUsage
+				&& nativeUsage.promptTokensDetails() != null) {
+			return tokens(nativeUsage.promptTokensDetails().cachedTokens());
+		}
+		return 0;
+	}
+
+	private static int tokens(Integer count) {
+		return count != null ? count : 0;
+	}
+
+	private static final class InvalidStructuredOutputException extends RuntimeException {
+
+		/**
+		 * 校验阶段：stream 为流式结构检查，final 为输出结束后的 Schema 校验
+		 */
+		private final String stage;
+
+		private InvalidStructuredOutputException(String stage, String message) {
+			super(message);
+			this.stage = stage;
+		}
+
 	}
 
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.llm.impls;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.json.schema.JsonSchemaValidator;
+import io.modelcontextprotocol.json.schema.jackson.DefaultJsonSchemaValidator;
+import org.springframework.ai.util.json.JsonParser;
+import org.springframework.ai.util.json.schema.JsonSchemaGenerator;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 流式结构化输出校验。
+ * <p>
+ * 按输出类型生成 JSON Schema，流式输出过程中由 {@link Tracker} 逐片检查 JSON 结构（开头必须是 Schema
+ * 要求的对象或数组，括号必须配对）， 结构已确定无法成立时立即判定失败；输出结束后再按 Schema 做完整校验。允许输出被 Markdown 代码块包裹，顶层 JSON
+ * 值之后的内容不做检查。
+ */
+public final class StructuredOutputValidator {
+
+	private static final ObjectMapper OBJECT_MAPPER = JsonParser.getObjectMapper();
+
+	private static final DefaultJsonSchemaValidator SCHEMA_VALIDATOR = new DefaultJsonSchemaValidator(OBJECT_MAPPER);
+
+	private final Class<?> outputType;
+
+	private final Map<String, Object> schema;
+
+	private final char opener;
+
+	public StructuredOutputValidator(Class<?> outputType) {
+		this.outputType = outputType;
+		try {
+			this.schema = OBJECT_MAPPER.readValue(JsonSchemaGenerator.generateForType(outputType),
+					new TypeReference<Map<String, Object>>() {
+					});
+		}
+		catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Failed to generate JSON schema for " + outputType.getName(), e);
+		}
+		this.opener = "array".equals(schema.get("type")) ? '[' : '{';
+	}
+
+	public Class<?> getOutputType() {
+		return outputType;
+	}
+
+	/**
+	 * 创建一次输出的增量结构检查器
+	 */
+	public Tracker tracker() {
+		return new Tracker();
+	}
+
+	/**
+	 * 按 Schema 校验完整输出
+	 * @return 校验失败的原因，通过时为空
+	 */
+	public Optional<String> validate(String text) {
+		String json = stripFence(text);
+		if (json.isEmpty()) {
+			return Optional.of("Output is empty, a JSON value is required");
+		}
+		JsonNode node;
+		try {
+			node = OBJECT_MAPPER.readTree(json);
+		}
+		catch (JsonProcessingException e) {
+			return Optional.of("Output is not valid JSON: " + e.getOriginalMessage());
+		}
+		JsonSchemaValidator.ValidationResponse response = SCHEMA_VALIDATOR.validate(schema, node);
+		return response.valid() ? Optional.empty() : Optional.of(response.errorMessage());
+	}
+
+	/**
+	 * 去掉包裹 JSON 的 Markdown 代码块标记
+	 */
+	static String stripFence(String text) {
+		String trimmed = text == null ? "" : text.strip();
+		if (trimmed.startsWith("```")) {
+			int lineEnd = trimmed.indexOf('\n');
+			trimmed = lineEnd < 0 ? "" : trimmed.substring(lineEnd + 1);
+			if (trimmed.endsWith("```")) {
+				trimmed = trimmed.substring(0, trimmed.length() - 3);
+			}
+			trimmed = trimmed.strip();
+		}
+		return trimmed;
+	}
+
+	/**
+	 * 增量 JSON 结构检查，只跟踪字符串与括号状态，不解析值
+	 */
+	public final class Tracker {
+
+		private final Deque<Character> brackets = new ArrayDeque<>();
+
+		private boolean started;
+
+		private boolean finished;
+
+		private boolean inFence;
+
+		private boolean inString;
+
+		private boolean escaped;
+
+		private String error;
+
+		private Tracker() {
+		}
+
+		/**
+		 * 追加一个输出片段
+		 * @return 结构已确定无法成立时返回原因，否则为空
+		 */
+		public Optional<String> append(String chunk) {
+			if (error == null && chunk != null) {
+				for (int i = 0; i < chunk.length() && error == null; i++) {
+					accept(chunk.charAt(i));
+				}
+			}
+			return Optional.ofNullable(error);
+		}
+
+		/**
+		 * 顶层 JSON 值是否已完整输出
+		 */
+		public boolean isFinished() {
+			return finished;
+		}
+
+		private void accept(char c) {
+			if (inFence) {
+				// 代码块起始行（如 ```json）直到换行
+				inFence = c != '\n';
+				return;
+			}
+			if (finished) {
+				return;
+			}
+			if (!started) {
+				if (c == '`') {
+					inFence = true;
+				}
+				else if (c == opener) {
+					started = true;
+					brackets.push(c);
+				}
+				else if (!Character.isWhitespace(c)) {
+					error = "Output must be a JSON " + (opener == '{' ? "object" : "array") + " starting with '"
+							+ opener + "'";
+				}
+				return;
+			}
+			if (inString) {
+				if (escaped) {
+					escaped = false;
+				}
+				else if (c == '\\') {
+					escaped = true;
+				}
+				else if (c == '"') {
+					inString = false;
+				}
+				return;
+			}
+			switch (c) {
+				case '"' -> inString = true;
+				case '{', '[' -> brackets.push(c);
+				case '}', ']' -> {
+					char open = c == '}' ? '{' : '[';
+					if (brackets.isEmpty() || brackets.pop() != open) {
+						error = "Unbalanced '" + c + "' in JSON output";
+					}
+					else if (brackets.isEmpty()) {
+						finished = true;
+					}
+				}
+				default -> {
+				}
+			}
+		}
+
+	}
+
+}
@@ -21,6 +21,8 @@ import com.alibaba.cloud.ai.dataagent.dto.prompt.SemanticConsistencyOutputDTO;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.SqlGenerationDTO;
 import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
 import com.alibaba.cloud.ai.dataagent.prompt.PromptHelper;
+import com.alibaba.cloud.ai.dataagent.prompt.SchemaPromptCompactor;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import com.alibaba.cloud.ai.dataagent.util.*;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -37,7 +39,9 @@ import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
-import static com.alibaba.cloud.ai.dataagent.prompt.PromptHelper.buildMixMacSqlDbPrompt;
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.SEMANTIC_CONSISTENCY_NODE;
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.SQL_GENERATE_NODE;
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.TABLE_RELATION_NODE;
 import static com.alibaba.cloud.ai.dataagent.prompt.PromptHelper.buildMixSelectorPrompt;
 
 @Slf4j
@@ -49,11 +53,14 @@ public class Nl2SqlServiceImpl implements Nl2SqlService {
 
 	private final JsonParseUtil jsonParseUtil;
 
+	private final SchemaPromptCompactor schemaPromptCompactor;
+
 	@Override
 	public Flux<ChatResponse> performSemanticConsistency(SemanticConsistencyDTO semanticConsistencyDTO) {
 		String semanticConsistencyPrompt = PromptHelper.buildSemanticConsistenPrompt(semanticConsistencyDTO);
 		log.debug("semanticConsistencyPrompt as follows \n {} \n", semanticConsistencyPrompt);
-		return llmService.callUser(semanticConsistencyPrompt, SemanticConsistencyOutputDTO.class);
+		return llmService.callUser(semanticConsistencyPrompt, SemanticConsistencyOutputDTO.class)
+			.contextWrite(LlmCallScope.of(SEMANTIC_CONSISTENCY_NODE));
 	}
 
 	@Override
@@ -66,17 +73,19 @@ public class Nl2SqlServiceImpl implements Nl2SqlService {
 		if (StringUtils.hasText(sql)) {
 			// Use professional SQL error repair prompt
 			log.debug("Using SQL error fixer for existing SQL: {}", sql);
-			String errorFixerPrompt = PromptHelper.buildSqlErrorFixerPrompt(sqlGenerationDTO);
+			String errorFixerPrompt = PromptHelper.buildSqlErrorFixerPrompt(sqlGenerationDTO, schemaPromptCompactor);
 			log.debug("SQL error fixer prompt as follows \n {} \n", errorFixerPrompt);
-			newSqlFlux = llmService.toStringFlux(llmService.callUser(errorFixerPrompt));
+			newSqlFlux = llmService.toStringFlux(llmService.callUser(errorFixerPrompt))
+				.contextWrite(LlmCallScope.of(SQL_GENERATE_NODE));
 			log.info("SQL error fixing completed");
 		}
 		else {
 			// Normal SQL generation process
 			log.debug("Generating new SQL from scratch");
-			String prompt = PromptHelper.buildNewSqlGeneratorPrompt(sqlGenerationDTO);
+			String prompt = PromptHelper.buildNewSqlGeneratorPrompt(sqlGenerationDTO, schemaPromptCompactor);
 			log.debug("New SQL generator prompt as follows \n {} \n", prompt);
-			newSqlFlux = llmService.toStringFlux(llmService.callSystem(prompt));
+			newSqlFlux = llmService.toStringFlux(llmService.callSystem(prompt))
+				.contextWrite(LlmCallScope.of(SQL_GENERATE_NODE));
 			log.info("New SQL generation completed");
 		}
 
@@ -86,7 +95,8 @@ public class Nl2SqlServiceImpl implements Nl2SqlService {
 	private Flux<ChatResponse> fineSelect(SchemaDTO schemaDTO, String sqlGenerateSchemaMissingAdvice,
 			Consumer<Set<String>> resultConsumer) {
 		log.debug("Fine selecting tables based on advice: {}", sqlGenerateSchemaMissingAdvice);
-		String schemaInfo = buildMixMacSqlDbPrompt(schemaDTO, true);
+		String schemaInfo = schemaPromptCompactor.render(schemaDTO, true, sqlGenerateSchemaMissingAdvice,
+				TABLE_RELATION_NODE);
 		String prompt = """
 				# 角色
 				你是 Schema 补选器。根据校验建议，从可用 Schema 中选择修复当前缺口所必需的表。
@@ -102,22 +112,22 @@ public class Nl2SqlServiceImpl implements Nl2SqlService {
 				3. 不因名称相似而选择无关表，不重复输出表名。
 				4. 没有可支持建议的表时输出空数组。
 
-				# 校验建议
-				<schema_advice>
-				%s
-				</schema_advice>
+				# 输出
+				只输出 JSON 字符串数组，例如 ["a","b"]；不要输出 Markdown、解释或其他内容。
 
 				# 可用 Schema
 				<available_schema>
 				%s
 				</available_schema>
 
-				# 输出
-				只输出 JSON 字符串数组，例如 ["a","b"]；不要输出 Markdown、解释或其他内容。
-				""".formatted(sqlGenerateSchemaMissingAdvice, schemaInfo);
+				# 校验建议
+				<schema_advice>
+				%s
+				</schema_advice>
+				""".formatted(schemaInfo, sqlGenerateSchemaMissingAdvice);
 		log.debug("Built table selection with advice prompt as follows \n {} \n", prompt);
 		StringBuilder sb = new StringBuilder();
-		return llmService.callUser(prompt).doOnNext(r -> {
+		return llmService.callUser(prompt).contextWrite(LlmCallScope.of(TABLE_RELATION_NODE)).doOnNext(r -> {
 			String text = r.getResult().getOutput().getText();
 			sb.append(text);
 		}).doOnComplete(() -> {
@@ -152,12 +162,14 @@ public class Nl2SqlServiceImpl implements Nl2SqlService {
 		log.debug("Fine selecting schema for query: {} with evidences and specificDbConfig: {}", query,
 				specificDbConfig != null ? specificDbConfig.getUrl() : "default");
 
-		String prompt = buildMixSelectorPrompt(evidence, query, schemaDTO);
+		String prompt = buildMixSelectorPrompt(evidence, query, schemaDTO, schemaPromptCompactor);
 		log.debug("Built schema fine selection prompt as follows \n {} \n", prompt);
 
 		Set<String> selectedTables = new HashSet<>();
 
-		return FluxUtil.<ChatResponse, String>cascadeFlux(llmService.callUser(prompt), content -> {
+		Flux<ChatResponse> selectionFlux = llmService.callUser(prompt)
+			.contextWrite(LlmCallScope.of(TABLE_RELATION_NODE));
+		return FluxUtil.<ChatResponse, String>cascadeFlux(selectionFlux, content -> {
 			Flux<ChatResponse> nextFlux;
 			if (sqlGenerateSchemaMissingAdvice != null) {
 				log.debug("Adding tables from schema missing advice");
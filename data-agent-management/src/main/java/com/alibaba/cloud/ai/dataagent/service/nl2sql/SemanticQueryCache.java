@@ -0,0 +1,304 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.nl2sql;
+
+import com.alibaba.cloud.ai.dataagent.event.SchemaVectorsReplacedEvent;
+import com.alibaba.cloud.ai.dataagent.mapper.AgentDatasourceMapper;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.AiModelRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 问题到计划/SQL 的语义缓存。
+ * <p>
+ * 计划节点用改写后的规范化问题的向量，在同一智能体、同一数据源 Schema 版本、同一运行模式下查找历史成功运行，相似度不低于阈值且问题中的字面量
+ * （数字、日期、编号、引号内的文本）完全一致时复用其计划； 只差一个城市、日期或 ID 的问题向量往往非常接近，字面量不同时不能复用。复用计划的运行中，各 SQL
+ * 步骤直接使用该次运行成功执行过的 SQL，跳过 SQL 生成，但仍按本次问题做语义一致性校验。未命中的运行在计划全部执行完成后写入缓存。 数据源的 Schema
+ * 向量被替换时，该数据源的条目全部失效。
+ */
+@Slf4j
+@Service
+public class SemanticQueryCache {
+
+	/**
+	 * 问题中的字面量：引号内的文本、含数字的词（日期、编号、金额等）与中文数字
+	 */
+	private static final Pattern LITERAL = Pattern
+		.compile("[\"'“‘「『]([^\"'”’」』]+)[\"'”’」』]|[\\p{Alnum}_\\-./:]*\\d[\\p{Alnum}_\\-./:]*|[零〇一二两三四五六七八九十百千万亿]+");
+
+	private final AiModelRegistry aiModelRegistry;
+
+	private final AgentDatasourceMapper agentDatasourceMapper;
+
+	private final DataAgentProperties.SemanticCache properties;
+
+	private final MeterRegistry meterRegistry;
+
+	/**
+	 * 按智能体、数据源与运行模式划分的条目，最近写入的在前
+	 */
+	private final Map<String, LinkedList<Entry>> entries = new HashMap<>();
+
+	private final ConcurrentHashMap<Integer, Long> schemaVersions = new ConcurrentHashMap<>();
+
+	/**
+	 * 进行中的运行，按图运行 ID 索引
+	 */
+	private final ConcurrentHashMap<String, Run> runs = new ConcurrentHashMap<>();
+
+	public SemanticQueryCache(AiModelRegistry aiModelRegistry, AgentDatasourceMapper agentDatasourceMapper,
+			DataAgentProperties properties, MeterRegistry meterRegistry) {
+		this.aiModelRegistry = aiModelRegistry;
+		this.agentDatasourceMapper = agentDatasourceMapper;
+		this.properties = properties.getSemanticCache();
+		this.meterRegistry = meterRegistry;
+		meterRegistry.gauge("dataagent.semantic.cache.entries", this, cache -> cache.size());
+	}
+
+	/**
+	 * 为本次运行查找可复用的计划，并登记运行以便后续复用 SQL 或写入缓存
+	 * @param threadId 图运行 ID，为空时不使用缓存
+	 * @param agentId 智能体 ID
+	 * @param onlyNl2sql 是否为仅 NL2SQL 模式，两种模式的计划互不复用
+	 * @param canonicalQuery 改写后的规范化问题
+	 * @return 命中时返回缓存的计划 JSON
+	 */
+	public Optional<String> lookup(String threadId, String agentId, boolean onlyNl2sql, String canonicalQuery) {
+		if (!properties.isEnabled() || !StringUtils.hasText(threadId) || !StringUtils.hasText(agentId)
+				|| !StringUtils.hasText(canonicalQuery)) {
+			return Optional.empty();
+		}
+		evictExpiredRuns();
+		float[] embedding;
+		Integer datasourceId;
+		try {
+			datasourceId = agentDatasourceMapper.selectActiveDatasourceIdByAgentId(Long.valueOf(agentId));
+			if (datasourceId == null) {
+				return Optional.empty();
+			}
+			embedding = normalize(aiModelRegistry.getEmbeddingModel().embed(canonicalQuery));
+		}
+		catch (Exception e) {
+			log.warn("Semantic cache lookup skipped for threadId: {}: {}", threadId, e.getMessage());
+			record("error");
+			return Optional.empty();
+		}
+		String scope = agentId + ":" + datasourceId + ":" + (onlyNl2sql ? "nl2sql" : "plan");
+		long version = schemaVersions.getOrDefault(datasourceId, 0L);
+		Set<String> literals = literals(canonicalQuery);
+		Entry hit = find(scope, version, embedding, literals);
+		runs.put(threadId, new Run(scope, datasourceId, version, canonicalQuery, embedding, literals, hit,
+				System.currentTimeMillis()));
+		if (hit == null) {
+			record("miss");
+			return Optional.empty();
+		}
+		log.info("Semantic cache hit for query '{}', reusing plan of '{}'", canonicalQuery, hit.query());
+		record("hit");
+		return Optional.of(hit.plan());
+	}
+
+	/**
+	 * 本次运行复用的计划中，指定步骤成功执行过的 SQL
+	 */
+	public Optional<String> cachedSql(String threadId, int step) {
+		Run run = StringUtils.hasText(threadId) ? runs.get(threadId) : null;
+		if (run == null || run.hit() == null) {
+			return Optional.empty();
+		}
+		return Optional.ofNullable(run.hit().sqls().get(step));
+	}
+
+	/**
+	 * 记录本次运行中成功执行的 SQL
+	 */
+	public void recordSql(String threadId, int step, String sql) {
+		Run run = StringUtils.hasText(threadId) ? runs.get(threadId) : null;
+		if (run != null && run.hit() == null) {
+			run.sqls().put(step, sql);
+		}
+	}
+
+	/**
+	 * 计划全部执行完成，未命中的运行连同成功执行的 SQL 写入缓存
+	 */
+	public void complete(String threadId, String plan) {
+		Run run = StringUtils.hasText(threadId) ? runs.remove(threadId) : null;
+		if (run == null || run.hit() != null || !StringUtils.hasText(plan)) {
+			return;
+		}
+		if (schemaVersions.getOrDefault(run.datasourceId(), 0L) != run.schemaVersion()) {
+			log.debug("Schema of datasource {} changed during the run, not caching it", run.datasourceId());
+			return;
+		}
+		Entry entry = new Entry(run.datasourceId(), run.schemaVersion(), run.query(), run.embedding(), run.literals(),
+				plan, Map.copyOf(run.sqls()), System.currentTimeMillis());
+		synchronized (entries) {
+			LinkedList<Entry> scoped = entries.computeIfAbsent(run.scope(), k -> new LinkedList<>());
+			scoped.addFirst(entry);
+			while (scoped.size() > properties.getMaxEntriesPerAgent()) {
+				scoped.removeLast();
+			}
+		}
+	}
+
+	@EventListener
+	public void onSchemaVectorsReplaced(SchemaVectorsReplacedEvent event) {
+		invalidate(event.getDatasourceId());
+	}
+
+	/**
+	 * 数据源 Schema 变化，使其全部条目失效
+	 */
+	public void invalidate(Integer datasourceId) {
+		schemaVersions.merge(datasourceId, 1L, Long::sum);
+		int removed = 0;
+		synchronized (entries) {
+			for (LinkedList<Entry> scoped : entries.values()) {
+				int before = scoped.size();
+				scoped.removeIf(entry -> entry.datasourceId().equals(datasourceId));
+				removed += before - scoped.size();
+			}
+		}
+		log.info("Schema of datasource {} replaced, invalidated {} semantic cache entries", datasourceId, removed);
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.values().stream().mapToInt(List::size).sum();
+		}
+	}
+
+	private Entry find(String scope, long version, float[] embedding, Set<String> literals) {
+		long expiredBefore = System.currentTimeMillis() - properties.getTtlMs();
+		List<Entry> candidates;
+		synchronized (entries) {
+			LinkedList<Entry> scoped = entries.get(scope);
+			if (scoped == null) {
+				return null;
+			}
+			scoped.removeIf(entry -> entry.createdMillis() < expiredBefore);
+			candidates = new ArrayList<>(scoped);
+		}
+		Entry best = null;
+		double bestSimilarity = properties.getSimilarityThreshold();
+		for (Entry entry : candidates) {
+			if (entry.schemaVersion() != version || !entry.literals().equals(literals)) {
+				continue;
+			}
+			double similarity = dot(entry.embedding(), embedding);
+			if (similarity >= bestSimilarity) {
+				best = entry;
+				bestSimilarity = similarity;
+			}
+		}
+		return best;
+	}
+
+	private void evictExpiredRuns() {
+		long expiredBefore = System.currentTimeMillis() - properties.getRunTtlMs();
+		Iterator<Run> iterator = runs.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().startedMillis() < expiredBefore) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private void record(String result) {
+		meterRegistry.counter("dataagent.semantic.cache.requests", "result", result).increment();
+	}
+
+	/**
+	 * 提取问题中的字面量，忽略大小写，日期等分隔符保留原样
+	 */
+	static Set<String> literals(String query) {
+		Set<String> literals = new HashSet<>();
+		Matcher matcher = LITERAL.matcher(query);
+		while (matcher.find()) {
+			String literal = matcher.group(1) != null ? matcher.group(1).trim() : matcher.group();
+			if (!literal.isEmpty()) {
+				literals.add(literal.toLowerCase(Locale.ROOT));
+			}
+		}
+		return literals;
+	}
+
+	private static float[] normalize(float[] vector) {
+		double norm = 0;
+		for (float value : vector) {
+			norm += value * value;
+		}
+		norm = Math.sqrt(norm);
+		float[] normalized = new float[vector.length];
+		if (norm == 0) {
+			return normalized;
+		}
+		for (int i = 0; i < vector.length; i++) {
+			normalized[i] = (float) (vector[i] / norm);
+		}
+		return normalized;
+	}
+
+	/**
+	 * 归一化向量的点积即余弦相似度，维度不同（如更换了向量模型）时视为不相似
+	 */
+	private static double dot(float[] first, float[] second) {
+		if (first.length != second.length) {
+			return -1;
+		}
+		double sum = 0;
+		for (int i = 0; i < first.length; i++) {
+			sum += first[i] * second[i];
+		}
+		return sum;
+	}
+
+	private record Entry(Integer datasourceId, long schemaVersion, String query, float[] embedding,
+			Set<String> literals, String plan, Map<Integer, String> sqls, long createdMillis) {
+	}
+
+	private record Run(String scope, Integer datasourceId, long schemaVersion, String query, float[] embedding,
+			Set<String> literals, Entry hit, Map<Integer, String> sqls, long startedMillis) {
+
+		private Run(String scope, Integer datasourceId, long schemaVersion, String query, float[] embedding,
+				Set<String> literals, Entry hit, long startedMillis) {
+			this(scope, datasourceId, schemaVersion, query, embedding, literals, hit,
+					Collections.synchronizedMap(new HashMap<>()), startedMillis);
+		}
+
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.nl2sql;
+
+import com.alibaba.cloud.ai.dataagent.dto.prompt.SqlGenerationDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 计划第一个步骤的 SQL 提前生成。
+ * <p>
+ * 计划节点流式输出计划，第一个步骤解析完成后立即开始为其生成 SQL，与计划后续内容的生成并行。完整计划校验通过后，SQL 生成节点直接取走结果，不再调用模型。
+ * 计划校验失败、重新生成计划，或运行被停止、失败、结束时，未取走的提前生成会被丢弃，图状态中不会留下任何内容。
+ */
+@Slf4j
+@Service
+public class SpeculativeSqlService {
+
+	private final Nl2SqlService nl2SqlService;
+
+	private final DataAgentProperties.PlanExecution properties;
+
+	private final MeterRegistry meterRegistry;
+
+	private final ConcurrentHashMap<String, Speculation> pending = new ConcurrentHashMap<>();
+
+	public SpeculativeSqlService(Nl2SqlService nl2SqlService, DataAgentProperties properties,
+			MeterRegistry meterRegistry) {
+		this.nl2SqlService = nl2SqlService;
+		this.properties = properties.getPlanExecution();
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * 开始为计划步骤提前生成SQL，同一运行已有的提前生成会被取消
+	 * @param threadId 图运行 ID，为空时不提前生成
+	 * @param stepNumber 步骤序号
+	 * @param sqlGenerationDTO 与SQL生成节点为该步骤构造的参数一致
+	 */
+	public void start(String threadId, int stepNumber, SqlGenerationDTO sqlGenerationDTO) {
+		if (!properties.isSpeculativeFirstStep() || !StringUtils.hasText(threadId)
+				|| !StringUtils.hasText(sqlGenerationDTO.getExecutionDescription())) {
+			return;
+		}
+		evictExpired();
+		Sinks.One<String> sink = Sinks.one();
+		Disposable generation = nl2SqlService.generateSql(sqlGenerationDTO)
+			.collect(StringBuilder::new, StringBuilder::append)
+			.map(StringBuilder::toString)
+			.subscribe(sink::tryEmitValue, sink::tryEmitError);
+		Speculation previous = pending.put(threadId, new Speculation(stepNumber,
+				sqlGenerationDTO.getExecutionDescription(), sink.asMono(), generation, System.currentTimeMillis()));
+		if (previous != null) {
+			previous.generation().dispose();
+		}
+		log.debug("Started speculative SQL generation of step {} for threadId: {}", stepNumber, threadId);
+		record("started");
+	}
+
+	/**
+	 * 取走提前生成的SQL
+	 * @param threadId 图运行 ID
+	 * @param stepNumber 当前执行的步骤序号
+	 * @param instruction 校验通过的计划中该步骤的指令
+	 * @return 步骤与指令都一致时返回生成结果，生成仍在进行时结果在完成后发出；否则为空，由调用方正常生成
+	 */
+	public Optional<Mono<String>> take(String threadId, int stepNumber, String instruction) {
+		Speculation speculation = StringUtils.hasText(threadId) ? pending.get(threadId) : null;
+		if (speculation == null || speculation.stepNumber() != stepNumber || !pending.remove(threadId, speculation)) {
+			return Optional.empty();
+		}
+		if (!speculation.instruction().equals(instruction)) {
+			speculation.generation().dispose();
+			log.debug("Instruction of step {} changed, discarding speculative SQL", stepNumber);
+			record("mismatch");
+			return Optional.empty();
+		}
+		record("hit");
+		return Optional.of(speculation.sql());
+	}
+
+	/**
+	 * 丢弃运行中未取走的提前生成，计划校验失败、重新生成计划以及运行停止、失败或结束时调用
+	 * @param threadId 图运行 ID
+	 */
+	public void discard(String threadId) {
+		Speculation speculation = StringUtils.hasText(threadId) ? pending.remove(threadId) : null;
+		if (speculation != null) {
+			speculation.generation().dispose();
+			log.debug("Discarded speculative SQL of step {} for threadId: {}", speculation.stepNumber(), threadId);
+			record("discarded");
+		}
+	}
+
+	private void evictExpired() {
+		long expiredBefore = System.currentTimeMillis() - properties.getSpeculationTtlMs();
+		pending.entrySet().removeIf(entry -> {
+			if (entry.getValue().startedAtMillis() < expiredBefore) {
+				entry.getValue().generation().dispose();
+				record("expired");
+				return true;
+			}
+			return false;
+		});
+	}
+
+	private void record(String result) {
+		meterRegistry.counter("dataagent.plan.speculation", "result", result).increment();
+	}
+
+	private record Speculation(int stepNumber, String instruction, Mono<String> sql, Disposable generation,
+			long startedAtMillis) {
+	}
+
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.schema;
+
+import com.alibaba.cloud.ai.dataagent.mapper.AgentDatasourceMapper;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schema 预取。
+ * <p>
+ * 表与列的召回只需要一个大致的问题，因此在证据召回开始时就用原始问题发起，与问题改写并行执行。改写后的问题与原始问题足够接近时，Schema
+ * 召回节点直接复用预取结果，省去一次向量检索与元数据查询。预取在独立的有界线程池中执行，线程池饱和时放弃本次预取，不会回退到调用方线程执行。
+ */
+@Slf4j
+@Service
+public class SchemaPrefetchService {
+
+	private final SchemaService schemaService;
+
+	private final AgentDatasourceMapper agentDatasourceMapper;
+
+	private final ThreadPoolExecutor prefetchExecutor;
+
+	private final DataAgentProperties.SchemaPrefetch properties;
+
+	private final MeterRegistry meterRegistry;
+
+	private final ConcurrentHashMap<String, Prefetch> pending = new ConcurrentHashMap<>();
+
+	public SchemaPrefetchService(SchemaService schemaService, AgentDatasourceMapper agentDatasourceMapper,
+			DataAgentProperties properties, MeterRegistry meterRegistry) {
+		this.schemaService = schemaService;
+		this.agentDatasourceMapper = agentDatasourceMapper;
+		this.properties = properties.getSchemaPrefetch();
+		this.meterRegistry = meterRegistry;
+		int threads = Math.max(1, this.properties.getThreads());
+		AtomicInteger threadCounter = new AtomicInteger();
+		this.prefetchExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, this.properties.getQueueCapacity())), runnable -> {
+					Thread thread = new Thread(runnable, "schema-prefetch-" + threadCounter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		this.prefetchExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	public void close() {
+		prefetchExecutor.shutdownNow();
+	}
+
+	/**
+	 * 以原始问题开始预取
+	 * @param threadId 图运行 ID，为空时不预取
+	 * @param agentId 智能体 ID
+	 * @param query 用户原始问题
+	 */
+	public void prefetch(String threadId, String agentId, String query) {
+		if (!properties.isEnabled() || !StringUtils.hasText(threadId) || !StringUtils.hasText(query)) {
+			return;
+		}
+		evictExpired();
+		CompletableFuture<SchemaRecallResult> future;
+		try {
+			future = CompletableFuture.supplyAsync(() -> {
+				Integer datasourceId = agentDatasourceMapper.selectActiveDatasourceIdByAgentId(Long.valueOf(agentId));
+				if (datasourceId == null) {
+					return null;
+				}
+				return recall(datasourceId, query);
+			}, prefetchExecutor);
+		}
+		catch (RejectedExecutionException e) {
+			// 预取只是优化，线程池已满时放弃，召回节点会正常召回
+			log.debug("Schema prefetch executor is saturated, skipping prefetch for threadId: {}", threadId);
+			record("rejected");
+			return;
+		}
+		Prefetch previous = pending.put(threadId, new Prefetch(query, future, System.currentTimeMillis()));
+		if (previous != null) {
+			previous.future().cancel(false);
+		}
+		log.debug("Started schema prefetch for threadId: {}", threadId);
+	}
+
+	/**
+	 * 取走预取结果
+	 * @param threadId 图运行 ID
+	 * @param datasourceId 召回节点查询到的激活数据源
+	 * @param canonicalQuery 改写后的问题
+	 * @return 预取结果可复用时返回；数据源变化、问题差异过大、预取失败或超时时为空，由调用方重新召回
+	 */
+	public Optional<SchemaRecallResult> take(String threadId, Integer datasourceId, String canonicalQuery) {
+		Prefetch prefetch = StringUtils.hasText(threadId) ? pending.remove(threadId) : null;
+		if (prefetch == null) {
+			return Optional.empty();
+		}
+		double similarity = similarity(prefetch.query(), canonicalQuery);
+		if (similarity < properties.getMinQuerySimilarity()) {
+			prefetch.future().cancel(false);
+			log.debug("Canonical query diverged from raw question (similarity {}), discarding schema prefetch",
+					similarity);
+			record("diverged");
+			return Optional.empty();
+		}
+		try {
+			SchemaRecallResult result = prefetch.future().get(properties.getWaitTimeoutMs(), TimeUnit.MILLISECONDS);
+			if (result == null || !result.datasourceId().equals(datasourceId)) {
+				record("stale");
+				return Optional.empty();
+			}
+			record("hit");
+			return Optional.of(result);
+		}
+		catch (TimeoutException e) {
+			prefetch.future().cancel(false);
+			log.warn("Schema prefetch for threadId: {} did not finish in time", threadId);
+			record("timeout");
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			record("error");
+		}
+		catch (Exception e) {
+			log.warn("Schema prefetch for threadId: {} failed", threadId, e);
+			record("error");
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * 按问题召回表，再取召回表的全部列
+	 */
+	private SchemaRecallResult recall(Integer datasourceId, String query) {
+		List<Document> tableDocuments = new ArrayList<>(
+				schemaService.getTableDocumentsByDatasource(datasourceId, query));
+		List<String> tableNames = new ArrayList<>();
+		for (Document document : tableDocuments) {
+			String name = (String) document.getMetadata().get("name");
+			if (name != null && !name.isEmpty()) {
+				tableNames.add(name);
+			}
+		}
+		List<Document> columnDocuments = schemaService.getColumnDocumentsByTableName(datasourceId, tableNames);
+		return new SchemaRecallResult(datasourceId, tableDocuments, tableNames, columnDocuments);
+	}
+
+	private void evictExpired() {
+		long expiredBefore = System.currentTimeMillis() - properties.getTtlMs();
+		pending.entrySet().removeIf(entry -> {
+			if (entry.getValue().startedAtMillis() < expiredBefore) {
+				entry.getValue().future().cancel(false);
+				return true;
+			}
+			return false;
+		});
+	}
+
+	private void record(String result) {
+		meterRegistry.counter("dataagent.schema.prefetch", "result", result).increment();
+	}
+
+	/**
+	 * 两个问题的字符二元组 Dice 相似度，忽略大小写、空白与标点。按字符切分对中文同样适用
+	 */
+	static double similarity(String first, String second) {
+		Map<String, Integer> firstBigrams = bigrams(first);
+		Map<String, Integer> secondBigrams = bigrams(second);
+		int total = 0;
+		for (int count : firstBigrams.values()) {
+			total += count;
+		}
+		for (int count : secondBigrams.values()) {
+			total += count;
+		}
+		if (total == 0) {
+			return normalize(first).equals(normalize(second)) ? 1.0 : 0.0;
+		}
+		int shared = 0;
+		for (Map.Entry<String, Integer> entry : firstBigrams.entrySet()) {
+			shared += Math.min(entry.getValue(), secondBigrams.getOrDefault(entry.getKey(), 0));
+		}
+		return 2.0 * shared / total;
+	}
+
+	private static Map<String, Integer> bigrams(String text) {
+		String normalized = normalize(text);
+		Map<String, Integer> bigrams = new HashMap<>();
+		for (int i = 0; i + 1 < normalized.length(); i++) {
+			bigrams.merge(normalized.substring(i, i + 2), 1, Integer::sum);
+		}
+		return bigrams;
+	}
+
+	private static String normalize(String text) {
+		return text == null ? "" : text.toLowerCase().replaceAll("[\\p{Punct}\\p{IsPunctuation}\\s]+", "");
+	}
+
+	/**
+	 * 召回结果
+	 *
+	 * @param datasourceId 召回时的数据源
+	 * @param tableDocuments 召回的表文档
+	 * @param tableNames 召回的表名
+	 * @param columnDocuments 召回表的列文档
+	 */
+	public record SchemaRecallResult(Integer datasourceId, List<Document> tableDocuments, List<String> tableNames,
+			List<Document> columnDocuments) {
+	}
+
+	private record Prefetch(String query, CompletableFuture<SchemaRecallResult> future, long startedAtMillis) {
+	}
+
+}
@@ -29,6 +29,14 @@ public interface AgentVectorStoreService {
 	 */
 	List<Document> search(AgentSearchRequest searchRequest);
 
+	/**
+	 * 用同一组查询检索多种类型的文档，各类型使用各自的 topK 与相似度阈值。相同的查询只向量化一次，各类型并行检索；某个类型检索失败时该类型返回空列表。
+	 * 本方法阻塞到所有类型检索完成，须在可阻塞的线程上调用
+	 * @param searchRequests 每种文档类型一个请求，类型不能重复
+	 * @return 以文档类型为键、按请求顺序排列的检索结果
+	 */
+	Map<String, List<Document>> searchByTypes(List<AgentSearchRequest> searchRequests);
+
 	Boolean deleteDocumentsByVectorType(String agentId, String vectorType) throws Exception;
 
 	Boolean deleteDocumentsByMetadata(String agentId, Map<String, Object> metadata);
@@ -50,6 +58,11 @@ public interface AgentVectorStoreService {
 
 	List<Document> getDocumentsForAgent(String agentId, String query, String vectorType, int topK, double threshold);
 
+	/**
+	 * 使用全局默认配置检索多种类型的文档，见 {@link #searchByTypes(List)}
+	 */
+	Map<String, List<Document>> getDocumentsForAgent(String agentId, String query, List<String> vectorTypes);
+
 	/**
 	 * Execute a semantic search with an already-built metadata filter.
 	 */
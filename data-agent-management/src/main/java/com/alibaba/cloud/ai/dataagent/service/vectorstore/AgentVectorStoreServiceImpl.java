@@ -20,10 +20,14 @@ import com.alibaba.cloud.ai.dataagent.constant.DocumentMetadataConstant;
 import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import com.alibaba.cloud.ai.dataagent.dto.search.AgentSearchRequest;
 import com.alibaba.cloud.ai.dataagent.dto.search.HybridSearchRequest;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.ModelCallPriority;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.PinnedEmbeddingModel;
 import com.alibaba.cloud.ai.dataagent.service.hybrid.retrieval.HybridRetrievalStrategy;
 import com.alibaba.cloud.ai.dataagent.service.vector.MetadataDocumentRetriever;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.ai.vectorstore.VectorStore;
@@ -33,8 +37,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.StandardEnvironment;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static com.alibaba.cloud.ai.dataagent.service.vectorstore.DynamicFilterService.buildFilterExpressionString;
 
@@ -42,6 +50,11 @@ import static com.alibaba.cloud.ai.dataagent.service.vectorstore.DynamicFilterSe
 @Service
 public class AgentVectorStoreServiceImpl implements AgentVectorStoreService {
 
+	/**
+	 * 多类型检索中除第一个类型外的检索在此执行
+	 */
+	private static final Executor SEARCH_EXECUTOR = task -> Schedulers.boundedElastic().schedule(task);
+
 	private final VectorStore vectorStore;
 
 	private final Optional<HybridRetrievalStrategy> hybridRetrievalStrategy;
@@ -52,26 +65,121 @@ public class AgentVectorStoreServiceImpl implements AgentVectorStoreService {
 
 	private final MetadataDocumentRetriever metadataDocumentRetriever;
 
+	/**
+	 * 多类型检索前预先向量化查询；不是 {@link PinnedEmbeddingModel} 时由各类型检索各自向量化
+	 */
+	private final EmbeddingModel embeddingModel;
+
+	private final MeterRegistry meterRegistry;
+
 	@Autowired
 	public AgentVectorStoreServiceImpl(VectorStore vectorStore,
 			Optional<HybridRetrievalStrategy> hybridRetrievalStrategy, DataAgentProperties dataAgentProperties,
-			DynamicFilterService dynamicFilterService, MetadataDocumentRetriever metadataDocumentRetriever) {
+			DynamicFilterService dynamicFilterService, MetadataDocumentRetriever metadataDocumentRetriever,
+			EmbeddingModel embeddingModel, MeterRegistry meterRegistry) {
 		this.vectorStore = vectorStore;
 		this.hybridRetrievalStrategy = hybridRetrievalStrategy;
 		this.dataAgentProperties = dataAgentProperties;
 		this.dynamicFilterService = dynamicFilterService;
 		this.metadataDocumentRetriever = metadataDocumentRetriever;
+		this.embeddingModel = embeddingModel;
+		this.meterRegistry = meterRegistry;
 		log.info("VectorStore type: {}", vectorStore.getClass().getSimpleName());
 	}
 
 	AgentVectorStoreServiceImpl(VectorStore vectorStore, Optional<HybridRetrievalStrategy> hybridRetrievalStrategy,
-			DataAgentProperties dataAgentProperties, DynamicFilterService dynamicFilterService) {
+			DataAgentProperties dataAgentProperties, DynamicFilterService dynamicFilterService,
+			EmbeddingModel embeddingModel, MeterRegistry meterRegistry) {
 		this(vectorStore, hybridRetrievalStrategy, dataAgentProperties, dynamicFilterService,
-				new MetadataDocumentRetriever(new StandardEnvironment()));
+				new MetadataDocumentRetriever(new StandardEnvironment()), embeddingModel, meterRegistry);
 	}
 
 	@Override
 	public List<Document> search(AgentSearchRequest searchRequest) {
+		HybridSearchRequest hybridRequest = toHybridRequest(searchRequest);
+		return hybridRequest == null ? Collections.emptyList() : retrieve(searchRequest, hybridRequest);
+	}
+
+	@Override
+	public Map<String, List<Document>> searchByTypes(List<AgentSearchRequest> searchRequests) {
+		Assert.notEmpty(searchRequests, "Search requests cannot be empty.");
+		Assert.isTrue(
+				searchRequests.stream().map(AgentSearchRequest::getDocVectorType).distinct().count() == searchRequests
+					.size(),
+				"DocVectorType must be unique across search requests.");
+
+		// 过滤条件为空的类型没有可召回的文档，不检索
+		List<AgentSearchRequest> requests = new ArrayList<>();
+		List<HybridSearchRequest> hybridRequests = new ArrayList<>();
+		for (AgentSearchRequest searchRequest : searchRequests) {
+			HybridSearchRequest hybridRequest = toHybridRequest(searchRequest);
+			if (hybridRequest != null) {
+				requests.add(searchRequest);
+				hybridRequests.add(hybridRequest);
+			}
+		}
+		List<List<Document>> results = new ArrayList<>();
+		List<PinnedEmbeddingModel.Pin> pins = requests.size() > 1 ? pinQueries(requests) : List.of();
+		try {
+			// 其余类型在弹性线程池上检索，第一个类型在调用线程上检索，之后调用线程等待其余类型完成；整个方法是阻塞调用
+			List<CompletableFuture<List<Document>>> others = new ArrayList<>();
+			for (int i = 1; i < requests.size(); i++) {
+				int index = i;
+				others.add(CompletableFuture.supplyAsync(
+						() -> retrieveOrEmpty(requests.get(index), hybridRequests.get(index)), SEARCH_EXECUTOR));
+			}
+			if (!requests.isEmpty()) {
+				results.add(retrieveOrEmpty(requests.get(0), hybridRequests.get(0)));
+			}
+			others.forEach(future -> results.add(future.join()));
+		}
+		finally {
+			pins.forEach(PinnedEmbeddingModel.Pin::close);
+		}
+
+		Map<String, List<Document>> documentsByType = new LinkedHashMap<>();
+		searchRequests.forEach(searchRequest -> documentsByType.put(searchRequest.getDocVectorType(), List.of()));
+		for (int i = 0; i < requests.size(); i++) {
+			documentsByType.put(requests.get(i).getDocVectorType(), List.copyOf(results.get(i)));
+		}
+		return documentsByType;
+	}
+
+	/**
+	 * 在调用线程上向量化一次查询并在检索期间固定该向量，各类型的并行检索直接取用而不是各自调用向量模型，与查询向量缓存是否开启无关
+	 */
+	private List<PinnedEmbeddingModel.Pin> pinQueries(List<AgentSearchRequest> requests) {
+		if (!(embeddingModel instanceof PinnedEmbeddingModel pinnedEmbeddingModel)) {
+			return List.of();
+		}
+		List<PinnedEmbeddingModel.Pin> pins = new ArrayList<>();
+		requests.stream().map(AgentSearchRequest::getQuery).filter(StringUtils::hasText).distinct().forEach(query -> {
+			try {
+				pins.add(pinnedEmbeddingModel.pin(query));
+			}
+			catch (RuntimeException e) {
+				// 各类型检索会再次向量化并各自处理错误
+				log.debug("Failed to embed query before multi-type search: {}", e.getMessage());
+			}
+		});
+		return pins;
+	}
+
+	private List<Document> retrieveOrEmpty(AgentSearchRequest searchRequest, HybridSearchRequest hybridRequest) {
+		try {
+			List<Document> results = retrieve(searchRequest, hybridRequest);
+			return results == null ? List.of() : results;
+		}
+		catch (RuntimeException e) {
+			log.warn("Failed to search {} documents for agent {}; continuing with other types",
+					searchRequest.getDocVectorType(), searchRequest.getAgentId(), e);
+			meterRegistry.counter("dataagent.vector.search.failures", "type", searchRequest.getDocVectorType())
+				.increment();
+			return List.of();
+		}
+	}
+
+	private HybridSearchRequest toHybridRequest(AgentSearchRequest searchRequest) {
 		Assert.hasText(searchRequest.getAgentId(), "AgentId cannot be empty");
 		Assert.hasText(searchRequest.getDocVectorType(), "DocVectorType cannot be empty");
 
@@ -82,16 +190,18 @@ public class AgentVectorStoreServiceImpl implements AgentVectorStoreService {
 			log.warn(
 					"Dynamic filter returned null (no valid ids), returning empty result directly.AgentId: {}, VectorType: {}",
 					searchRequest.getAgentId(), searchRequest.getDocVectorType());
-			return Collections.emptyList();
+			return null;
 		}
 
-		HybridSearchRequest hybridRequest = HybridSearchRequest.builder()
+		return HybridSearchRequest.builder()
 			.query(searchRequest.getQuery())
 			.topK(searchRequest.getTopK())
 			.similarityThreshold(searchRequest.getSimilarityThreshold())
 			.filterExpression(filter)
 			.build();
+	}
 
+	private List<Document> retrieve(AgentSearchRequest searchRequest, HybridSearchRequest hybridRequest) {
 		if (dataAgentProperties.getVectorStore().isEnableHybridSearch() && hybridRetrievalStrategy.isPresent()) {
 			return hybridRetrievalStrategy.get().retrieve(hybridRequest);
 		}
@@ -100,7 +210,6 @@ public class AgentVectorStoreServiceImpl implements AgentVectorStoreService {
 		log.debug("Search completed with vectorType: {}, found {} documents for SearchRequest: {}",
 				searchRequest.getDocVectorType(), results.size(), searchRequest);
 		return results;
-
 	}
 
 	@Override
@@ -119,7 +228,8 @@ public class AgentVectorStoreServiceImpl implements AgentVectorStoreService {
 		Assert.notNull(agentId, "AgentId cannot be null.");
 		Assert.notEmpty(documents, "Documents cannot be empty.");
 		validateDocumentMetadata(agentId, documents);
-		vectorStore.add(documents);
+		// 入库向量化为后台调用，限流排队时让位于交互请求
+		ModelCallPriority.runInBackground(() -> vectorStore.add(documents));
 	}
 
 	private void validateDocumentMetadata(String ownerId, List<Document> documents) {
@@ -272,6 +382,22 @@ public class AgentVectorStoreServiceImpl implements AgentVectorStoreService {
 		return search(searchRequest);
 	}
 
+	@Override
+	public Map<String, List<Document>> getDocumentsForAgent(String agentId, String query, List<String> vectorTypes) {
+		int defaultTopK = dataAgentProperties.getVectorStore().getDefaultTopkLimit();
+		double defaultThreshold = dataAgentProperties.getVectorStore().getDefaultSimilarityThreshold();
+
+		return searchByTypes(vectorTypes.stream()
+			.map(vectorType -> AgentSearchRequest.builder()
+				.agentId(agentId)
+				.docVectorType(vectorType)
+				.query(query)
+				.topK(defaultTopK)
+				.similarityThreshold(defaultThreshold)
+				.build())
+			.toList());
+	}
+
 	@Override
 	public List<Document> similaritySearch(String query, Filter.Expression filterExpression, int topK,
 			double threshold) {
@@ -341,7 +467,7 @@ public class AgentVectorStoreServiceImpl implements AgentVectorStoreService {
 		List<String> newDocumentIds = replacementDocuments.stream().map(Document::getId).toList();
 		Set<String> newDocumentIdSet = new HashSet<>(newDocumentIds);
 		try {
-			vectorStore.add(replacementDocuments);
+			ModelCallPriority.runInBackground(() -> vectorStore.add(replacementDocuments));
 			List<String> oldDocumentIds = oldDocuments.stream()
 				.map(Document::getId)
 				.filter(id -> !newDocumentIdSet.contains(id))
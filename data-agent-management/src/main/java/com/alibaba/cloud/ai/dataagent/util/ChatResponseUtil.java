@@ -16,8 +16,11 @@
 package com.alibaba.cloud.ai.dataagent.util;
 
 import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.model.Generation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -26,6 +29,16 @@ import java.util.List;
  */
 public class ChatResponseUtil {
 
+	/**
+	 * 重新输出标记的元数据键
+	 */
+	public static final String RESTART_METADATA_KEY = "dataagent.output.restart";
+
+	/**
+	 * 重新输出标记中被丢弃文本长度的元数据键
+	 */
+	public static final String DISCARDED_CHARS_METADATA_KEY = "dataagent.output.discarded-chars";
+
 	public static ChatResponse createResponse(String statusMessage) {
 		return createPureResponse(statusMessage + "\n");
 	}
@@ -36,6 +49,48 @@ public class ChatResponseUtil {
 		return new ChatResponse(List.of(generation));
 	}
 
+	/**
+	 * 流式结构化输出未通过校验、即将重新输出时发出的标记，文本为空，聚合方收到后应丢弃此前收到的文本
+	 * @param discardedChars 被丢弃的上一次输出的字符数，前端据此撤回已展示的内容
+	 */
+	public static ChatResponse createRestartResponse(int discardedChars) {
+		return new ChatResponse(List.of(new Generation(new AssistantMessage(""))),
+				ChatResponseMetadata.builder()
+					.keyValue(RESTART_METADATA_KEY, true)
+					.keyValue(DISCARDED_CHARS_METADATA_KEY, discardedChars)
+					.build());
+	}
+
+	public static boolean isRestart(ChatResponse chatResponse) {
+		return chatResponse.getMetadata() != null
+				&& Boolean.TRUE.equals(chatResponse.getMetadata().get(RESTART_METADATA_KEY));
+	}
+
+	/**
+	 * 重新输出标记丢弃的字符数，非标记返回 0
+	 */
+	public static int getDiscardedChars(ChatResponse chatResponse) {
+		if (!isRestart(chatResponse)) {
+			return 0;
+		}
+		Object discarded = chatResponse.getMetadata().get(DISCARDED_CHARS_METADATA_KEY);
+		return discarded instanceof Number number ? number.intValue() : 0;
+	}
+
+	/**
+	 * 拼接流式响应的文本，遇到重新输出标记时丢弃此前的文本
+	 */
+	public static Mono<String> collectText(Flux<ChatResponse> responseFlux) {
+		return responseFlux.collect(StringBuilder::new, (builder, response) -> {
+			if (isRestart(response)) {
+				builder.setLength(0);
+			}
+			else {
+				builder.append(getText(response));
+			}
+		}).map(StringBuilder::toString);
+	}
+
 	public static String getText(ChatResponse chatResponse) {
 		Generation result = chatResponse.getResult();
 		if (result == null) {
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于定长字符块的流式文本聚合缓冲。
+ * <p>
+ * 流式输出的每个片段通常只有几个字符，逐个保留片段字符串时每个片段都要额外承担 String 与数组的对象头。这里把片段依次复制进字符块，片段本身随即可以回收；
+ * 字符块从较小的容量开始倍增，之后固定为 {@link #DEFAULT_BLOCK_CHARS}，已写满的块不再移动，只在读取完整文本时拼接一次。
+ * 超过字符上限后不再保留后续片段，只累计被截断的字符数，适用于只需要开头部分的追踪场景。
+ */
+public final class ChunkedTextBuffer {
+
+	/**
+	 * 单个字符块的最大字符数
+	 */
+	static final int DEFAULT_BLOCK_CHARS = 4096;
+
+	private static final int INITIAL_BLOCK_CHARS = 256;
+
+	private final int maxChars;
+
+	private final int blockChars;
+
+	private final List<char[]> blocks = new ArrayList<>();
+
+	/**
+	 * 最后一个字符块已写入的字符数
+	 */
+	private int lastBlockUsed;
+
+	private int chunkCount;
+
+	private long retainedChars;
+
+	private long truncatedChars;
+
+	/**
+	 * 创建不限长度的缓冲
+	 */
+	public ChunkedTextBuffer() {
+		this(-1);
+	}
+
+	/**
+	 * @param maxChars 保留的字符数上限，不大于 0 时不限制
+	 */
+	public ChunkedTextBuffer(int maxChars) {
+		this(maxChars, DEFAULT_BLOCK_CHARS);
+	}
+
+	ChunkedTextBuffer(int maxChars, int blockChars) {
+		this.maxChars = maxChars;
+		this.blockChars = Math.max(1, blockChars);
+	}
+
+	public synchronized void append(String chunk) {
+		if (chunk == null || chunk.isEmpty()) {
+			return;
+		}
+		if (maxChars > 0 && retainedChars >= maxChars) {
+			truncatedChars += chunk.length();
+			return;
+		}
+		int offset = 0;
+		while (offset < chunk.length()) {
+			int remaining = chunk.length() - offset;
+			char[] block = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+			if (block == null || lastBlockUsed == block.length) {
+				block = newBlock(block, remaining);
+			}
+			int count = Math.min(remaining, block.length - lastBlockUsed);
+			chunk.getChars(offset, offset + count, block, lastBlockUsed);
+			lastBlockUsed += count;
+			offset += count;
+		}
+		chunkCount++;
+		retainedChars += chunk.length();
+	}
+
+	private char[] newBlock(char[] previous, int remaining) {
+		int capacity = previous == null ? Math.max(INITIAL_BLOCK_CHARS, remaining) : previous.length * 2;
+		char[] block = new char[Math.min(capacity, blockChars)];
+		blocks.add(block);
+		lastBlockUsed = 0;
+		return block;
+	}
+
+	/**
+	 * 丢弃已收集的全部内容
+	 */
+	public synchronized void clear() {
+		blocks.clear();
+		lastBlockUsed = 0;
+		chunkCount = 0;
+		retainedChars = 0;
+		truncatedChars = 0;
+	}
+
+	/**
+	 * 保留的片段数
+	 */
+	public synchronized int chunkCount() {
+		return chunkCount;
+	}
+
+	synchronized int blockCount() {
+		return blocks.size();
+	}
+
+	/**
+	 * 保留的字符数
+	 */
+	public synchronized long retainedChars() {
+		return retainedChars;
+	}
+
+	/**
+	 * 字符块占用的字节数，按每个字符 2 字节计算，不含数组对象头
+	 */
+	public synchronized long allocatedBytes() {
+		long chars = 0;
+		for (char[] block : blocks) {
+			chars += block.length;
+		}
+		return chars * Character.BYTES;
+	}
+
+	/**
+	 * 超出上限被丢弃的字符数
+	 */
+	public synchronized long truncatedChars() {
+		return truncatedChars;
+	}
+
+	public synchronized boolean isTruncated() {
+		return truncatedChars > 0;
+	}
+
+	public synchronized boolean isEmpty() {
+		return retainedChars == 0;
+	}
+
+	/**
+	 * 拼接保留的全部内容
+	 */
+	@Override
+	public synchronized String toString() {
+		if (blocks.size() == 1) {
+			return new String(blocks.get(0), 0, lastBlockUsed);
+		}
+		StringBuilder text = new StringBuilder((int) retainedChars);
+		for (int i = 0; i < blocks.size(); i++) {
+			char[] block = blocks.get(i);
+			text.append(block, 0, i == blocks.size() - 1 ? lastBlockUsed : block.length);
+		}
+		return text.toString();
+	}
+
+}
@@ -21,6 +21,9 @@ import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.alibaba.cloud.ai.graph.streaming.OutputType;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.BaseUnits;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -90,20 +93,18 @@ public final class FluxUtil {
 		String nodeName = nodeClass.getSimpleName();
 
 		// Used to collect actual processing results
-		final StringBuilder collectedResult = new StringBuilder();
+		final ChunkedTextBuffer collectedResult = new ChunkedTextBuffer();
 
 		// wrapperFlux
 		Flux<ChatResponse> startFlux = (startMessage == null ? Flux.empty()
 				: Flux.just(ChatResponseUtil.createResponse(startMessage)));
-		Flux<ChatResponse> wrapperFlux = startFlux.concatWith(sourceFlux.doOnNext(chatResponse -> {
-			String text = ChatResponseUtil.getText(chatResponse);
-			collectedResult.append(text);
-		}));
+		Flux<ChatResponse> wrapperFlux = startFlux
+			.concatWith(sourceFlux.doOnNext(chatResponse -> collect(collectedResult, chatResponse)));
 		if (completionMessage != null) {
 			wrapperFlux = wrapperFlux.concatWith(Flux.just(ChatResponseUtil.createResponse(completionMessage)));
 		}
 		return toStreamingResponseFlux(nodeName, state, wrapperFlux,
-				() -> resultMapper.apply(collectedResult.toString()));
+				() -> resultMapper.apply(drain(nodeName, collectedResult)));
 	}
 
 	public static Flux<GraphResponse<StreamingOutput>> createStreamingGeneratorWithMessages(
@@ -127,10 +128,40 @@ public final class FluxUtil {
 			Function<String, Map<String, Object>> sourceMapper) {
 		String nodeName = nodeClass.getSimpleName();
 		// Used to collect actual processing results
-		final StringBuilder collectedResult = new StringBuilder();
-		sourceFlux = sourceFlux.doOnNext(r -> collectedResult.append(ChatResponseUtil.getText(r)));
+		final ChunkedTextBuffer collectedResult = new ChunkedTextBuffer();
+		sourceFlux = sourceFlux.doOnNext(r -> collect(collectedResult, r));
 		return toStreamingResponseFlux(nodeName, state, Flux.concat(preFlux, sourceFlux, sufFlux),
-				() -> sourceMapper.apply(collectedResult.toString()));
+				() -> sourceMapper.apply(drain(nodeName, collectedResult)));
+	}
+
+	/**
+	 * 收集一个输出片段，收到重新输出标记时丢弃此前收集的文本
+	 */
+	private static void collect(ChunkedTextBuffer collectedResult, ChatResponse chatResponse) {
+		if (ChatResponseUtil.isRestart(chatResponse)) {
+			collectedResult.clear();
+		}
+		else {
+			collectedResult.append(ChatResponseUtil.getText(chatResponse));
+		}
+	}
+
+	/**
+	 * 拼接节点的流式输出，并记录聚合的片段数、字符数与字符块占用的字节数
+	 */
+	private static String drain(String nodeName, ChunkedTextBuffer collectedResult) {
+		Metrics.summary("dataagent.node.output.chunks", "node", nodeName).record(collectedResult.chunkCount());
+		DistributionSummary.builder("dataagent.node.output.chars")
+			.baseUnit("chars")
+			.tag("node", nodeName)
+			.register(Metrics.globalRegistry)
+			.record(collectedResult.retainedChars());
+		DistributionSummary.builder("dataagent.node.output.allocated")
+			.baseUnit(BaseUnits.BYTES)
+			.tag("node", nodeName)
+			.register(Metrics.globalRegistry)
+			.record(collectedResult.allocatedBytes());
+		return collectedResult.toString();
 	}
 
 	private static Flux<GraphResponse<StreamingOutput>> toStreamingResponseFlux(String nodeName, OverAllState state,
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.util;
+
+import com.alibaba.cloud.ai.dataagent.dto.planner.ExecutionStep;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+/**
+ * 增量计划解析器。
+ * <p>
+ * 基于 Jackson 非阻塞解析器逐个消费计划流的 JSON 事件，{@code execution_plan} 数组中的每个步骤对象一闭合就反序列化并回调，
+ * 不必等整个计划输出完毕。开头的说明文字与 Markdown 代码块标记会被跳过，顶层对象结束后的内容被忽略。遇到非法 JSON 时停止解析，
+ * 之后不再回调，完整计划仍由调用方按原流程解析与校验。非线程安全，一个实例只解析一条计划流。
+ */
+@Slf4j
+public final class IncrementalPlanParser {
+
+	private static final String EXECUTION_PLAN_FIELD = "execution_plan";
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
+		.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+		.build();
+
+	private final BiConsumer<Integer, ExecutionStep> onStep;
+
+	private JsonParser parser;
+
+	private ByteArrayFeeder feeder;
+
+	/**
+	 * 当前嵌套深度，顶层对象内为 1
+	 */
+	private int depth;
+
+	private String topLevelField;
+
+	private boolean inExecutionPlan;
+
+	/**
+	 * 正在收集的步骤对象，为 null 表示不在步骤对象内
+	 */
+	private TokenBuffer stepBuffer;
+
+	private int emittedSteps;
+
+	/**
+	 * 上一片段末尾未配对的高位代理字符，与下一片段拼接后再编码
+	 */
+	private char pendingHighSurrogate;
+
+	private boolean finished;
+
+	/**
+	 * @param onStep 每个步骤对象闭合时的回调，参数为从 1 开始的步骤序号与步骤，在调用 {@link #feed(String)} 的线程上执行
+	 */
+	public IncrementalPlanParser(BiConsumer<Integer, ExecutionStep> onStep) {
+		this.onStep = onStep;
+	}
+
+	/**
+	 * 输入下一段计划文本
+	 * @param chunk 流式输出的文本片段
+	 */
+	public void feed(String chunk) {
+		if (finished || chunk == null || chunk.isEmpty()) {
+			return;
+		}
+		if (pendingHighSurrogate != 0) {
+			chunk = pendingHighSurrogate + chunk;
+			pendingHighSurrogate = 0;
+		}
+		if (Character.isHighSurrogate(chunk.charAt(chunk.length() - 1))) {
+			pendingHighSurrogate = chunk.charAt(chunk.length() - 1);
+			chunk = chunk.substring(0, chunk.length() - 1);
+		}
+		if (parser == null) {
+			int start = chunk.indexOf('{');
+			if (start < 0) {
+				return;
+			}
+			chunk = chunk.substring(start);
+		}
+		try {
+			if (parser == null) {
+				parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+				feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+			}
+			byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+			feeder.feedInput(bytes, 0, bytes.length);
+			JsonToken token;
+			while (!finished && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+				handle(token);
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			log.debug("Stopped incremental plan parsing: {}", e.getMessage());
+			close();
+		}
+	}
+
+	/**
+	 * @return 已回调的步骤数
+	 */
+	public int getEmittedSteps() {
+		return emittedSteps;
+	}
+
+	/**
+	 * @return 顶层对象已结束或遇到非法 JSON 后为 true，之后的输入会被忽略
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	private void handle(JsonToken token) throws IOException {
+		if (stepBuffer != null) {
+			stepBuffer.copyCurrentEvent(parser);
+		}
+		switch (token) {
+			case START_OBJECT, START_ARRAY -> {
+				if (token == JsonToken.START_OBJECT && inExecutionPlan && depth == 2 && stepBuffer == null) {
+					stepBuffer = new TokenBuffer(OBJECT_MAPPER, false);
+					stepBuffer.copyCurrentEvent(parser);
+				}
+				else if (token == JsonToken.START_ARRAY && depth == 1 && EXECUTION_PLAN_FIELD.equals(topLevelField)) {
+					inExecutionPlan = true;
+				}
+				depth++;
+			}
+			case END_OBJECT, END_ARRAY -> {
+				depth--;
+				if (depth == 2 && stepBuffer != null) {
+					emit();
+				}
+				else if (depth == 1 && inExecutionPlan) {
+					inExecutionPlan = false;
+				}
+				else if (depth == 0) {
+					close();
+				}
+			}
+			case FIELD_NAME -> {
+				if (depth == 1) {
+					topLevelField = parser.currentName();
+				}
+			}
+			default -> {
+			}
+		}
+	}
+
+	private void emit() throws IOException {
+		TokenBuffer buffer = stepBuffer;
+		stepBuffer = null;
+		ExecutionStep step;
+		try (JsonParser stepParser = buffer.asParser(OBJECT_MAPPER)) {
+			step = OBJECT_MAPPER.readValue(stepParser, ExecutionStep.class);
+		}
+		emittedSteps++;
+		onStep.accept(emittedSteps, step);
+	}
+
+	private void close() {
+		finished = true;
+		stepBuffer = null;
+		if (parser != null) {
+			try {
+				parser.close();
+			}
+			catch (IOException e) {
+				// 解析器只读内存中的输入，关闭失败无需处理
+			}
+		}
+	}
+
+}
@@ -20,6 +20,7 @@ import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Metrics;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatResponse;
@@ -30,7 +31,9 @@ import reactor.core.publisher.Flux;
 import java.util.Map;
 
 /**
- * JSON解析工具类，支持自动修复格式错误的JSON
+ * JSON解析工具类，支持自动修复格式错误的JSON。
+ * <p>
+ * 解析失败时先用 {@link LenientJsonRepair} 在本地修复常见格式问题，仍失败时才调用 LLM 修复。
  */
 @Slf4j
 @Component
@@ -79,21 +82,38 @@ public class JsonParseUtil {
 			return parser.parse(objectMapper, currentJson);
 		}
 		catch (JsonProcessingException e) {
-			log.warn("Initial parsing failed, preparing to call LLM: {}", e.getMessage());
+			lastException = e;
+			log.debug("Initial parsing failed, trying lenient repair: {}", e.getMessage());
 		}
 
+		String repaired = LenientJsonRepair.repair(currentJson);
+		if (repaired != null) {
+			try {
+				T result = parser.parse(objectMapper, repaired);
+				recordRepair("lenient", "success");
+				return result;
+			}
+			catch (JsonProcessingException e) {
+				log.debug("Lenient repair result still invalid: {}", e.getMessage());
+			}
+		}
+		recordRepair("lenient", "failure");
+		log.warn("Initial parsing failed, preparing to call LLM: {}", lastException.getMessage());
+
 		for (int i = 0; i < MAX_RETRY_COUNT; i++) {
 			try {
-				currentJson = callLlmToFix(currentJson,
-						lastException != null ? lastException.getMessage() : "Unknown error");
+				currentJson = callLlmToFix(currentJson, lastException.getMessage());
 
-				return parser.parse(objectMapper, currentJson);
+				T result = parser.parse(objectMapper, currentJson);
+				recordRepair("llm", "success");
+				return result;
 			}
 			catch (JsonProcessingException e) {
 				lastException = e;
 				log.warn("Still failed after {} fix attempt: {}", i + 1, e.getMessage());
 
 				if (i == MAX_RETRY_COUNT - 1) {
+					recordRepair("llm", "failure");
 					log.error("Finally failed after {} fix attempts", MAX_RETRY_COUNT);
 					log.debug("Last fix result: {}", currentJson);
 				}
@@ -104,6 +124,13 @@ public class JsonParseUtil {
 				String.format("Failed to parse JSON after %d LLM fix attempts", MAX_RETRY_COUNT), lastException);
 	}
 
+	/**
+	 * 记录修复结果，按修复方式统计成功率
+	 */
+	private static void recordRepair(String method, String result) {
+		Metrics.counter("dataagent.json.repairs", "method", method, "result", result).increment();
+	}
+
 	/**
 	 * 函数式接口，用于JSON解析
 	 */
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.util;
+
+import java.util.Arrays;
+
+/**
+ * 宽松 JSON 修复。
+ * <p>
+ * 单次扫描修正大模型输出中常见的格式问题，不调用模型：开头的说明文字与 Markdown 代码块标记、JSON 之后的多余内容、单引号字符串、
+ * 字符串中未转义的换行与引号、非法转义、未加引号的键与值、Python 风格的 True/False/None、多余的尾随逗号，以及被截断时缺失的引号与括号。
+ * 不做语义推断，修复结果仍需由调用方解析校验。
+ */
+public final class LenientJsonRepair {
+
+	private LenientJsonRepair() {
+	}
+
+	/**
+	 * 修复 JSON 文本
+	 * @param text 待修复文本
+	 * @return 修复后的文本；找不到 JSON 起始位置或无需修改时返回 null
+	 */
+	public static String repair(String text) {
+		if (text == null) {
+			return null;
+		}
+		int start = firstContainer(text);
+		if (start < 0) {
+			return null;
+		}
+		String repaired = new Repairer(text, start).run();
+		return repaired.equals(text) ? null : repaired;
+	}
+
+	private static int firstContainer(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '{' || c == '[') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static final class Repairer {
+
+		private final String text;
+
+		private final StringBuilder out;
+
+		/**
+		 * 未闭合的容器，按嵌套顺序保存 '{' 或 '['
+		 */
+		private char[] stack = new char[16];
+
+		private int depth;
+
+		/**
+		 * 最近一个对象键在输出中的结束位置，用于截断在键之后时补齐值
+		 */
+		private int keyEnd = -1;
+
+		private int pos;
+
+		private Repairer(String text, int start) {
+			this.text = text;
+			this.pos = start;
+			this.out = new StringBuilder(text.length() - start + 16);
+		}
+
+		private String run() {
+			while (pos < text.length()) {
+				char c = text.charAt(pos);
+				switch (c) {
+					case '{', '[' -> {
+						if (depth == stack.length) {
+							stack = Arrays.copyOf(stack, depth * 2);
+						}
+						stack[depth++] = c;
+						out.append(c);
+						pos++;
+					}
+					case '}', ']' -> {
+						pos++;
+						if (depth == 0) {
+							continue;
+						}
+						dropTrailing(',');
+						closeContainer();
+						if (depth == 0) {
+							// 顶层值已结束，忽略之后的说明文字与代码块标记
+							return out.toString();
+						}
+					}
+					case '"', '\'' -> readString(c);
+					case ',', ':' -> {
+						out.append(c);
+						pos++;
+					}
+					default -> {
+						if (Character.isWhitespace(c)) {
+							out.append(c);
+							pos++;
+						}
+						else if (c == '-' || Character.isDigit(c)) {
+							readNumber();
+						}
+						else if (Character.isLetter(c) || c == '_' || c == '$') {
+							readWord();
+						}
+						else {
+							// 无法识别的字符直接丢弃
+							pos++;
+						}
+					}
+				}
+			}
+			// 输出被截断：去掉悬空的逗号与冒号，补齐缺失的值与括号
+			trimTrailingWhitespace();
+			if (out.length() == keyEnd) {
+				out.append(':');
+			}
+			if (lastChar() == ':') {
+				out.append("null");
+			}
+			dropTrailing(',');
+			while (depth > 0) {
+				closeContainer();
+			}
+			return out.toString();
+		}
+
+		private void closeContainer() {
+			out.append(stack[--depth] == '{' ? '}' : ']');
+		}
+
+		private void readString(char quote) {
+			boolean key = atKeyPosition();
+			out.append('"');
+			pos++;
+			while (pos < text.length()) {
+				char c = text.charAt(pos++);
+				if (c == '\\') {
+					if (pos >= text.length()) {
+						break;
+					}
+					char escaped = text.charAt(pos++);
+					if (escaped == '\'') {
+						out.append('\'');
+					}
+					else if ("\"\\/bfnrtu".indexOf(escaped) >= 0) {
+						out.append('\\').append(escaped);
+					}
+					else {
+						out.append("\\\\").append(escaped);
+					}
+				}
+				else if (c == quote) {
+					if (closesString()) {
+						out.append('"');
+						keyEnd = key ? out.length() : -1;
+						return;
+					}
+					out.append(quote == '"' ? "\\\"" : "'");
+				}
+				else if (c == '"') {
+					out.append("\\\"");
+				}
+				else if (c == '\n') {
+					out.append("\\n");
+				}
+				else if (c == '\r') {
+					out.append("\\r");
+				}
+				else if (c == '\t') {
+					out.append("\\t");
+				}
+				else if (c < 0x20) {
+					out.append(String.format("\\u%04x", (int) c));
+				}
+				else {
+					out.append(c);
+				}
+			}
+			// 字符串被截断
+			out.append('"');
+		}
+
+		/**
+		 * 引号之后（跳过空白）是分隔符、容器结尾或文本结尾时视为字符串结束，否则视为字符串内容中未转义的引号
+		 */
+		private boolean closesString() {
+			for (int i = pos; i < text.length(); i++) {
+				char next = text.charAt(i);
+				if (!Character.isWhitespace(next)) {
+					return next == ',' || next == ':' || next == '}' || next == ']';
+				}
+			}
+			return true;
+		}
+
+		private void readNumber() {
+			int start = pos;
+			pos++;
+			while (pos < text.length() && "0123456789+-.eE".indexOf(text.charAt(pos)) >= 0) {
+				pos++;
+			}
+			out.append(text, start, pos);
+		}
+
+		private void readWord() {
+			boolean key = atKeyPosition();
+			int start = pos;
+			while (pos < text.length()) {
+				char c = text.charAt(pos);
+				if (!(Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '-')) {
+					break;
+				}
+				pos++;
+			}
+			String word = text.substring(start, pos);
+			switch (word) {
+				case "true", "false", "null" -> out.append(word);
+				case "True" -> out.append("true");
+				case "False" -> out.append("false");
+				case "None" -> out.append("null");
+				default -> {
+					out.append('"').append(word).append('"');
+					keyEnd = key ? out.length() : -1;
+				}
+			}
+		}
+
+		/**
+		 * 当前位置是否为对象的键：位于对象内且前一个非空白字符为 '{' 或 ','
+		 */
+		private boolean atKeyPosition() {
+			if (depth == 0 || stack[depth - 1] != '{') {
+				return false;
+			}
+			for (int i = out.length() - 1; i >= 0; i--) {
+				char c = out.charAt(i);
+				if (!Character.isWhitespace(c)) {
+					return c == '{' || c == ',';
+				}
+			}
+			return false;
+		}
+
+		private void dropTrailing(char c) {
+			int end = out.length();
+			while (end > 0 && Character.isWhitespace(out.charAt(end - 1))) {
+				end--;
+			}
+			if (end > 0 && out.charAt(end - 1) == c) {
+				out.setLength(end - 1);
+			}
+		}
+
+		private void trimTrailingWhitespace() {
+			int end = out.length();
+			while (end > 0 && Character.isWhitespace(out.charAt(end - 1))) {
+				end--;
+			}
+			out.setLength(end);
+		}
+
+		private char lastChar() {
+			return out.isEmpty() ? 0 : out.charAt(out.length() - 1);
+		}
+
+	}
+
+}
@@ -18,15 +18,20 @@ package com.alibaba.cloud.ai.dataagent.util;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.dataagent.dto.planner.ExecutionStep;
 import com.alibaba.cloud.ai.dataagent.dto.planner.Plan;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.ai.converter.BeanOutputConverter;
 import org.springframework.core.ParameterizedTypeReference;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.PLANNER_NODE_OUTPUT;
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.PLAN_CURRENT_STEP;
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.SQL_GENERATE_NODE;
 
 /**
  * util class for plan-based execution nodes Provides common functionality for nodes that
@@ -40,6 +45,8 @@ public final class PlanProcessUtil {
 
 	private static final String STEP_PREFIX = "step_";
 
+	private static final int STEP_RESULTS_MAX_CHARS = 8_000;
+
 	static {
 		converter = new BeanOutputConverter<>(new ParameterizedTypeReference<>() {
 		});
@@ -117,6 +124,99 @@ public final class PlanProcessUtil {
 		return state.value(PLAN_CURRENT_STEP, 1);
 	}
 
+	/**
+	 * Get the steps the given step depends on. Steps without an explicit
+	 * {@code depends_on} are treated as depending on the previous step, which keeps the
+	 * sequential behaviour of plans that do not declare dependencies.
+	 * @param step the execution step
+	 * @param stepNumber the position of the step in the plan, starting from 1
+	 * @return step numbers of the dependencies
+	 */
+	public static List<Integer> getDependencies(ExecutionStep step, int stepNumber) {
+		if (step.getDependsOn() != null) {
+			return step.getDependsOn();
+		}
+		return stepNumber > 1 ? List.of(stepNumber - 1) : List.of();
+	}
+
+	/**
+	 * Collect the consecutive SQL steps starting from the current step whose dependencies
+	 * have all been completed, so they can be executed concurrently
+	 * @param plan the plan object
+	 * @param currentStep current step
+	 * @return the ready SQL steps in step order, empty if the current step is not a SQL
+	 * step
+	 */
+	public static List<ExecutionStep> getReadySqlSteps(Plan plan, int currentStep) {
+		List<ExecutionStep> executionPlan = plan.getExecutionPlan();
+		List<ExecutionStep> readySteps = new ArrayList<>();
+		for (int stepNumber = currentStep; stepNumber <= executionPlan.size(); stepNumber++) {
+			ExecutionStep step = executionPlan.get(stepNumber - 1);
+			if (!SQL_GENERATE_NODE.equals(step.getToolToUse())) {
+				break;
+			}
+			boolean ready = getDependencies(step, stepNumber).stream()
+				.allMatch(dependency -> dependency != null && dependency < currentStep);
+			if (!ready) {
+				break;
+			}
+			readySteps.add(step);
+		}
+		return readySteps;
+	}
+
+	/**
+	 * Build the results of the given steps as context for SQL generation, truncated to
+	 * keep the prompt bounded
+	 * @param executionResults step results keyed by {@code step_N}
+	 * @param stepNumbers the steps to include, in order
+	 * @return the concatenated step results, or {@code 无} if none of them has a result
+	 */
+	public static String buildStepResults(Map<String, String> executionResults, Collection<Integer> stepNumbers) {
+		StringBuilder context = new StringBuilder();
+		for (Integer stepNumber : stepNumbers) {
+			String stepKey = STEP_PREFIX + stepNumber;
+			String stepResult = executionResults.get(stepKey);
+			if (StringUtils.isBlank(stepResult)) {
+				continue;
+			}
+
+			String section = stepKey + ":\n" + stepResult.trim() + "\n";
+			int remaining = STEP_RESULTS_MAX_CHARS - context.length();
+			if (section.length() > remaining) {
+				context.append(section, 0, Math.max(remaining, 0)).append("\n...(历史结果已截断)");
+				break;
+			}
+			context.append(section);
+		}
+		return context.isEmpty() ? "无" : context.toString().trim();
+	}
+
+	/**
+	 * Record the executed SQL of the given steps in the plan, so that later nodes such as
+	 * the report generator can read it from {@code sql_query}
+	 * @param state the overall state containing plan information
+	 * @param sqlQueries executed SQL keyed by step number
+	 * @return the updated plan to store as {@code PLANNER_NODE_OUTPUT}
+	 * @throws IllegalStateException if the plan cannot be parsed or serialized
+	 */
+	public static String recordSqlQueries(OverAllState state, Map<Integer, String> sqlQueries) {
+		Plan plan = getPlan(state);
+		sqlQueries.forEach((stepNumber, sql) -> {
+			ExecutionStep step = getCurrentExecutionStep(plan, stepNumber);
+			if (step.getToolParameters() == null) {
+				step.setToolParameters(new ExecutionStep.ToolParameters());
+			}
+			step.getToolParameters().setSqlQuery(sql);
+		});
+		try {
+			return JsonUtil.getObjectMapper().writeValueAsString(plan);
+		}
+		catch (JsonProcessingException e) {
+			throw new IllegalStateException("计划序列化失败", e);
+		}
+	}
+
 	/**
 	 * Add step result
 	 * @param existingResults existing result collection
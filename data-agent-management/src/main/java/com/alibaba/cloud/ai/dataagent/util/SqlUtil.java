@@ -20,9 +20,11 @@ import com.alibaba.druid.sql.SQLUtils;
 import com.alibaba.druid.sql.ast.SQLStatement;
 import com.alibaba.druid.sql.ast.expr.SQLVariantRefExpr;
 import com.alibaba.druid.sql.visitor.SQLASTVisitorAdapter;
+import com.alibaba.cloud.ai.dataagent.dto.datasource.SqlRetryDto;
 import com.alibaba.cloud.ai.dataagent.enums.BizDataSourceTypeEnum;
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 
 import java.util.List;
 import java.util.Locale;
@@ -98,6 +100,26 @@ public class SqlUtil {
 		return Optional.empty();
 	}
 
+	/**
+	 * 判断执行失败后重新生成的 SQL 是否与失败的 SQL 相同，相同时继续重试只会重复同一个错误
+	 * @param retryDto 重新生成的原因
+	 * @param failedSql 失败的 SQL
+	 * @param generatedSql 重新生成的 SQL
+	 * @return 因执行失败而重新生成且结果未变化时为 true
+	 */
+	public static boolean isUnchangedExecutionRetry(SqlRetryDto retryDto, String failedSql, String generatedSql) {
+		return retryDto.sqlExecuteFail() && StringUtils.isNotBlank(failedSql) && StringUtils.isNotBlank(generatedSql)
+				&& normalizeSql(failedSql).equals(normalizeSql(generatedSql));
+	}
+
+	private static String normalizeSql(String sql) {
+		String normalized = sql.strip();
+		while (normalized.endsWith(";")) {
+			normalized = normalized.substring(0, normalized.length() - 1).stripTrailing();
+		}
+		return normalized;
+	}
+
 	private static boolean containsUnresolvedPlaceholder(SQLStatement statement) {
 		boolean[] found = { false };
 		statement.accept(new SQLASTVisitorAdapter() {
@@ -82,7 +82,7 @@ public class StateUtil {
 	/**
 	 * Handle deserialization of HashMap to target type when needed
 	 */
-	private static <T> T deserializeIfNeeded(Object value, Class<T> type) {
+	public static <T> T deserializeIfNeeded(Object value, Class<T> type) {
 		// If already the correct type, return as-is
 		if (type.isInstance(value)) {
 			return type.cast(value);
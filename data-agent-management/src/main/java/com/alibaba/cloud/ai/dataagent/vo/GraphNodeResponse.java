@@ -46,6 +46,12 @@ public class GraphNodeResponse {
 
 	private String text;
 
+	// 排队等待执行时的队列位置，从 1 开始
+	private Integer queuePosition;
+
+	// 重新输出时需要撤回的字符数
+	private Integer discardedChars;
+
 	@Builder.Default
 	private boolean error = false;
 
@@ -71,6 +77,17 @@ public class GraphNodeResponse {
 			.build();
 	}
 
+	public static GraphNodeResponse queued(String agentId, String threadId, int position) {
+		return GraphNodeResponse.builder()
+			.agentId(agentId)
+			.threadId(threadId)
+			.eventType(GraphEventType.QUEUED)
+			.textType(TextType.TEXT)
+			.text("queued, position " + position)
+			.queuePosition(position)
+			.build();
+	}
+
 	public static GraphNodeResponse finalAnswer(String agentId, String threadId, String text) {
 		return GraphNodeResponse.builder()
 			.agentId(agentId)
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.workflow.dispatcher;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.action.EdgeAction;
+import com.alibaba.cloud.ai.dataagent.util.StateUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
+import static com.alibaba.cloud.ai.graph.StateGraph.END;
+
+/**
+ * 并行SQL步骤执行完成后的路由：全部成功时回到 PlanExecutorNode，存在超出重试次数的步骤时结束流程
+ */
+@Slf4j
+public class ParallelSqlExecuteDispatcher implements EdgeAction {
+
+	@Override
+	public String apply(OverAllState state) {
+		String sqlGenerateOutput = StateUtil.getStringValue(state, SQL_GENERATE_OUTPUT, END);
+		if (END.equals(sqlGenerateOutput)) {
+			log.error("并行SQL步骤执行失败，结束流程");
+			return END;
+		}
+		log.info("并行SQL步骤执行成功，返回PlanExecutorNode。");
+		return PLAN_EXECUTOR_NODE;
+	}
+
+}
@@ -22,7 +22,9 @@ import com.alibaba.cloud.ai.dataagent.dto.prompt.EvidenceQueryRewriteDTO;
 import com.alibaba.cloud.ai.dataagent.entity.AgentKnowledge;
 import com.alibaba.cloud.ai.dataagent.mapper.AgentKnowledgeMapper;
 import com.alibaba.cloud.ai.dataagent.prompt.PromptHelper;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
+import com.alibaba.cloud.ai.dataagent.service.schema.SchemaPrefetchService;
 import com.alibaba.cloud.ai.dataagent.service.vectorstore.AgentVectorStoreService;
 import com.alibaba.cloud.ai.dataagent.util.*;
 import com.alibaba.cloud.ai.graph.GraphResponse;
@@ -58,6 +60,8 @@ public class EvidenceRecallNode implements NodeAction {
 
 	private final AgentKnowledgeMapper agentKnowledgeMapper;
 
+	private final SchemaPrefetchService schemaPrefetchService;
+
 	@Override
 	public Map<String, Object> apply(OverAllState state) throws Exception {
 
@@ -66,6 +70,9 @@ public class EvidenceRecallNode implements NodeAction {
 		String agentId = StateUtil.getStringValue(state, AGENT_ID);
 		Assert.hasText(agentId, "Agent ID cannot be empty.");
 
+		// 表召回不依赖改写后的问题，先用原始问题预取，与证据召回、问题改写并行
+		schemaPrefetchService.prefetch(StateUtil.getStringValue(state, TRACE_THREAD_ID, null), agentId, question);
+
 		log.debug("Rewriting query before getting evidence in question: {}", question);
 		log.debug("Agent ID: {}", agentId);
 
@@ -77,7 +84,8 @@ public class EvidenceRecallNode implements NodeAction {
 		log.debug("Built evidence-query-rewrite prompt as follows \n {} \n", prompt);
 
 		// 调用LLM进行查询重写
-		Flux<ChatResponse> responseFlux = llmService.callUser(prompt);
+		Flux<ChatResponse> responseFlux = llmService.callUser(prompt)
+			.contextWrite(LlmCallScope.of(EVIDENCE_RECALL_NODE));
 		Sinks.Many<String> evidenceDisplaySink = Sinks.many().multicast().onBackpressureBuffer();
 
 		final Map<String, Object> resultMap = new HashMap<>();
@@ -149,13 +157,13 @@ public class EvidenceRecallNode implements NodeAction {
 	}
 
 	private DocumentRetrievalResult retrieveDocuments(String agentId, String standaloneQuery) {
-		// 获取业务知识文档
-		List<Document> businessTermDocuments = retrieveDocuments(agentId, standaloneQuery,
-				DocumentMetadataConstant.BUSINESS_TERM);
-
-		// 获取智能体知识文档
-		List<Document> agentKnowledgeDocuments = retrieveDocuments(agentId, standaloneQuery,
-				DocumentMetadataConstant.AGENT_KNOWLEDGE);
+		// 业务知识与智能体知识共用一次查询向量化，并行检索
+		Map<String, List<Document>> documentsByType = retrieveDocuments(agentId, standaloneQuery,
+				List.of(DocumentMetadataConstant.BUSINESS_TERM, DocumentMetadataConstant.AGENT_KNOWLEDGE));
+		List<Document> businessTermDocuments = documentsByType.getOrDefault(DocumentMetadataConstant.BUSINESS_TERM,
+				List.of());
+		List<Document> agentKnowledgeDocuments = documentsByType.getOrDefault(DocumentMetadataConstant.AGENT_KNOWLEDGE,
+				List.of());
 
 		// 合并所有证据文档
 		List<Document> allDocuments = new ArrayList<>();
@@ -171,15 +179,23 @@ public class EvidenceRecallNode implements NodeAction {
 		return new DocumentRetrievalResult(businessTermDocuments, agentKnowledgeDocuments, allDocuments);
 	}
 
-	private List<Document> retrieveDocuments(String agentId, String standaloneQuery, String vectorType) {
+	private Map<String, List<Document>> retrieveDocuments(String agentId, String standaloneQuery,
+			List<String> vectorTypes) {
 		try {
-			List<Document> documents = vectorStoreService.getDocumentsForAgent(agentId, standaloneQuery, vectorType);
-			return documents == null ? List.of() : List.copyOf(documents);
+			Map<String, List<Document>> documentsByType = vectorStoreService.getDocumentsForAgent(agentId,
+					standaloneQuery, vectorTypes);
+			if (documentsByType == null) {
+				return Map.of();
+			}
+			Map<String, List<Document>> result = new HashMap<>();
+			documentsByType
+				.forEach((type, documents) -> result.put(type, documents == null ? List.of() : List.copyOf(documents)));
+			return result;
 		}
 		catch (Exception e) {
-			log.warn("Failed to retrieve {} documents for agent {}; continuing with other evidence sources", vectorType,
-					agentId, e);
-			return List.of();
+			log.warn("Failed to retrieve {} documents for agent {}; continuing with other evidence sources",
+					vectorTypes, agentId, e);
+			return Map.of();
 		}
 	}
 
@@ -22,6 +22,9 @@ import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import com.alibaba.cloud.ai.dataagent.prompt.PromptHelper;
+import com.alibaba.cloud.ai.dataagent.prompt.SchemaPromptCompactor;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import com.alibaba.cloud.ai.dataagent.util.FluxUtil;
 import com.alibaba.cloud.ai.dataagent.util.StateUtil;
@@ -48,13 +51,17 @@ public class FeasibilityAssessmentNode implements NodeAction {
 
 	private final LlmService llmService;
 
+	private final StateValueOffloader stateValueOffloader;
+
+	private final SchemaPromptCompactor schemaPromptCompactor;
+
 	@Override
 	public Map<String, Object> apply(OverAllState state) throws Exception {
 		// 获取canonical_query
 		String canonicalQuery = StateUtil.getCanonicalQuery(state);
 
 		// 获取召回的Schema
-		SchemaDTO recalledSchema = StateUtil.getObjectValue(state, TABLE_RELATION_OUTPUT, SchemaDTO.class);
+		SchemaDTO recalledSchema = stateValueOffloader.getObjectValue(state, TABLE_RELATION_OUTPUT, SchemaDTO.class);
 
 		// 获取证据信息
 		String evidence = StateUtil.getStringValue(state, EVIDENCE);
@@ -63,11 +70,12 @@ public class FeasibilityAssessmentNode implements NodeAction {
 
 		// 构建可行性评估提示词
 		String prompt = PromptHelper.buildFeasibilityAssessmentPrompt(canonicalQuery, recalledSchema, evidence,
-				multiTurn);
+				multiTurn, schemaPromptCompactor);
 		log.debug("Built feasibility assessment prompt as follows \n {} \n", prompt);
 
 		// 调用LLM进行可行性评估
-		Flux<ChatResponse> responseFlux = llmService.callUser(prompt, FeasibilityAssessmentOutputDTO.class);
+		Flux<ChatResponse> responseFlux = llmService.callUser(prompt, FeasibilityAssessmentOutputDTO.class)
+			.contextWrite(LlmCallScope.of(FEASIBILITY_ASSESSMENT_NODE));
 
 		Flux<GraphResponse<StreamingOutput>> generator = FluxUtil.createStreamingGeneratorWithMessages(this.getClass(),
 				state, "正在进行可行性评估...", "可行性评估完成！", llmOutput -> {
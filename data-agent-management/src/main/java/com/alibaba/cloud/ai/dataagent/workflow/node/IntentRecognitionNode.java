@@ -22,6 +22,7 @@ import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import com.alibaba.cloud.ai.dataagent.prompt.PromptHelper;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
 import com.alibaba.cloud.ai.dataagent.util.FluxUtil;
@@ -65,7 +66,8 @@ public class IntentRecognitionNode implements NodeAction {
 		log.debug("Built intent recognition prompt as follows \n {} \n", prompt);
 
 		// 调用LLM进行意图识别
-		Flux<ChatResponse> responseFlux = llmService.callUser(prompt, IntentRecognitionOutputDTO.class);
+		Flux<ChatResponse> responseFlux = llmService.callUser(prompt, IntentRecognitionOutputDTO.class)
+			.contextWrite(LlmCallScope.of(INTENT_RECOGNITION_NODE));
 
 		Flux<GraphResponse<StreamingOutput>> generator = FluxUtil.createStreamingGenerator(this.getClass(), state,
 				responseFlux,
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.workflow.node;
+
+import com.alibaba.cloud.ai.dataagent.bo.DbConfigBO;
+import com.alibaba.cloud.ai.dataagent.bo.schema.ResultSetBO;
+import com.alibaba.cloud.ai.dataagent.connector.accessor.Accessor;
+import com.alibaba.cloud.ai.dataagent.dto.datasource.SqlRetryDto;
+import com.alibaba.cloud.ai.dataagent.dto.planner.ExecutionStep;
+import com.alibaba.cloud.ai.dataagent.dto.planner.Plan;
+import com.alibaba.cloud.ai.dataagent.dto.prompt.SemanticConsistencyDTO;
+import com.alibaba.cloud.ai.dataagent.dto.prompt.SemanticConsistencyOutputDTO;
+import com.alibaba.cloud.ai.dataagent.dto.prompt.SqlGenerationDTO;
+import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
+import com.alibaba.cloud.ai.dataagent.enums.TextType;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.Nl2SqlService;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SemanticQueryCache;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SpeculativeSqlService;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SqlStepService;
+import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
+import com.alibaba.cloud.ai.dataagent.util.DatabaseUtil;
+import com.alibaba.cloud.ai.dataagent.util.FluxUtil;
+import com.alibaba.cloud.ai.dataagent.util.JsonUtil;
+import com.alibaba.cloud.ai.dataagent.util.PlanProcessUtil;
+import com.alibaba.cloud.ai.dataagent.util.SqlUtil;
+import com.alibaba.cloud.ai.dataagent.util.StateUtil;
+import com.alibaba.cloud.ai.graph.GraphResponse;
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.StateGraph;
+import com.alibaba.cloud.ai.graph.action.NodeAction;
+import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
+
+/**
+ * Executes consecutive independent SQL steps of the plan concurrently.
+ *
+ * <p>
+ * Each step runs the same generate, semantic consistency and execute pipeline as the
+ * sequential SQL nodes, including the retry limit, with at most
+ * {@code plan-execution.max-parallel-sql-steps} steps in flight. Results are merged into
+ * {@code SQL_EXECUTE_NODE_OUTPUT} in step order, so the batch costs as long as its
+ * slowest step instead of the sum of all steps. Chart configuration and the executed SQL
+ * recorded in the plan go through {@link SqlStepService}, the same as for sequential
+ * steps.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor
+public class ParallelSqlExecuteNode implements NodeAction {
+
+	private final Nl2SqlService nl2SqlService;
+
+	private final DatabaseUtil databaseUtil;
+
+	private final DataAgentProperties properties;
+
+	private final StateValueOffloader stateValueOffloader;
+
+	private final SemanticQueryCache semanticQueryCache;
+
+	private final SpeculativeSqlService speculativeSqlService;
+
+	private final SqlStepService sqlStepService;
+
+	@Override
+	public Map<String, Object> apply(OverAllState state) throws Exception {
+		Plan plan = PlanProcessUtil.getPlan(state);
+		int currentStep = PlanProcessUtil.getCurrentStepNumber(state);
+		List<ExecutionStep> steps = PlanProcessUtil.getReadySqlSteps(plan, currentStep);
+		if (steps.isEmpty()) {
+			throw new IllegalStateException("No ready SQL step at step " + currentStep);
+		}
+
+		String agentIdStr = StateUtil.getStringValue(state, AGENT_ID);
+		if (StringUtils.isBlank(agentIdStr)) {
+			throw new IllegalStateException("Agent ID cannot be empty.");
+		}
+		Long agentId = Long.valueOf(agentIdStr);
+		DbConfigBO dbConfig = databaseUtil.getAgentDbConfig(agentId);
+		Accessor dbAccessor = databaseUtil.getAgentAccessor(agentId);
+
+		@SuppressWarnings("unchecked")
+		Map<String, String> existingResults = stateValueOffloader.getObjectValue(state, SQL_EXECUTE_NODE_OUTPUT,
+				Map.class, new HashMap<>());
+		SchemaDTO schemaDTO = stateValueOffloader.getObjectValue(state, TABLE_RELATION_OUTPUT, SchemaDTO.class);
+		StepContext context = new StepContext(StateUtil.getStringValue(state, TRACE_THREAD_ID, null),
+				StateUtil.getStringValue(state, EVIDENCE), schemaDTO, StateUtil.getCanonicalQuery(state),
+				StateUtil.getStringValue(state, DB_DIALECT_TYPE), state.value(IS_ONLY_NL2SQL, false), existingResults,
+				dbConfig, dbAccessor);
+
+		int parallelism = Math.max(1, properties.getPlanExecution().getMaxParallelSqlSteps());
+		AtomicReferenceArray<StepOutcome> outcomes = new AtomicReferenceArray<>(steps.size());
+		// 各步骤的展示内容（含图表配置生成）并发产生，按步骤顺序输出
+		Flux<ChatResponse> displayFlux = Flux.range(0, steps.size())
+			.flatMapSequential(index -> runStep(steps.get(index), currentStep + index, context)
+				.doOnNext(outcome -> outcomes.set(index, outcome))
+				.flatMapMany(outcome -> stepResponses(outcome, context)), parallelism);
+
+		String startMessage = String.format("步骤%d至步骤%d互不依赖，开始并行执行%d条SQL...", currentStep,
+				currentStep + steps.size() - 1, steps.size());
+		Flux<GraphResponse<StreamingOutput>> generator = FluxUtil.createStreamingGeneratorWithMessages(this.getClass(),
+				state, startMessage, "并行SQL执行完成", v -> buildResult(state, existingResults, currentStep, outcomes),
+				displayFlux);
+		return Map.of(SQL_EXECUTE_NODE_OUTPUT, generator);
+	}
+
+	private Map<String, Object> buildResult(OverAllState state, Map<String, String> existingResults, int currentStep,
+			AtomicReferenceArray<StepOutcome> stepOutcomes) {
+		List<StepOutcome> outcomes = new ArrayList<>();
+		for (int i = 0; i < stepOutcomes.length(); i++) {
+			outcomes.add(stepOutcomes.get(i));
+		}
+		Map<String, Object> result = new HashMap<>();
+		Map<String, String> updatedResults = existingResults;
+		Map<Integer, String> executedSqls = new HashMap<>();
+		for (StepOutcome outcome : outcomes) {
+			if (outcome != null && outcome.resultJson() != null) {
+				updatedResults = PlanProcessUtil.addStepResult(updatedResults, outcome.stepNumber(),
+						outcome.resultJson());
+				executedSqls.put(outcome.stepNumber(), outcome.sql());
+			}
+		}
+		result.put(SQL_EXECUTE_NODE_OUTPUT, stateValueOffloader.offloadEntries(updatedResults));
+		result.put(SQL_GENERATE_COUNT, 0);
+		result.put(SQL_REGENERATE_REASON, SqlRetryDto.empty());
+		if (!executedSqls.isEmpty()) {
+			result.put(PLANNER_NODE_OUTPUT, PlanProcessUtil.recordSqlQueries(state, executedSqls));
+		}
+
+		Optional<StepOutcome> failed = outcomes.stream()
+			.filter(outcome -> outcome == null || outcome.resultJson() == null)
+			.findFirst();
+		if (failed.isPresent() || outcomes.isEmpty()) {
+			// 与顺序执行超出重试次数时一致，结束流程
+			result.put(SQL_GENERATE_OUTPUT, StateGraph.END);
+			return result;
+		}
+		StepOutcome last = outcomes.get(outcomes.size() - 1);
+		result.put(SQL_GENERATE_OUTPUT, last.sql());
+		result.put(SQL_RESULT_LIST_MEMORY, stateValueOffloader.offload(last.resultSet().getData()));
+		result.put(PLAN_CURRENT_STEP, currentStep + outcomes.size());
+		return result;
+	}
+
+	private Mono<StepOutcome> runStep(ExecutionStep step, int stepNumber, StepContext context) {
+		return attempt(step, stepNumber, context, null, SqlRetryDto.empty(), 0).onErrorResume(e -> {
+			log.error("Parallel SQL step {} failed", stepNumber, e);
+			return Mono.just(StepOutcome.failed(stepNumber, null, e.getMessage()));
+		});
+	}
+
+	private Mono<StepOutcome> attempt(ExecutionStep step, int stepNumber, StepContext context, String failedSql,
+			SqlRetryDto retryDto, int count) {
+		if (count >= properties.getMaxSqlRetryCount()) {
+			String reason = String.format("步骤[%d]中，SQL次数生成超限，最大尝试次数：%d，最后一次失败原因：%s", stepNumber,
+					properties.getMaxSqlRetryCount(), retryDto.reason());
+			return Mono.just(StepOutcome.failed(stepNumber, failedSql, reason));
+		}
+		String instruction = step.getToolParameters().getInstruction();
+		if (count == 0) {
+			Optional<String> cachedSql = semanticQueryCache.cachedSql(context.threadId(), stepNumber);
+			if (cachedSql.isPresent()) {
+				// 相似问题已成功执行过的SQL无需再生成，但仍按本次问题校验；校验或执行失败时回到正常的生成流程
+				String sql = cachedSql.get();
+				return validate(sql, instruction, context)
+					.flatMap(reason -> attempt(step, stepNumber, context, null, SqlRetryDto.empty(), count + 1))
+					.switchIfEmpty(Mono.defer(() -> executeStep(sql, stepNumber, context,
+							e -> attempt(step, stepNumber, context, null, SqlRetryDto.empty(), count + 1))));
+			}
+		}
+		Optional<Mono<String>> speculativeSql = count == 0
+				? speculativeSqlService.take(context.threadId(), stepNumber, instruction) : Optional.empty();
+		SqlGenerationDTO sqlGenerationDTO = SqlGenerationDTO.builder()
+			.evidence(context.evidence())
+			.query(context.userQuery())
+			.schemaDTO(context.schemaDTO())
+			.previousStepResults(PlanProcessUtil.buildStepResults(context.existingResults(),
+					PlanProcessUtil.getDependencies(step, stepNumber)))
+			.sql(failedSql)
+			.exceptionMessage(StringUtils.defaultIfEmpty(retryDto.reason(), null))
+			.executionDescription(instruction)
+			.dialect(context.dialect())
+			.build();
+
+		Mono<String> generatedSql = nl2SqlService.generateSql(sqlGenerationDTO)
+			.collect(StringBuilder::new, StringBuilder::append)
+			.map(StringBuilder::toString);
+		return speculativeSql.map(sql -> sql.onErrorResume(e -> generatedSql))
+			.orElse(generatedSql)
+			.map(nl2SqlService::sqlTrim)
+			.flatMap(sql -> {
+				if (SqlUtil.isUnchangedExecutionRetry(retryDto, failedSql, sql)) {
+					log.warn("Regenerated SQL of step {} is unchanged after execution failure", stepNumber);
+					return Mono.just(StepOutcome.failed(stepNumber, sql, "SQL 修复结果与失败 SQL 相同：" + retryDto.reason()));
+				}
+				return validate(sql, instruction, context)
+					.flatMap(reason -> attempt(step, stepNumber, context, sql, SqlRetryDto.semantic(reason), count + 1))
+					.switchIfEmpty(Mono.defer(() -> executeStep(sql, stepNumber, context, e -> attempt(step, stepNumber,
+							context, sql, SqlRetryDto.sqlExecute(e.getMessage()), count + 1))));
+			});
+	}
+
+	private Mono<StepOutcome> executeStep(String sql, int stepNumber, StepContext context,
+			Function<Throwable, Mono<StepOutcome>> onFailure) {
+		return sqlStepService.execute(context.dbConfig(), context.dbAccessor(), sql).map(resultSet -> {
+			semanticQueryCache.recordSql(context.threadId(), stepNumber, sql);
+			return StepOutcome.succeeded(stepNumber, sql, resultSet);
+		}).onErrorResume(e -> {
+			log.warn("SQL of parallel step {} failed to execute: {}", stepNumber, e.getMessage());
+			return onFailure.apply(e);
+		});
+	}
+
+	/**
+	 * 结构校验与语义一致性校验，未通过时返回原因
+	 */
+	private Mono<String> validate(String sql, String instruction, StepContext context) {
+		Optional<String> structuralError = SqlUtil.findGeneratedSqlValidationError(sql, context.dialect());
+		if (structuralError.isPresent()) {
+			return Mono.just(structuralError.get());
+		}
+		SemanticConsistencyDTO semanticConsistencyDTO = sqlStepService.semanticConsistencyRequest(context.schemaDTO(),
+				context.dialect(), sql, instruction, context.userQuery(), context.evidence());
+		return ChatResponseUtil.collectText(nl2SqlService.performSemanticConsistency(semanticConsistencyDTO))
+			.flatMap(text -> {
+				SemanticConsistencyOutputDTO output = sqlStepService.parseSemanticConsistency(text);
+				return output == null || output.isPassed() ? Mono.empty() : Mono.just(output.getReason());
+			});
+	}
+
+	private Flux<ChatResponse> stepResponses(StepOutcome outcome, StepContext context) {
+		List<ChatResponse> responses = new ArrayList<>();
+		responses.add(ChatResponseUtil.createResponse("步骤" + outcome.stepNumber() + "执行SQL："));
+		if (StringUtils.isNotBlank(outcome.sql())) {
+			responses.add(ChatResponseUtil.createPureResponse(TextType.SQL.getStartSign()));
+			responses.add(ChatResponseUtil.createResponse(outcome.sql()));
+			responses.add(ChatResponseUtil.createPureResponse(TextType.SQL.getEndSign()));
+		}
+		if (outcome.resultJson() == null) {
+			responses.add(ChatResponseUtil.createResponse("SQL执行失败: " + outcome.error()));
+			return Flux.fromIterable(responses);
+		}
+		return Flux.fromIterable(responses)
+			.concatWith(sqlStepService.resultSetWithChartResponses(context.userQuery(), outcome.resultSet(),
+					context.nl2SqlOnly()));
+	}
+
+	private record StepContext(String threadId, String evidence, SchemaDTO schemaDTO, String userQuery, String dialect,
+			boolean nl2SqlOnly, Map<String, String> existingResults, DbConfigBO dbConfig, Accessor dbAccessor) {
+	}
+
+	private record StepOutcome(int stepNumber, String sql, ResultSetBO resultSet, String resultJson, String error) {
+
+		static StepOutcome succeeded(int stepNumber, String sql, ResultSetBO resultSet) {
+			try {
+				return new StepOutcome(stepNumber, sql, resultSet,
+						JsonUtil.getObjectMapper().writeValueAsString(resultSet), null);
+			}
+			catch (Exception e) {
+				throw new IllegalStateException("Failed to serialize result of step " + stepNumber, e);
+			}
+		}
+
+		static StepOutcome failed(int stepNumber, String sql, String error) {
+			return new StepOutcome(stepNumber, sql, null, null, error);
+		}
+
+	}
+
+}
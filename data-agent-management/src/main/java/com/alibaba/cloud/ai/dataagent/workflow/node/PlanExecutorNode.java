@@ -20,8 +20,12 @@ import com.alibaba.cloud.ai.graph.StateGraph;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.alibaba.cloud.ai.dataagent.dto.planner.ExecutionStep;
 import com.alibaba.cloud.ai.dataagent.dto.planner.Plan;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SemanticQueryCache;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SpeculativeSqlService;
 import com.alibaba.cloud.ai.dataagent.util.PlanProcessUtil;
 import com.alibaba.cloud.ai.dataagent.util.StateUtil;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -40,12 +44,19 @@ import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
  */
 @Slf4j
 @Component
+@AllArgsConstructor
 public class PlanExecutorNode implements NodeAction {
 
 	// Supported node types
 	private static final Set<String> SUPPORTED_NODES = Set.of(SQL_GENERATE_NODE, PYTHON_GENERATE_NODE,
 			REPORT_GENERATOR_NODE);
 
+	private final DataAgentProperties properties;
+
+	private final SemanticQueryCache semanticQueryCache;
+
+	private final SpeculativeSqlService speculativeSqlService;
+
 	@Override
 	public Map<String, Object> apply(OverAllState state) throws Exception {
 		// TODO 待优化，校验应该在生成计划之后而不是这里，这里导致每次运行一个计划都校验一次
@@ -67,8 +78,8 @@ public class PlanExecutorNode implements NodeAction {
 		}
 
 		// Validate each execution step
-		for (ExecutionStep step : plan.getExecutionPlan()) {
-			String validationResult = validateExecutionStep(step);
+		for (int i = 0; i < plan.getExecutionPlan().size(); i++) {
+			String validationResult = validateExecutionStep(plan.getExecutionPlan().get(i), i + 1);
 			if (validationResult != null) {
 				return buildValidationResult(state, false, validationResult);
 			}
@@ -90,10 +101,22 @@ public class PlanExecutorNode implements NodeAction {
 		// Check if the plan is completed
 		if (currentStep > executionPlan.size()) {
 			log.info("Plan completed, current step: {}, total steps: {}", currentStep, executionPlan.size());
+			semanticQueryCache.complete(StateUtil.getStringValue(state, TRACE_THREAD_ID, null),
+					StateUtil.getStringValue(state, PLANNER_NODE_OUTPUT, null));
 			return Map.of(PLAN_CURRENT_STEP, 1, PLAN_NEXT_NODE, isOnlyNl2Sql ? StateGraph.END : REPORT_GENERATOR_NODE,
 					PLAN_VALIDATION_STATUS, true);
 		}
 
+		// Fan out consecutive SQL steps whose dependencies are all completed
+		if (!isOnlyNl2Sql && properties.getPlanExecution().getMaxParallelSqlSteps() > 1) {
+			List<ExecutionStep> readySqlSteps = PlanProcessUtil.getReadySqlSteps(plan, currentStep);
+			if (readySqlSteps.size() > 1) {
+				log.info("Steps {} to {} are independent SQL steps, executing them in parallel", currentStep,
+						currentStep + readySqlSteps.size() - 1);
+				return Map.of(PLAN_NEXT_NODE, PARALLEL_SQL_EXECUTE_NODE, PLAN_VALIDATION_STATUS, true);
+			}
+		}
+
 		// Get current step and determine next node
 		ExecutionStep executionStep = executionPlan.get(currentStep - 1);
 		String toolToUse = executionStep.getToolToUse();
@@ -131,7 +154,7 @@ public class PlanExecutorNode implements NodeAction {
 	 * Validate a single execution step
 	 * @return error message if validation fails, null if validation passes
 	 */
-	private String validateExecutionStep(ExecutionStep step) {
+	private String validateExecutionStep(ExecutionStep step, int stepNumber) {
 		// Validate tool name
 		if (step.getToolToUse() == null || !SUPPORTED_NODES.contains(step.getToolToUse())) {
 			return "Validation failed: Plan contains an invalid tool name: '" + step.getToolToUse() + "' in step "
@@ -169,6 +192,16 @@ public class PlanExecutorNode implements NodeAction {
 				break;
 		}
 
+		// Dependencies can only point to earlier steps
+		if (step.getDependsOn() != null) {
+			for (Integer dependency : step.getDependsOn()) {
+				if (dependency == null || dependency < 1 || dependency >= stepNumber) {
+					return "Validation failed: depends_on of step " + step.getStep()
+							+ " must only reference earlier steps, but got: " + dependency;
+				}
+			}
+		}
+
 		return null; // Validation passed
 	}
 
@@ -177,6 +210,8 @@ public class PlanExecutorNode implements NodeAction {
 			return Map.of(PLAN_VALIDATION_STATUS, true);
 		}
 		else {
+			// The speculative SQL was generated from a plan that is about to be replaced
+			speculativeSqlService.discard(StateUtil.getStringValue(state, TRACE_THREAD_ID, null));
 			// When validation fails, increment the repair count here.
 			int repairCount = StateUtil.getObjectValue(state, PLAN_REPAIR_COUNT, Integer.class, 0);
 			return Map.of(PLAN_VALIDATION_STATUS, false, PLAN_VALIDATION_ERROR, errorMessage, PLAN_REPAIR_COUNT,
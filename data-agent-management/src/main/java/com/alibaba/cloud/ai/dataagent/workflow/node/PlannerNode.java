@@ -15,18 +15,25 @@
  */
 package com.alibaba.cloud.ai.dataagent.workflow.node;
 
+import com.alibaba.cloud.ai.dataagent.dto.prompt.SqlGenerationDTO;
 import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
 import com.alibaba.cloud.ai.dataagent.enums.TextType;
+import com.alibaba.cloud.ai.dataagent.dto.planner.ExecutionStep;
 import com.alibaba.cloud.ai.dataagent.dto.planner.Plan;
 import com.alibaba.cloud.ai.graph.GraphResponse;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import com.alibaba.cloud.ai.dataagent.prompt.PromptConstant;
-import com.alibaba.cloud.ai.dataagent.prompt.PromptHelper;
+import com.alibaba.cloud.ai.dataagent.prompt.SchemaPromptCompactor;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SemanticQueryCache;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SpeculativeSqlService;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
 import com.alibaba.cloud.ai.dataagent.util.FluxUtil;
+import com.alibaba.cloud.ai.dataagent.util.IncrementalPlanParser;
 import com.alibaba.cloud.ai.dataagent.util.StateUtil;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -36,6 +43,7 @@ import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 
 import java.util.Map;
+import java.util.Optional;
 
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
 
@@ -49,12 +57,29 @@ public class PlannerNode implements NodeAction {
 
 	private final LlmService llmService;
 
+	private final SemanticQueryCache semanticQueryCache;
+
+	private final SpeculativeSqlService speculativeSqlService;
+
+	private final StateValueOffloader stateValueOffloader;
+
+	private final SchemaPromptCompactor schemaPromptCompactor;
+
 	@Override
 	public Map<String, Object> apply(OverAllState state) throws Exception {
+		// 重新生成计划时，上一版计划提前生成的SQL作废
+		speculativeSqlService.discard(StateUtil.getStringValue(state, TRACE_THREAD_ID, null));
+
 		// 是否为NL2SQL模式
 		Boolean onlyNl2sql = state.value(IS_ONLY_NL2SQL, false);
 
-		Flux<ChatResponse> flux = onlyNl2sql ? handleNl2SqlOnly(state) : handlePlanGenerate(state);
+		// 相似问题已有成功运行时直接复用其计划，修复模式下总是重新生成
+		Optional<String> cachedPlan = StateUtil.getStringValue(state, PLAN_VALIDATION_ERROR, null) == null
+				? semanticQueryCache.lookup(StateUtil.getStringValue(state, TRACE_THREAD_ID, null),
+						StateUtil.getStringValue(state, AGENT_ID, null), onlyNl2sql, StateUtil.getCanonicalQuery(state))
+				: Optional.empty();
+		Flux<ChatResponse> flux = cachedPlan.map(plan -> Flux.just(ChatResponseUtil.createPureResponse(plan)))
+			.orElseGet(() -> onlyNl2sql ? handleNl2SqlOnly(state) : handlePlanGenerate(state));
 
 		Flux<ChatResponse> chatResponseFlux = Flux.concat(
 				Flux.just(ChatResponseUtil.createPureResponse(TextType.JSON.getStartSign())), flux,
@@ -83,8 +108,8 @@ public class PlannerNode implements NodeAction {
 
 		// 构建提示参数
 		String semanticModel = (String) state.value(GENEGRATED_SEMANTIC_MODEL_PROMPT).orElse("");
-		SchemaDTO schemaDTO = StateUtil.getObjectValue(state, TABLE_RELATION_OUTPUT, SchemaDTO.class);
-		String schemaStr = PromptHelper.buildMixMacSqlDbPrompt(schemaDTO, true);
+		SchemaDTO schemaDTO = stateValueOffloader.getObjectValue(state, TABLE_RELATION_OUTPUT, SchemaDTO.class);
+		String schemaStr = schemaPromptCompactor.render(schemaDTO, true, canonicalQuery, PLANNER_NODE);
 
 		// 构建用户提示
 		String userPrompt = buildUserPrompt(canonicalQuery, validationError, state);
@@ -99,8 +124,33 @@ public class PlannerNode implements NodeAction {
 		String plannerPrompt = PromptConstant.getPlannerPromptTemplate().render(params);
 		log.debug("Planner prompt: as follows \n{}\n", plannerPrompt);
 
-		// 调用LLM生成计划
-		return llmService.callUser(plannerPrompt);
+		// 调用LLM生成计划，第一个步骤解析完成后即开始为其生成SQL
+		Flux<ChatResponse> planFlux = llmService.callUser(plannerPrompt).contextWrite(LlmCallScope.of(PLANNER_NODE));
+		return Flux.defer(() -> {
+			IncrementalPlanParser parser = new IncrementalPlanParser(
+					(stepNumber, step) -> speculateFirstStep(state, stepNumber, step, schemaDTO, evidence));
+			return planFlux.doOnNext(response -> parser.feed(ChatResponseUtil.getText(response)));
+		});
+	}
+
+	/**
+	 * 第一个步骤没有前序结果，其SQL生成参数在计划完成前就已确定
+	 */
+	private void speculateFirstStep(OverAllState state, int stepNumber, ExecutionStep step, SchemaDTO schemaDTO,
+			String evidence) {
+		if (stepNumber != 1 || !SQL_GENERATE_NODE.equals(step.getToolToUse()) || step.getToolParameters() == null) {
+			return;
+		}
+		SqlGenerationDTO sqlGenerationDTO = SqlGenerationDTO.builder()
+			.evidence(evidence)
+			.query(StateUtil.getCanonicalQuery(state))
+			.schemaDTO(schemaDTO)
+			.previousStepResults("无")
+			.executionDescription(step.getToolParameters().getInstruction())
+			.dialect(StateUtil.getStringValue(state, DB_DIALECT_TYPE))
+			.build();
+		speculativeSqlService.start(StateUtil.getStringValue(state, TRACE_THREAD_ID, null), stepNumber,
+				sqlGenerationDTO);
 	}
 
 	private Flux<ChatResponse> handleNl2SqlOnly(OverAllState state) {
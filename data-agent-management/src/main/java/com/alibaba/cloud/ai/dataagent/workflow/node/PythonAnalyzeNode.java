@@ -20,7 +20,9 @@ import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import com.alibaba.cloud.ai.dataagent.prompt.PromptConstant;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
 import com.alibaba.cloud.ai.dataagent.util.FluxUtil;
 import com.alibaba.cloud.ai.dataagent.util.PlanProcessUtil;
 import com.alibaba.cloud.ai.dataagent.util.StateUtil;
@@ -49,6 +51,8 @@ public class PythonAnalyzeNode implements NodeAction {
 
 	private final LlmService llmService;
 
+	private final StateValueOffloader stateValueOffloader;
+
 	@Override
 	public Map<String, Object> apply(OverAllState state) throws Exception {
 
@@ -57,8 +61,8 @@ public class PythonAnalyzeNode implements NodeAction {
 		String pythonOutput = StateUtil.getStringValue(state, PYTHON_EXECUTE_NODE_OUTPUT);
 		int currentStep = PlanProcessUtil.getCurrentStepNumber(state);
 		@SuppressWarnings("unchecked")
-		Map<String, String> sqlExecuteResult = StateUtil.getObjectValue(state, SQL_EXECUTE_NODE_OUTPUT, Map.class,
-				new HashMap<>());
+		Map<String, String> sqlExecuteResult = stateValueOffloader.getObjectValue(state, SQL_EXECUTE_NODE_OUTPUT,
+				Map.class, new HashMap<>());
 
 		// 检查是否进入降级模式
 		boolean isFallbackMode = StateUtil.getObjectValue(state, PYTHON_FALLBACK_MODE, Boolean.class, false);
@@ -75,7 +79,8 @@ public class PythonAnalyzeNode implements NodeAction {
 						Map<String, String> updatedSqlResult = new HashMap<>(sqlExecuteResult);
 						updatedSqlResult.put("step_" + currentStep + "_analysis", fallbackMessage);
 						log.debug("python fallback message: {}", fallbackMessage);
-						return Map.of(SQL_EXECUTE_NODE_OUTPUT, updatedSqlResult, PLAN_CURRENT_STEP, currentStep + 1);
+						return Map.of(SQL_EXECUTE_NODE_OUTPUT, stateValueOffloader.offloadEntries(updatedSqlResult),
+								PLAN_CURRENT_STEP, currentStep + 1);
 					}, fallbackFlux);
 
 			return Map.of(PYTHON_ANALYSIS_NODE_OUTPUT, generator);
@@ -84,14 +89,16 @@ public class PythonAnalyzeNode implements NodeAction {
 		String systemPrompt = PromptConstant.getPythonAnalyzePromptTemplate()
 			.render(Map.of("python_output", pythonOutput, "user_query", userQuery));
 
-		Flux<ChatResponse> pythonAnalyzeFlux = llmService.callSystem(systemPrompt);
+		Flux<ChatResponse> pythonAnalyzeFlux = llmService.callSystem(systemPrompt)
+			.contextWrite(LlmCallScope.of(PYTHON_ANALYZE_NODE));
 
 		Flux<GraphResponse<StreamingOutput>> generator = FluxUtil.createStreamingGeneratorWithMessages(this.getClass(),
 				state, "正在分析代码运行结果...\n", "\n结果分析完成。", aiResponse -> {
 					Map<String, String> updatedSqlResult = new HashMap<>(sqlExecuteResult);
 					updatedSqlResult.put("step_" + currentStep + "_analysis", aiResponse);
 					log.debug("python analyze result: {}", aiResponse);
-					return Map.of(SQL_EXECUTE_NODE_OUTPUT, updatedSqlResult, PLAN_CURRENT_STEP, currentStep + 1);
+					return Map.of(SQL_EXECUTE_NODE_OUTPUT, stateValueOffloader.offloadEntries(updatedSqlResult),
+							PLAN_CURRENT_STEP, currentStep + 1);
 				}, pythonAnalyzeFlux);
 
 		return Map.of(PYTHON_ANALYSIS_NODE_OUTPUT, generator);
@@ -19,6 +19,7 @@ import com.alibaba.cloud.ai.dataagent.enums.TextType;
 import com.alibaba.cloud.ai.dataagent.service.code.PythonCodeExecutorService;
 import com.alibaba.cloud.ai.dataagent.service.code.sandbox.dependency.PythonDependencyMetadata;
 import com.alibaba.cloud.ai.dataagent.service.code.sandbox.dependency.PythonDependencyMetadataParser;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
 import com.alibaba.cloud.ai.dataagent.util.JsonParseUtil;
 import com.alibaba.cloud.ai.dataagent.properties.CodeExecutorProperties;
 import com.alibaba.cloud.ai.graph.GraphResponse;
@@ -61,14 +62,17 @@ public class PythonExecuteNode implements NodeAction {
 
 	private final CodeExecutorProperties codeExecutorProperties;
 
+	private final StateValueOffloader stateValueOffloader;
+
 	public PythonExecuteNode(PythonCodeExecutorService pythonCodeExecutor,
 			PythonDependencyMetadataParser dependencyMetadataParser, JsonParseUtil jsonParseUtil,
-			CodeExecutorProperties codeExecutorProperties) {
+			CodeExecutorProperties codeExecutorProperties, StateValueOffloader stateValueOffloader) {
 		this.pythonCodeExecutor = pythonCodeExecutor;
 		this.dependencyMetadataParser = dependencyMetadataParser;
 		this.objectMapper = JsonUtil.getObjectMapper();
 		this.jsonParseUtil = jsonParseUtil;
 		this.codeExecutorProperties = codeExecutorProperties;
+		this.stateValueOffloader = stateValueOffloader;
 	}
 
 	@Override
@@ -77,8 +81,8 @@ public class PythonExecuteNode implements NodeAction {
 		try {
 			// Get context
 			String pythonCode = StateUtil.getStringValue(state, PYTHON_GENERATE_NODE_OUTPUT);
-			Map<String, String> executionResults = StateUtil.getObjectValue(state, SQL_EXECUTE_NODE_OUTPUT, Map.class,
-					Map.of());
+			Map<String, String> executionResults = stateValueOffloader.getObjectValue(state, SQL_EXECUTE_NODE_OUTPUT,
+					Map.class, Map.of());
 			List<List<Map<String, String>>> sqlResults = SqlResultSetExtractor.extractAll(executionResults);
 
 			// 检查重试次数
@@ -24,6 +24,8 @@ import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import com.alibaba.cloud.ai.dataagent.dto.planner.ExecutionStep;
 import com.alibaba.cloud.ai.dataagent.prompt.PromptConstant;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
 import com.alibaba.cloud.ai.dataagent.util.FluxUtil;
@@ -61,9 +63,13 @@ public class PythonGenerateNode implements NodeAction {
 
 	private final LlmService llmService;
 
-	public PythonGenerateNode(CodeExecutorProperties codeExecutorProperties, LlmService llmService) {
+	private final StateValueOffloader stateValueOffloader;
+
+	public PythonGenerateNode(CodeExecutorProperties codeExecutorProperties, LlmService llmService,
+			StateValueOffloader stateValueOffloader) {
 		this.codeExecutorProperties = codeExecutorProperties;
 		this.llmService = llmService;
+		this.stateValueOffloader = stateValueOffloader;
 		this.objectMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
 	}
 
@@ -71,9 +77,9 @@ public class PythonGenerateNode implements NodeAction {
 	public Map<String, Object> apply(OverAllState state) throws Exception {
 
 		// Get context
-		SchemaDTO schemaDTO = StateUtil.getObjectValue(state, TABLE_RELATION_OUTPUT, SchemaDTO.class);
-		Map<String, String> executionResults = StateUtil.getObjectValue(state, SQL_EXECUTE_NODE_OUTPUT, Map.class,
-				Map.of());
+		SchemaDTO schemaDTO = stateValueOffloader.getObjectValue(state, TABLE_RELATION_OUTPUT, SchemaDTO.class);
+		Map<String, String> executionResults = stateValueOffloader.getObjectValue(state, SQL_EXECUTE_NODE_OUTPUT,
+				Map.class, Map.of());
 		List<List<Map<String, String>>> sqlResults = SqlResultSetExtractor.extractSamples(executionResults,
 				SAMPLE_DATA_NUMBER);
 		boolean codeRunSuccess = StateUtil.getObjectValue(state, PYTHON_IS_SUCCESS, Boolean.class, true);
@@ -118,7 +124,8 @@ public class PythonGenerateNode implements NodeAction {
 					objectMapper.writeValueAsString(sqlResults), "plan_description",
 					objectMapper.writeValueAsString(toolParameters)));
 
-		Flux<ChatResponse> pythonGenerateFlux = llmService.call(systemPrompt, userPrompt);
+		Flux<ChatResponse> pythonGenerateFlux = llmService.call(systemPrompt, userPrompt)
+			.contextWrite(LlmCallScope.of(PYTHON_GENERATE_NODE));
 
 		Flux<GraphResponse<StreamingOutput>> generator = FluxUtil.createStreamingGeneratorWithMessages(this.getClass(),
 				state, aiResponse -> {
@@ -19,6 +19,8 @@ import com.alibaba.cloud.ai.dataagent.dto.planner.ExecutionStep;
 import com.alibaba.cloud.ai.dataagent.dto.planner.Plan;
 import com.alibaba.cloud.ai.dataagent.entity.UserPromptConfig;
 import com.alibaba.cloud.ai.dataagent.prompt.PromptHelper;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmCallScope;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import com.alibaba.cloud.ai.dataagent.service.prompt.UserPromptService;
 import com.alibaba.cloud.ai.dataagent.enums.TextType;
@@ -62,11 +64,15 @@ public class ReportGeneratorNode implements NodeAction {
 
 	private final UserPromptService promptConfigService;
 
-	public ReportGeneratorNode(LlmService llmService, UserPromptService promptConfigService) {
+	private final StateValueOffloader stateValueOffloader;
+
+	public ReportGeneratorNode(LlmService llmService, UserPromptService promptConfigService,
+			StateValueOffloader stateValueOffloader) {
 		this.llmService = llmService;
 		this.converter = new BeanOutputConverter<>(new ParameterizedTypeReference<>() {
 		});
 		this.promptConfigService = promptConfigService;
+		this.stateValueOffloader = stateValueOffloader;
 	}
 
 	@Override
@@ -77,7 +83,7 @@ public class ReportGeneratorNode implements NodeAction {
 		String userInput = StateUtil.getCanonicalQuery(state);
 		Integer currentStep = StateUtil.getObjectValue(state, PLAN_CURRENT_STEP, Integer.class, 1);
 		@SuppressWarnings("unchecked")
-		HashMap<String, String> executionResults = StateUtil.getObjectValue(state, SQL_EXECUTE_NODE_OUTPUT,
+		HashMap<String, String> executionResults = stateValueOffloader.getObjectValue(state, SQL_EXECUTE_NODE_OUTPUT,
 				HashMap.class, new HashMap<>());
 
 		// Parse plan and get current step
@@ -156,7 +162,7 @@ public class ReportGeneratorNode implements NodeAction {
 		String reportPrompt = PromptHelper.buildReportGeneratorPromptWithOptimization(userRequirementsAndPlan,
 				analysisStepsAndData, summaryAndRecommendations, optimizationConfigs);
 		log.debug("Report Node Prompt: \n {} \n", reportPrompt);
-		return llmService.callUser(reportPrompt);
+		return llmService.callUser(reportPrompt).contextWrite(LlmCallScope.of(REPORT_GENERATOR_NODE));
 	}
 
 	/**
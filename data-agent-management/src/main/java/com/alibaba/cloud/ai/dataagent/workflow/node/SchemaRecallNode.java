@@ -21,6 +21,7 @@ import com.alibaba.cloud.ai.graph.GraphResponse;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
+import com.alibaba.cloud.ai.dataagent.service.schema.SchemaPrefetchService;
 import com.alibaba.cloud.ai.dataagent.service.schema.SchemaService;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
 import com.alibaba.cloud.ai.dataagent.util.FluxUtil;
@@ -58,6 +59,8 @@ public class SchemaRecallNode implements NodeAction {
 
 	private final AgentDatasourceMapper agentDatasourceMapper;
 
+	private final SchemaPrefetchService schemaPrefetchService;
+
 	@Override
 	public Map<String, Object> apply(OverAllState state) throws Exception {
 
@@ -97,12 +100,26 @@ public class SchemaRecallNode implements NodeAction {
 			return Map.of(SCHEMA_RECALL_NODE_OUTPUT, generator);
 		}
 
-		// Execute business logic first - recall schema information immediately
-		List<Document> tableDocuments = new ArrayList<>(
-				schemaService.getTableDocumentsByDatasource(datasourceId, input));
-		// extract table names
-		List<String> recalledTableNames = extractTableName(tableDocuments);
-		List<Document> columnDocuments = schemaService.getColumnDocumentsByTableName(datasourceId, recalledTableNames);
+		// Reuse the schema prefetched from the raw question when the canonical query is
+		// close enough, otherwise recall schema information immediately
+		String threadId = StateUtil.getStringValue(state, TRACE_THREAD_ID, null);
+		SchemaPrefetchService.SchemaRecallResult prefetched = schemaPrefetchService.take(threadId, datasourceId, input)
+			.orElse(null);
+		List<Document> tableDocuments;
+		List<String> recalledTableNames;
+		List<Document> columnDocuments;
+		if (prefetched != null) {
+			log.info("Reusing prefetched schema, Recall tables are: {}", prefetched.tableNames());
+			tableDocuments = prefetched.tableDocuments();
+			recalledTableNames = prefetched.tableNames();
+			columnDocuments = prefetched.columnDocuments();
+		}
+		else {
+			tableDocuments = new ArrayList<>(schemaService.getTableDocumentsByDatasource(datasourceId, input));
+			// extract table names
+			recalledTableNames = extractTableName(tableDocuments);
+			columnDocuments = schemaService.getColumnDocumentsByTableName(datasourceId, recalledTableNames);
+		}
 
 		String failMessage = """
 				\n 未检索到相关数据表
@@ -15,6 +15,7 @@
  */
 package com.alibaba.cloud.ai.dataagent.workflow.node;
 
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
 import com.alibaba.cloud.ai.dataagent.util.FluxUtil;
 import com.alibaba.cloud.ai.dataagent.util.SqlUtil;
 import com.alibaba.cloud.ai.dataagent.util.StateUtil;
@@ -23,6 +24,7 @@ import com.alibaba.cloud.ai.dataagent.dto.prompt.SemanticConsistencyDTO;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.SemanticConsistencyOutputDTO;
 import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
 import com.alibaba.cloud.ai.dataagent.service.nl2sql.Nl2SqlService;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SqlStepService;
 import com.alibaba.cloud.ai.graph.GraphResponse;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
@@ -30,7 +32,6 @@ import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatResponse;
-import org.springframework.ai.converter.BeanOutputConverter;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 
@@ -39,7 +40,6 @@ import java.util.Optional;
 
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
 import static com.alibaba.cloud.ai.dataagent.util.PlanProcessUtil.getCurrentExecutionStepInstruction;
-import static com.alibaba.cloud.ai.dataagent.prompt.PromptHelper.buildMixMacSqlDbPrompt;
 
 /**
  * Semantic consistency validation node that checks SQL query semantic consistency.
@@ -55,17 +55,18 @@ import static com.alibaba.cloud.ai.dataagent.prompt.PromptHelper.buildMixMacSqlD
 @AllArgsConstructor
 public class SemanticConsistencyNode implements NodeAction {
 
-	private static final BeanOutputConverter<SemanticConsistencyOutputDTO> OUTPUT_CONVERTER = new BeanOutputConverter<>(
-			SemanticConsistencyOutputDTO.class);
-
 	private final Nl2SqlService nl2SqlService;
 
+	private final SqlStepService sqlStepService;
+
+	private final StateValueOffloader stateValueOffloader;
+
 	@Override
 	public Map<String, Object> apply(OverAllState state) throws Exception {
 
 		// Get necessary input parameters
 		String evidence = StateUtil.getStringValue(state, EVIDENCE);
-		SchemaDTO schemaDTO = StateUtil.getObjectValue(state, TABLE_RELATION_OUTPUT, SchemaDTO.class);
+		SchemaDTO schemaDTO = stateValueOffloader.getObjectValue(state, TABLE_RELATION_OUTPUT, SchemaDTO.class);
 		String dialect = StateUtil.getStringValue(state, DB_DIALECT_TYPE);
 		// Get current execution step and SQL query
 		String sql = StateUtil.getStringValue(state, SQL_GENERATE_OUTPUT);
@@ -76,20 +77,14 @@ public class SemanticConsistencyNode implements NodeAction {
 			return buildStructuralValidationFailure(state, sql, structuralValidationError.get());
 		}
 
-		SemanticConsistencyDTO semanticConsistencyDTO = SemanticConsistencyDTO.builder()
-			.dialect(dialect)
-			.sql(sql)
-			.executionDescription(getCurrentExecutionStepInstruction(state))
-			.schemaInfo(buildMixMacSqlDbPrompt(schemaDTO, true))
-			.userQuery(userQuery)
-			.evidence(evidence)
-			.build();
+		SemanticConsistencyDTO semanticConsistencyDTO = sqlStepService.semanticConsistencyRequest(schemaDTO, dialect,
+				sql, getCurrentExecutionStepInstruction(state), userQuery, evidence);
 		log.debug("Starting semantic consistency validation - SQL: {}", sql);
 		Flux<ChatResponse> validationResultFlux = nl2SqlService.performSemanticConsistency(semanticConsistencyDTO);
 
 		Flux<GraphResponse<StreamingOutput>> generator = FluxUtil.createStreamingGeneratorWithMessages(this.getClass(),
 				state, "开始语义一致性校验", "语义一致性校验完成", validationResult -> {
-					SemanticConsistencyOutputDTO output = OUTPUT_CONVERTER.convert(validationResult);
+					SemanticConsistencyOutputDTO output = sqlStepService.parseSemanticConsistency(validationResult);
 					Map<String, Object> result = buildValidationResult(output.isPassed(), output.getReason());
 					log.debug("[{}] Semantic consistency validation result: {}, passed: {}",
 							this.getClass().getSimpleName(), output.getReason(), output.isPassed());
@@ -17,9 +17,13 @@ package com.alibaba.cloud.ai.dataagent.workflow.node;
 
 import com.alibaba.cloud.ai.dataagent.dto.planner.ExecutionStep;
 import com.alibaba.cloud.ai.dataagent.enums.TextType;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SemanticQueryCache;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SpeculativeSqlService;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
 import com.alibaba.cloud.ai.dataagent.util.FluxUtil;
 import com.alibaba.cloud.ai.dataagent.util.PlanProcessUtil;
+import com.alibaba.cloud.ai.dataagent.util.SqlUtil;
 import com.alibaba.cloud.ai.dataagent.util.StateUtil;
 import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import com.alibaba.cloud.ai.dataagent.dto.datasource.SqlRetryDto;
@@ -33,13 +37,15 @@ import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
 
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
 import static com.alibaba.cloud.ai.dataagent.util.PlanProcessUtil.getCurrentExecutionStepInstruction;
@@ -59,12 +65,16 @@ import static com.alibaba.cloud.ai.dataagent.util.PlanProcessUtil.getCurrentExec
 @AllArgsConstructor
 public class SqlGenerateNode implements NodeAction {
 
-	private static final int PREVIOUS_RESULTS_MAX_CHARS = 8_000;
-
 	private final Nl2SqlService nl2SqlService;
 
 	private final DataAgentProperties properties;
 
+	private final SemanticQueryCache semanticQueryCache;
+
+	private final SpeculativeSqlService speculativeSqlService;
+
+	private final StateValueOffloader stateValueOffloader;
+
 	@Override
 	public Map<String, Object> apply(OverAllState state) throws Exception {
 		// 判断是否达到最大尝试次数
@@ -103,8 +113,25 @@ public class SqlGenerateNode implements NodeAction {
 			sqlFlux = handleRetryGenerateSql(state, failedSql, retryDto.reason(), promptForSql);
 		}
 		else {
-			displayMessage = "开始生成SQL...";
-			sqlFlux = handleGenerateSql(state, promptForSql);
+			String threadId = StateUtil.getStringValue(state, TRACE_THREAD_ID, null);
+			int stepNumber = PlanProcessUtil.getCurrentStepNumber(state);
+			Optional<String> cachedSql = semanticQueryCache.cachedSql(threadId, stepNumber);
+			Optional<Mono<String>> speculativeSql = cachedSql.isPresent() ? Optional.empty()
+					: speculativeSqlService.take(threadId, stepNumber, promptForSql);
+			if (cachedSql.isPresent()) {
+				displayMessage = "复用相似问题已成功执行的SQL...";
+				sqlFlux = Flux.just(cachedSql.get());
+			}
+			else if (speculativeSql.isPresent()) {
+				displayMessage = "使用计划生成期间提前生成的SQL...";
+				sqlFlux = speculativeSql.get()
+					.flux()
+					.onErrorResume(e -> Flux.defer(() -> handleGenerateSql(state, promptForSql)));
+			}
+			else {
+				displayMessage = "开始生成SQL...";
+				sqlFlux = handleGenerateSql(state, promptForSql);
+			}
 		}
 
 		// 准备返回结果，同时需要清除一些状态数据
@@ -119,7 +146,7 @@ public class SqlGenerateNode implements NodeAction {
 			.concatWith(sqlFlux.doOnNext(sqlCollector::append).map(ChatResponseUtil::createPureResponse))
 			.concatWith(Flux.defer(() -> {
 				String generatedSql = nl2SqlService.sqlTrim(sqlCollector.toString());
-				String completionMessage = isUnchangedExecutionRetry(retryDto, failedSql, generatedSql)
+				String completionMessage = SqlUtil.isUnchangedExecutionRetry(retryDto, failedSql, generatedSql)
 						? "SQL 修复结果与失败 SQL 相同，已停止重试，避免重复执行。" : "SQL生成完成，准备执行";
 				return Flux.just(ChatResponseUtil.createPureResponse(TextType.SQL.getEndSign()),
 						ChatResponseUtil.createResponse(completionMessage));
@@ -128,7 +155,7 @@ public class SqlGenerateNode implements NodeAction {
 		Flux<GraphResponse<StreamingOutput>> generator = FluxUtil.createStreamingGeneratorWithMessages(this.getClass(),
 				state, v -> {
 					String sql = nl2SqlService.sqlTrim(sqlCollector.toString());
-					if (isUnchangedExecutionRetry(retryDto, failedSql, sql)) {
+					if (SqlUtil.isUnchangedExecutionRetry(retryDto, failedSql, sql)) {
 						log.warn("Regenerated SQL is unchanged after execution failure; stopping retry loop");
 						result.put(SQL_GENERATE_OUTPUT, StateGraph.END);
 					}
@@ -141,23 +168,10 @@ public class SqlGenerateNode implements NodeAction {
 		return Map.of(SQL_GENERATE_OUTPUT, generator);
 	}
 
-	private boolean isUnchangedExecutionRetry(SqlRetryDto retryDto, String failedSql, String generatedSql) {
-		return retryDto.sqlExecuteFail() && StringUtils.isNotBlank(failedSql) && StringUtils.isNotBlank(generatedSql)
-				&& normalizeSql(failedSql).equals(normalizeSql(generatedSql));
-	}
-
-	private String normalizeSql(String sql) {
-		String normalized = StringUtils.defaultString(sql).strip();
-		while (normalized.endsWith(";")) {
-			normalized = normalized.substring(0, normalized.length() - 1).stripTrailing();
-		}
-		return normalized;
-	}
-
 	private Flux<String> handleRetryGenerateSql(OverAllState state, String originalSql, String errorMsg,
 			String executionDescription) {
 		String evidence = StateUtil.getStringValue(state, EVIDENCE);
-		SchemaDTO schemaDTO = StateUtil.getObjectValue(state, TABLE_RELATION_OUTPUT, SchemaDTO.class);
+		SchemaDTO schemaDTO = stateValueOffloader.getObjectValue(state, TABLE_RELATION_OUTPUT, SchemaDTO.class);
 		String userQuery = StateUtil.getCanonicalQuery(state);
 		String dialect = StateUtil.getStringValue(state, DB_DIALECT_TYPE);
 		String previousStepResults = buildPreviousStepResults(state);
@@ -187,25 +201,9 @@ public class SqlGenerateNode implements NodeAction {
 			return "无";
 		}
 
-		Map<String, String> executionResults = StateUtil.getObjectValue(state, SQL_EXECUTE_NODE_OUTPUT, Map.class,
-				new HashMap<>());
-		StringBuilder context = new StringBuilder();
-		for (int step = 1; step < currentStep; step++) {
-			String stepKey = "step_" + step;
-			String stepResult = executionResults.get(stepKey);
-			if (StringUtils.isBlank(stepResult)) {
-				continue;
-			}
-
-			String section = stepKey + ":\n" + stepResult.trim() + "\n";
-			int remaining = PREVIOUS_RESULTS_MAX_CHARS - context.length();
-			if (section.length() > remaining) {
-				context.append(section, 0, Math.max(remaining, 0)).append("\n...(历史结果已截断)");
-				break;
-			}
-			context.append(section);
-		}
-		return context.isEmpty() ? "无" : context.toString().trim();
+		Map<String, String> executionResults = stateValueOffloader.getObjectValue(state, SQL_EXECUTE_NODE_OUTPUT,
+				Map.class, new HashMap<>());
+		return PlanProcessUtil.buildStepResults(executionResults, IntStream.range(1, currentStep).boxed().toList());
 	}
 
 }
@@ -36,6 +36,7 @@ import com.alibaba.cloud.ai.dataagent.entity.SemanticModel;
 import com.alibaba.cloud.ai.dataagent.enums.TextType;
 import com.alibaba.cloud.ai.dataagent.service.datasource.AgentDatasourceService;
 import com.alibaba.cloud.ai.dataagent.service.datasource.DatasourceService;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
 import com.alibaba.cloud.ai.dataagent.service.nl2sql.Nl2SqlService;
 import com.alibaba.cloud.ai.dataagent.service.schema.SchemaService;
 import com.alibaba.cloud.ai.dataagent.service.semantic.SemanticModelService;
@@ -90,6 +91,8 @@ public class TableRelationNode implements NodeAction {
 
 	private final AgentDatasourceService agentDatasourceService;
 
+	private final StateValueOffloader stateValueOffloader;
+
 	@Override
 	public Map<String, Object> apply(OverAllState state) throws Exception {
 
@@ -119,7 +122,7 @@ public class TableRelationNode implements NodeAction {
 		Flux<ChatResponse> schemaFlux = processSchemaSelection(initialSchema, canonicalQuery, evidence, state,
 				agentDbConfig, result -> {
 					log.debug("[{}] Schema processing result: {}", this.getClass().getSimpleName(), result);
-					resultMap.put(TABLE_RELATION_OUTPUT, result);
+					resultMap.put(TABLE_RELATION_OUTPUT, stateValueOffloader.offload(result));
 
 					// 从最终的SchemaDTO中获取表名列表
 					List<String> tableNames = result.getTable().stream().map(TableDTO::getName).toList();
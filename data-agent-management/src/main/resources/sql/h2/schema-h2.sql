@@ -255,6 +255,7 @@ CREATE TABLE IF NOT EXISTS `model_config` (
   `is_active` tinyint(1) DEFAULT '0' COMMENT '是否激活',
   `max_tokens` int(11) DEFAULT '2000' COMMENT '输出响应最大令牌数',
   `model_type` varchar(20) NOT NULL DEFAULT 'CHAT' COMMENT '模型类型 (CHAT/EMBEDDING)',
+  `tier` varchar(32) DEFAULT NULL COMMENT '模型档位（仅Chat模型），为空表示默认档位，如 fast',
   `completions_path` varchar(255) DEFAULT NULL COMMENT 'Chat模型专用。附加到 Base URL 的路径。例如OpenAi的/v1/chat/completions',
   `embeddings_path` varchar(255) DEFAULT NULL COMMENT '嵌入模型专用。附加到 Base URL 的路径。',
   `created_time` datetime DEFAULT NULL COMMENT '创建时间',
@@ -268,3 +269,16 @@ CREATE TABLE IF NOT EXISTS `model_config` (
   `proxy_password` varchar(255) DEFAULT NULL COMMENT '代理密码（可选）',
   PRIMARY KEY (`id`)
 ) ENGINE=InnoDB;
+
+-- 图运行归属节点表（stream.registry.type=jdbc 时使用）
+CREATE TABLE IF NOT EXISTS graph_run_owner (
+  thread_id VARCHAR(64) NOT NULL COMMENT '图运行ID',
+  conversation_id VARCHAR(64) COMMENT '会话ID',
+  node_id VARCHAR(128) NOT NULL COMMENT '持有运行的节点ID',
+  node_address VARCHAR(255) NOT NULL COMMENT '节点访问地址',
+  heartbeat_time TIMESTAMP NOT NULL COMMENT '节点最近心跳时间',
+  PRIMARY KEY (thread_id),
+  INDEX idx_graph_run_owner_conversation_id (conversation_id),
+  INDEX idx_graph_run_owner_node_id (node_id),
+  INDEX idx_graph_run_owner_heartbeat_time (heartbeat_time)
+) ENGINE = InnoDB COMMENT = '图运行归属节点表';
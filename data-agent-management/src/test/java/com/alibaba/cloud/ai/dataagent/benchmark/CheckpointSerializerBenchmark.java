@@ -0,0 +1,178 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.benchmark;
+
+import com.alibaba.cloud.ai.dataagent.dto.datasource.SqlRetryDto;
+import com.alibaba.cloud.ai.dataagent.dto.prompt.QueryEnhanceOutputDTO;
+import com.alibaba.cloud.ai.dataagent.dto.schema.ColumnDTO;
+import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
+import com.alibaba.cloud.ai.dataagent.dto.schema.TableDTO;
+import com.alibaba.cloud.ai.dataagent.service.graph.SmileStateSerializer;
+import com.alibaba.cloud.ai.graph.StateGraph;
+import com.alibaba.cloud.ai.graph.serializer.StateSerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
+
+/**
+ * 检查点序列化对比：图默认的 Jackson JSON 与 Smile 二进制序列化器。
+ * <p>
+ * 状态模拟 NL2SQL 执行到 SQL 生成后的检查点：召回文档、表关系 Schema、查询改写结果与多步 SQL 结果。写入字节数由
+ * {@link WrittenBytes} 作为辅助计数器随 {@link #serialize(WrittenBytes)} 结果一并输出。运行方式：先执行
+ * {@code mvn test-compile}，再以测试 classpath 运行本类的 {@code main}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckpointSerializerBenchmark {
+
+	@Param({ "jackson", "smile" })
+	private String serializerType;
+
+	/**
+	 * Schema 中的表数量，SQL 结果行数按其 20 倍生成
+	 */
+	@Param({ "5", "30" })
+	private int tables;
+
+	private StateSerializer serializer;
+
+	private Map<String, Object> state;
+
+	private byte[] bytes;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		serializer = "smile".equals(serializerType) ? new SmileStateSerializer(SmileStateSerializer.defaultTypeTable())
+				: StateGraph.DEFAULT_JACKSON_SERIALIZER;
+		state = realisticState(tables, tables * 20);
+		bytes = serializer.dataToBytes(state);
+	}
+
+	@Benchmark
+	public byte[] serialize(WrittenBytes counters) throws Exception {
+		byte[] data = serializer.dataToBytes(state);
+		counters.bytesWritten = data.length;
+		return data;
+	}
+
+	@Benchmark
+	public Map<String, Object> deserialize() throws Exception {
+		return serializer.dataFromBytes(bytes);
+	}
+
+	private static Map<String, Object> realisticState(int tableCount, int rowCount) {
+		List<TableDTO> tableList = new ArrayList<>();
+		List<Document> tableDocuments = new ArrayList<>();
+		for (int t = 0; t < tableCount; t++) {
+			TableDTO table = new TableDTO();
+			table.setName("table_" + t);
+			table.setDescription("业务表 " + t + "，记录订单、用户与支付相关信息");
+			List<ColumnDTO> columns = new ArrayList<>();
+			for (int c = 0; c < 12; c++) {
+				ColumnDTO column = new ColumnDTO();
+				column.setName("column_" + c);
+				column.setDescription("字段 " + c + " 的业务含义说明");
+				column.setType(c % 3 == 0 ? "bigint" : "varchar");
+				column.setData(List.of("sample_a", "sample_b", "sample_c"));
+				columns.add(column);
+			}
+			table.setColumn(columns);
+			table.setPrimaryKeys(List.of("column_0"));
+			tableList.add(table);
+			tableDocuments.add(new Document("table-" + t, table.getDescription(),
+					Map.of("name", table.getName(), "vectorType", "table", "datasourceId", "1")));
+		}
+		SchemaDTO schema = new SchemaDTO();
+		schema.setName("shop");
+		schema.setTableCount(tableCount);
+		schema.setTable(tableList);
+		schema.setForeignKeys(List.of("table_0.column_1=table_1.column_0"));
+
+		QueryEnhanceOutputDTO queryEnhance = new QueryEnhanceOutputDTO();
+		queryEnhance.setCanonicalQuery("统计2026年9月每个渠道的支付订单数与总金额");
+		queryEnhance.setExpandedQueries(List.of("9月各渠道订单数", "9月各渠道支付金额", "上月渠道销售排行"));
+
+		List<Map<String, String>> rows = new ArrayList<>();
+		for (int r = 0; r < rowCount; r++) {
+			Map<String, String> row = new LinkedHashMap<>();
+			row.put("channel", "channel_" + (r % 8));
+			row.put("order_count", String.valueOf(r * 7));
+			row.put("total_amount", String.valueOf(r * 131.5));
+			row.put("pay_date", "2026-09-" + (r % 28 + 1));
+			rows.add(row);
+		}
+		Map<String, Object> sqlResults = new HashMap<>();
+		sqlResults.put("step_1",
+				Map.of("columns", List.of("channel", "order_count", "total_amount", "pay_date"), "data", rows));
+
+		Map<String, Object> state = new HashMap<>();
+		state.put(INPUT_KEY, "上个月各渠道的订单数和金额是多少");
+		state.put(AGENT_ID, "1");
+		state.put(IS_ONLY_NL2SQL, false);
+		state.put(QUERY_ENHANCE_NODE_OUTPUT, queryEnhance);
+		state.put(TABLE_DOCUMENTS_FOR_SCHEMA_OUTPUT, tableDocuments);
+		state.put(TABLE_RELATION_OUTPUT, schema);
+		state.put(SQL_REGENERATE_REASON, SqlRetryDto.empty());
+		state.put(PLAN_CURRENT_STEP, 2);
+		state.put(SQL_GENERATE_OUTPUT,
+				"SELECT channel, COUNT(*) AS order_count, SUM(amount) AS total_amount FROM table_0 GROUP BY channel");
+		state.put(SQL_EXECUTE_NODE_OUTPUT, sqlResults);
+		return state;
+	}
+
+	/**
+	 * 单次序列化写入的字节数，以 JMH 辅助计数器形式出现在结果中
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class WrittenBytes {
+
+		public long bytesWritten;
+
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(CheckpointSerializerBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -20,12 +20,16 @@ import com.alibaba.cloud.ai.dataagent.dto.planner.ExecutionStep;
 import com.alibaba.cloud.ai.dataagent.dto.planner.Plan;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.IntentRecognitionOutputDTO;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.QueryEnhanceOutputDTO;
+import com.alibaba.cloud.ai.dataagent.prompt.SchemaPromptCompactor;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import com.alibaba.cloud.ai.dataagent.util.JsonUtil;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.state.strategy.ReplaceStrategy;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -175,4 +179,14 @@ public final class TestFixtures {
 				createPythonStep(2, "Analyze results"), createReportStep(3, "Generate report")));
 	}
 
+	// --- Service Factory ---
+
+	/**
+	 * 使用默认 token 预算的 Schema 提示词压缩器
+	 */
+	public static SchemaPromptCompactor schemaPromptCompactor() {
+		return new SchemaPromptCompactor(new DataAgentProperties().getSchemaPrompt(), EncodingType.CL100K_BASE,
+				new SimpleMeterRegistry());
+	}
+
 }
@@ -15,9 +15,11 @@
  */
 package com.alibaba.cloud.ai.dataagent.config;
 
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import com.alibaba.cloud.ai.dataagent.properties.FileStorageProperties;
 import com.alibaba.cloud.ai.dataagent.properties.OssStorageProperties;
 import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.AiModelRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.bind.Binder;
@@ -62,7 +64,7 @@ class VectorStoreConfigurationTest {
 
 	@Test
 	void replaceableRuntimeServices_areConditionalOnMissingBean() throws Exception {
-		assertConditional("llmService", AiModelRegistry.class);
+		assertConditional("llmService", AiModelRegistry.class, DataAgentProperties.class, MeterRegistry.class);
 		assertConditional("fileStorageService", FileStorageProperties.class, OssStorageProperties.class);
 	}
 
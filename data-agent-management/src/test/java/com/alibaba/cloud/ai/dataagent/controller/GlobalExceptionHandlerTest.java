@@ -17,6 +17,7 @@ package com.alibaba.cloud.ai.dataagent.controller;
 
 import com.alibaba.cloud.ai.dataagent.exception.InternalServerException;
 import com.alibaba.cloud.ai.dataagent.exception.InvalidInputException;
+import com.alibaba.cloud.ai.dataagent.exception.TooManyRequestsException;
 import com.alibaba.cloud.ai.dataagent.vo.ApiResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -67,6 +68,16 @@ class GlobalExceptionHandlerTest {
 		assertEquals("server error", response.getMessage());
 	}
 
+	@Test
+	void handleTooManyRequestsException_returnsErrorResponse() {
+		TooManyRequestsException ex = new TooManyRequestsException("queue full");
+
+		ApiResponse<Object> response = handler.handleTooManyRequestsException(ex);
+
+		assertFalse(response.isSuccess());
+		assertEquals("queue full", response.getMessage());
+	}
+
 	@Test
 	void handleGenericException_returnsFixedErrorMessage() {
 		Exception ex = new RuntimeException("unexpected");
@@ -18,7 +18,10 @@ package com.alibaba.cloud.ai.dataagent.controller;
 import com.alibaba.cloud.ai.dataagent.dto.GraphRequest;
 import com.alibaba.cloud.ai.dataagent.enums.GraphEventType;
 import com.alibaba.cloud.ai.dataagent.enums.TextType;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.graph.Context.StreamContextRegistry;
 import com.alibaba.cloud.ai.dataagent.service.graph.GraphService;
+import com.alibaba.cloud.ai.dataagent.service.graph.StreamRunForwarder;
 import com.alibaba.cloud.ai.dataagent.vo.GraphNodeResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -27,15 +30,20 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
 import java.time.Duration;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -44,6 +52,12 @@ class GraphControllerTest {
 	@Mock
 	private GraphService graphService;
 
+	@Mock
+	private StreamRunForwarder streamRunForwarder;
+
+	@Mock
+	private ServerHttpRequest serverHttpRequest;
+
 	@Mock
 	private ServerHttpResponse serverHttpResponse;
 
@@ -54,7 +68,7 @@ class GraphControllerTest {
 
 	@BeforeEach
 	void setUp() {
-		graphController = new GraphController(graphService);
+		graphController = new GraphController(graphService, new DataAgentProperties(), streamRunForwarder);
 	}
 
 	private void stubResponseHeaders() {
@@ -72,7 +86,7 @@ class GraphControllerTest {
 
 		StepVerifier
 			.create(graphController.streamSearch("agent-1", "conversation-1", "thread-1", "show me sales data", false,
-					null, false, false, serverHttpResponse))
+					null, false, false, null, serverHttpRequest, serverHttpResponse))
 			.verifyComplete();
 
 		ArgumentCaptor<GraphRequest> requestCaptor = ArgumentCaptor.forClass(GraphRequest.class);
@@ -94,7 +108,7 @@ class GraphControllerTest {
 		stubResponseHeaders();
 
 		graphController.streamSearch("agent-1", "conversation-2", "thread-2", "approve this plan", true, "looks good",
-				false, false, serverHttpResponse);
+				false, false, null, serverHttpRequest, serverHttpResponse);
 
 		ArgumentCaptor<GraphRequest> requestCaptor = ArgumentCaptor.forClass(GraphRequest.class);
 		verify(graphService).graphStreamProcess(any(Sinks.Many.class), requestCaptor.capture());
@@ -109,8 +123,8 @@ class GraphControllerTest {
 	void streamSearch_nl2sqlOnly_setsNl2sqlOnlyFlag() {
 		stubResponseHeaders();
 
-		graphController.streamSearch("agent-1", "conversation-3", null, "SELECT query", false, null, false, true,
-				serverHttpResponse);
+		graphController.streamSearch("agent-1", "conversation-3", null, "SELECT query", false, null, false, true, null,
+				serverHttpRequest, serverHttpResponse);
 
 		ArgumentCaptor<GraphRequest> requestCaptor = ArgumentCaptor.forClass(GraphRequest.class);
 		verify(graphService).graphStreamProcess(any(Sinks.Many.class), requestCaptor.capture());
@@ -138,8 +152,8 @@ class GraphControllerTest {
 		}).when(graphService).graphStreamProcess(any(Sinks.Many.class), any(GraphRequest.class));
 
 		GraphNodeResponse response = graphController
-			.streamSearch("agent-1", "conversation-1", null, "review the plan", true, null, false, false,
-					serverHttpResponse)
+			.streamSearch("agent-1", "conversation-1", null, "review the plan", true, null, false, false, null,
+					serverHttpRequest, serverHttpResponse)
 			.map(ServerSentEvent::data)
 			.blockFirst(Duration.ofSeconds(1));
 
@@ -148,9 +162,118 @@ class GraphControllerTest {
 		assertNull(response.getText());
 	}
 
+	@Test
+	void streamSearch_lastEventId_resumesExistingRunInsteadOfStartingNewOne() {
+		stubResponseHeaders();
+		doAnswer(invocation -> {
+			Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = invocation.getArgument(0);
+			sink.tryEmitNext(ServerSentEvent
+				.builder(GraphNodeResponse.builder()
+					.agentId("agent-1")
+					.threadId("run-6")
+					.textType(TextType.TEXT)
+					.text("replayed")
+					.build())
+				.id("run-6:8")
+				.build());
+			sink.tryEmitComplete();
+			return true;
+		}).when(graphService).resumeStream(any(Sinks.Many.class), eq("agent-1"), eq("run-6:7"));
+
+		StepVerifier
+			.create(graphController
+				.streamSearch("agent-1", "conversation-6", null, "show me sales data", false, null, false, false,
+						"run-6:7", serverHttpRequest, serverHttpResponse)
+				.map(ServerSentEvent::id))
+			.expectNext("run-6:8")
+			.verifyComplete();
+
+		verify(graphService, never()).graphStreamProcess(any(Sinks.Many.class), any(GraphRequest.class));
+	}
+
+	@Test
+	void streamSearch_lastEventIdForExpiredRun_emitsErrorEvent() {
+		stubResponseHeaders();
+		when(graphService.resumeStream(any(Sinks.Many.class), eq("agent-1"), eq("run-7:3"))).thenReturn(false);
+
+		ServerSentEvent<GraphNodeResponse> event = graphController
+			.streamSearch("agent-1", "conversation-7", null, "show me sales data", false, null, false, false, "run-7:3",
+					serverHttpRequest, serverHttpResponse)
+			.blockFirst(Duration.ofSeconds(1));
+
+		assertNotNull(event);
+		assertEquals("error", event.event());
+		assertTrue(event.data().isError());
+		verify(graphService, never()).graphStreamProcess(any(Sinks.Many.class), any(GraphRequest.class));
+	}
+
+	@Test
+	void streamSearch_clientCancels_detachesInsteadOfStopping() {
+		stubResponseHeaders();
+
+		graphController
+			.streamSearch("agent-1", "conversation-8", "thread-8", "show me sales data", false, null, false, false,
+					null, serverHttpRequest, serverHttpResponse)
+			.subscribe()
+			.dispose();
+
+		verify(graphService).detachStream(eq("thread-8"), any(Sinks.Many.class));
+		verify(graphService, never()).stopStreamProcessing(anyString());
+	}
+
+	@Test
+	void streamSearch_lastEventIdOfRemoteRun_forwardsToOwningNode() {
+		stubResponseHeaders();
+		StreamContextRegistry.Owner owner = new StreamContextRegistry.Owner("run-9", "node-b", "http://node-b:8065");
+		when(streamRunForwarder.remoteOwner(eq("run-9"), any())).thenReturn(Optional.of(owner));
+		when(streamRunForwarder.forwardStream(owner, serverHttpRequest, "agent-1")).thenReturn(Flux
+			.just(ServerSentEvent.builder(GraphNodeResponse.complete("agent-1", "run-9")).id("run-9:4").build()));
+
+		StepVerifier
+			.create(graphController
+				.streamSearch("agent-1", "conversation-9", null, "show me sales data", false, null, false, false,
+						"run-9:3", serverHttpRequest, serverHttpResponse)
+				.map(ServerSentEvent::id))
+			.expectNext("run-9:4")
+			.verifyComplete();
+
+		verify(graphService, never()).resumeStream(any(Sinks.Many.class), anyString(), anyString());
+		verify(graphService, never()).graphStreamProcess(any(), any());
+	}
+
+	@Test
+	void streamSearch_humanFeedbackForRemoteRun_forwardsToOwningNode() {
+		stubResponseHeaders();
+		StreamContextRegistry.Owner owner = new StreamContextRegistry.Owner("run-10", "node-b", "http://node-b:8065");
+		when(streamRunForwarder.remoteOwner(eq("run-10"), any())).thenReturn(Optional.of(owner));
+		when(streamRunForwarder.forwardStream(owner, serverHttpRequest, "agent-1")).thenReturn(Flux.empty());
+
+		StepVerifier
+			.create(graphController.streamSearch("agent-1", "conversation-10", "run-10", "approve", true, "looks good",
+					false, false, null, serverHttpRequest, serverHttpResponse))
+			.verifyComplete();
+
+		verify(graphService, never()).graphStreamProcess(any(), any());
+	}
+
+	@Test
+	void stopStream_remoteRun_forwardsInsteadOfStoppingLocally() {
+		StreamContextRegistry.Owner owner = new StreamContextRegistry.Owner("run-11", "node-b", "http://node-b:8065");
+		when(streamRunForwarder.remoteOwner(eq("run-11"), any())).thenReturn(Optional.of(owner));
+		when(streamRunForwarder.forwardStop(eq("conversation-11"), eq("run-11"), any())).thenReturn(Mono.empty());
+
+		StepVerifier.create(graphController.stopStream("conversation-11", "run-11", serverHttpRequest))
+			.expectNextMatches(response -> response.getStatusCode().value() == 204)
+			.verifyComplete();
+
+		verify(graphService, never()).stopStreamProcessing(anyString());
+	}
+
 	@Test
 	void stopStream_withRunId_stopsExactGraphRun() {
-		graphController.stopStream("conversation-4", "run-4");
+		when(streamRunForwarder.forwardStop(eq("conversation-4"), eq("run-4"), any())).thenReturn(Mono.empty());
+
+		graphController.stopStream("conversation-4", "run-4", serverHttpRequest).block();
 
 		verify(graphService).stopStreamProcessing("run-4");
 		verify(graphService, never()).stopStreamProcessingByConversationId(anyString());
@@ -158,7 +281,9 @@ class GraphControllerTest {
 
 	@Test
 	void stopStream_withoutRunId_stopsConversationRun() {
-		graphController.stopStream("conversation-5", null);
+		when(streamRunForwarder.forwardStop(eq("conversation-5"), isNull(), any())).thenReturn(Mono.empty());
+
+		graphController.stopStream("conversation-5", null, serverHttpRequest).block();
 
 		verify(graphService).stopStreamProcessingByConversationId("conversation-5");
 		verify(graphService, never()).stopStreamProcessing(anyString());
@@ -22,6 +22,9 @@ import java.util.Map;
 import com.alibaba.cloud.ai.dataagent.bo.schema.ResultSetBO;
 import com.alibaba.cloud.ai.dataagent.common.TestFixtures;
 import com.alibaba.cloud.ai.dataagent.properties.CodeExecutorProperties;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
 import com.alibaba.cloud.ai.dataagent.service.code.PythonCodeExecutorService;
 import com.alibaba.cloud.ai.dataagent.service.code.sandbox.dependency.PythonDependencyMetadata;
 import com.alibaba.cloud.ai.dataagent.service.code.sandbox.dependency.PythonDependencyMetadataParser;
@@ -80,6 +83,9 @@ class PythonWorkflowComponentTest {
 	@Mock
 	private CodeExecutorProperties codeExecutorProperties;
 
+	@Mock
+	private StateValueStore stateValueStore;
+
 	private PythonGenerateNode pythonGenerateNode;
 
 	private PythonExecuteNode pythonExecuteNode;
@@ -88,10 +94,12 @@ class PythonWorkflowComponentTest {
 
 	@BeforeEach
 	void setUp() {
-		pythonGenerateNode = new PythonGenerateNode(codeExecutorProperties, llmService);
+		StateValueOffloader stateValueOffloader = new StateValueOffloader(stateValueStore,
+				new DataAgentProperties.StateOffload());
+		pythonGenerateNode = new PythonGenerateNode(codeExecutorProperties, llmService, stateValueOffloader);
 		pythonExecuteNode = new PythonExecuteNode(pythonCodeExecutor, dependencyMetadataParser, jsonParseUtil,
-				codeExecutorProperties);
-		pythonAnalyzeNode = new PythonAnalyzeNode(llmService);
+				codeExecutorProperties, stateValueOffloader);
+		pythonAnalyzeNode = new PythonAnalyzeNode(llmService, stateValueOffloader);
 	}
 
 	@Test
@@ -27,8 +27,13 @@ import com.alibaba.cloud.ai.dataagent.connector.accessor.Accessor;
 import com.alibaba.cloud.ai.dataagent.dto.datasource.SqlRetryDto;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.SqlGenerationDTO;
 import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import com.alibaba.cloud.ai.dataagent.service.nl2sql.Nl2SqlService;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SemanticQueryCache;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SpeculativeSqlService;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SqlStepService;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
 import com.alibaba.cloud.ai.dataagent.util.DatabaseUtil;
 import com.alibaba.cloud.ai.dataagent.util.JsonUtil;
@@ -83,14 +88,28 @@ class TextToSqlWorkflowComponentTest {
 	@Mock
 	private Accessor accessor;
 
+	@Mock
+	private StateValueStore stateValueStore;
+
 	private SqlGenerateNode sqlGenerateNode;
 
 	private SqlExecuteNode sqlExecuteNode;
 
+	@Mock
+	private SemanticQueryCache semanticQueryCache;
+
+	@Mock
+	private SpeculativeSqlService speculativeSqlService;
+
 	@BeforeEach
 	void setUp() {
-		sqlGenerateNode = new SqlGenerateNode(nl2SqlService, properties);
-		sqlExecuteNode = new SqlExecuteNode(databaseUtil, nl2SqlService, llmService, properties);
+		StateValueOffloader stateValueOffloader = new StateValueOffloader(stateValueStore,
+				new DataAgentProperties.StateOffload());
+		sqlGenerateNode = new SqlGenerateNode(nl2SqlService, properties, semanticQueryCache, speculativeSqlService,
+				stateValueOffloader);
+		sqlExecuteNode = new SqlExecuteNode(databaseUtil, nl2SqlService,
+				new SqlStepService(llmService, properties, TestFixtures.schemaPromptCompactor()), stateValueOffloader,
+				semanticQueryCache);
 	}
 
 	@Test
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.mapper;
+
+import com.alibaba.cloud.ai.dataagent.entity.GraphRunOwner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@MybatisTest
+class GraphRunOwnerMapperIntegrationTest {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private GraphRunOwnerMapper mapper;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate.execute("DROP TABLE IF EXISTS graph_run_owner");
+		jdbcTemplate.execute("""
+				CREATE TABLE graph_run_owner (
+				  thread_id VARCHAR(64) PRIMARY KEY,
+				  conversation_id VARCHAR(64),
+				  node_id VARCHAR(128) NOT NULL,
+				  node_address VARCHAR(255) NOT NULL,
+				  heartbeat_time TIMESTAMP NOT NULL
+				)
+				""");
+	}
+
+	@Test
+	void ownersOfOfflineNodesAreIgnoredAndExpired() {
+		LocalDateTime now = LocalDateTime.now();
+		mapper.insert(owner("run-1", "node-a", now));
+		mapper.insert(owner("run-2", "node-b", now.minusMinutes(5)));
+
+		assertThat(mapper.selectAliveByThreadId("run-1", now.minusSeconds(30)).getNodeAddress())
+			.isEqualTo("http://node-a:8065");
+		assertThat(mapper.selectAliveByThreadId("run-2", now.minusSeconds(30))).isNull();
+		assertThat(mapper.selectAliveByConversationId("conversation-1", now.minusSeconds(30)))
+			.extracting(GraphRunOwner::getThreadId)
+			.containsExactly("run-1");
+
+		assertThat(mapper.deleteExpired(now.minusSeconds(30))).isEqualTo(1);
+		assertThat(mapper.updateHeartbeatByNodeId("node-a", now.plusSeconds(10))).isEqualTo(1);
+	}
+
+	@Test
+	void onlyOwningNodeReleasesRun() {
+		LocalDateTime now = LocalDateTime.now();
+		mapper.insert(owner("run-1", "node-a", now));
+		assertThat(mapper.updateByThreadId(owner("run-1", "node-b", now))).isEqualTo(1);
+
+		assertThat(mapper.deleteByThreadIdAndNodeId("run-1", "node-a")).isZero();
+		assertThat(mapper.deleteByThreadIdAndNodeId("run-1", "node-b")).isEqualTo(1);
+	}
+
+	private static GraphRunOwner owner(String threadId, String nodeId, LocalDateTime heartbeatTime) {
+		return GraphRunOwner.builder()
+			.threadId(threadId)
+			.conversationId("conversation-1")
+			.nodeId(nodeId)
+			.nodeAddress("http://" + nodeId + ":8065")
+			.heartbeatTime(heartbeatTime)
+			.build();
+	}
+
+}
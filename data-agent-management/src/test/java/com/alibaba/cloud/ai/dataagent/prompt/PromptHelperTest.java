@@ -15,6 +15,7 @@
  */
 package com.alibaba.cloud.ai.dataagent.prompt;
 
+import com.alibaba.cloud.ai.dataagent.common.TestFixtures;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.SqlGenerationDTO;
 import com.alibaba.cloud.ai.dataagent.dto.schema.ColumnDTO;
 import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
@@ -84,7 +85,7 @@ class PromptHelperTest {
 			.previousStepResults("step_1:\n{\"data\":[{\"id\":42}]}")
 			.build();
 
-		String result = PromptHelper.buildNewSqlGeneratorPrompt(dto);
+		String result = PromptHelper.buildNewSqlGeneratorPrompt(dto, TestFixtures.schemaPromptCompactor());
 
 		assertTrue(result.contains("前序步骤执行结果"));
 		assertTrue(result.contains("\"id\":42"));
@@ -105,13 +106,57 @@ class PromptHelperTest {
 			.exceptionMessage("Unresolved placeholder")
 			.build();
 
-		String result = PromptHelper.buildSqlErrorFixerPrompt(dto);
+		String result = PromptHelper.buildSqlErrorFixerPrompt(dto, TestFixtures.schemaPromptCompactor());
 
 		assertTrue(result.contains("\"id\":42"));
 		assertTrue(result.contains("一条可执行 SQL 语句"));
 		assertTrue(result.contains("不得残留 `?`"));
 	}
 
+	@Test
+	void buildNewSqlGeneratorPrompt_differentQuestions_shareStablePrefix() {
+		SqlGenerationDTO.SqlGenerationDTOBuilder base = SqlGenerationDTO.builder()
+			.dialect("mysql")
+			.schemaDTO(createTestSchema())
+			.evidence("GMV 指订单总金额")
+			.executionDescription("统计");
+		SchemaPromptCompactor compactor = TestFixtures.schemaPromptCompactor();
+		String first = PromptHelper.buildNewSqlGeneratorPrompt(base.query("查询用户数量").build(), compactor);
+		String second = PromptHelper.buildNewSqlGeneratorPrompt(base.query("查询订单数量").build(), compactor);
+
+		int evidenceEnd = first.indexOf("GMV 指订单总金额") + "GMV 指订单总金额".length();
+		assertTrue(evidenceEnd > first.indexOf("# Table: users"));
+		assertTrue(first.indexOf("查询用户数量") > evidenceEnd);
+		assertEquals(first.substring(0, evidenceEnd), second.substring(0, evidenceEnd));
+	}
+
+	@Test
+	void buildMixMacSqlDbPrompt_anyInputOrder_rendersCanonically() {
+		SchemaDTO schema = createTestSchema();
+		TableDTO orders = new TableDTO();
+		orders.setName("orders");
+		orders.setPrimaryKeys(Arrays.asList("order_id"));
+		ColumnDTO amount = new ColumnDTO();
+		amount.setName("amount");
+		amount.setType("decimal");
+		ColumnDTO orderId = new ColumnDTO();
+		orderId.setName("order_id");
+		orderId.setType("bigint");
+		orders.setColumn(Arrays.asList(amount, orderId));
+		schema.setTable(Arrays.asList(schema.getTable().get(0), orders));
+		schema.setForeignKeys(Arrays.asList("users.id = orders.user_id", "orders.user_id = users.id"));
+		String forward = PromptHelper.buildMixMacSqlDbPrompt(schema, true);
+
+		Collections.reverse(schema.getTable());
+		schema.getForeignKeys().sort(Collections.reverseOrder());
+		orders.setColumn(Arrays.asList(orderId, amount));
+		String reversed = PromptHelper.buildMixMacSqlDbPrompt(schema, true);
+
+		assertEquals(forward, reversed);
+		assertTrue(forward.indexOf("# Table: orders") < forward.indexOf("# Table: users"));
+		assertTrue(forward.indexOf("order_id") < forward.indexOf("amount"));
+	}
+
 	@Test
 	void buildMixMacSqlDbPrompt_withoutColumnType_excludesTypeInfo() {
 		SchemaDTO schema = createTestSchema();
@@ -357,7 +402,8 @@ class PromptHelperTest {
 	@Test
 	void buildFeasibilityAssessmentPrompt_withAllParams_buildsPrompt() {
 		SchemaDTO schema = createTestSchema();
-		String result = PromptHelper.buildFeasibilityAssessmentPrompt("query", schema, "evidence", "history");
+		String result = PromptHelper.buildFeasibilityAssessmentPrompt("query", schema, "evidence", "history",
+				TestFixtures.schemaPromptCompactor());
 		assertTrue(result.contains("query"));
 		assertTrue(result.contains("evidence"));
 		assertTrue(result.contains("history"));
@@ -368,7 +414,8 @@ class PromptHelperTest {
 	@Test
 	void buildFeasibilityAssessmentPrompt_nullParams_handlesGracefully() {
 		SchemaDTO schema = createTestSchema();
-		String result = PromptHelper.buildFeasibilityAssessmentPrompt(null, schema, null, null);
+		String result = PromptHelper.buildFeasibilityAssessmentPrompt(null, schema, null, null,
+				TestFixtures.schemaPromptCompactor());
 		assertTrue(result.contains("(无)"));
 		assertTrue(result.contains("# Table: users"));
 		assertFalse(result.contains("<canonical_query>\nnull"));
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.prompt;
+
+import com.alibaba.cloud.ai.dataagent.dto.schema.ColumnDTO;
+import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
+import com.alibaba.cloud.ai.dataagent.dto.schema.TableDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.PLANNER_NODE;
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.SQL_GENERATE_NODE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaPromptCompactorTest {
+
+	private static final String QUERY = "统计各城市的订单金额";
+
+	private final Encoding encoding = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+	private DataAgentProperties.SchemaPrompt properties;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private SchemaPromptCompactor compactor;
+
+	@BeforeEach
+	void setUp() {
+		properties = new DataAgentProperties.SchemaPrompt();
+		meterRegistry = new SimpleMeterRegistry();
+		compactor = new SchemaPromptCompactor(properties, EncodingType.CL100K_BASE, meterRegistry);
+	}
+
+	@Test
+	void render_withinBudget_returnsFullSchema() {
+		SchemaDTO schema = createSchema();
+
+		String result = compactor.render(schema, true, QUERY, PLANNER_NODE);
+
+		assertEquals(PromptHelper.buildMixMacSqlDbPrompt(schema, true), result);
+		assertEquals(0,
+				meterRegistry.summary("dataagent.prompt.schema.tokens.saved", "scope", PLANNER_NODE).totalAmount());
+	}
+
+	@Test
+	void render_slightlyOverBudget_dropsExamplesOfLeastRelevantColumnFirst() {
+		SchemaDTO schema = createSchema();
+		properties.setMaxTokens(fullTokens(schema) - 1);
+
+		String result = compactor.render(schema, true, QUERY, PLANNER_NODE);
+
+		assertTrue(line(result, "(remark").indexOf("Examples") < 0);
+		assertTrue(line(result, "(city").contains("Examples: [北京,上海]"));
+		assertTrue(line(result, "(order_amount").contains("订单金额"));
+		assertTrue(encoding.countTokens(result) <= properties.getMaxTokens());
+	}
+
+	@Test
+	void render_tinyBudget_keepsKeysAndMostRelevantColumnsLast() {
+		SchemaDTO schema = createSchema();
+		properties.setMaxTokens(1);
+
+		String result = compactor.render(schema, true, QUERY, PLANNER_NODE);
+
+		assertTrue(result.contains("(id:BIGINT, Primary Key)"));
+		assertTrue(result.contains("(user_id:BIGINT)"));
+		assertFalse(result.contains("remark"));
+		assertFalse(result.contains("city"));
+		assertTrue(result.contains("【Foreign keys】"));
+		assertTrue(
+				meterRegistry.summary("dataagent.prompt.schema.tokens.saved", "scope", PLANNER_NODE).totalAmount() > 0);
+	}
+
+	@Test
+	void render_scopeBudgetOverridesDefault() {
+		SchemaDTO schema = createSchema();
+		properties.getScopeMaxTokens().put(SQL_GENERATE_NODE, 1);
+
+		assertEquals(PromptHelper.buildMixMacSqlDbPrompt(schema, true),
+				compactor.render(schema, true, QUERY, PLANNER_NODE));
+		assertNotEquals(PromptHelper.buildMixMacSqlDbPrompt(schema, true),
+				compactor.render(schema, true, QUERY, SQL_GENERATE_NODE));
+	}
+
+	@Test
+	void render_disabled_returnsFullSchema() {
+		SchemaDTO schema = createSchema();
+		properties.setEnabled(false);
+		properties.setMaxTokens(1);
+
+		assertEquals(PromptHelper.buildMixMacSqlDbPrompt(schema, true),
+				compactor.render(schema, true, QUERY, PLANNER_NODE));
+	}
+
+	@Test
+	void relevance_ranksColumnsMentionedByQuery() {
+		SchemaDTO schema = createSchema();
+		List<ColumnDTO> columns = schema.getTable().get(0).getColumn();
+
+		double amount = SchemaPromptCompactor.relevance(QUERY, columns.get(2));
+		double city = SchemaPromptCompactor.relevance(QUERY, columns.get(3));
+		double remark = SchemaPromptCompactor.relevance(QUERY, columns.get(4));
+
+		assertTrue(amount > remark);
+		assertTrue(city > remark);
+		assertTrue(SchemaPromptCompactor.relevance("北京的订单", columns.get(3)) > 0);
+	}
+
+	@Test
+	void promptBuilders_useInjectedCompactor() {
+		SchemaDTO schema = createSchema();
+		properties.setMaxTokens(1);
+
+		assertTrue(PromptHelper.buildMixMacSqlDbPrompt(schema, true).contains("remark"));
+		assertFalse(
+				PromptHelper.buildFeasibilityAssessmentPrompt(QUERY, schema, null, null, compactor).contains("remark"));
+	}
+
+	private int fullTokens(SchemaDTO schema) {
+		return encoding.countTokens(PromptHelper.buildMixMacSqlDbPrompt(schema, true));
+	}
+
+	private static String line(String prompt, String prefix) {
+		return Arrays.stream(prompt.split("\n")).filter(l -> l.startsWith(prefix)).findFirst().orElseThrow();
+	}
+
+	private static SchemaDTO createSchema() {
+		TableDTO orders = new TableDTO();
+		orders.setName("orders");
+		orders.setDescription("订单表");
+		orders.setPrimaryKeys(List.of("id"));
+		orders.setColumn(List.of(column("id", "bigint", "订单ID"), column("user_id", "bigint", "用户ID"),
+				column("order_amount", "decimal", "订单金额", "12.50", "99.00"),
+				column("city", "varchar", "城市", "北京", "上海"), column("remark", "varchar", "备注信息", "加急配送", "周末送达")));
+
+		TableDTO users = new TableDTO();
+		users.setName("users");
+		users.setDescription("用户表");
+		users.setPrimaryKeys(List.of("id"));
+		users.setColumn(List.of(column("id", "bigint", "用户ID"), column("nickname", "varchar", "昵称", "小明")));
+
+		SchemaDTO schema = new SchemaDTO();
+		schema.setName("shop");
+		schema.setTable(List.of(orders, users));
+		schema.setForeignKeys(List.of("orders.user_id=users.id"));
+		return schema;
+	}
+
+	private static ColumnDTO column(String name, String type, String description, String... samples) {
+		ColumnDTO column = new ColumnDTO();
+		column.setName(name);
+		column.setType(type);
+		column.setDescription(description);
+		column.setData(samples.length == 0 ? null : List.of(samples));
+		return column;
+	}
+
+}
@@ -17,6 +17,7 @@ package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
 
 import com.alibaba.cloud.ai.dataagent.dto.ModelConfigDTO;
 import com.alibaba.cloud.ai.dataagent.enums.ModelType;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -24,7 +25,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.embedding.EmbeddingModel;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.INTENT_RECOGNITION_NODE;
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.PLANNER_NODE;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -46,9 +51,13 @@ class AiModelRegistryTest {
 
 	private AiModelRegistry registry;
 
+	private DataAgentProperties properties;
+
 	@BeforeEach
 	void setUp() {
-		registry = new AiModelRegistry(modelFactory, modelConfigDataService);
+		properties = new DataAgentProperties();
+		registry = new AiModelRegistry(modelFactory, modelConfigDataService, properties);
+		lenient().when(modelFactory.warmUp(any())).thenReturn(Mono.empty());
 	}
 
 	@Test
@@ -108,6 +117,18 @@ class AiModelRegistryTest {
 		assertEquals("factory error", error.getCause().getMessage());
 	}
 
+	@Test
+	void getChatModelConfig_followsActiveModelAcrossRefresh() {
+		ModelConfigDTO first = ModelConfigDTO.builder().provider("openai").modelName("gpt-4").build();
+		ModelConfigDTO second = ModelConfigDTO.builder().provider("openai").modelName("gpt-4o").build();
+		when(modelConfigDataService.getActiveConfigByType(ModelType.CHAT)).thenReturn(first, second);
+		when(modelFactory.createChatModel(any())).thenReturn(chatModel);
+
+		assertSame(first, registry.getChatModelConfig());
+		registry.refreshChat();
+		assertSame(second, registry.getChatModelConfig());
+	}
+
 	@Test
 	void getEmbeddingModel_noActiveConfig_throwsClearException() {
 		when(modelConfigDataService.getActiveConfigByType(ModelType.EMBEDDING)).thenReturn(null);
@@ -190,4 +211,136 @@ class AiModelRegistryTest {
 		verify(modelConfigDataService, times(2)).getActiveConfigByType(ModelType.EMBEDDING);
 	}
 
+	@Test
+	void refreshChat_switchesOnlyAfterWarmUp() {
+		ModelConfigDTO first = ModelConfigDTO.builder().modelName("gpt-4").build();
+		ModelConfigDTO second = ModelConfigDTO.builder().modelName("gpt-4o").build();
+		Sinks.Empty<Void> warmUp = Sinks.empty();
+		when(modelConfigDataService.getActiveConfigByType(ModelType.CHAT)).thenReturn(first, second);
+		when(modelFactory.createChatModel(any())).thenReturn(chatModel);
+		when(modelFactory.warmUp(second)).thenReturn(warmUp.asMono());
+
+		assertSame(first, registry.getChatModelConfig());
+		registry.refreshChat();
+		assertSame(first, registry.getChatModelConfig());
+
+		warmUp.tryEmitEmpty();
+		assertSame(second, registry.getChatModelConfig());
+	}
+
+	@Test
+	void refreshChat_supersededRefreshDoesNotSwitch() {
+		ModelConfigDTO first = ModelConfigDTO.builder().modelName("gpt-4").build();
+		ModelConfigDTO second = ModelConfigDTO.builder().modelName("gpt-4o").build();
+		ModelConfigDTO third = ModelConfigDTO.builder().modelName("gpt-4.1").build();
+		Sinks.Empty<Void> slowWarmUp = Sinks.empty();
+		when(modelConfigDataService.getActiveConfigByType(ModelType.CHAT)).thenReturn(first, second, third);
+		when(modelFactory.createChatModel(any())).thenReturn(chatModel);
+		when(modelFactory.warmUp(second)).thenReturn(slowWarmUp.asMono());
+
+		registry.getChatClient();
+		registry.refreshChat();
+		registry.refreshChat();
+		assertSame(third, registry.getChatModelConfig());
+
+		slowWarmUp.tryEmitEmpty();
+		assertSame(third, registry.getChatModelConfig());
+	}
+
+	@Test
+	void refreshChat_factoryThrows_keepsCurrentModel() {
+		ModelConfigDTO first = ModelConfigDTO.builder().modelName("gpt-4").build();
+		ModelConfigDTO second = ModelConfigDTO.builder().modelName("broken").build();
+		when(modelConfigDataService.getActiveConfigByType(ModelType.CHAT)).thenReturn(first, second);
+		when(modelFactory.createChatModel(first)).thenReturn(chatModel);
+		when(modelFactory.createChatModel(second)).thenThrow(new RuntimeException("factory error"));
+
+		var client = registry.getChatClient();
+		assertThrows(IllegalStateException.class, () -> registry.refreshChat());
+		assertSame(client, registry.getChatClient());
+	}
+
+	@Test
+	void refreshEmbedding_switchesOnlyAfterWarmUp() {
+		ModelConfigDTO first = ModelConfigDTO.builder().modelName("embedding-v1").build();
+		ModelConfigDTO second = ModelConfigDTO.builder().modelName("embedding-v2").build();
+		EmbeddingModel nextModel = mock(EmbeddingModel.class);
+		Sinks.Empty<Void> warmUp = Sinks.empty();
+		when(modelConfigDataService.getActiveConfigByType(ModelType.EMBEDDING)).thenReturn(first, second);
+		when(modelFactory.createEmbeddingModel(first)).thenReturn(embeddingModel);
+		when(modelFactory.createEmbeddingModel(second)).thenReturn(nextModel);
+		when(modelFactory.warmUp(second)).thenReturn(warmUp.asMono());
+
+		assertSame(embeddingModel, registry.getEmbeddingModel());
+		registry.refreshEmbedding();
+		assertSame(embeddingModel, registry.getEmbeddingModel());
+
+		warmUp.tryEmitEmpty();
+		assertSame(nextModel, registry.getEmbeddingModel());
+	}
+
+	@Test
+	void getChatClient_scopeMappedToConfiguredTier_usesTierModel() {
+		ModelConfigDTO defaultConfig = ModelConfigDTO.builder().modelName("qwen-max").build();
+		ModelConfigDTO fastConfig = ModelConfigDTO.builder().modelName("qwen-turbo").tier("fast").build();
+		ChatModel fastModel = mock(ChatModel.class);
+		when(modelConfigDataService.getActiveConfigByType(ModelType.CHAT)).thenReturn(defaultConfig);
+		when(modelConfigDataService.getActiveConfigByType(ModelType.CHAT, "fast")).thenReturn(fastConfig);
+		when(modelFactory.createChatModel(defaultConfig)).thenReturn(chatModel);
+		when(modelFactory.createChatModel(fastConfig)).thenReturn(fastModel);
+
+		assertNotSame(registry.getChatClient(), registry.getChatClient(INTENT_RECOGNITION_NODE));
+		assertSame(registry.getChatClient(), registry.getChatClient(PLANNER_NODE));
+		assertSame(fastConfig, registry.getChatModelConfig(INTENT_RECOGNITION_NODE));
+		assertEquals("fast", registry.getEffectiveTier(INTENT_RECOGNITION_NODE));
+		assertEquals(AiModelRegistry.DEFAULT_TIER, registry.getEffectiveTier(PLANNER_NODE));
+		verify(modelFactory, times(1)).createChatModel(fastConfig);
+	}
+
+	@Test
+	void getChatClient_tierWithoutActiveModel_fallsBackToDefault() {
+		ModelConfigDTO defaultConfig = ModelConfigDTO.builder().modelName("qwen-max").build();
+		when(modelConfigDataService.getActiveConfigByType(ModelType.CHAT)).thenReturn(defaultConfig);
+		when(modelConfigDataService.getActiveConfigByType(ModelType.CHAT, "fast")).thenReturn(null);
+		when(modelFactory.createChatModel(defaultConfig)).thenReturn(chatModel);
+
+		assertSame(registry.getChatClient(), registry.getChatClient(INTENT_RECOGNITION_NODE));
+		assertSame(defaultConfig, registry.getChatModelConfig(INTENT_RECOGNITION_NODE));
+		assertEquals(AiModelRegistry.DEFAULT_TIER, registry.getEffectiveTier(INTENT_RECOGNITION_NODE));
+		// 缺失的档位只查询一次
+		verify(modelConfigDataService, times(1)).getActiveConfigByType(ModelType.CHAT, "fast");
+	}
+
+	@Test
+	void refreshChat_reloadsTierModels() {
+		ModelConfigDTO fastConfig = ModelConfigDTO.builder().modelName("qwen-turbo").tier("fast").build();
+		when(modelConfigDataService.getActiveConfigByType(ModelType.CHAT, "fast")).thenReturn(null, fastConfig);
+		when(modelFactory.createChatModel(fastConfig)).thenReturn(chatModel);
+
+		assertEquals(AiModelRegistry.DEFAULT_TIER, registry.getEffectiveTier(INTENT_RECOGNITION_NODE));
+		registry.refreshChat();
+		assertEquals("fast", registry.getEffectiveTier(INTENT_RECOGNITION_NODE));
+	}
+
+	@Test
+	void resolveTier_followsConfiguredMapping() {
+		properties.getModelTiers().getScopes().put(PLANNER_NODE, "strong");
+		properties.getModelTiers().getScopes().remove(INTENT_RECOGNITION_NODE);
+
+		assertEquals("strong", registry.resolveTier(PLANNER_NODE));
+		assertEquals(AiModelRegistry.DEFAULT_TIER, registry.resolveTier(INTENT_RECOGNITION_NODE));
+		assertEquals(AiModelRegistry.DEFAULT_TIER, registry.resolveTier(null));
+	}
+
+	@Test
+	void findChatClient_tierWithoutActiveModel_isEmptyInsteadOfDefault() {
+		ModelConfigDTO backupConfig = ModelConfigDTO.builder().modelName("deepseek-chat").tier("backup").build();
+		when(modelConfigDataService.getActiveConfigByType(ModelType.CHAT, "backup")).thenReturn(backupConfig);
+		when(modelConfigDataService.getActiveConfigByType(ModelType.CHAT, "spare")).thenReturn(null);
+		when(modelFactory.createChatModel(backupConfig)).thenReturn(chatModel);
+
+		assertTrue(registry.findChatClient("backup").isPresent());
+		assertTrue(registry.findChatClient("spare").isEmpty());
+	}
+
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingEmbeddingModelTest {
+
+	@Mock
+	private EmbeddingModel delegate;
+
+	@Mock
+	private EmbeddingModel activeModel;
+
+	@Mock
+	private EmbeddingModel nextModel;
+
+	@Mock
+	private AiModelRegistry registry;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private DataAgentProperties.QueryEmbeddingCache properties;
+
+	private CachingEmbeddingModel model;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		properties = new DataAgentProperties.QueryEmbeddingCache();
+		model = new CachingEmbeddingModel(delegate, registry, properties, meterRegistry);
+		lenient().when(registry.getEmbeddingModel()).thenReturn(activeModel);
+		lenient().when(delegate.call(any(EmbeddingRequest.class))).thenAnswer(invocation -> {
+			List<String> texts = invocation.<EmbeddingRequest>getArgument(0).getInstructions();
+			List<Embedding> embeddings = new ArrayList<>();
+			for (int i = 0; i < texts.size(); i++) {
+				embeddings.add(new Embedding(new float[] { texts.get(i).length() }, i));
+			}
+			return new EmbeddingResponse(embeddings);
+		});
+	}
+
+	private double requests(String result) {
+		return meterRegistry.counter("dataagent.embedding.cache.requests", "result", result).count();
+	}
+
+	@Test
+	void embed_sameQuery_servedFromCache() {
+		float[] first = model.embed("上月销售额");
+		float[] second = model.embed("上月销售额");
+
+		assertArrayEquals(first, second);
+		verify(delegate, times(1)).call(any(EmbeddingRequest.class));
+		assertEquals(1, requests("hit"));
+		assertEquals(1, requests("miss"));
+		assertEquals(1, model.size());
+	}
+
+	@Test
+	void embed_whitespaceVariants_shareEntry() {
+		model.embed("上月 销售额");
+		model.embed("  上月\n\t销售额 ");
+
+		verify(delegate, times(1)).call(any(EmbeddingRequest.class));
+	}
+
+	@Test
+	void embed_returnedVectorModified_cacheUnaffected() {
+		float[] first = model.embed("上月销售额");
+		first[0] = -1f;
+
+		assertEquals(5f, model.embed("上月销售额")[0]);
+	}
+
+	@Test
+	void embed_modelSwitched_cacheCleared() {
+		model.embed("上月销售额");
+		when(registry.getEmbeddingModel()).thenReturn(nextModel);
+
+		model.embed("上月销售额");
+
+		verify(delegate, times(2)).call(any(EmbeddingRequest.class));
+		assertEquals(0, requests("hit"));
+		assertEquals(1, model.size());
+	}
+
+	@Test
+	void embed_backgroundCall_bypassesCache() {
+		ModelCallPriority.runInBackground(() -> model.embed("上月销售额"));
+		ModelCallPriority.runInBackground(() -> model.embed("上月销售额"));
+
+		verify(delegate, times(2)).call(any(EmbeddingRequest.class));
+		assertEquals(0, model.size());
+		assertEquals(0, requests("miss"));
+	}
+
+	@Test
+	void embed_multipleTexts_bypassesCache() {
+		model.embed(List.of("上月销售额", "用户注册数"));
+		model.embed(List.of("上月销售额", "用户注册数"));
+
+		verify(delegate, times(2)).call(any(EmbeddingRequest.class));
+		assertEquals(0, model.size());
+	}
+
+	@Test
+	void embed_overCapacity_evictsLeastRecentlyUsed() {
+		properties.setMaxEntries(2);
+		model.embed("上月销售额");
+		model.embed("用户注册数");
+		model.embed("上月销售额");
+		model.embed("订单退款率");
+
+		model.embed("上月销售额");
+		model.embed("用户注册数");
+
+		assertEquals(2, model.size());
+		verify(delegate, times(4)).call(any(EmbeddingRequest.class));
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CoalescingEmbeddingModelTest {
+
+	@Mock
+	private EmbeddingModel delegate;
+
+	@Mock
+	private EmbeddingModel activeModel;
+
+	@Mock
+	private AiModelRegistry registry;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private CoalescingEmbeddingModel model;
+
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		model = new CoalescingEmbeddingModel(delegate, registry, meterRegistry);
+		lenient().when(registry.getEmbeddingModel()).thenReturn(activeModel);
+	}
+
+	private static EmbeddingResponse response(float... vector) {
+		return new EmbeddingResponse(List.of(new Embedding(vector, 0)));
+	}
+
+	private double requests(String result) {
+		return meterRegistry.counter("dataagent.singleflight.requests", "type", "embedding", "result", result).count();
+	}
+
+	@Test
+	void embed_concurrentIdenticalTexts_shareOneUpstreamCall() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(delegate.call(any(EmbeddingRequest.class))).thenAnswer(invocation -> {
+			upstreamCalls.incrementAndGet();
+			started.countDown();
+			assertTrue(release.await(5, TimeUnit.SECONDS));
+			return response(1f, 2f);
+		});
+
+		CompletableFuture<float[]> first = CompletableFuture.supplyAsync(() -> model.embed("上月销售额"));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<float[]> second = CompletableFuture.supplyAsync(() -> model.embed("上月销售额"));
+		long deadline = System.currentTimeMillis() + 5000;
+		while (requests("coalesced") < 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+
+		assertArrayEquals(new float[] { 1f, 2f }, first.get(5, TimeUnit.SECONDS));
+		assertArrayEquals(new float[] { 1f, 2f }, second.get(5, TimeUnit.SECONDS));
+		assertEquals(1, upstreamCalls.get());
+		assertEquals(1, requests("leader"));
+		assertEquals(1, requests("coalesced"));
+		assertEquals(0, model.inFlight());
+	}
+
+	@Test
+	void embed_differentTexts_notCoalesced() {
+		when(delegate.call(any(EmbeddingRequest.class))).thenReturn(response(1f));
+
+		model.embed("上月销售额");
+		model.embed("用户注册数");
+
+		verify(delegate, times(2)).call(any(EmbeddingRequest.class));
+		assertEquals(0, requests("coalesced"));
+	}
+
+	@Test
+	void embed_afterCompletion_callsUpstreamAgain() {
+		when(delegate.call(any(EmbeddingRequest.class))).thenReturn(response(1f));
+
+		model.embed("上月销售额");
+		model.embed("上月销售额");
+
+		verify(delegate, times(2)).call(any(EmbeddingRequest.class));
+		assertEquals(0, model.inFlight());
+	}
+
+	@Test
+	void embed_upstreamError_propagatesAndIsNotRetained() {
+		when(delegate.call(any(EmbeddingRequest.class))).thenThrow(new IllegalStateException("quota exceeded"))
+			.thenReturn(response(1f));
+
+		IllegalStateException exception = assertThrows(IllegalStateException.class, () -> model.embed("上月销售额"));
+		assertEquals("quota exceeded", exception.getMessage());
+		assertArrayEquals(new float[] { 1f }, model.embed("上月销售额"));
+	}
+
+	@Test
+	void dimensions_delegates() {
+		when(delegate.dimensions()).thenReturn(1024);
+
+		assertEquals(1024, model.dimensions());
+	}
+
+}
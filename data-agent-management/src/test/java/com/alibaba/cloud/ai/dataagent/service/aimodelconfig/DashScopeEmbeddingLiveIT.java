@@ -20,6 +20,9 @@ import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import com.alibaba.cloud.ai.dataagent.dto.ModelConfigDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
@@ -39,7 +42,10 @@ class DashScopeEmbeddingLiveIT {
 
 	private static final int EXPECTED_DIMENSIONS = 1024;
 
-	private final DynamicModelFactory modelFactory = new DynamicModelFactory();
+	private final DynamicModelFactory modelFactory = new DynamicModelFactory(
+			new ProviderConnectionManager(new DataAgentProperties(), new SimpleMeterRegistry()),
+			new ProviderRateLimiter(new DataAgentProperties().getModelRateLimit(), EncodingType.CL100K_BASE,
+					new SimpleMeterRegistry()));
 
 	@Test
 	void embeddings_callDashScopeAndReturnDistinctFiniteVectorsWithUsage() {
@@ -21,6 +21,9 @@ import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
 import com.alibaba.cloud.ai.dataagent.dto.ModelConfigDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
@@ -41,7 +44,10 @@ class DeepSeekModelLiveIT {
 
 	private static final String DEFAULT_COMPLETIONS_PATH = "/chat/completions";
 
-	private final DynamicModelFactory modelFactory = new DynamicModelFactory();
+	private final DynamicModelFactory modelFactory = new DynamicModelFactory(
+			new ProviderConnectionManager(new DataAgentProperties(), new SimpleMeterRegistry()),
+			new ProviderRateLimiter(new DataAgentProperties().getModelRateLimit(), EncodingType.CL100K_BASE,
+					new SimpleMeterRegistry()));
 
 	@Test
 	void streamingChat_callsDeepSeekAndReturnsContentWithUsage() {
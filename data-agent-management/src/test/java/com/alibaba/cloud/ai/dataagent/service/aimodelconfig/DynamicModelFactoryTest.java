@@ -16,8 +16,11 @@
 package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
 
 import com.alibaba.cloud.ai.dataagent.dto.ModelConfigDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.knuddels.jtokkit.api.EncodingType;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -30,6 +33,7 @@ import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,6 +41,8 @@ class DynamicModelFactoryTest {
 
 	private DynamicModelFactory dynamicModelFactory;
 
+	private ProviderConnectionManager connectionManager;
+
 	private HttpServer providerServer;
 
 	private HttpServer proxyServer;
@@ -47,9 +53,21 @@ class DynamicModelFactoryTest {
 
 	private String providerBaseUrl;
 
+	private SimpleMeterRegistry meterRegistry;
+
+	private final AtomicInteger throttledResponses = new AtomicInteger();
+
 	@BeforeEach
 	void setUp() throws IOException {
-		dynamicModelFactory = new DynamicModelFactory();
+		connectionManager = new ProviderConnectionManager(new DataAgentProperties(), new SimpleMeterRegistry());
+		meterRegistry = new SimpleMeterRegistry();
+		DataAgentProperties.ModelRateLimit rateLimit = new DataAgentProperties().getModelRateLimit();
+		rateLimit.setDefaultRetryAfterMs(10);
+		// 未设上限的模型不经过限流器，这里设一个宽松的上限以覆盖 429 重试
+		rateLimit.setRequestsPerMinute(6000);
+		rateLimit.getOverrides().put("unlimited", new DataAgentProperties.ModelRateLimit.Limit());
+		dynamicModelFactory = new DynamicModelFactory(connectionManager,
+				new ProviderRateLimiter(rateLimit, EncodingType.CL100K_BASE, meterRegistry));
 		providerRequests = new CopyOnWriteArrayList<>();
 		providerServer = startServer(providerRequests, false);
 		providerBaseUrl = "http://127.0.0.1:" + providerServer.getAddress().getPort();
@@ -57,6 +75,7 @@ class DynamicModelFactoryTest {
 
 	@AfterEach
 	void tearDown() {
+		connectionManager.shutdown();
 		providerServer.stop(0);
 		if (proxyServer != null) {
 			proxyServer.stop(0);
@@ -331,6 +350,56 @@ class DynamicModelFactoryTest {
 				|| "Bearer".equals(request.authorization()));
 	}
 
+	@Test
+	void createChatModel_providerThrottles_retriesAfterPause() {
+		throttledResponses.set(1);
+		ModelConfigDTO config = ModelConfigDTO.builder()
+			.provider("openai")
+			.apiKey("sk-test-key")
+			.baseUrl(providerBaseUrl)
+			.modelName("gpt-4")
+			.build();
+
+		ChatModel chatModel = dynamicModelFactory.createChatModel(config);
+		assertEquals("provider response", chatModel.call("Hello"));
+		assertEquals(2, providerRequests.size());
+		assertEquals(1.0,
+				meterRegistry.get("dataagent.ratelimit.throttled").tag("model", "openai/gpt-4").counter().count());
+	}
+
+	@Test
+	void createEmbeddingModel_providerKeepsThrottling_failsAfterRetries() {
+		throttledResponses.set(10);
+		ModelConfigDTO config = ModelConfigDTO.builder()
+			.provider("custom")
+			.baseUrl(providerBaseUrl)
+			.modelName("text-embedding-test")
+			.build();
+
+		EmbeddingModel embeddingModel = dynamicModelFactory.createEmbeddingModel(config);
+		ModelRateLimitedException e = assertThrows(ModelRateLimitedException.class,
+				() -> embeddingModel.embed("Hello"));
+		assertTrue(e.getMessage().startsWith("429"));
+		// 首次调用加上默认 2 次重试
+		assertEquals(3, providerRequests.size());
+	}
+
+	@Test
+	void createChatModel_noLimitConfigured_bypassesLimiter() {
+		throttledResponses.set(1);
+		ModelConfigDTO config = ModelConfigDTO.builder()
+			.provider("unlimited")
+			.apiKey("sk-test-key")
+			.baseUrl(providerBaseUrl)
+			.modelName("gpt-4")
+			.build();
+
+		ChatModel chatModel = dynamicModelFactory.createChatModel(config);
+		assertThrows(ModelRateLimitedException.class, () -> chatModel.call("Hello"));
+		assertEquals(1, providerRequests.size());
+		assertNull(meterRegistry.find("dataagent.ratelimit.throttled").counter());
+	}
+
 	private HttpServer startServer(List<CapturedRequest> requests, boolean requireProxyAuthentication)
 			throws IOException {
 		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
@@ -355,6 +424,16 @@ class DynamicModelFactoryTest {
 			return;
 		}
 
+		if (throttledResponses.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+			byte[] body = "{\"error\":{\"message\":\"Rate limit reached\"}}".getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.getResponseHeaders().add("Retry-After", "0");
+			exchange.sendResponseHeaders(429, body.length);
+			exchange.getResponseBody().write(body);
+			exchange.close();
+			return;
+		}
+
 		String response = requestPath.contains("embeddings") ? embeddingResponse() : chatResponse();
 		byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
 		exchange.getResponseHeaders().add("Content-Type", "application/json");
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MicroBatchingEmbeddingModelTest {
+
+	@Mock
+	private EmbeddingModel delegate;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private final List<List<String>> upstreamBatches = new CopyOnWriteArrayList<>();
+
+	private static final String SLOW_MODEL = "slow";
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	private final CountDownLatch slowStarted = new CountDownLatch(1);
+
+	private final CountDownLatch slowRelease = new CountDownLatch(1);
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		lenient().when(delegate.call(any(EmbeddingRequest.class))).thenAnswer(invocation -> {
+			List<String> texts = invocation.<EmbeddingRequest>getArgument(0).getInstructions();
+			if (isSlow(invocation.getArgument(0))) {
+				slowStarted.countDown();
+				slowRelease.await(5, TimeUnit.SECONDS);
+			}
+			else {
+				upstreamBatches.add(texts);
+			}
+			List<Embedding> embeddings = new ArrayList<>();
+			for (int i = 0; i < texts.size(); i++) {
+				embeddings.add(new Embedding(vectorOf(texts.get(i)), i));
+			}
+			return new EmbeddingResponse(embeddings);
+		});
+	}
+
+	@AfterEach
+	void tearDown() {
+		slowRelease.countDown();
+		executor.shutdownNow();
+	}
+
+	private static boolean isSlow(EmbeddingRequest request) {
+		return request.getOptions() != null && SLOW_MODEL.equals(request.getOptions().getModel());
+	}
+
+	/**
+	 * 让一个请求停在向量模型调用中，之后的请求会看到并发而等待窗口
+	 */
+	private void holdInFlight(MicroBatchingEmbeddingModel model) throws Exception {
+		CompletableFuture.runAsync(() -> model.call(new EmbeddingRequest(List.of("慢请求"), options(SLOW_MODEL))),
+				executor);
+		assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+	}
+
+	private static float[] vectorOf(String text) {
+		return new float[] { text.length(), text.hashCode() };
+	}
+
+	@Test
+	void embed_concurrentTexts_sentAsOneBatch() throws Exception {
+		MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(delegate, 5000, 3, meterRegistry);
+		holdInFlight(model);
+
+		List<String> texts = List.of("上月销售额", "用户注册数", "订单退款率");
+		List<CompletableFuture<float[]>> futures = texts.stream()
+			.map(text -> CompletableFuture.supplyAsync(() -> model.embed(text), executor))
+			.toList();
+
+		for (int i = 0; i < texts.size(); i++) {
+			assertArrayEquals(vectorOf(texts.get(i)), futures.get(i).get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, upstreamBatches.size());
+		assertEquals(3, upstreamBatches.get(0).size());
+		assertEquals(3, meterRegistry.get("dataagent.embedding.microbatch.size").summary().max());
+		assertEquals(3, meterRegistry.get("dataagent.embedding.microbatch.latency").timer().count());
+	}
+
+	@Test
+	void embed_batchFull_remainingTextsSentInNextBatch() throws Exception {
+		MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(delegate, 200, 2, meterRegistry);
+
+		List<String> texts = List.of("上月销售额", "用户注册数", "订单退款率");
+		List<CompletableFuture<float[]>> futures = texts.stream()
+			.map(text -> CompletableFuture.supplyAsync(() -> model.embed(text), executor))
+			.toList();
+
+		for (int i = 0; i < texts.size(); i++) {
+			assertArrayEquals(vectorOf(texts.get(i)), futures.get(i).get(5, TimeUnit.SECONDS));
+		}
+		assertTrue(upstreamBatches.stream().allMatch(batch -> batch.size() <= 2));
+		assertEquals(3, upstreamBatches.stream().mapToInt(List::size).sum());
+	}
+
+	@Test
+	void embed_singleRequest_sentWithoutWaitingForWindow() {
+		MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(delegate, 5000, 10, meterRegistry);
+
+		long start = System.nanoTime();
+		assertArrayEquals(vectorOf("上月销售额"), model.embed("上月销售额"));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+		assertEquals(List.of(List.of("上月销售额")), upstreamBatches);
+		assertEquals(1, meterRegistry.get("dataagent.embedding.microbatch.requests").summary().totalAmount());
+	}
+
+	@Test
+	void call_requestAtBatchLimit_bypassesBatching() {
+		MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(delegate, 5000, 2, meterRegistry);
+		EmbeddingRequest request = new EmbeddingRequest(List.of("上月销售额", "用户注册数"), null);
+
+		EmbeddingResponse response = model.call(request);
+
+		assertEquals(2, response.getResults().size());
+		verify(delegate).call(request);
+		assertEquals(0, meterRegistry.get("dataagent.embedding.microbatch.size").summary().count());
+	}
+
+	@Test
+	void call_differentOptions_notBatchedTogether() throws Exception {
+		MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(delegate, 100, 10, meterRegistry);
+
+		CompletableFuture<EmbeddingResponse> first = CompletableFuture.supplyAsync(
+				() -> model.call(new EmbeddingRequest(List.of("上月销售额"), options("text-embedding-v3"))), executor);
+		CompletableFuture<EmbeddingResponse> second = CompletableFuture.supplyAsync(
+				() -> model.call(new EmbeddingRequest(List.of("用户注册数"), options("text-embedding-v4"))), executor);
+
+		assertEquals(1, first.get(5, TimeUnit.SECONDS).getResults().size());
+		assertEquals(1, second.get(5, TimeUnit.SECONDS).getResults().size());
+		assertEquals(2, upstreamBatches.size());
+	}
+
+	@Test
+	void embed_upstreamFails_allBatchedCallersReceiveError() throws Exception {
+		when(delegate.call(any(EmbeddingRequest.class))).thenAnswer(invocation -> {
+			if (isSlow(invocation.getArgument(0))) {
+				slowStarted.countDown();
+				slowRelease.await(5, TimeUnit.SECONDS);
+				return new EmbeddingResponse(List.of(new Embedding(new float[] { 0 }, 0)));
+			}
+			throw new IllegalStateException("embedding down");
+		});
+		MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(delegate, 5000, 2, meterRegistry);
+		holdInFlight(model);
+
+		CompletableFuture<float[]> first = CompletableFuture.supplyAsync(() -> model.embed("上月销售额"), executor);
+		CompletableFuture<float[]> second = CompletableFuture.supplyAsync(() -> model.embed("用户注册数"), executor);
+
+		for (CompletableFuture<float[]> future : List.of(first, second)) {
+			Exception e = assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+			assertInstanceOf(IllegalStateException.class, e.getCause());
+		}
+		verify(delegate, times(1)).call(argThat((EmbeddingRequest request) -> !isSlow(request)));
+	}
+
+	private static EmbeddingOptions options(String model) {
+		return EmbeddingOptions.builder().model(model).build();
+	}
+
+}
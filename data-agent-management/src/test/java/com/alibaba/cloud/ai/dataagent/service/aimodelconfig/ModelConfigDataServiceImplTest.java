@@ -22,6 +22,7 @@ import com.alibaba.cloud.ai.dataagent.mapper.ModelConfigMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -62,18 +63,31 @@ class ModelConfigDataServiceImplTest {
 
 		service.switchActiveStatus(1, ModelType.CHAT);
 
-		verify(modelConfigMapper).deactivateOthers(ModelType.CHAT.getCode(), 1);
+		verify(modelConfigMapper).deactivateOthers(ModelType.CHAT.getCode(), null, 1);
 		verify(modelConfigMapper).updateById(config);
 		assertTrue(config.getIsActive());
 	}
 
+	@Test
+	void switchActiveStatus_tieredConfig_deactivatesOnlySameTier() {
+		ModelConfig config = new ModelConfig();
+		config.setId(2);
+		config.setTier("fast");
+		when(modelConfigMapper.findById(2)).thenReturn(config);
+
+		service.switchActiveStatus(2, ModelType.CHAT);
+
+		verify(modelConfigMapper).deactivateOthers(ModelType.CHAT.getCode(), "fast", 2);
+		verify(modelConfigMapper).updateById(config);
+	}
+
 	@Test
 	void switchActiveStatus_entityNotFound_noUpdate() {
 		when(modelConfigMapper.findById(1)).thenReturn(null);
 
 		service.switchActiveStatus(1, ModelType.CHAT);
 
-		verify(modelConfigMapper).deactivateOthers(ModelType.CHAT.getCode(), 1);
+		verify(modelConfigMapper).deactivateOthers(ModelType.CHAT.getCode(), null, 1);
 		verify(modelConfigMapper, never()).updateById(any());
 	}
 
@@ -109,6 +123,59 @@ class ModelConfigDataServiceImplTest {
 		assertEquals("gpt-4", dto.getModelName());
 	}
 
+	@Test
+	void addConfig_normalizesTier() {
+		ModelConfigDTO chat = ModelConfigDTO.builder()
+			.modelName("qwen-turbo")
+			.baseUrl("http://example.com")
+			.modelType("CHAT")
+			.tier(" fast ")
+			.build();
+		ModelConfigDTO embedding = ModelConfigDTO.builder()
+			.modelName("text-embedding")
+			.baseUrl("http://example.com")
+			.modelType("EMBEDDING")
+			.tier("fast")
+			.build();
+
+		service.addConfig(chat);
+		service.addConfig(embedding);
+
+		ArgumentCaptor<ModelConfig> captor = ArgumentCaptor.forClass(ModelConfig.class);
+		verify(modelConfigMapper, times(2)).insert(captor.capture());
+		assertEquals("fast", captor.getAllValues().get(0).getTier());
+		assertNull(captor.getAllValues().get(1).getTier());
+	}
+
+	@Test
+	void updateConfigInDb_tierChanged_throwsException() {
+		ModelConfig existing = new ModelConfig();
+		existing.setId(1);
+		existing.setModelType(ModelType.CHAT);
+		when(modelConfigMapper.findById(1)).thenReturn(existing);
+
+		ModelConfigDTO dto = new ModelConfigDTO();
+		dto.setId(1);
+		dto.setModelType("CHAT");
+		dto.setTier("fast");
+		dto.setModelName("m");
+		dto.setBaseUrl("u");
+		dto.setApiKey("k");
+
+		assertThrowsExactly(RuntimeException.class, () -> service.updateConfigInDb(dto));
+		verify(modelConfigMapper, never()).updateById(any());
+	}
+
+	@Test
+	void getActiveConfigByType_withTier_queriesTier() {
+		ModelConfig config = new ModelConfig();
+		config.setModelType(ModelType.CHAT);
+		config.setTier("fast");
+		when(modelConfigMapper.selectActiveByType("CHAT", "fast")).thenReturn(config);
+
+		assertEquals("fast", service.getActiveConfigByType(ModelType.CHAT, "fast").getTier());
+	}
+
 	@Test
 	void updateConfigInDb_configNotFound_throwsException() {
 		ModelConfigDTO dto = new ModelConfigDTO();
@@ -289,7 +356,7 @@ class ModelConfigDataServiceImplTest {
 		config.setBaseUrl("http://example.com");
 		config.setApiKey("key");
 		config.setProvider("openai");
-		when(modelConfigMapper.selectActiveByType("CHAT")).thenReturn(config);
+		when(modelConfigMapper.selectActiveByType("CHAT", null)).thenReturn(config);
 
 		ModelConfigDTO result = service.getActiveConfigByType(ModelType.CHAT);
 		assertEquals(1, result.getId());
@@ -298,12 +365,12 @@ class ModelConfigDataServiceImplTest {
 		assertEquals("http://example.com", result.getBaseUrl());
 		assertEquals("key", result.getApiKey());
 		assertEquals("openai", result.getProvider());
-		verify(modelConfigMapper).selectActiveByType("CHAT");
+		verify(modelConfigMapper).selectActiveByType("CHAT", null);
 	}
 
 	@Test
 	void getActiveConfigByType_notFound_returnsNull() {
-		when(modelConfigMapper.selectActiveByType("CHAT")).thenReturn(null);
+		when(modelConfigMapper.selectActiveByType("CHAT", null)).thenReturn(null);
 
 		assertNull(service.getActiveConfigByType(ModelType.CHAT));
 	}
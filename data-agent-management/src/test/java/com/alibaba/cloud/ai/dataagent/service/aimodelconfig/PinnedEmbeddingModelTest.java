@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PinnedEmbeddingModelTest {
+
+	@Mock
+	private EmbeddingModel delegate;
+
+	@Mock
+	private EmbeddingModel activeModel;
+
+	@Mock
+	private EmbeddingModel nextModel;
+
+	@Mock
+	private AiModelRegistry registry;
+
+	private PinnedEmbeddingModel model;
+
+	@BeforeEach
+	void setUp() {
+		model = new PinnedEmbeddingModel(delegate, registry);
+		lenient().when(registry.getEmbeddingModel()).thenReturn(activeModel);
+		lenient().when(delegate.embed("上月销售额")).thenReturn(new float[] { 1f });
+		lenient().when(delegate.call(any(EmbeddingRequest.class)))
+			.thenReturn(new EmbeddingResponse(List.of(new Embedding(new float[] { 2f }, 0))));
+	}
+
+	@Test
+	void pinnedQuery_servedOnOtherThreadsWithoutDelegate() {
+		try (PinnedEmbeddingModel.Pin pin = model.pin("上月销售额")) {
+			float[] vector = CompletableFuture.supplyAsync(() -> model.embed("上月销售额")).join();
+
+			assertArrayEquals(new float[] { 1f }, vector);
+			verify(delegate, never()).call(any());
+		}
+	}
+
+	@Test
+	void close_releasesPinAfterLastReference() {
+		PinnedEmbeddingModel.Pin first = model.pin("上月销售额");
+		PinnedEmbeddingModel.Pin second = model.pin("上月销售额");
+
+		first.close();
+		assertArrayEquals(new float[] { 1f }, model.embed("上月销售额"));
+		second.close();
+
+		assertEquals(0, model.size());
+		assertArrayEquals(new float[] { 2f }, model.embed("上月销售额"));
+		verify(delegate, times(1)).embed("上月销售额");
+	}
+
+	@Test
+	void otherOptionsAndBackgroundCalls_bypassPin() {
+		try (PinnedEmbeddingModel.Pin pin = model.pin("上月销售额")) {
+			EmbeddingOptions options = EmbeddingOptions.builder().dimensions(3).build();
+			model.call(new EmbeddingRequest(List.of("上月销售额"), options));
+			ModelCallPriority.runInBackground(() -> model.embed("上月销售额"));
+
+			verify(delegate, times(2)).call(any());
+		}
+	}
+
+	@Test
+	void modelSwitch_bypassesPinOfOldModel() {
+		try (PinnedEmbeddingModel.Pin pin = model.pin("上月销售额")) {
+			when(registry.getEmbeddingModel()).thenReturn(nextModel);
+
+			assertArrayEquals(new float[] { 2f }, model.embed("上月销售额"));
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import com.alibaba.cloud.ai.dataagent.dto.ModelConfigDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderConnectionManagerTest {
+
+	private DataAgentProperties properties;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private ProviderConnectionManager manager;
+
+	private HttpServer server;
+
+	@BeforeEach
+	void setUp() {
+		properties = new DataAgentProperties();
+		meterRegistry = new SimpleMeterRegistry();
+		manager = new ProviderConnectionManager(properties, meterRegistry);
+	}
+
+	@AfterEach
+	void tearDown() {
+		manager.shutdown();
+		if (server != null) {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	void connectionProvider_sharedPerProvider() {
+		assertSame(manager.connectionProvider("openai"), manager.connectionProvider("OpenAI"));
+		assertNotSame(manager.connectionProvider("openai"), manager.connectionProvider("deepseek"));
+		assertSame(manager.connectionProvider(null), manager.connectionProvider(""));
+	}
+
+	@Test
+	void connectionProvider_providerOverrideLimitsConnections() {
+		properties.getModelConnectionPool().getProviderMaxConnections().put("deepseek", 8);
+
+		assertEquals(8, manager.connectionProvider("deepseek").maxConnections());
+		assertEquals(100, manager.connectionProvider("openai").maxConnections());
+		assertEquals(8, manager.connectionManager("deepseek").getMaxTotal());
+	}
+
+	@Test
+	void blockingClient_directConnectionsShareProviderClient() {
+		ModelConfigDTO config = ModelConfigDTO.builder().provider("openai").baseUrl("http://localhost").build();
+
+		assertSame(manager.blockingClient(config), manager.blockingClient(config));
+		assertNotNull(meterRegistry.find("httpcomponents.httpclient.pool.total.max")
+			.tag("httpclient", "model-openai")
+			.gauge());
+	}
+
+	@Test
+	void warmUp_opensConnectionsOnBothPools() throws IOException {
+		// 超时后预热按未完成结束，放宽超时避免整体测试负载高时漏掉请求
+		properties.getModelConnectionPool().setWarmupTimeoutMs(20000);
+		List<String> methods = new CopyOnWriteArrayList<>();
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", exchange -> {
+			methods.add(exchange.getRequestMethod());
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+		});
+		server.start();
+		ModelConfigDTO config = ModelConfigDTO.builder()
+			.provider("custom")
+			.baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+			.build();
+
+		StepVerifier.create(manager.warmUp(config)).expectComplete().verify(Duration.ofSeconds(30));
+
+		assertEquals(4, methods.size());
+		assertTrue(methods.stream().allMatch("HEAD"::equals));
+	}
+
+	@Test
+	void warmUp_unreachableHost_completesWithoutError() {
+		properties.getModelConnectionPool().setWarmupTimeoutMs(1000);
+		ModelConfigDTO config = ModelConfigDTO.builder().provider("custom").baseUrl("http://127.0.0.1:1").build();
+
+		StepVerifier.create(manager.warmUp(config)).expectComplete().verify(Duration.ofSeconds(10));
+	}
+
+	@Test
+	void warmUp_disabled_skipsRequests() {
+		properties.getModelConnectionPool().setWarmupConnections(0);
+		ModelConfigDTO config = ModelConfigDTO.builder().provider("custom").baseUrl("http://127.0.0.1:1").build();
+
+		StepVerifier.create(manager.warmUp(config)).expectComplete().verify(Duration.ofSeconds(1));
+	}
+
+}
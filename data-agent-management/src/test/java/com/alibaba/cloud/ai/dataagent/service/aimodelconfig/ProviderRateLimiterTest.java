@@ -0,0 +1,234 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.aimodelconfig;
+
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderRateLimiterTest {
+
+	private static final String KEY = "openai/gpt-4";
+
+	private DataAgentProperties.ModelRateLimit properties;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	@BeforeEach
+	void setUp() {
+		properties = new DataAgentProperties.ModelRateLimit();
+		meterRegistry = new SimpleMeterRegistry();
+	}
+
+	@Test
+	void acquire_unlimited_completesImmediately() {
+		ProviderRateLimiter limiter = limiter();
+
+		for (int i = 0; i < 100; i++) {
+			StepVerifier.create(limiter.acquire(KEY, ModelCallPriority.INTERACTIVE, 10_000)).verifyComplete();
+		}
+		assertEquals(0, limiter.queued(KEY));
+		assertEquals(100, meterRegistry.get("dataagent.ratelimit.wait").timer().count());
+	}
+
+	@Test
+	void acquire_requestsExhausted_grantsInteractiveBeforeBackground() throws InterruptedException {
+		properties.setRequestsPerMinute(60);
+		ProviderRateLimiter limiter = limiter();
+		for (int i = 0; i < 60; i++) {
+			limiter.acquire(KEY, ModelCallPriority.BACKGROUND, 0).block();
+		}
+
+		List<ModelCallPriority> granted = new CopyOnWriteArrayList<>();
+		CountDownLatch done = new CountDownLatch(2);
+		limiter.acquire(KEY, ModelCallPriority.BACKGROUND, 0).subscribe(null, null, () -> {
+			granted.add(ModelCallPriority.BACKGROUND);
+			done.countDown();
+		});
+		limiter.acquire(KEY, ModelCallPriority.INTERACTIVE, 0).subscribe(null, null, () -> {
+			granted.add(ModelCallPriority.INTERACTIVE);
+			done.countDown();
+		});
+		assertEquals(2, limiter.queued(KEY));
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(List.of(ModelCallPriority.INTERACTIVE, ModelCallPriority.BACKGROUND), granted);
+	}
+
+	@Test
+	void acquire_tokensExhausted_waitsUntilRefunded() {
+		properties.setTokensPerMinute(1000);
+		ProviderRateLimiter limiter = limiter();
+		limiter.acquire(KEY, ModelCallPriority.INTERACTIVE, 1000).block();
+
+		// 实际只用了 100 个 token，退还的额度足够下一次调用
+		limiter.onSuccess(KEY, 1000, 100);
+		StepVerifier.create(limiter.acquire(KEY, ModelCallPriority.INTERACTIVE, 800)).verifyComplete();
+	}
+
+	@Test
+	void onThrottled_pausesAndDecreasesRateUntilSuccess() {
+		properties.setRequestsPerMinute(600);
+		ProviderRateLimiter limiter = limiter();
+
+		limiter.onThrottled(KEY, Duration.ofMillis(200));
+		assertEquals(0.5, limiter.rateFactor(KEY), 1e-9);
+		assertEquals(1.0, meterRegistry.get("dataagent.ratelimit.throttled").tag("model", KEY).counter().count());
+
+		long start = System.nanoTime();
+		limiter.acquire(KEY, ModelCallPriority.INTERACTIVE, 0).block();
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+
+		limiter.onSuccess(KEY, 0, 0);
+		assertEquals(0.55, limiter.rateFactor(KEY), 1e-9);
+	}
+
+	@Test
+	void onThrottled_repeatedly_stopsAtMinimumRate() {
+		ProviderRateLimiter limiter = limiter();
+
+		for (int i = 0; i < 10; i++) {
+			limiter.onThrottled(KEY, Duration.ZERO);
+		}
+		assertEquals(properties.getMinRateFactor(), limiter.rateFactor(KEY), 1e-9);
+	}
+
+	@Test
+	void acquire_queuedTooLong_failsWithTransientException() {
+		properties.setMaxQueueWaitMs(50);
+		ProviderRateLimiter limiter = limiter();
+		limiter.onThrottled(KEY, Duration.ofSeconds(10));
+
+		StepVerifier.create(limiter.acquire(KEY, ModelCallPriority.INTERACTIVE, 0))
+			.expectError(TransientAiException.class)
+			.verify(Duration.ofSeconds(5));
+		assertEquals(0, limiter.queued(KEY));
+	}
+
+	@Test
+	void acquire_modelOverride_takesPrecedenceOverProvider() {
+		properties.getOverrides().put("openai", limit(1000));
+		properties.getOverrides().put("OpenAI/GPT-4", limit(1));
+		ProviderRateLimiter limiter = limiter();
+
+		limiter.acquire("openai/gpt-4o", ModelCallPriority.INTERACTIVE, 0).block();
+		limiter.acquire("openai/gpt-4o", ModelCallPriority.INTERACTIVE, 0).block();
+		limiter.acquire(KEY, ModelCallPriority.INTERACTIVE, 0).block();
+		limiter.acquire(KEY, ModelCallPriority.INTERACTIVE, 0).subscribe();
+
+		assertEquals(0, limiter.queued("openai/gpt-4o"));
+		assertEquals(1, limiter.queued(KEY));
+	}
+
+	@Test
+	void isLimited_onlyWhenAnyLimitIsConfigured() {
+		properties.getOverrides().put("openai", limit(60));
+		ProviderRateLimiter limiter = limiter();
+
+		assertTrue(limiter.isLimited(KEY));
+		assertFalse(limiter.limitsTokens(KEY));
+		assertFalse(limiter.isLimited("deepseek/deepseek-chat"));
+
+		properties.setEnabled(false);
+		assertFalse(limiter.isLimited(KEY));
+	}
+
+	@Test
+	void execute_throttled_retriesThenSucceeds() {
+		properties.setDefaultRetryAfterMs(10);
+		ProviderRateLimiter limiter = limiter();
+		int[] calls = { 0 };
+
+		String result = limiter.execute(KEY, 10, () -> {
+			if (calls[0]++ == 0) {
+				throw new NonTransientAiException("429 - rate limit reached");
+			}
+			return "ok";
+		}, value -> 0);
+
+		assertEquals("ok", result);
+		assertEquals(2, calls[0]);
+	}
+
+	@Test
+	void execute_otherError_isNotRetried() {
+		ProviderRateLimiter limiter = limiter();
+		int[] calls = { 0 };
+
+		assertThrows(NonTransientAiException.class, () -> limiter.execute(KEY, 10, () -> {
+			calls[0]++;
+			throw new NonTransientAiException("400 - bad request");
+		}, value -> 0));
+		assertEquals(1, calls[0]);
+	}
+
+	@Test
+	void throttleOf_recognizesProviderRateLimitResponses() {
+		assertEquals(Optional.of(Duration.ofSeconds(3)), ProviderRateLimiter
+			.throttleOf(new RuntimeException(new ModelRateLimitedException("429 - limit", Duration.ofSeconds(3)))));
+		assertEquals(Optional.of(Duration.ZERO),
+				ProviderRateLimiter.throttleOf(new NonTransientAiException("429 - limit")));
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.add(HttpHeaders.RETRY_AFTER, "2");
+		WebClientResponseException response = WebClientResponseException.create(429, "Too Many Requests", headers,
+				new byte[0], StandardCharsets.UTF_8);
+		assertEquals(Optional.of(Duration.ofSeconds(2)), ProviderRateLimiter.throttleOf(response));
+
+		assertTrue(ProviderRateLimiter.throttleOf(new NonTransientAiException("400 - bad request")).isEmpty());
+		assertTrue(ProviderRateLimiter.throttleOf(new IllegalStateException("429 ")).isEmpty());
+	}
+
+	@Test
+	void parseRetryAfter_supportsSecondsAndHttpDate() {
+		assertEquals(Duration.ofMillis(1500), ModelRateLimitedException.parseRetryAfter("1.5"));
+		assertEquals(Duration.ZERO, ModelRateLimitedException.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+		assertNull(ModelRateLimitedException.parseRetryAfter("soon"));
+		assertNull(ModelRateLimitedException.parseRetryAfter(null));
+	}
+
+	private ProviderRateLimiter limiter() {
+		return new ProviderRateLimiter(properties, EncodingType.CL100K_BASE, meterRegistry);
+	}
+
+	private static DataAgentProperties.ModelRateLimit.Limit limit(int requestsPerMinute) {
+		DataAgentProperties.ModelRateLimit.Limit limit = new DataAgentProperties.ModelRateLimit.Limit();
+		limit.setRequestsPerMinute(requestsPerMinute);
+		return limit;
+	}
+
+}
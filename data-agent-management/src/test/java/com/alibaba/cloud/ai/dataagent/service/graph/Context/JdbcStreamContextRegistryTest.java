@@ -0,0 +1,165 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph.Context;
+
+import com.alibaba.cloud.ai.dataagent.entity.GraphRunOwner;
+import com.alibaba.cloud.ai.dataagent.mapper.GraphRunOwnerMapper;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JdbcStreamContextRegistryTest {
+
+	@Mock
+	private GraphRunOwnerMapper mapper;
+
+	private JdbcStreamContextRegistry registry;
+
+	@BeforeEach
+	void setUp() {
+		registry = new JdbcStreamContextRegistry(mapper, "node-a", "http://node-a:8065",
+				new DataAgentProperties.Stream.Registry());
+	}
+
+	@Test
+	void claim_newRun_insertsOwnerWithLocalAddress() {
+		when(mapper.updateByThreadId(any())).thenReturn(0);
+
+		registry.claim("run-1", "conversation-1");
+
+		ArgumentCaptor<GraphRunOwner> captor = ArgumentCaptor.forClass(GraphRunOwner.class);
+		verify(mapper).insert(captor.capture());
+		assertEquals("node-a", captor.getValue().getNodeId());
+		assertEquals("http://node-a:8065", captor.getValue().getNodeAddress());
+		assertEquals("conversation-1", captor.getValue().getConversationId());
+	}
+
+	@Test
+	void claim_concurrentInsert_takesOverExistingRecord() {
+		when(mapper.updateByThreadId(any())).thenReturn(0, 1);
+		when(mapper.insert(any())).thenThrow(new DuplicateKeyException("duplicate"));
+
+		registry.claim("run-1", "conversation-1");
+
+		verify(mapper, times(2)).updateByThreadId(any());
+	}
+
+	@Test
+	void findRemoteOwner_runHeldByLocalNode_returnsEmpty() {
+		when(mapper.selectAliveByThreadId(eq("run-1"), any(LocalDateTime.class)))
+			.thenReturn(owner("run-1", "node-a"));
+
+		assertTrue(registry.findRemoteOwner("run-1").isEmpty());
+	}
+
+	@Test
+	void findRemoteOwner_runHeldByOtherNode_returnsOwner() {
+		when(mapper.selectAliveByThreadId(eq("run-1"), any(LocalDateTime.class)))
+			.thenReturn(owner("run-1", "node-b"));
+
+		StreamContextRegistry.Owner owner = registry.findRemoteOwner("run-1").orElseThrow();
+
+		assertEquals("node-b", owner.nodeId());
+		assertEquals("http://node-b:8065", owner.address());
+	}
+
+	@Test
+	void findRemoteOwners_filtersRunsOfLocalNode() {
+		when(mapper.selectAliveByConversationId(eq("conversation-1"), any(LocalDateTime.class)))
+			.thenReturn(List.of(owner("run-1", "node-a"), owner("run-2", "node-b")));
+
+		assertEquals(List.of(new StreamContextRegistry.Owner("run-2", "node-b", "http://node-b:8065")),
+				registry.findRemoteOwners("conversation-1"));
+	}
+
+	@Test
+	void findRemoteOwner_databaseUnavailable_fallsBackToLocalHandling() {
+		when(mapper.selectAliveByThreadId(eq("run-1"), any(LocalDateTime.class)))
+			.thenThrow(new QueryTimeoutException("timeout"));
+
+		assertTrue(registry.findRemoteOwner("run-1").isEmpty());
+	}
+
+	@Test
+	void releaseAndShutdown_onlyTouchLocalRecords() {
+		registry.release("run-1");
+		registry.shutdown();
+
+		verify(mapper).deleteByThreadIdAndNodeId("run-1", "node-a");
+		verify(mapper).deleteByNodeId("node-a");
+	}
+
+	@Test
+	void heartbeat_refreshesLocalRunsAndExpiresOfflineNodes() {
+		registry.heartbeat();
+
+		verify(mapper).updateHeartbeatByNodeId(eq("node-a"), any(LocalDateTime.class));
+		verify(mapper).deleteExpired(any(LocalDateTime.class));
+	}
+
+	@Test
+	void heartbeat_awaitingFeedbackPastTtl_releasesOwner() {
+		DataAgentProperties.Stream.Registry properties = new DataAgentProperties.Stream.Registry();
+		properties.setAwaitingFeedbackTtlMs(0);
+		registry = new JdbcStreamContextRegistry(mapper, "node-a", "http://node-a:8065", properties);
+		registry.claim("run-1", "conversation-1");
+		registry.claim("run-2", "conversation-1");
+		registry.computeIfAbsent("run-2", k -> new StreamContext());
+
+		registry.heartbeat();
+		registry.heartbeat();
+
+		// 只有没有本地上下文的 run-1 被释放，且只释放一次
+		verify(mapper).deleteByThreadIdAndNodeId("run-1", "node-a");
+		verify(mapper, never()).deleteByThreadIdAndNodeId(eq("run-2"), any());
+	}
+
+	@Test
+	void heartbeat_awaitingFeedbackWithinTtl_keepsOwner() {
+		registry.claim("run-1", "conversation-1");
+
+		registry.heartbeat();
+
+		verify(mapper, never()).deleteByThreadIdAndNodeId(any(), any());
+		verify(mapper).updateHeartbeatByNodeId(eq("node-a"), any(LocalDateTime.class));
+	}
+
+	private static GraphRunOwner owner(String threadId, String nodeId) {
+		return GraphRunOwner.builder()
+			.threadId(threadId)
+			.conversationId("conversation-1")
+			.nodeId(nodeId)
+			.nodeAddress("http://" + nodeId + ":8065")
+			.heartbeatTime(LocalDateTime.now())
+			.build();
+	}
+
+}
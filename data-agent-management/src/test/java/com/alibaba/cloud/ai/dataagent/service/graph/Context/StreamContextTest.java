@@ -35,6 +35,16 @@ class StreamContextTest {
 		assertEquals("Hello World", ctx.getCollectedOutput());
 	}
 
+	@Test
+	void testCollectedOutput_truncatesTailForTracing() {
+		StreamContext ctx = new StreamContext();
+		ctx.setTraceOutputMaxChars(3);
+		ctx.appendOutput("abc");
+		ctx.appendOutput("def");
+
+		assertEquals("abc\n...[truncated 3 chars]", ctx.getCollectedOutput());
+	}
+
 	@Test
 	void testCleanup_onlyRunsOnce() {
 		StreamContext ctx = new StreamContext();
@@ -80,6 +90,136 @@ class StreamContextTest {
 		assertFalse(ctx.isCleaned());
 	}
 
+	@Test
+	void testEmit_assignsMonotonicEventIds() {
+		StreamContext ctx = new StreamContext();
+		ctx.setThreadId("run-1");
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = Sinks.many().replay().all();
+		ctx.setSink(sink);
+
+		ctx.emit(event("a"));
+		ctx.emit(event("b"));
+
+		assertEquals(java.util.List.of("run-1:1", "run-1:2"),
+				sink.asFlux().map(ServerSentEvent::id).take(2).collectList().block());
+	}
+
+	@Test
+	void testAttach_replaysEventsAfterLastSequence() {
+		StreamContext ctx = new StreamContext();
+		ctx.setThreadId("run-1");
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> first = Sinks.many().replay().all();
+		ctx.setSink(first);
+		ctx.emit(event("a"));
+		assertTrue(ctx.detach(first));
+		ctx.emit(event("b"));
+		ctx.emit(event("c"));
+
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> second = Sinks.many().replay().all();
+		assertTrue(ctx.attach(second, 1));
+		ctx.emit(event("d"));
+		ctx.finish();
+
+		assertEquals(java.util.List.of("b", "c", "d"),
+				second.asFlux().map(sse -> sse.data().getText()).collectList().block());
+	}
+
+	@Test
+	void testAttach_evictedEventsCannotBeReplayed() {
+		StreamContext ctx = new StreamContext(2, 1024);
+		ctx.setThreadId("run-1");
+		ctx.emit(event("a"));
+		ctx.emit(event("b"));
+		ctx.emit(event("c"));
+
+		assertFalse(ctx.attach(Sinks.many().replay().all(), 0));
+		assertTrue(ctx.attach(Sinks.many().replay().all(), 1));
+	}
+
+	@Test
+	void testReplayBuffer_evictsByCharacterBudget() {
+		StreamContext ctx = new StreamContext(100, 4);
+		ctx.setThreadId("run-1");
+		ctx.emit(event("abc"));
+		ctx.emit(event("de"));
+
+		assertFalse(ctx.attach(Sinks.many().replay().all(), 0));
+		assertTrue(ctx.attach(Sinks.many().replay().all(), 1));
+	}
+
+	@Test
+	void testDetach_ignoresStaleSink() {
+		StreamContext ctx = new StreamContext();
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> current = Sinks.many().replay().all();
+		ctx.setSink(current);
+
+		assertFalse(ctx.detach(Sinks.many().replay().all()));
+		assertFalse(ctx.isDetached());
+	}
+
+	@Test
+	void testEmitChunk_mergesChunksOfSameStepUntilFlushed() {
+		StreamContext ctx = new StreamContext();
+		ctx.setThreadId("run-1");
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = Sinks.many().replay().all();
+		ctx.setSink(sink);
+
+		ctx.emitChunk(chunk("PlannerNode", "step-1", "a"), 10_000, 1024);
+		ctx.emitChunk(chunk("PlannerNode", "step-1", "b"), 10_000, 1024);
+		ctx.emitChunk(chunk("SqlGenerateNode", "step-2", "c"), 10_000, 1024);
+		ctx.emit(event("done"));
+
+		assertEquals(java.util.List.of("ab", "c", "done"),
+				sink.asFlux().map(sse -> sse.data().getText()).take(3).collectList().block());
+		assertEquals(1, ctx.getCoalescedChunks());
+		assertEquals(3, ctx.getEmittedEvents());
+	}
+
+	@Test
+	void testEmitChunk_flushesWhenMaxCharsReached() {
+		StreamContext ctx = new StreamContext();
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = Sinks.many().replay().all();
+		ctx.setSink(sink);
+
+		ctx.emitChunk(chunk("PlannerNode", "step-1", "abc"), 10_000, 4);
+		assertEquals(0, ctx.getEmittedEvents());
+		ctx.emitChunk(chunk("PlannerNode", "step-1", "de"), 10_000, 4);
+
+		assertEquals(1, ctx.getEmittedEvents());
+		assertEquals("abcde", sink.asFlux().blockFirst().data().getText());
+	}
+
+	@Test
+	void testEmitChunk_flushesAfterWindow() {
+		StreamContext ctx = new StreamContext();
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = Sinks.many().replay().all();
+		ctx.setSink(sink);
+
+		ctx.emitChunk(chunk("PlannerNode", "step-1", "a"), 20, 1024);
+
+		assertEquals("a", sink.asFlux().blockFirst(java.time.Duration.ofSeconds(2)).data().getText());
+	}
+
+	@Test
+	void testEmitChunk_zeroWindowEmitsImmediately() {
+		StreamContext ctx = new StreamContext();
+		ctx.setSink(Sinks.many().replay().all());
+
+		ctx.emitChunk(chunk("PlannerNode", "step-1", "a"), 0, 1024);
+		ctx.emitChunk(chunk("PlannerNode", "step-1", "b"), 0, 1024);
+
+		assertEquals(2, ctx.getEmittedEvents());
+		assertEquals(0, ctx.getCoalescedChunks());
+	}
+
+	private static GraphNodeResponse chunk(String node, String stepId, String text) {
+		return GraphNodeResponse.builder().nodeName(node).stepId(stepId).text(text).textType(TextType.TEXT).build();
+	}
+
+	private static ServerSentEvent<GraphNodeResponse> event(String text) {
+		return ServerSentEvent.builder(GraphNodeResponse.builder().text(text).textType(TextType.TEXT).build()).build();
+	}
+
 	@Test
 	void testTextType() {
 		StreamContext ctx = new StreamContext();
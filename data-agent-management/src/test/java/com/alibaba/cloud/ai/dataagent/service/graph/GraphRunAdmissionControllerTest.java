@@ -0,0 +1,167 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph;
+
+import com.alibaba.cloud.ai.dataagent.exception.TooManyRequestsException;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphRunAdmissionControllerTest {
+
+	private DataAgentProperties properties;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private GraphRunAdmissionController controller;
+
+	private final List<String> admitted = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		properties = new DataAgentProperties();
+		properties.getAdmission().setEnabled(true);
+		properties.getAdmission().setMaxConcurrentRuns(2);
+		properties.getAdmission().setMaxConcurrentRunsPerAgent(1);
+		properties.getAdmission().setMaxQueueSize(3);
+		meterRegistry = new SimpleMeterRegistry();
+		controller = new GraphRunAdmissionController(properties, meterRegistry);
+	}
+
+	@Test
+	void submit_withinLimits_admitsImmediately() {
+		GraphRunAdmissionController.Ticket ticket = controller.submit("a", new RecordingListener("a-1"));
+
+		assertFalse(ticket.isDeferred());
+		assertEquals(1, controller.runningCount());
+		assertEquals(1.0, meterRegistry.get("dataagent.admission.running").gauge().value());
+	}
+
+	@Test
+	void submit_perAgentLimitReached_queuesAndAdmitsOnRelease() {
+		GraphRunAdmissionController.Ticket running = controller.submit("a", new RecordingListener("a-1"));
+		RecordingListener queuedListener = new RecordingListener("a-2");
+		GraphRunAdmissionController.Ticket queued = controller.submit("a", queuedListener);
+
+		assertTrue(queued.isDeferred());
+		assertEquals(List.of(1), queuedListener.positions);
+		assertEquals(1, controller.queuedCount());
+
+		running.dispose();
+
+		assertEquals(List.of("a-2"), admitted);
+		assertEquals(1, controller.runningCount());
+		assertEquals(0, controller.queuedCount());
+		assertTrue(running.isDisposed());
+	}
+
+	@Test
+	void submit_queueFull_rejects() {
+		properties.getAdmission().setMaxQueueSize(1);
+		controller.submit("a", new RecordingListener("a-1"));
+		controller.submit("a", new RecordingListener("a-2"));
+
+		assertThrows(TooManyRequestsException.class, () -> controller.submit("a", new RecordingListener("a-3")));
+		assertEquals(1.0, meterRegistry.counter("dataagent.admission.rejected").count());
+	}
+
+	@Test
+	void dispose_queuedTicket_leavesQueueAndUpdatesPositions() {
+		controller.submit("a", new RecordingListener("a-1"));
+		GraphRunAdmissionController.Ticket second = controller.submit("a", new RecordingListener("a-2"));
+		RecordingListener thirdListener = new RecordingListener("a-3");
+		controller.submit("a", thirdListener);
+
+		second.dispose();
+		second.dispose();
+
+		assertEquals(List.of(2, 1), thirdListener.positions);
+		assertEquals(1, controller.queuedCount());
+		assertTrue(admitted.isEmpty());
+	}
+
+	@Test
+	void dispatch_interleavesAgentsByWeight() {
+		properties.getAdmission().setMaxConcurrentRuns(1);
+		properties.getAdmission().setMaxConcurrentRunsPerAgent(1);
+		properties.getAdmission().setMaxQueueSize(10);
+		properties.getAdmission().getAgentWeights().put("heavy", 2);
+		GraphRunAdmissionController.Ticket blocker = controller.submit("blocker", new RecordingListener("blocker"));
+		List<GraphRunAdmissionController.Ticket> tickets = new ArrayList<>();
+		for (int i = 1; i <= 3; i++) {
+			tickets.add(controller.submit("heavy", new RecordingListener("heavy-" + i)));
+		}
+		for (int i = 1; i <= 3; i++) {
+			tickets.add(controller.submit("light", new RecordingListener("light-" + i)));
+		}
+
+		blocker.dispose();
+		// 每次只有一个执行额度，释放刚放行的运行以观察出队顺序
+		for (int i = 0; i < 5; i++) {
+			releaseAdmitted(tickets, admitted.get(admitted.size() - 1));
+		}
+
+		assertEquals(List.of("heavy-1", "light-1", "heavy-2", "heavy-3", "light-2", "light-3"), admitted);
+	}
+
+	@Test
+	void submit_disabled_neverQueues() {
+		properties.getAdmission().setEnabled(false);
+		for (int i = 0; i < 10; i++) {
+			assertFalse(controller.submit("a", new RecordingListener("a")).isDeferred());
+		}
+		assertEquals(0, controller.runningCount());
+	}
+
+	private void releaseAdmitted(List<GraphRunAdmissionController.Ticket> tickets, String name) {
+		tickets.get(indexOf(name)).dispose();
+	}
+
+	private static int indexOf(String name) {
+		String[] parts = name.split("-");
+		int index = Integer.parseInt(parts[1]) - 1;
+		return "heavy".equals(parts[0]) ? index : index + 3;
+	}
+
+	private class RecordingListener implements GraphRunAdmissionController.Listener {
+
+		private final String name;
+
+		private final List<Integer> positions = new ArrayList<>();
+
+		RecordingListener(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void onQueued(int position) {
+			positions.add(position);
+		}
+
+		@Override
+		public void onAdmitted() {
+			admitted.add(name);
+		}
+
+	}
+
+}
@@ -17,20 +17,27 @@ package com.alibaba.cloud.ai.dataagent.service.graph;
 
 import com.alibaba.cloud.ai.dataagent.dto.GraphRequest;
 import com.alibaba.cloud.ai.dataagent.enums.GraphEventType;
+import com.alibaba.cloud.ai.dataagent.exception.TooManyRequestsException;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import com.alibaba.cloud.ai.dataagent.service.graph.Context.MultiTurnContextManager;
 import com.alibaba.cloud.ai.dataagent.service.langfuse.LangfuseService;
 import com.alibaba.cloud.ai.dataagent.service.langfuse.NodeTracingLifecycleListener;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SpeculativeSqlService;
+import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
 import com.alibaba.cloud.ai.dataagent.vo.GraphNodeResponse;
 import com.alibaba.cloud.ai.graph.CompiledGraph;
 import com.alibaba.cloud.ai.graph.CompileConfig;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.alibaba.cloud.ai.dataagent.service.graph.Context.InMemoryStreamContextRegistry;
+import com.alibaba.cloud.ai.dataagent.service.graph.Context.StreamContextRegistry;
 import com.alibaba.cloud.ai.graph.StateGraph;
 import com.alibaba.cloud.ai.graph.checkpoint.BaseCheckpointSaver;
 import com.alibaba.cloud.ai.graph.checkpoint.Checkpoint;
 import com.alibaba.cloud.ai.graph.exception.GraphRunnerException;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import com.alibaba.cloud.ai.graph.state.strategy.ReplaceStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.opentelemetry.api.trace.Span;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -39,6 +46,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.codec.ServerSentEvent;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Sinks;
 
@@ -73,6 +82,9 @@ class GraphServiceImplTest {
 	@Mock
 	private NodeTracingLifecycleListener nodeTracingLifecycleListener;
 
+	@Mock
+	private SpeculativeSqlService speculativeSqlService;
+
 	@Mock
 	private Span mockSpan;
 
@@ -80,6 +92,14 @@ class GraphServiceImplTest {
 
 	private ExecutorService executor;
 
+	private DataAgentProperties properties;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private StreamContextRegistry streamContextRegistry;
+
+	private GraphRunAdmissionController admissionController;
+
 	@BeforeEach
 	void setUp() throws Exception {
 		executor = Executors.newSingleThreadExecutor();
@@ -88,8 +108,13 @@ class GraphServiceImplTest {
 		when(mockStateGraph.compile(any())).thenReturn(compiledGraph);
 
 		CompileConfig compileConfig = CompileConfig.builder().build();
+		properties = new DataAgentProperties();
+		meterRegistry = new SimpleMeterRegistry();
+		streamContextRegistry = spy(new InMemoryStreamContextRegistry("node-a"));
+		admissionController = new GraphRunAdmissionController(properties, meterRegistry);
 		graphService = new GraphServiceImpl(mockStateGraph, compileConfig, checkpointSaver, executor,
-				multiTurnContextManager, langfuseReporter, nodeTracingLifecycleListener);
+				multiTurnContextManager, langfuseReporter, nodeTracingLifecycleListener, properties, meterRegistry,
+				admissionController, streamContextRegistry, speculativeSqlService);
 	}
 
 	private void stubStreamDependencies() {
@@ -99,6 +124,7 @@ class GraphServiceImplTest {
 
 	@AfterEach
 	void tearDown() {
+		graphService.close();
 		executor.shutdownNow();
 	}
 
@@ -225,6 +251,9 @@ class GraphServiceImplTest {
 					.anyMatch(response -> "HUMAN_FEEDBACK_REQUIRED".equals(response.getEventType().name())),
 				responses.toString());
 		verify(checkpointSaver, never()).release(any(RunnableConfig.class));
+		// 反馈恢复需要路由回持有多轮上下文的本节点
+		verify(streamContextRegistry).claim(request.getThreadId(), "conversation-1");
+		verify(streamContextRegistry, after(200).never()).release(anyString());
 	}
 
 	@Test
@@ -257,6 +286,7 @@ class GraphServiceImplTest {
 					.anyMatch(response -> "HUMAN_FEEDBACK_REQUIRED".equals(response.getEventType().name())),
 				responses.toString());
 		verify(checkpointSaver).release(any(RunnableConfig.class));
+		verify(streamContextRegistry, timeout(1000)).release(request.getThreadId());
 	}
 
 	@Test
@@ -297,6 +327,7 @@ class GraphServiceImplTest {
 
 	@Test
 	void graphStreamProcess_emitsStepIdentityAndTypedFinalAnswer() throws Exception {
+		properties.getStream().setCoalesceWindowMs(0);
 		stubStreamDependencies();
 		OverAllState regularState = new OverAllState();
 		regularState.registerKeyAndStrategy("final_answer", new ReplaceStrategy());
@@ -333,6 +364,226 @@ class GraphServiceImplTest {
 				responses.toString());
 	}
 
+	@Test
+	void graphStreamProcess_coalescesConsecutiveChunksOfSameStep() throws Exception {
+		properties.getStream().setCoalesceWindowMs(10_000);
+		stubStreamDependencies();
+		OverAllState state = new OverAllState();
+		StreamingOutput<?> first = streamingOutput("IntentRecognitionNode", "he", state);
+		StreamingOutput<?> second = streamingOutput("IntentRecognitionNode", "llo", state);
+		StreamingOutput<?> other = streamingOutput("QueryEnhanceNode", "next", state);
+		when(compiledGraph.stream(anyMap(), any(RunnableConfig.class))).thenReturn(Flux.just(first, second, other));
+
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = Sinks.many().unicast().onBackpressureBuffer();
+		var responsesFuture = sink.asFlux().map(ServerSentEvent::data).collectList().toFuture();
+		graphService.graphStreamProcess(sink,
+				GraphRequest.builder().agentId("1").threadId("run-1").query("test query").build());
+		List<GraphNodeResponse> responses = responsesFuture.get(2, TimeUnit.SECONDS);
+
+		List<String> texts = responses.stream()
+			.filter(response -> response.getEventType() == GraphEventType.NODE_OUTPUT && !response.isComplete())
+			.map(GraphNodeResponse::getText)
+			.toList();
+		assertEquals(List.of("hello", "next"), texts);
+		assertEquals(1.0, meterRegistry.counter("dataagent.stream.chunks.coalesced").count());
+		assertEquals(responses.size(), meterRegistry.counter("dataagent.stream.events.emitted").count());
+	}
+
+	@Test
+	void graphStreamProcess_restartMarker_flushesPendingChunkAndEmitsRestartEvent() throws Exception {
+		properties.getStream().setCoalesceWindowMs(10_000);
+		stubStreamDependencies();
+		OverAllState state = new OverAllState();
+		StreamingOutput<?> rejected = streamingOutput("SemanticConsistencyNode", "{\"bad\"", state);
+		StreamingOutput<?> restart = streamingOutput("SemanticConsistencyNode", "", state);
+		when(restart.getOriginData()).thenAnswer(invocation -> ChatResponseUtil.createRestartResponse(6));
+		StreamingOutput<?> repaired = streamingOutput("SemanticConsistencyNode", "{}", state);
+		when(compiledGraph.stream(anyMap(), any(RunnableConfig.class)))
+			.thenReturn(Flux.just(rejected, restart, repaired));
+
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = Sinks.many().unicast().onBackpressureBuffer();
+		var responsesFuture = sink.asFlux().map(ServerSentEvent::data).collectList().toFuture();
+		graphService.graphStreamProcess(sink,
+				GraphRequest.builder().agentId("1").threadId("run-1").query("test query").build());
+		List<GraphNodeResponse> responses = responsesFuture.get(2, TimeUnit.SECONDS)
+			.stream()
+			.filter(response -> !response.isComplete())
+			.toList();
+
+		assertEquals(List.of(GraphEventType.NODE_OUTPUT, GraphEventType.OUTPUT_RESTART, GraphEventType.NODE_OUTPUT),
+				responses.stream().map(GraphNodeResponse::getEventType).toList());
+		assertEquals(6, responses.get(1).getDiscardedChars());
+		assertEquals(responses.get(0).getStepId(), responses.get(1).getStepId());
+		assertEquals("{}", responses.get(2).getText());
+	}
+
+	@Test
+	void graphStreamProcess_sinkOverflow_detachesSlowClientAndKeepsRun() throws Exception {
+		properties.getStream().setCoalesceWindowMs(0);
+		stubStreamDependencies();
+		OverAllState state = new OverAllState();
+		Sinks.Many<StreamingOutput<?>> upstream = Sinks.many().unicast().onBackpressureBuffer();
+		when(compiledGraph.stream(anyMap(), any(RunnableConfig.class)))
+			.thenReturn(upstream.asFlux().cast(com.alibaba.cloud.ai.graph.NodeOutput.class));
+		GraphRequest request = GraphRequest.builder()
+			.agentId("1")
+			.conversationId("conversation-slow")
+			.query("test query")
+			.build();
+		// 容量为 1 且订阅者不请求数据，第二个事件即写满
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> slowSink = Sinks.many()
+			.unicast()
+			.onBackpressureBuffer(reactor.util.concurrent.Queues.<ServerSentEvent<GraphNodeResponse>>one().get());
+		slowSink.asFlux().subscribe(new NonRequestingSubscriber());
+
+		graphService.graphStreamProcess(slowSink, request);
+		upstream.tryEmitNext(streamingOutput("PlannerNode", "first", state));
+		upstream.tryEmitNext(streamingOutput("PlannerNode", "second", state));
+		verify(compiledGraph, timeout(2000)).stream(anyMap(), any(RunnableConfig.class));
+
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> secondSink = Sinks.many().unicast().onBackpressureBuffer();
+		var replayed = secondSink.asFlux().map(ServerSentEvent::data).collectList().toFuture();
+		long deadline = System.currentTimeMillis() + 2000;
+		while (!graphService.resumeStream(secondSink, "1", request.getThreadId() + ":1")) {
+			assertTrue(System.currentTimeMillis() < deadline, "slow client was not detached");
+			Thread.sleep(10);
+		}
+		upstream.tryEmitComplete();
+
+		List<String> texts = replayed.get(2, TimeUnit.SECONDS)
+			.stream()
+			.map(GraphNodeResponse::getText)
+			.filter(java.util.Objects::nonNull)
+			.toList();
+		assertEquals(List.of("second"), texts);
+		assertEquals(1.0, meterRegistry.counter("dataagent.stream.overflow", "policy", "detach").count());
+		verify(multiTurnContextManager, never()).discardPending(anyString());
+	}
+
+	@Test
+	void graphStreamProcess_sinkOverflowWithCancelPolicy_stopsRun() {
+		properties.getStream().setCoalesceWindowMs(0);
+		properties.getStream().setOverflowPolicy(DataAgentProperties.Stream.OverflowPolicy.CANCEL);
+		stubStreamDependencies();
+		OverAllState state = new OverAllState();
+		StreamingOutput<?> first = streamingOutput("PlannerNode", "first", state);
+		StreamingOutput<?> second = streamingOutput("PlannerNode", "second", state);
+		when(compiledGraph.stream(anyMap(), any(RunnableConfig.class)))
+			.thenReturn(Flux.<com.alibaba.cloud.ai.graph.NodeOutput>just(first, second).concatWith(Flux.never()));
+		GraphRequest request = GraphRequest.builder()
+			.agentId("1")
+			.conversationId("conversation-cancel")
+			.query("test query")
+			.build();
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> slowSink = Sinks.many()
+			.unicast()
+			.onBackpressureBuffer(reactor.util.concurrent.Queues.<ServerSentEvent<GraphNodeResponse>>one().get());
+		slowSink.asFlux().subscribe(new NonRequestingSubscriber());
+
+		graphService.graphStreamProcess(slowSink, request);
+
+		verify(multiTurnContextManager, timeout(2000)).discardPending("conversation-cancel");
+		assertEquals(1.0, meterRegistry.counter("dataagent.stream.overflow", "policy", "cancel").count());
+	}
+
+	private static class NonRequestingSubscriber extends BaseSubscriber<ServerSentEvent<GraphNodeResponse>> {
+
+		@Override
+		protected void hookOnSubscribe(Subscription subscription) {
+			// 模拟消费过慢的客户端：不请求任何数据
+		}
+
+	}
+
+	@Test
+	void graphStreamProcess_agentAtCapacity_queuesRunAndStartsItWhenSlotFrees() throws Exception {
+		properties.getAdmission().setEnabled(true);
+		properties.getAdmission().setMaxConcurrentRunsPerAgent(1);
+		stubStreamDependencies();
+		Sinks.Many<StreamingOutput<?>> firstUpstream = Sinks.many().unicast().onBackpressureBuffer();
+		when(compiledGraph.stream(anyMap(), any(RunnableConfig.class)))
+			.thenReturn(firstUpstream.asFlux().cast(com.alibaba.cloud.ai.graph.NodeOutput.class))
+			.thenReturn(Flux.empty());
+		GraphRequest first = GraphRequest.builder()
+			.agentId("1")
+			.conversationId("conversation-first")
+			.query("test query")
+			.build();
+		GraphRequest second = GraphRequest.builder()
+			.agentId("1")
+			.conversationId("conversation-second")
+			.query("test query")
+			.build();
+		graphService.graphStreamProcess(Sinks.many().multicast().onBackpressureBuffer(), first);
+
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> secondSink = Sinks.many().unicast().onBackpressureBuffer();
+		var secondEvents = secondSink.asFlux().map(ServerSentEvent::data).collectList().toFuture();
+		graphService.graphStreamProcess(secondSink, second);
+		verify(compiledGraph, timeout(2000).times(1)).stream(anyMap(), any(RunnableConfig.class));
+
+		firstUpstream.tryEmitComplete();
+
+		List<GraphNodeResponse> responses = secondEvents.get(2, TimeUnit.SECONDS);
+		assertEquals(GraphEventType.QUEUED, responses.get(0).getEventType());
+		assertEquals(1, responses.get(0).getQueuePosition());
+		assertTrue(responses.get(responses.size() - 1).isComplete());
+		verify(compiledGraph, times(2)).stream(anyMap(), any(RunnableConfig.class));
+	}
+
+	@Test
+	void graphStreamProcess_clientDisconnectedWhileQueued_skipsRunAndReleasesSlot() throws Exception {
+		properties.getAdmission().setEnabled(true);
+		properties.getAdmission().setMaxConcurrentRunsPerAgent(1);
+		stubStreamDependencies();
+		Sinks.Many<StreamingOutput<?>> firstUpstream = Sinks.many().unicast().onBackpressureBuffer();
+		when(compiledGraph.stream(anyMap(), any(RunnableConfig.class)))
+			.thenReturn(firstUpstream.asFlux().cast(com.alibaba.cloud.ai.graph.NodeOutput.class));
+		graphService.graphStreamProcess(Sinks.many().multicast().onBackpressureBuffer(),
+				GraphRequest.builder().agentId("1").conversationId("conversation-first").query("test query").build());
+		GraphRequest queued = GraphRequest.builder()
+			.agentId("1")
+			.conversationId("conversation-queued")
+			.query("test query")
+			.build();
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> queuedSink = Sinks.many().multicast().onBackpressureBuffer();
+		graphService.graphStreamProcess(queuedSink, queued);
+		verify(compiledGraph, timeout(2000)).stream(anyMap(), any(RunnableConfig.class));
+
+		graphService.detachStream(queued.getThreadId(), queuedSink);
+		firstUpstream.tryEmitComplete();
+
+		verify(multiTurnContextManager, timeout(2000)).discardPending("conversation-queued");
+		// 停止运行时先放弃多轮上下文，随后的清理才归还额度
+		long deadline = System.currentTimeMillis() + 2000;
+		while (admissionController.runningCount() > 0) {
+			assertTrue(System.currentTimeMillis() < deadline, "admission slot was not released");
+			Thread.sleep(10);
+		}
+		verify(compiledGraph, times(1)).stream(anyMap(), any(RunnableConfig.class));
+		assertEquals(0, admissionController.queuedCount());
+	}
+
+	@Test
+	void graphStreamProcess_queueFull_rejectsRunAndDropsContext() {
+		properties.getAdmission().setEnabled(true);
+		properties.getAdmission().setMaxConcurrentRunsPerAgent(1);
+		properties.getAdmission().setMaxQueueSize(0);
+		stubStreamDependencies();
+		when(compiledGraph.stream(anyMap(), any(RunnableConfig.class))).thenReturn(Flux.never());
+		graphService.graphStreamProcess(Sinks.many().multicast().onBackpressureBuffer(),
+				GraphRequest.builder().agentId("1").conversationId("conversation-1").query("test query").build());
+		GraphRequest rejected = GraphRequest.builder()
+			.agentId("1")
+			.conversationId("conversation-2")
+			.query("test query")
+			.build();
+
+		assertThrows(TooManyRequestsException.class,
+				() -> graphService.graphStreamProcess(Sinks.many().multicast().onBackpressureBuffer(), rejected));
+		assertFalse(graphService.resumeStream(Sinks.many().multicast().onBackpressureBuffer(), "1",
+				rejected.getThreadId() + ":0"));
+	}
+
 	@SuppressWarnings("unchecked")
 	private StreamingOutput<?> streamingOutput(String node, String chunk, OverAllState state) {
 		StreamingOutput<Object> output = mock(StreamingOutput.class);
@@ -378,6 +629,9 @@ class GraphServiceImplTest {
 		graphService.stopStreamProcessing(runId);
 		verify(multiTurnContextManager).discardPending("conversation-to-stop");
 		verify(langfuseReporter).endSpanSuccess(eq(mockSpan), eq(runId), anyString());
+		verify(streamContextRegistry).release(runId);
+		verify(speculativeSqlService).discard(runId);
+		assertNull(streamContextRegistry.get(runId));
 	}
 
 	/**
@@ -435,6 +689,7 @@ class GraphServiceImplTest {
 		assertNotNull(actualThreadId, "graphStreamProcess must assign a threadId");
 
 		verify(nodeTracingLifecycleListener, timeout(2000)).finishThread(actualThreadId);
+		verify(speculativeSqlService, timeout(2000)).discard(actualThreadId);
 	}
 
 	/**
@@ -458,6 +713,7 @@ class GraphServiceImplTest {
 		assertNotNull(actualThreadId, "graphStreamProcess must assign a threadId");
 
 		verify(nodeTracingLifecycleListener, timeout(2000)).finishThread(actualThreadId);
+		verify(speculativeSqlService, timeout(2000)).discard(actualThreadId);
 	}
 
 	/**
@@ -489,6 +745,98 @@ class GraphServiceImplTest {
 		verify(nodeTracingLifecycleListener, never()).finishThread(anyString());
 	}
 
+	@Test
+	void detachStream_reconnectWithinGracePeriod_replaysMissedEventsAndKeepsRunning() throws Exception {
+		properties.getStream().setCoalesceWindowMs(0);
+		stubStreamDependencies();
+		OverAllState state = new OverAllState();
+		Sinks.Many<StreamingOutput<?>> upstream = Sinks.many().unicast().onBackpressureBuffer();
+		when(compiledGraph.stream(anyMap(), any(RunnableConfig.class)))
+			.thenReturn(upstream.asFlux().cast(com.alibaba.cloud.ai.graph.NodeOutput.class));
+		GraphRequest request = GraphRequest.builder()
+			.agentId("1")
+			.conversationId("conversation-reconnect")
+			.query("test query")
+			.build();
+
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> firstSink = Sinks.many().multicast().onBackpressureBuffer();
+		List<ServerSentEvent<GraphNodeResponse>> firstEvents = new java.util.concurrent.CopyOnWriteArrayList<>();
+		firstSink.asFlux().subscribe(firstEvents::add);
+		graphService.graphStreamProcess(firstSink, request);
+		String runId = request.getThreadId();
+
+		upstream.tryEmitNext(streamingOutput("PlannerNode", "first", state));
+		verify(compiledGraph, timeout(2000)).stream(anyMap(), any(RunnableConfig.class));
+		Thread.sleep(100);
+		String lastEventId = firstEvents.get(firstEvents.size() - 1).id();
+
+		graphService.detachStream(runId, firstSink);
+		upstream.tryEmitNext(streamingOutput("PlannerNode", "missed", state));
+
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> secondSink = Sinks.many().unicast().onBackpressureBuffer();
+		var replayed = secondSink.asFlux().map(ServerSentEvent::data).collectList().toFuture();
+		assertFalse(graphService.resumeStream(secondSink, "2", lastEventId));
+		assertTrue(graphService.resumeStream(secondSink, "1", lastEventId));
+		upstream.tryEmitNext(streamingOutput("PlannerNode", "after", state));
+		upstream.tryEmitComplete();
+
+		List<String> texts = replayed.get(2, TimeUnit.SECONDS)
+			.stream()
+			.map(GraphNodeResponse::getText)
+			.filter(java.util.Objects::nonNull)
+			.toList();
+		assertEquals(List.of("missed", "after"), texts);
+		verify(multiTurnContextManager, never()).discardPending(anyString());
+	}
+
+	@Test
+	void detachStream_withoutGracePeriod_stopsRunImmediately() {
+		properties.getStream().setReconnectGraceMs(0);
+		stubStreamDependencies();
+		when(compiledGraph.stream(anyMap(), any(RunnableConfig.class))).thenReturn(Flux.never());
+		GraphRequest request = GraphRequest.builder()
+			.agentId("1")
+			.conversationId("conversation-no-grace")
+			.query("test query")
+			.build();
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = Sinks.many().multicast().onBackpressureBuffer();
+
+		graphService.graphStreamProcess(sink, request);
+		graphService.detachStream(request.getThreadId(), sink);
+
+		verify(multiTurnContextManager).discardPending("conversation-no-grace");
+		assertFalse(graphService.resumeStream(Sinks.many().multicast().onBackpressureBuffer(), "1",
+				request.getThreadId() + ":0"));
+	}
+
+	@Test
+	void detachStream_gracePeriodExpires_stopsRun() {
+		properties.getStream().setReconnectGraceMs(50);
+		stubStreamDependencies();
+		when(compiledGraph.stream(anyMap(), any(RunnableConfig.class))).thenReturn(Flux.never());
+		GraphRequest request = GraphRequest.builder()
+			.agentId("1")
+			.conversationId("conversation-expired")
+			.query("test query")
+			.build();
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = Sinks.many().multicast().onBackpressureBuffer();
+
+		graphService.graphStreamProcess(sink, request);
+		graphService.detachStream(request.getThreadId(), sink);
+
+		verify(multiTurnContextManager, timeout(2000)).discardPending("conversation-expired");
+		verify(nodeTracingLifecycleListener, timeout(2000)).discardThread(request.getThreadId());
+	}
+
+	@Test
+	void resumeStream_malformedLastEventId_returnsFalse() {
+		Sinks.Many<ServerSentEvent<GraphNodeResponse>> sink = Sinks.many().multicast().onBackpressureBuffer();
+
+		assertFalse(graphService.resumeStream(sink, "1", "no-sequence"));
+		assertFalse(graphService.resumeStream(sink, "1", "run:abc"));
+		assertFalse(graphService.resumeStream(sink, "1", "unknown-run:1"));
+	}
+
 	@Test
 	void stopStreamProcessingByConversationId_cancelsActiveGraphSubscription() throws Exception {
 		stubStreamDependencies();
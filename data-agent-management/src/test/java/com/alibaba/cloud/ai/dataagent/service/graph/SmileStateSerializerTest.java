@@ -0,0 +1,173 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph;
+
+import com.alibaba.cloud.ai.dataagent.dto.datasource.SqlRetryDto;
+import com.alibaba.cloud.ai.dataagent.dto.prompt.QueryEnhanceOutputDTO;
+import com.alibaba.cloud.ai.dataagent.dto.schema.ColumnDTO;
+import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
+import com.alibaba.cloud.ai.dataagent.dto.schema.TableDTO;
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.StateGraph;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmileStateSerializerTest {
+
+	private final SmileStateSerializer serializer = new SmileStateSerializer(SmileStateSerializer.defaultTypeTable());
+
+	@Test
+	void roundTrip_preservesRegisteredTypes() throws Exception {
+		Map<String, Object> data = state();
+
+		Map<String, Object> restored = serializer.dataFromBytes(serializer.dataToBytes(data));
+
+		SchemaDTO schema = assertInstanceOf(SchemaDTO.class, restored.get(TABLE_RELATION_OUTPUT));
+		assertEquals(data.get(TABLE_RELATION_OUTPUT), schema);
+		assertInstanceOf(ColumnDTO.class, schema.getTable().get(0).getColumn().get(0));
+		assertEquals(data.get(QUERY_ENHANCE_NODE_OUTPUT),
+				assertInstanceOf(QueryEnhanceOutputDTO.class, restored.get(QUERY_ENHANCE_NODE_OUTPUT)));
+		assertEquals(SqlRetryDto.semantic("wrong column"), restored.get(SQL_REGENERATE_REASON));
+
+		List<?> documents = assertInstanceOf(List.class, restored.get(TABLE_DOCUMENTS_FOR_SCHEMA_OUTPUT));
+		Document document = assertInstanceOf(Document.class, documents.get(0));
+		assertEquals("doc-1", document.getId());
+		assertEquals("orders table", document.getText());
+		assertEquals("orders", document.getMetadata().get("name"));
+		assertEquals(0.8, document.getScore());
+	}
+
+	@Test
+	void roundTrip_preservesPlainValues() throws Exception {
+		Map<String, Object> data = state();
+
+		Map<String, Object> restored = serializer.dataFromBytes(serializer.dataToBytes(data));
+
+		assertEquals("查询上月订单数", restored.get(INPUT_KEY));
+		assertEquals(3, restored.get(PLAN_CURRENT_STEP));
+		assertEquals(Boolean.TRUE, restored.get(PLAN_VALIDATION_STATUS));
+		assertEquals(data.get(SQL_EXECUTE_NODE_OUTPUT), restored.get(SQL_EXECUTE_NODE_OUTPUT));
+		assertEquals(data.keySet(), restored.keySet());
+	}
+
+	@Test
+	void roundTrip_unregisteredAndMixedValuesStayGeneric() throws Exception {
+		Map<String, Object> data = new HashMap<>();
+		TableDTO table = new TableDTO();
+		table.setName("orders");
+		data.put("unregistered", table);
+		data.put("mixed", List.of(SqlRetryDto.empty(), "text"));
+		data.put("empty", List.of());
+
+		Map<String, Object> restored = serializer.dataFromBytes(serializer.dataToBytes(data));
+
+		assertEquals("orders", assertInstanceOf(Map.class, restored.get("unregistered")).get("name"));
+		List<?> mixed = assertInstanceOf(List.class, restored.get("mixed"));
+		assertInstanceOf(Map.class, mixed.get(0));
+		assertEquals("text", mixed.get(1));
+		assertEquals(List.of(), restored.get("empty"));
+	}
+
+	@Test
+	void cloneObject_returnsIndependentState() throws Exception {
+		Map<String, Object> data = state();
+
+		OverAllState clone = serializer.cloneObject(data);
+
+		SchemaDTO schema = (SchemaDTO) clone.value(TABLE_RELATION_OUTPUT).orElseThrow();
+		assertNotSame(data.get(TABLE_RELATION_OUTPUT), schema);
+		assertEquals(data.get(TABLE_RELATION_OUTPUT), schema);
+	}
+
+	@Test
+	void dataToBytes_smallerThanDefaultJacksonSerializer() throws Exception {
+		Map<String, Object> data = state();
+
+		byte[] smile = serializer.dataToBytes(data);
+		byte[] json = StateGraph.DEFAULT_JACKSON_SERIALIZER.dataToBytes(data);
+
+		assertTrue(smile.length < json.length, smile.length + " >= " + json.length);
+	}
+
+	@Test
+	void dataFromBytes_malformedInput_throws() throws Exception {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+			byte[] json = "{\"input\":\"x\"}".getBytes(StandardCharsets.UTF_8);
+			out.writeInt(json.length);
+			out.write(json);
+		}
+
+		assertThrows(IOException.class, () -> serializer.dataFromBytes(buffer.toByteArray()));
+	}
+
+	private static Map<String, Object> state() {
+		ColumnDTO column = new ColumnDTO();
+		column.setName("order_id");
+		column.setType("bigint");
+		column.setData(List.of("1", "2"));
+		column.setMapping(Map.of("1", "paid"));
+		TableDTO table = new TableDTO();
+		table.setName("orders");
+		table.setDescription("订单表");
+		table.setColumn(new ArrayList<>(List.of(column)));
+		table.setPrimaryKeys(List.of("order_id"));
+		SchemaDTO schema = new SchemaDTO();
+		schema.setName("shop");
+		schema.setTableCount(1);
+		schema.setTable(List.of(table));
+		schema.setForeignKeys(List.of());
+
+		QueryEnhanceOutputDTO queryEnhance = new QueryEnhanceOutputDTO();
+		queryEnhance.setCanonicalQuery("查询2026年9月的订单数");
+		queryEnhance.setExpandedQueries(List.of("9月订单总数"));
+
+		List<Map<String, String>> rows = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			rows.add(Map.of("order_id", String.valueOf(i), "status", "paid", "amount", String.valueOf(i * 10)));
+		}
+
+		Map<String, Object> data = new HashMap<>();
+		data.put(INPUT_KEY, "查询上月订单数");
+		data.put(PLAN_CURRENT_STEP, 3);
+		data.put(PLAN_VALIDATION_STATUS, true);
+		data.put(TABLE_RELATION_OUTPUT, schema);
+		data.put(QUERY_ENHANCE_NODE_OUTPUT, queryEnhance);
+		data.put(SQL_REGENERATE_REASON, SqlRetryDto.semantic("wrong column"));
+		data.put(TABLE_DOCUMENTS_FOR_SCHEMA_OUTPUT,
+				List.of(Document.builder()
+					.id("doc-1")
+					.text("orders table")
+					.metadata(Map.of("name", "orders"))
+					.score(0.8)
+					.build()));
+		data.put(SQL_EXECUTE_NODE_OUTPUT, Map.of("step_1", Map.of("columns", List.of("order_id"), "data", rows)));
+		return data;
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph;
+
+import com.alibaba.cloud.ai.dataagent.service.graph.Context.StreamContextRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StreamRunForwarderTest {
+
+	@Mock
+	private StreamContextRegistry registry;
+
+	private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+
+	private StreamRunForwarder forwarder;
+
+	private StreamRunForwarder newForwarder(ClientResponse response) {
+		return new StreamRunForwarder(registry, WebClient.builder().exchangeFunction(request -> {
+			requests.add(request);
+			return Mono.just(response);
+		}));
+	}
+
+	@BeforeEach
+	void setUp() {
+		lenient().when(registry.nodeId()).thenReturn("node-a");
+		forwarder = newForwarder(ClientResponse.create(HttpStatus.NO_CONTENT).build());
+	}
+
+	@Test
+	void remoteOwner_forwardedRequest_isHandledLocally() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(StreamRunForwarder.FORWARDED_HEADER, "node-b");
+
+		assertTrue(forwarder.remoteOwner("run-1", headers).isEmpty());
+		verifyNoInteractions(registry);
+	}
+
+	@Test
+	void forwardStream_relaysEventsWithCredentialsAndLastEventId() {
+		forwarder = newForwarder(ClientResponse.create(HttpStatus.OK)
+			.header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+			.body("id:run-1:8\ndata:{\"agentId\":\"1\",\"threadId\":\"run-1\",\"text\":\"hello\"}\n\n")
+			.build());
+		MockServerHttpRequest request = MockServerHttpRequest
+			.method(HttpMethod.GET, URI.create("/api/stream/search?agentId=1&query=a%20b"))
+			.header("X-API-Key", "secret")
+			.header("Last-Event-ID", "run-1:7")
+			.header(HttpHeaders.COOKIE, "session=1")
+			.build();
+
+		StepVerifier
+			.create(forwarder.forwardStream(new StreamContextRegistry.Owner("run-1", "node-b", "http://node-b:8065"),
+					request, "1"))
+			.assertNext(event -> {
+				assertEquals("run-1:8", event.id());
+				assertEquals("hello", event.data().getText());
+			})
+			.verifyComplete();
+
+		ClientRequest forwarded = requests.get(0);
+		assertEquals("http://node-b:8065/api/stream/search?agentId=1&query=a%20b", forwarded.url().toString());
+		assertEquals("secret", forwarded.headers().getFirst("X-API-Key"));
+		assertEquals("run-1:7", forwarded.headers().getFirst("Last-Event-ID"));
+		assertEquals("node-a", forwarded.headers().getFirst(StreamRunForwarder.FORWARDED_HEADER));
+		assertNull(forwarded.headers().getFirst(HttpHeaders.COOKIE));
+	}
+
+	@Test
+	void forwardStream_ownerUnreachable_emitsErrorEvent() {
+		forwarder = new StreamRunForwarder(registry,
+				WebClient.builder().exchangeFunction(request -> Mono.error(new ConnectException("refused"))));
+		MockServerHttpRequest request = MockServerHttpRequest.get("/api/stream/search?agentId=1").build();
+
+		StepVerifier
+			.create(forwarder
+				.forwardStream(new StreamContextRegistry.Owner("run-1", "node-b", "http://node-b:8065"), request, "1")
+				.map(ServerSentEvent::event))
+			.expectNext("error")
+			.verifyComplete();
+	}
+
+	@Test
+	void forwardStop_conversationRuns_postsToEachOwningNode() {
+		when(registry.findRemoteOwners("conversation-1"))
+			.thenReturn(List.of(new StreamContextRegistry.Owner("run-1", "node-b", "http://node-b:8065"),
+					new StreamContextRegistry.Owner("run-2", "node-c", "http://node-c:8065")));
+
+		StepVerifier.create(forwarder.forwardStop("conversation-1", null, new HttpHeaders())).verifyComplete();
+
+		assertEquals(2, requests.size());
+		assertTrue(requests.stream().allMatch(request -> HttpMethod.POST.equals(request.method())));
+		assertTrue(requests.stream()
+			.anyMatch(request -> request.url()
+				.toString()
+				.equals("http://node-c:8065/api/stream/stop?conversationId=conversation-1&threadId=run-2")));
+	}
+
+	@Test
+	void forwardStop_localRun_sendsNothing() {
+		when(registry.findRemoteOwner("run-1")).thenReturn(Optional.empty());
+
+		StepVerifier.create(forwarder.forwardStop("conversation-1", "run-1", new HttpHeaders())).verifyComplete();
+
+		assertTrue(requests.isEmpty());
+	}
+
+}
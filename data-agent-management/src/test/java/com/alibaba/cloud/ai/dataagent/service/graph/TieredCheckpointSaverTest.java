@@ -0,0 +1,212 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph;
+
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.alibaba.cloud.ai.graph.checkpoint.Checkpoint;
+import com.alibaba.cloud.ai.graph.checkpoint.savers.MemorySaver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.HUMAN_FEEDBACK_NODE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TieredCheckpointSaverTest {
+
+	private MemorySaver coldSaver;
+
+	private DataAgentProperties.CheckpointProperties.Tiered properties;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private TieredCheckpointSaver saver;
+
+	@BeforeEach
+	void setUp() {
+		coldSaver = spy(MemorySaver.builder().build());
+		properties = new DataAgentProperties.CheckpointProperties.Tiered();
+		// 关闭定时落库，由测试显式触发
+		properties.setFlushIntervalMs(3_600_000);
+		meterRegistry = new SimpleMeterRegistry();
+		saver = new TieredCheckpointSaver(coldSaver, properties, Set.of(HUMAN_FEEDBACK_NODE), meterRegistry);
+	}
+
+	@AfterEach
+	void tearDown() {
+		saver.shutdown();
+	}
+
+	@Test
+	void put_sameThreadWithinInterval_coalescesIntoSingleColdWrite() throws Exception {
+		RunnableConfig config = config("t1");
+		saver.put(config, checkpoint("c1", "A", "B"));
+		saver.put(config, checkpoint("c2", "B", "C"));
+		saver.put(config, checkpoint("c3", "C", "D"));
+
+		verify(coldSaver, never()).put(any(), any());
+		assertEquals("c3", saver.get(config).orElseThrow().getId());
+		assertEquals(3, saver.list(config).size());
+		assertEquals(1, saver.pendingCount());
+
+		saver.flush();
+
+		ArgumentCaptor<Checkpoint> captor = ArgumentCaptor.forClass(Checkpoint.class);
+		verify(coldSaver, times(1)).put(any(), captor.capture());
+		assertEquals("c3", captor.getValue().getId());
+		assertEquals(0, saver.pendingCount());
+		assertEquals(2.0, meterRegistry.get("dataagent.checkpoint.coalesced").counter().count());
+	}
+
+	@Test
+	void put_beforeInterruptNode_flushesSynchronously() throws Exception {
+		RunnableConfig config = config("t1");
+		saver.put(config, checkpoint("c1", "A", "B"));
+		saver.put(config, checkpoint("c2", "B", HUMAN_FEEDBACK_NODE));
+
+		assertEquals("c2", coldSaver.get(config).orElseThrow().getId());
+		assertEquals(0, saver.pendingCount());
+	}
+
+	@Test
+	void release_beforeFlush_neverTouchesColdStorage() throws Exception {
+		RunnableConfig config = config("t1");
+		saver.put(config, checkpoint("c1", "A", "B"));
+
+		assertEquals(1, saver.release(config).checkpoints().size());
+		saver.flush();
+
+		verify(coldSaver, never()).put(any(), any());
+		verify(coldSaver, never()).release(any());
+		assertEquals(0, saver.hotCount());
+	}
+
+	@Test
+	void release_afterFlush_releasesColdStorage() throws Exception {
+		RunnableConfig config = config("t1");
+		saver.put(config, checkpoint("c1", "A", "B"));
+		saver.flush();
+
+		saver.release(config);
+
+		verify(coldSaver).release(any());
+	}
+
+	@Test
+	void get_hotMiss_loadsFromColdStorage() throws Exception {
+		coldSaver.put(config("t1"), checkpoint("c1", "A", HUMAN_FEEDBACK_NODE));
+
+		Checkpoint checkpoint = saver.get(config("t1")).orElseThrow();
+
+		assertEquals("c1", checkpoint.getId());
+		assertEquals(1, saver.hotCount());
+		assertEquals(0, saver.pendingCount());
+	}
+
+	@Test
+	void registeredNewThread_neverLoadsFromColdStorage() throws Exception {
+		saver.registerNewThread("t1");
+		RunnableConfig config = config("t1");
+
+		assertTrue(saver.get(config).isEmpty());
+		saver.put(config, checkpoint("c1", "A", "B"));
+
+		verify(coldSaver, never()).list(any());
+		assertEquals("c1", saver.get(config).orElseThrow().getId());
+	}
+
+	@Test
+	void put_overHistoryLimit_keepsMostRecentCheckpoints() throws Exception {
+		properties.setHotMaxCheckpointsPerThread(2);
+		RunnableConfig config = config("t1");
+		saver.put(config, checkpoint("c1", "A", "B"));
+		saver.put(config, checkpoint("c2", "B", "C"));
+		saver.put(config, checkpoint("c3", "C", "D"));
+
+		assertEquals(List.of("c3", "c2"), saver.list(config).stream().map(Checkpoint::getId).toList());
+	}
+
+	@Test
+	void flush_coldWriteFails_keepsPendingAndRetries() throws Exception {
+		doThrow(new IllegalStateException("db down")).doCallRealMethod().when(coldSaver).put(any(), any());
+		RunnableConfig config = config("t1");
+		saver.put(config, checkpoint("c1", "A", "B"));
+
+		saver.flush();
+		assertEquals(1, saver.pendingCount());
+		assertEquals(1.0, meterRegistry.get("dataagent.checkpoint.flush.failures").counter().count());
+
+		saver.flush();
+		assertEquals(0, saver.pendingCount());
+		assertEquals("c1", coldSaver.get(config).orElseThrow().getId());
+	}
+
+	@Test
+	void flush_updatedPersistedCheckpoint_replacesInColdStorage() throws Exception {
+		RunnableConfig config = config("t1");
+		RunnableConfig saved = saver.put(config, checkpoint("c1", "A", "B"));
+		saver.flush();
+
+		saver.put(saved, checkpoint("c1", "A", "C"));
+		saver.flush();
+
+		assertEquals(1, coldSaver.list(config).size());
+		assertEquals("C", coldSaver.get(config).orElseThrow().getNextNodeId());
+	}
+
+	@Test
+	void flush_overHotCapacity_evictsCleanThreadsAndReloadsOnAccess() throws Exception {
+		properties.setHotMaxThreads(1);
+		saver.put(config("t1"), checkpoint("c1", "A", "B"));
+		saver.put(config("t2"), checkpoint("c2", "A", "B"));
+		assertEquals(2, saver.hotCount());
+
+		saver.flush();
+
+		assertEquals(1, saver.hotCount());
+		assertEquals("c1", saver.get(config("t1")).orElseThrow().getId());
+		assertEquals("c2", saver.get(config("t2")).orElseThrow().getId());
+	}
+
+	@Test
+	void flush_expiredThreads_areEvicted() throws Exception {
+		properties.setHotTtlMs(-1);
+		saver.put(config("t1"), checkpoint("c1", "A", "B"));
+
+		saver.flush();
+
+		assertEquals(0, saver.hotCount());
+		assertEquals("c1", saver.get(config("t1")).orElseThrow().getId());
+	}
+
+	private static RunnableConfig config(String threadId) {
+		return RunnableConfig.builder().threadId(threadId).build();
+	}
+
+	private static Checkpoint checkpoint(String id, String nodeId, String nextNodeId) {
+		return Checkpoint.builder().id(id).state(Map.of()).nodeId(nodeId).nextNodeId(nextNodeId).build();
+	}
+
+}
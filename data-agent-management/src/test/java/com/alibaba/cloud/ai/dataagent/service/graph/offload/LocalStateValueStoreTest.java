@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph.offload;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalStateValueStoreTest {
+
+	private static final String KEY = "ab".repeat(32);
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void putAndGet_roundTripsContent() {
+		LocalStateValueStore store = new LocalStateValueStore(tempDir);
+
+		store.put(KEY, "内容");
+
+		assertEquals(Optional.of("内容"), store.get(KEY));
+		assertTrue(Files.exists(tempDir.resolve("ab").resolve(KEY)));
+	}
+
+	@Test
+	void get_missingKey_returnsEmpty() {
+		assertTrue(new LocalStateValueStore(tempDir).get(KEY).isEmpty());
+	}
+
+	@Test
+	void put_existingKey_refreshesRetentionOnly() throws Exception {
+		LocalStateValueStore store = new LocalStateValueStore(tempDir);
+		store.put(KEY, "first");
+		Path file = tempDir.resolve("ab").resolve(KEY);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(1000));
+
+		store.put(KEY, "first");
+
+		assertTrue(Files.getLastModifiedTime(file).toMillis() > 1000);
+		assertEquals(0, store.deleteOlderThan(System.currentTimeMillis() - 60000));
+	}
+
+	@Test
+	void deleteOlderThan_removesExpiredContent() throws Exception {
+		LocalStateValueStore store = new LocalStateValueStore(tempDir);
+		store.put(KEY, "old");
+		Files.setLastModifiedTime(tempDir.resolve("ab").resolve(KEY), FileTime.fromMillis(1000));
+
+		assertEquals(1, store.deleteOlderThan(System.currentTimeMillis()));
+		assertTrue(store.get(KEY).isEmpty());
+	}
+
+	@Test
+	void get_invalidKey_rejected() {
+		LocalStateValueStore store = new LocalStateValueStore(tempDir);
+
+		assertThrows(IllegalArgumentException.class, () -> store.get("../../etc/passwd"));
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.graph.offload;
+
+import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.graph.OverAllState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateValueOffloaderTest {
+
+	private InMemoryStore store;
+
+	private DataAgentProperties.StateOffload properties;
+
+	private StateValueOffloader offloader;
+
+	@BeforeEach
+	void setUp() {
+		store = new InMemoryStore();
+		properties = new DataAgentProperties.StateOffload();
+		properties.setEnabled(true);
+		properties.setThresholdChars(32);
+		offloader = new StateValueOffloader(store, properties);
+	}
+
+	@Test
+	void offload_smallValue_keepsInline() {
+		assertEquals("small", offloader.offload("small"));
+		assertTrue(store.contents.isEmpty());
+	}
+
+	@Test
+	void offload_largeValue_returnsHandleAndWritesOnce() {
+		String large = "x".repeat(100);
+
+		Object first = offloader.offload(large);
+		Object second = offloader.offload(large);
+
+		assertTrue(StateValueOffloader.isHandle(first));
+		assertEquals(first, second);
+		assertEquals(1, store.contents.size());
+		assertEquals(large, offloader.resolve((String) first));
+	}
+
+	@Test
+	void offload_disabledByDefault() {
+		// 默认存储为本节点目录，需显式开启
+		assertFalse(new DataAgentProperties.StateOffload().isEnabled());
+	}
+
+	@Test
+	void offload_disabled_keepsInline() {
+		properties.setEnabled(false);
+		String large = "x".repeat(100);
+
+		assertSame(large, offloader.offload(large));
+	}
+
+	@Test
+	void resolve_cachedContent_skipsStore() {
+		String handle = (String) offloader.offload("y".repeat(100));
+
+		offloader.resolve(handle);
+		offloader.resolve(handle);
+
+		assertEquals(0, store.reads.get());
+	}
+
+	@Test
+	void resolve_cacheFull_readsFromStore() {
+		properties.setCacheMaxChars(150);
+		String first = (String) offloader.offload("a".repeat(100));
+		offloader.offload("b".repeat(100));
+
+		assertEquals("a".repeat(100), offloader.resolve(first));
+		assertEquals(1, store.reads.get());
+	}
+
+	@Test
+	void resolve_missingContent_throws() {
+		String handle = (String) offloader.offload("z".repeat(100));
+		store.contents.clear();
+		StateValueOffloader restarted = new StateValueOffloader(store, properties);
+
+		assertThrows(IllegalStateException.class, () -> restarted.resolve(handle));
+	}
+
+	@Test
+	void getObjectValue_offloadedObject_restoresConcreteType() {
+		SchemaDTO schema = new SchemaDTO();
+		schema.setName("sales");
+		schema.setDescription("d".repeat(100));
+		schema.setForeignKeys(List.of("orders.user_id=users.id"));
+		OverAllState state = new OverAllState();
+		state.updateState(Map.of("schema", offloader.offload(schema)));
+
+		assertTrue(StateValueOffloader.isHandle(state.value("schema").orElseThrow()));
+		SchemaDTO restored = offloader.getObjectValue(state, "schema", SchemaDTO.class);
+		assertEquals(schema, restored);
+	}
+
+	@Test
+	void getObjectValue_offloadedMapEntries_resolvesEachEntry() {
+		Map<String, String> results = new HashMap<>();
+		results.put("step_1", "r".repeat(100));
+		results.put("step_2", "ok");
+		OverAllState state = new OverAllState();
+		state.updateState(Map.of("results", offloader.offloadEntries(results)));
+
+		@SuppressWarnings("unchecked")
+		Map<String, String> restored = offloader.getObjectValue(state, "results", Map.class, new HashMap<>());
+
+		assertEquals(results, restored);
+	}
+
+	@Test
+	void getStringValue_offloadedString_resolvesContent() {
+		String large = "s".repeat(100);
+		OverAllState state = new OverAllState();
+		state.updateState(Map.of("text", offloader.offload(large)));
+
+		assertEquals(large, offloader.getStringValue(state, "text"));
+	}
+
+	@Test
+	void purgeExpired_deletesOlderThanRetention() {
+		properties.setRetentionMs(60000);
+		long before = System.currentTimeMillis();
+
+		offloader.purgeExpired();
+
+		assertTrue(store.purgedBefore >= before - 60000);
+		assertTrue(store.purgedBefore <= System.currentTimeMillis() - 60000);
+	}
+
+	private static class InMemoryStore implements StateValueStore {
+
+		private final Map<String, String> contents = new HashMap<>();
+
+		private final AtomicInteger reads = new AtomicInteger();
+
+		private long purgedBefore;
+
+		@Override
+		public void put(String key, String content) {
+			contents.putIfAbsent(key, content);
+		}
+
+		@Override
+		public Optional<String> get(String key) {
+			reads.incrementAndGet();
+			return Optional.ofNullable(contents.get(key));
+		}
+
+		@Override
+		public int deleteOlderThan(long epochMillis) {
+			purgedBefore = epochMillis;
+			return 0;
+		}
+
+	}
+
+}
@@ -28,6 +28,7 @@ import com.alibaba.cloud.ai.dataagent.service.vectorstore.AgentVectorStoreServic
 import com.alibaba.cloud.ai.dataagent.service.vectorstore.AgentVectorStoreServiceImpl;
 import com.alibaba.cloud.ai.dataagent.service.vectorstore.DynamicFilterService;
 import com.alibaba.cloud.ai.dataagent.support.KeywordEmbeddingModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.milvus.client.MilvusServiceClient;
 import io.milvus.param.ConnectParam;
 import io.milvus.param.collection.DropCollectionParam;
@@ -93,7 +94,8 @@ class MilvusVectorStoreIT {
 		assertThat(vectorStore.similaritySearch(request)).extracting(Document::getText).containsExactly("订单销售数据");
 		AgentVectorStoreService service = new AgentVectorStoreServiceImpl(vectorStore, Optional.empty(),
 				new DataAgentProperties(), new DynamicFilterService(null, null),
-				new MetadataDocumentRetriever(new StandardEnvironment()));
+				new MetadataDocumentRetriever(new StandardEnvironment()), new KeywordEmbeddingModel(),
+				new SimpleMeterRegistry());
 		assertThat(service.getDocumentsOnlyByFilter(filters.eq(Constant.AGENT_ID, "42").build(), 5))
 			.extracting(Document::getText)
 			.containsExactly("订单销售数据");
@@ -27,6 +27,7 @@ import com.alibaba.cloud.ai.dataagent.service.vectorstore.MetadataAwareSimpleVec
 import com.alibaba.cloud.ai.dataagent.service.vectorstore.DynamicFilterService;
 import com.alibaba.cloud.ai.dataagent.service.vector.MetadataDocumentRetriever;
 import com.alibaba.cloud.ai.dataagent.support.KeywordEmbeddingModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -61,7 +62,8 @@ class VectorReplacementIntegrationTest {
 		vectorStore = new MetadataAwareSimpleVectorStore(embeddingModel);
 		DataAgentProperties properties = new DataAgentProperties();
 		service = new AgentVectorStoreServiceImpl(vectorStore, Optional.empty(), properties,
-				new DynamicFilterService(null, null), new MetadataDocumentRetriever(new StandardEnvironment()));
+				new DynamicFilterService(null, null), new MetadataDocumentRetriever(new StandardEnvironment()),
+				embeddingModel, new SimpleMeterRegistry());
 		identityMetadata = Map.of(Constant.AGENT_ID, "1", DocumentMetadataConstant.VECTOR_TYPE,
 				DocumentMetadataConstant.BUSINESS_TERM, DocumentMetadataConstant.DB_BUSINESS_TERM_ID, 10L);
 		service.addDocuments("1", List.of(new Document("stable-old-id", "订单旧定义", identityMetadata)));
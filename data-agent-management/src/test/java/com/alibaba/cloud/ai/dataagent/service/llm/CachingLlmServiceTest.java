@@ -0,0 +1,213 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.llm;
+
+import com.alibaba.cloud.ai.dataagent.dto.ModelConfigDTO;
+import com.alibaba.cloud.ai.dataagent.dto.prompt.IntentRecognitionOutputDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.AiModelRegistry;
+import com.alibaba.cloud.ai.dataagent.service.llm.impls.CachingLlmService;
+import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.INTENT_RECOGNITION_NODE;
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.PLANNER_NODE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingLlmServiceTest {
+
+	@Mock
+	private LlmService delegate;
+
+	@Mock
+	private AiModelRegistry registry;
+
+	private DataAgentProperties.LlmCache properties;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private CachingLlmService service;
+
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() {
+		properties = new DataAgentProperties.LlmCache();
+		properties.setEnabled(true);
+		meterRegistry = new SimpleMeterRegistry();
+		service = new CachingLlmService(delegate, registry, properties, meterRegistry);
+	}
+
+	private Flux<ChatResponse> upstream(String... chunks) {
+		return Flux.defer(() -> {
+			upstreamCalls.incrementAndGet();
+			return Flux.fromArray(chunks).map(ChatResponseUtil::createPureResponse);
+		});
+	}
+
+	private static ModelConfigDTO model(String name) {
+		return ModelConfigDTO.builder().provider("openai").baseUrl("http://localhost").modelName(name).build();
+	}
+
+	private List<String> texts(Flux<ChatResponse> flux, String node) {
+		return flux.contextWrite(LlmCallScope.of(node)).map(ChatResponseUtil::getText).collectList().block();
+	}
+
+	private double requests(String result) {
+		return meterRegistry.counter("dataagent.llm.cache.requests", "node", INTENT_RECOGNITION_NODE, "result", result)
+			.count();
+	}
+
+	@Test
+	void callUser_enabledNode_replaysCachedStream() {
+		when(registry.getChatModelConfig(any())).thenReturn(model("qwen-plus"));
+		when(delegate.callUser("question")).thenReturn(upstream("a", "b", "c"));
+
+		assertEquals(List.of("a", "b", "c"), texts(service.callUser("question"), INTENT_RECOGNITION_NODE));
+		assertEquals(List.of("a", "b", "c"), texts(service.callUser("question"), INTENT_RECOGNITION_NODE));
+
+		assertEquals(1, upstreamCalls.get());
+		assertEquals(1, requests("hit"));
+		assertEquals(1, requests("miss"));
+		assertEquals(1, service.size());
+	}
+
+	@Test
+	void callUser_cacheHit_replaysWithoutUsage() {
+		when(registry.getChatModelConfig(any())).thenReturn(model("qwen-plus"));
+		ChatResponse original = ChatResponse.builder()
+			.generations(List.of(new Generation(new AssistantMessage("answer"))))
+			.metadata(ChatResponseMetadata.builder().model("qwen-plus").usage(new DefaultUsage(100, 20)).build())
+			.build();
+		when(delegate.callUser("question")).thenReturn(Flux.just(original));
+
+		ChatResponse first = service.callUser("question")
+			.contextWrite(LlmCallScope.of(INTENT_RECOGNITION_NODE))
+			.blockLast();
+		ChatResponse replayed = service.callUser("question")
+			.contextWrite(LlmCallScope.of(INTENT_RECOGNITION_NODE))
+			.blockLast();
+
+		assertEquals(120, first.getMetadata().getUsage().getTotalTokens());
+		assertEquals("answer", ChatResponseUtil.getText(replayed));
+		assertEquals("qwen-plus", replayed.getMetadata().getModel());
+		assertEquals(0, replayed.getMetadata().getUsage().getTotalTokens());
+		assertEquals(Boolean.TRUE, replayed.getMetadata().get(CachingLlmService.CACHED_METADATA_KEY));
+	}
+
+	@Test
+	void callUser_nodeNotEnabled_bypassesCache() {
+		when(delegate.callUser("question")).thenReturn(upstream("a"));
+
+		texts(service.callUser("question"), PLANNER_NODE);
+		texts(service.callUser("question"), PLANNER_NODE);
+		StepVerifier.create(service.callUser("question")).expectNextCount(1).verifyComplete();
+
+		assertEquals(3, upstreamCalls.get());
+		assertEquals(0, service.size());
+		verify(registry, never()).getChatModelConfig(any());
+	}
+
+	@Test
+	void call_differentModelOrOutputType_missesCache() {
+		when(registry.getChatModelConfig(any())).thenReturn(model("qwen-plus"), model("qwen-max"), model("qwen-max"));
+		when(delegate.callUser("question")).thenReturn(upstream("a"));
+		when(delegate.callUser("question", IntentRecognitionOutputDTO.class)).thenReturn(upstream("b"));
+
+		texts(service.callUser("question"), INTENT_RECOGNITION_NODE);
+		texts(service.callUser("question"), INTENT_RECOGNITION_NODE);
+		texts(service.callUser("question", IntentRecognitionOutputDTO.class), INTENT_RECOGNITION_NODE);
+
+		assertEquals(3, upstreamCalls.get());
+		assertEquals(0, requests("hit"));
+	}
+
+	@Test
+	void callUser_upstreamError_notCached() {
+		when(registry.getChatModelConfig(any())).thenReturn(model("qwen-plus"));
+		when(delegate.callUser("question"))
+			.thenReturn(Flux.concat(upstream("partial"), Flux.error(new IllegalStateException("boom"))))
+			.thenReturn(upstream("full"));
+
+		StepVerifier.create(service.callUser("question").contextWrite(LlmCallScope.of(INTENT_RECOGNITION_NODE)))
+			.expectNextCount(1)
+			.verifyError(IllegalStateException.class);
+		assertEquals(List.of("full"), texts(service.callUser("question"), INTENT_RECOGNITION_NODE));
+
+		assertEquals(2, upstreamCalls.get());
+	}
+
+	@Test
+	void callUser_cancelledBeforeCompletion_notCached() {
+		when(registry.getChatModelConfig(any())).thenReturn(model("qwen-plus"));
+		when(delegate.callUser("question")).thenReturn(upstream("a", "b"));
+
+		StepVerifier.create(service.callUser("question").contextWrite(LlmCallScope.of(INTENT_RECOGNITION_NODE)))
+			.expectNextCount(1)
+			.thenCancel()
+			.verify();
+
+		assertEquals(0, service.size());
+	}
+
+	@Test
+	void callUser_expiredEntry_callsUpstreamAgain() {
+		properties.setTtlMs(-1);
+		when(registry.getChatModelConfig(any())).thenReturn(model("qwen-plus"));
+		when(delegate.callUser("question")).thenReturn(upstream("a"));
+
+		texts(service.callUser("question"), INTENT_RECOGNITION_NODE);
+		texts(service.callUser("question"), INTENT_RECOGNITION_NODE);
+
+		assertEquals(2, upstreamCalls.get());
+	}
+
+	@Test
+	void callUser_overCapacity_evictsLeastRecentlyUsed() {
+		properties.setMaxEntries(2);
+		when(registry.getChatModelConfig(any())).thenReturn(model("qwen-plus"));
+		when(delegate.callUser(anyString())).thenAnswer(invocation -> upstream(invocation.<String>getArgument(0)));
+
+		texts(service.callUser("q1"), INTENT_RECOGNITION_NODE);
+		texts(service.callUser("q2"), INTENT_RECOGNITION_NODE);
+		texts(service.callUser("q1"), INTENT_RECOGNITION_NODE);
+		texts(service.callUser("q3"), INTENT_RECOGNITION_NODE);
+		texts(service.callUser("q1"), INTENT_RECOGNITION_NODE);
+		texts(service.callUser("q2"), INTENT_RECOGNITION_NODE);
+
+		assertEquals(2, service.size());
+		// q1 保持最近访问，q2 被淘汰后重新请求
+		assertEquals(4, upstreamCalls.get());
+	}
+
+}
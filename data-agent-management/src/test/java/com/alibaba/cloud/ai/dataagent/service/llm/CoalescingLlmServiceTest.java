@@ -0,0 +1,185 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.llm;
+
+import com.alibaba.cloud.ai.dataagent.dto.ModelConfigDTO;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.AiModelRegistry;
+import com.alibaba.cloud.ai.dataagent.service.llm.impls.CoalescingLlmService;
+import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.model.ChatResponse;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.INTENT_RECOGNITION_NODE;
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.PLANNER_NODE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CoalescingLlmServiceTest {
+
+	@Mock
+	private LlmService delegate;
+
+	@Mock
+	private AiModelRegistry registry;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private CoalescingLlmService service;
+
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+	private final AtomicInteger upstreamCancels = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		service = new CoalescingLlmService(delegate, registry, meterRegistry);
+		lenient().when(registry.getChatModelConfig(any()))
+			.thenReturn(ModelConfigDTO.builder().provider("openai").modelName("qwen-plus").build());
+	}
+
+	private Flux<ChatResponse> upstream(Sinks.Many<String> sink) {
+		return sink.asFlux()
+			.map(ChatResponseUtil::createPureResponse)
+			.doOnSubscribe(subscription -> upstreamCalls.incrementAndGet())
+			.doOnCancel(upstreamCancels::incrementAndGet);
+	}
+
+	private static List<String> subscribe(Flux<ChatResponse> flux, List<Disposable> disposables) {
+		List<String> received = new CopyOnWriteArrayList<>();
+		disposables.add(flux.map(ChatResponseUtil::getText).subscribe(received::add, error -> received.add("error")));
+		return received;
+	}
+
+	private double requests(String result) {
+		return meterRegistry.counter("dataagent.singleflight.requests", "type", "chat", "result", result).count();
+	}
+
+	@Test
+	void callUser_concurrentIdenticalRequests_shareOneUpstreamCall() {
+		Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+		when(delegate.callUser("question")).thenReturn(upstream(sink));
+		List<Disposable> disposables = new CopyOnWriteArrayList<>();
+
+		List<String> first = subscribe(service.callUser("question"), disposables);
+		sink.tryEmitNext("a");
+		List<String> second = subscribe(service.callUser("question"), disposables);
+		sink.tryEmitNext("b");
+		sink.tryEmitComplete();
+
+		assertEquals(List.of("a", "b"), first);
+		assertEquals(List.of("a", "b"), second);
+		assertEquals(1, upstreamCalls.get());
+		verify(delegate, times(1)).callUser("question");
+		assertEquals(1, requests("leader"));
+		assertEquals(1, requests("coalesced"));
+		assertEquals(0, service.inFlight());
+	}
+
+	@Test
+	void callUser_oneCallerCancels_othersKeepReceiving() {
+		Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+		when(delegate.callUser("question")).thenReturn(upstream(sink));
+		List<Disposable> disposables = new CopyOnWriteArrayList<>();
+
+		List<String> first = subscribe(service.callUser("question"), disposables);
+		List<String> second = subscribe(service.callUser("question"), disposables);
+		sink.tryEmitNext("a");
+		disposables.get(0).dispose();
+		sink.tryEmitNext("b");
+		sink.tryEmitComplete();
+
+		assertEquals(List.of("a"), first);
+		assertEquals(List.of("a", "b"), second);
+		assertEquals(0, upstreamCancels.get());
+	}
+
+	@Test
+	void callUser_allCallersCancel_cancelsUpstream() {
+		Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+		when(delegate.callUser("question")).thenReturn(upstream(sink));
+		List<Disposable> disposables = new CopyOnWriteArrayList<>();
+
+		subscribe(service.callUser("question"), disposables);
+		subscribe(service.callUser("question"), disposables);
+		assertEquals(1, service.inFlight());
+		disposables.forEach(Disposable::dispose);
+
+		assertEquals(1, upstreamCancels.get());
+		assertEquals(0, service.inFlight());
+	}
+
+	@Test
+	void callUser_afterCompletion_callsUpstreamAgain() {
+		when(delegate.callUser("question")).thenAnswer(invocation -> Flux.just("a")
+			.map(ChatResponseUtil::createPureResponse)
+			.doOnSubscribe(subscription -> upstreamCalls.incrementAndGet()));
+
+		assertEquals(1, service.callUser("question").collectList().block().size());
+		assertEquals(1, service.callUser("question").collectList().block().size());
+
+		assertEquals(2, upstreamCalls.get());
+		assertEquals(0, requests("coalesced"));
+	}
+
+	@Test
+	void call_differentPromptOrNode_notCoalesced() {
+		Sinks.Many<String> first = Sinks.many().unicast().onBackpressureBuffer();
+		Sinks.Many<String> second = Sinks.many().unicast().onBackpressureBuffer();
+		Sinks.Many<String> third = Sinks.many().unicast().onBackpressureBuffer();
+		when(delegate.callUser("question")).thenReturn(upstream(first), upstream(second));
+		when(delegate.callUser("other question")).thenReturn(upstream(third));
+		List<Disposable> disposables = new CopyOnWriteArrayList<>();
+
+		subscribe(service.callUser("question").contextWrite(LlmCallScope.of(INTENT_RECOGNITION_NODE)), disposables);
+		subscribe(service.callUser("question").contextWrite(LlmCallScope.of(PLANNER_NODE)), disposables);
+		subscribe(service.callUser("other question").contextWrite(LlmCallScope.of(PLANNER_NODE)), disposables);
+
+		assertEquals(3, upstreamCalls.get());
+		assertEquals(3, service.inFlight());
+		disposables.forEach(Disposable::dispose);
+	}
+
+	@Test
+	void callUser_upstreamError_propagatesToAllCallers() {
+		Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+		when(delegate.callUser("question")).thenReturn(upstream(sink));
+		List<Disposable> disposables = new CopyOnWriteArrayList<>();
+
+		List<String> first = subscribe(service.callUser("question"), disposables);
+		List<String> second = subscribe(service.callUser("question"), disposables);
+		sink.tryEmitNext("a");
+		sink.tryEmitError(new IllegalStateException("boom"));
+
+		assertEquals(List.of("a", "error"), first);
+		assertEquals(List.of("a", "error"), second);
+		assertEquals(0, service.inFlight());
+	}
+
+}
@@ -16,21 +16,39 @@
 package com.alibaba.cloud.ai.dataagent.service.llm;
 
 import com.alibaba.cloud.ai.dataagent.dto.prompt.FeasibilityAssessmentOutputDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.AiModelRegistry;
 import com.alibaba.cloud.ai.dataagent.service.llm.impls.StreamLlmService;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.openai.api.OpenAiApi;
 import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.INTENT_RECOGNITION_NODE;
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.PLANNER_NODE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -50,21 +68,24 @@ class StreamLlmServiceTest {
 	@Mock
 	private ChatClient.StreamResponseSpec streamResponseSpec;
 
-	@Mock
-	private ChatClient.CallResponseSpec callResponseSpec;
-
 	private StreamLlmService streamLlmService;
 
 	private ChatResponse mockResponse;
 
+	private SimpleMeterRegistry meterRegistry;
+
+	private DataAgentProperties.Hedging hedging;
+
 	@BeforeEach
 	void setUp() {
 		mockResponse = ChatResponseUtil.createPureResponse("streamed output");
-		streamLlmService = new StreamLlmService(registry);
+		meterRegistry = new SimpleMeterRegistry();
+		hedging = new DataAgentProperties.Hedging();
+		streamLlmService = new StreamLlmService(registry, hedging, meterRegistry);
 	}
 
 	private void stubPrompt() {
-		when(registry.getChatClient()).thenReturn(chatClient);
+		when(registry.getChatClient(any())).thenReturn(chatClient);
 		when(chatClient.prompt()).thenReturn(requestSpec);
 	}
 
@@ -73,11 +94,7 @@ class StreamLlmServiceTest {
 		when(streamResponseSpec.chatResponse()).thenReturn(Flux.just(mockResponse));
 	}
 
-	private void stubBlockingResponse() {
-		when(requestSpec.advisors(any(Advisor[].class))).thenReturn(requestSpec);
-		when(requestSpec.call()).thenReturn(callResponseSpec);
-		when(callResponseSpec.chatResponse()).thenReturn(mockResponse);
-	}
+	private static final String VALID_ASSESSMENT = "{\"requirementType\":\"DATA_ANALYSIS\",\"language\":\"zh-CN\",\"content\":\"统计订单\"}";
 
 	@Test
 	void callUser_validPrompt_returnsStreamFlux() {
@@ -120,37 +137,290 @@ class StreamLlmServiceTest {
 	}
 
 	@Test
-	void callUser_structuredOutput_usesBlockingAdvisorBecauseValidationDoesNotSupportStreaming() {
+	void callUser_structuredOutput_streamsChunksAsTheyArrive() {
 		stubPrompt();
 		when(requestSpec.user("Hello")).thenReturn(requestSpec);
-		stubBlockingResponse();
+		when(requestSpec.stream()).thenReturn(streamResponseSpec);
+		when(streamResponseSpec.chatResponse())
+			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse(VALID_ASSESSMENT.substring(0, 20)),
+					ChatResponseUtil.createPureResponse(VALID_ASSESSMENT.substring(20))));
 
 		Flux<ChatResponse> result = streamLlmService.callUser("Hello", FeasibilityAssessmentOutputDTO.class);
 
-		StepVerifier.create(result)
-			.expectNextMatches(r -> ChatResponseUtil.getText(r).equals("streamed output"))
-			.verifyComplete();
-		verify(requestSpec).advisors(any(Advisor[].class));
-		verify(requestSpec).call();
-		verify(requestSpec, never()).stream();
+		StepVerifier.create(ChatResponseUtil.collectText(result)).expectNext(VALID_ASSESSMENT).verifyComplete();
+		verify(requestSpec, never()).call();
+		assertTrue(meterRegistry.find("dataagent.llm.structured.repairs").counters().isEmpty());
 	}
 
 	@Test
-	void call_structuredOutput_preservesSystemRoleAndUsesValidationAdvisor() {
+	void call_structuredOutput_preservesSystemRole() {
 		stubPrompt();
 		when(requestSpec.system("system")).thenReturn(requestSpec);
 		when(requestSpec.user("user")).thenReturn(requestSpec);
-		stubBlockingResponse();
+		when(requestSpec.stream()).thenReturn(streamResponseSpec);
+		when(streamResponseSpec.chatResponse())
+			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse("```json\n" + VALID_ASSESSMENT + "\n```")));
 
 		Flux<ChatResponse> result = streamLlmService.call("system", "user", FeasibilityAssessmentOutputDTO.class);
 
+		StepVerifier.create(result).expectNextCount(1).verifyComplete();
+		verify(requestSpec).system("system");
+		verify(requestSpec).user("user");
+	}
+
+	@Test
+	void callUser_structuredOutputFailsSchema_emitsRestartMarkerAndRepairs() {
+		ChatClient client = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+		when(client.prompt().user("Hello").stream().chatResponse())
+			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse("{\"requirementType\":\"UNKNOWN\"}")));
+		when(client.prompt().user(startsWith("Hello\n\n")).stream().chatResponse())
+			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse(VALID_ASSESSMENT)));
+		when(registry.getChatClient(any())).thenReturn(client);
+
+		Flux<ChatResponse> result = streamLlmService.callUser("Hello", FeasibilityAssessmentOutputDTO.class);
+
 		StepVerifier.create(result)
+			.expectNextMatches(r -> ChatResponseUtil.getText(r).contains("UNKNOWN"))
+			.expectNextMatches(r -> ChatResponseUtil.isRestart(r)
+					&& ChatResponseUtil.getDiscardedChars(r) == "{\"requirementType\":\"UNKNOWN\"}".length())
+			.expectNextMatches(r -> ChatResponseUtil.getText(r).equals(VALID_ASSESSMENT))
+			.verifyComplete();
+		assertEquals(1, meterRegistry.get("dataagent.llm.structured.repairs").tags("stage", "final").counter().count());
+	}
+
+	@Test
+	void callUser_structuredOutputNotJson_abortsStreamBeforeItEnds() {
+		AtomicBoolean firstAttemptCancelled = new AtomicBoolean();
+		ChatClient client = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+		when(client.prompt().user("Hello").stream().chatResponse()).thenReturn(Flux.create(sink -> {
+			sink.onCancel(() -> firstAttemptCancelled.set(true));
+			sink.next(ChatResponseUtil.createPureResponse("```json\n"));
+			sink.next(ChatResponseUtil.createPureResponse("好的，评估结果如下"));
+		}));
+		when(client.prompt().user(startsWith("Hello\n\n")).stream().chatResponse())
+			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse(VALID_ASSESSMENT)));
+		when(registry.getChatClient(any())).thenReturn(client);
+
+		List<ChatResponse> responses = streamLlmService.callUser("Hello", FeasibilityAssessmentOutputDTO.class)
+			.collectList()
+			.block(Duration.ofSeconds(5));
+
+		assertTrue(firstAttemptCancelled.get());
+		// 重新输出标记只撤回已下发的字符，未通过检查的分片不计入
+		int restart = responses
+			.indexOf(responses.stream().filter(ChatResponseUtil::isRestart).findFirst().orElseThrow());
+		int emittedChars = responses.subList(0, restart)
+			.stream()
+			.mapToInt(response -> ChatResponseUtil.getText(response).length())
+			.sum();
+		assertEquals("```json\n".length(), emittedChars);
+		assertEquals(emittedChars, ChatResponseUtil.getDiscardedChars(responses.get(restart)));
+		assertEquals(VALID_ASSESSMENT, ChatResponseUtil.collectText(Flux.fromIterable(responses)).block());
+		assertEquals(1,
+				meterRegistry.get("dataagent.llm.structured.repairs").tags("stage", "stream").counter().count());
+	}
+
+	@Test
+	void callUser_withScope_usesTierClientAndRecordsMetrics() {
+		when(registry.getChatClient(INTENT_RECOGNITION_NODE)).thenReturn(chatClient);
+		when(registry.getEffectiveTier(INTENT_RECOGNITION_NODE)).thenReturn("fast");
+		when(chatClient.prompt()).thenReturn(requestSpec);
+		when(requestSpec.user("Hello")).thenReturn(requestSpec);
+		when(requestSpec.stream()).thenReturn(streamResponseSpec);
+		ChatResponse last = new ChatResponse(List.of(new Generation(new AssistantMessage(""))),
+				ChatResponseMetadata.builder().usage(new DefaultUsage(120, 30)).build());
+		when(streamResponseSpec.chatResponse()).thenReturn(Flux.just(mockResponse, last));
+
+		StepVerifier.create(streamLlmService.callUser("Hello").contextWrite(LlmCallScope.of(INTENT_RECOGNITION_NODE)))
+			.expectNextCount(2)
+			.verifyComplete();
+
+		assertEquals(1,
+				meterRegistry.get("dataagent.llm.latency")
+					.tags("tier", "fast", "node", INTENT_RECOGNITION_NODE, "outcome", "success")
+					.timer()
+					.count());
+		assertEquals(1, meterRegistry.get("dataagent.llm.first-response").tags("tier", "fast").timer().count());
+		assertEquals(120, meterRegistry.get("dataagent.llm.tokens").tags("tier", "fast", "type", "prompt").counter().count());
+		assertEquals(30,
+				meterRegistry.get("dataagent.llm.tokens").tags("tier", "fast", "type", "completion").counter().count());
+	}
+
+	@Test
+	void callUser_providerReportsCachedPromptTokens_recordsPrefixCacheHits() {
+		when(registry.getChatClient(PLANNER_NODE)).thenReturn(chatClient);
+		when(registry.getEffectiveTier(PLANNER_NODE)).thenReturn(AiModelRegistry.DEFAULT_TIER);
+		when(chatClient.prompt()).thenReturn(requestSpec);
+		when(requestSpec.user("Hello")).thenReturn(requestSpec);
+		when(requestSpec.stream()).thenReturn(streamResponseSpec);
+		OpenAiApi.Usage nativeUsage = new OpenAiApi.Usage(30, 1200, 1230,
+				new OpenAiApi.Usage.PromptTokensDetails(null, 1024), null);
+		ChatResponse last = new ChatResponse(List.of(new Generation(new AssistantMessage(""))),
+				ChatResponseMetadata.builder().usage(new DefaultUsage(1200, 30, 1230, nativeUsage)).build());
+		when(streamResponseSpec.chatResponse()).thenReturn(Flux.just(mockResponse, last));
+
+		StepVerifier.create(streamLlmService.callUser("Hello").contextWrite(LlmCallScope.of(PLANNER_NODE)))
+			.expectNextCount(2)
+			.verifyComplete();
+
+		assertEquals(1024,
+				meterRegistry.get("dataagent.llm.tokens").tags("node", PLANNER_NODE, "type", "cached").counter().count());
+		assertEquals(1200,
+				meterRegistry.get("dataagent.llm.tokens").tags("node", PLANNER_NODE, "type", "prompt").counter().count());
+	}
+
+	@Test
+	void callUser_upstreamError_recordsErrorOutcome() {
+		stubPrompt();
+		when(requestSpec.user("Hello")).thenReturn(requestSpec);
+		when(requestSpec.stream()).thenReturn(streamResponseSpec);
+		when(streamResponseSpec.chatResponse()).thenReturn(Flux.error(new IllegalStateException("boom")));
+
+		StepVerifier.create(streamLlmService.callUser("Hello")).verifyError(IllegalStateException.class);
+
+		assertEquals(1,
+				meterRegistry.get("dataagent.llm.latency")
+					.tags("tier", "default", "node", "none", "outcome", "error")
+					.timer()
+					.count());
+	}
+
+	private ChatClient streamingClient(Flux<ChatResponse> responses) {
+		ChatClient client = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+		when(client.prompt().user("Hello").stream().chatResponse()).thenReturn(responses);
+		return client;
+	}
+
+	private void enableHedging(ChatClient primary, ChatClient hedge) {
+		hedging.setEnabled(true);
+		hedging.setFirstResponseBudgetMs(50);
+		when(registry.getChatClient(any())).thenReturn(primary);
+		when(registry.findChatClient("backup")).thenReturn(Optional.of(hedge));
+	}
+
+	@Test
+	void callUser_primaryExceedsBudget_hedgeWinsAndPrimaryIsCancelled() {
+		AtomicBoolean primaryCancelled = new AtomicBoolean();
+		ChatClient primary = streamingClient(Flux.<ChatResponse>never().doOnCancel(() -> primaryCancelled.set(true)));
+		ChatClient hedge = streamingClient(Flux.just(mockResponse));
+		enableHedging(primary, hedge);
+
+		StepVerifier.create(streamLlmService.callUser("Hello"))
+			.expectNextMatches(r -> ChatResponseUtil.getText(r).equals("streamed output"))
+			.expectComplete()
+			.verify(Duration.ofSeconds(5));
+
+		assertTrue(primaryCancelled.get());
+		assertEquals(1, meterRegistry.get("dataagent.llm.hedges").tags("winner", "hedge").counter().count());
+		assertEquals(1,
+				meterRegistry.get("dataagent.llm.hedge.first-response").tags("winner", "hedge").timer().count());
+	}
+
+	@Test
+	void callUser_primaryRespondsWithinBudget_hedgeNotSent() {
+		ChatClient primary = streamingClient(Flux.just(mockResponse));
+		ChatClient hedge = mock(ChatClient.class);
+		enableHedging(primary, hedge);
+
+		StepVerifier.create(streamLlmService.callUser("Hello")).expectNextCount(1).verifyComplete();
+
+		verify(hedge, never()).prompt();
+		assertTrue(meterRegistry.find("dataagent.llm.hedges").counters().isEmpty());
+	}
+
+	@Test
+	void callUser_primaryAndHedgeFail_surfacesPrimaryError() {
+		ChatClient primary = streamingClient(Flux.error(new IllegalStateException("primary down")));
+		ChatClient hedge = streamingClient(Flux.error(new IllegalArgumentException("hedge down")));
+		enableHedging(primary, hedge);
+
+		StepVerifier.create(streamLlmService.callUser("Hello"))
+			.expectErrorMatches(e -> e instanceof IllegalStateException && e.getMessage().equals("primary down"))
+			.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void callUser_primaryOnlySendsEmptyChunk_hedgeStillWins() {
+		ChatClient primary = streamingClient(
+				Flux.just(ChatResponseUtil.createPureResponse("")).concatWith(Flux.<ChatResponse>never()));
+		ChatClient hedge = streamingClient(Flux.just(mockResponse));
+		enableHedging(primary, hedge);
+
+		StepVerifier.create(streamLlmService.callUser("Hello"))
+			.expectNextMatches(r -> ChatResponseUtil.getText(r).equals("streamed output"))
+			.expectComplete()
+			.verify(Duration.ofSeconds(5));
+
+		assertEquals(1, meterRegistry.get("dataagent.llm.hedges").tags("winner", "hedge").counter().count());
+	}
+
+	@Test
+	void callUser_primaryEmptyChunkBeforeContent_releasesChunksInOrder() {
+		ChatClient primary = streamingClient(Flux.just(ChatResponseUtil.createPureResponse(""), mockResponse));
+		ChatClient hedge = mock(ChatClient.class);
+		enableHedging(primary, hedge);
+
+		StepVerifier.create(streamLlmService.callUser("Hello"))
+			.expectNextMatches(r -> ChatResponseUtil.getText(r).isEmpty())
 			.expectNextMatches(r -> ChatResponseUtil.getText(r).equals("streamed output"))
 			.verifyComplete();
-		verify(requestSpec).system("system");
-		verify(requestSpec).user("user");
-		verify(requestSpec).advisors(any(Advisor[].class));
-		verify(requestSpec).call();
+
+		verify(hedge, never()).prompt();
+	}
+
+	@Test
+	void callUser_primaryAndHedgeWithoutContent_completesEmpty() {
+		ChatClient primary = streamingClient(Flux.just(ChatResponseUtil.createPureResponse("")));
+		ChatClient hedge = streamingClient(Flux.empty());
+		enableHedging(primary, hedge);
+
+		StepVerifier.create(streamLlmService.callUser("Hello")).expectComplete().verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void callUser_structuredOutputPrimaryExceedsBudget_isHedged() {
+		AtomicBoolean primaryCancelled = new AtomicBoolean();
+		ChatClient primary = streamingClient(Flux.<ChatResponse>never().doOnCancel(() -> primaryCancelled.set(true)));
+		ChatClient hedge = streamingClient(Flux.just(ChatResponseUtil.createPureResponse(VALID_ASSESSMENT)));
+		enableHedging(primary, hedge);
+
+		StepVerifier.create(streamLlmService.callUser("Hello", FeasibilityAssessmentOutputDTO.class))
+			.expectNextMatches(r -> ChatResponseUtil.getText(r).equals(VALID_ASSESSMENT))
+			.expectComplete()
+			.verify(Duration.ofSeconds(5));
+
+		assertTrue(primaryCancelled.get());
+		assertEquals(1, meterRegistry.get("dataagent.llm.hedges").tags("winner", "hedge").counter().count());
+	}
+
+	@Test
+	void callUser_failsBeforeResponding_fallsBackToNextTier() {
+		hedging.setFallbackTiers(List.of("backup"));
+		ChatClient primary = streamingClient(Flux.error(new IllegalStateException("primary down")));
+		ChatClient fallback = streamingClient(Flux.just(mockResponse));
+		when(registry.getChatClient(any())).thenReturn(primary);
+		when(registry.findChatClient("backup")).thenReturn(Optional.of(fallback));
+
+		StepVerifier.create(streamLlmService.callUser("Hello"))
+			.expectNextMatches(r -> ChatResponseUtil.getText(r).equals("streamed output"))
+			.verifyComplete();
+
+		assertEquals(1, meterRegistry.get("dataagent.llm.fallbacks").tags("to", "backup").counter().count());
+	}
+
+	@Test
+	void callUser_failsAfterPartialOutput_doesNotFallBack() {
+		hedging.setFallbackTiers(List.of("backup"));
+		ChatClient primary = streamingClient(
+				Flux.concat(Flux.just(mockResponse), Flux.error(new IllegalStateException("stream broken"))));
+		when(registry.getChatClient(any())).thenReturn(primary);
+
+		StepVerifier.create(streamLlmService.callUser("Hello"))
+			.expectNextCount(1)
+			.expectError(IllegalStateException.class)
+			.verify();
+
+		verify(registry, never()).findChatClient(any());
 	}
 
 }
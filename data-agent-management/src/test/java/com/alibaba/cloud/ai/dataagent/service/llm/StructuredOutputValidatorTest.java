@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.llm;
+
+import com.alibaba.cloud.ai.dataagent.bo.schema.DisplayStyleBO;
+import com.alibaba.cloud.ai.dataagent.dto.prompt.FeasibilityAssessmentOutputDTO;
+import com.alibaba.cloud.ai.dataagent.service.llm.impls.StructuredOutputValidator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StructuredOutputValidatorTest {
+
+	private final StructuredOutputValidator validator = new StructuredOutputValidator(
+			FeasibilityAssessmentOutputDTO.class);
+
+	@Test
+	void tracker_chunkedObjectWithBracesInStrings_staysValidUntilFinished() {
+		StructuredOutputValidator.Tracker tracker = validator.tracker();
+
+		assertTrue(tracker.append("```json\n{\"content\":\"a } or ] \\\"").isEmpty());
+		assertFalse(tracker.isFinished());
+		assertTrue(tracker.append("quoted\\\"\",\"nested\":[{}]").isEmpty());
+		assertTrue(tracker.append("}\n```\n以上为结果").isEmpty());
+		assertTrue(tracker.isFinished());
+	}
+
+	@Test
+	void tracker_proseBeforeJson_failsOnFirstCharacter() {
+		assertTrue(validator.tracker().append("好的").isPresent());
+	}
+
+	@Test
+	void tracker_mismatchedBracket_fails() {
+		StructuredOutputValidator.Tracker tracker = validator.tracker();
+
+		assertTrue(tracker.append("{\"a\":[1,2}").isPresent());
+		assertTrue(tracker.append("}").isPresent());
+	}
+
+	@Test
+	void validate_checksSchemaAfterStrippingFence() {
+		String valid = "{\"requirementType\":\"FREE_CHAT\",\"language\":\"zh-CN\",\"content\":\"你好\"}";
+
+		assertTrue(validator.validate("```json\n" + valid + "\n```").isEmpty());
+		assertTrue(validator.validate("{\"requirementType\":\"UNKNOWN\"}").isPresent());
+		assertTrue(validator.validate("{\"requirementType\":").isPresent());
+		assertTrue(validator.validate("  ").isPresent());
+	}
+
+	@Test
+	void validate_displayStyleSchema_acceptsChartConfig() {
+		StructuredOutputValidator displayStyle = new StructuredOutputValidator(DisplayStyleBO.class);
+
+		assertTrue(displayStyle.tracker().append("{\"type\":\"bar\"").isEmpty());
+	}
+
+}
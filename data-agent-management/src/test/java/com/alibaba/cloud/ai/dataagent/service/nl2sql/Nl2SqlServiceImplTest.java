@@ -15,6 +15,7 @@
  */
 package com.alibaba.cloud.ai.dataagent.service.nl2sql;
 
+import com.alibaba.cloud.ai.dataagent.common.TestFixtures;
 import java.util.ArrayList;
 import java.util.stream.Stream;
 
@@ -61,7 +62,7 @@ class Nl2SqlServiceImplTest {
 
 	@BeforeEach
 	void setUp() {
-		nl2SqlService = new Nl2SqlServiceImpl(llmService, jsonParseUtil);
+		nl2SqlService = new Nl2SqlServiceImpl(llmService, jsonParseUtil, TestFixtures.schemaPromptCompactor());
 	}
 
 	@Test
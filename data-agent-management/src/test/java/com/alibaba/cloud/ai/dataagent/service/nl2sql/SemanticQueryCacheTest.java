@@ -0,0 +1,214 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.nl2sql;
+
+import com.alibaba.cloud.ai.dataagent.event.SchemaVectorsReplacedEvent;
+import com.alibaba.cloud.ai.dataagent.mapper.AgentDatasourceMapper;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.AiModelRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SemanticQueryCacheTest {
+
+	private static final String PLAN = "{\"thought_process\":\"cached\"}";
+
+	@Mock
+	private AiModelRegistry aiModelRegistry;
+
+	@Mock
+	private AgentDatasourceMapper agentDatasourceMapper;
+
+	@Mock
+	private EmbeddingModel embeddingModel;
+
+	private DataAgentProperties properties;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private SemanticQueryCache cache;
+
+	@BeforeEach
+	void setUp() {
+		properties = new DataAgentProperties();
+		properties.getSemanticCache().setEnabled(true);
+		meterRegistry = new SimpleMeterRegistry();
+		cache = new SemanticQueryCache(aiModelRegistry, agentDatasourceMapper, properties, meterRegistry);
+	}
+
+	private void stubEmbeddings() {
+		when(aiModelRegistry.getEmbeddingModel()).thenReturn(embeddingModel);
+		when(agentDatasourceMapper.selectActiveDatasourceIdByAgentId(anyLong())).thenReturn(7);
+		lenient().when(embeddingModel.embed("上月销售额")).thenReturn(new float[] { 1f, 0f, 0f });
+		lenient().when(embeddingModel.embed("上个月的销售额")).thenReturn(new float[] { 0.99f, 0.05f, 0f });
+		lenient().when(embeddingModel.embed("用户注册数")).thenReturn(new float[] { 0f, 1f, 0f });
+	}
+
+	/**
+	 * 模拟一次完整的未命中运行：查找、执行两个 SQL 步骤、计划完成
+	 */
+	private void completeRun(String threadId, String agentId, boolean onlyNl2sql, String query) {
+		assertTrue(cache.lookup(threadId, agentId, onlyNl2sql, query).isEmpty());
+		cache.recordSql(threadId, 1, "SELECT 1");
+		cache.recordSql(threadId, 2, "SELECT 2");
+		cache.complete(threadId, PLAN);
+	}
+
+	private double requests(String result) {
+		return meterRegistry.counter("dataagent.semantic.cache.requests", "result", result).count();
+	}
+
+	@Test
+	void lookup_disabled_doesNotEmbed() {
+		properties.getSemanticCache().setEnabled(false);
+
+		assertTrue(cache.lookup("t1", "1", false, "上月销售额").isEmpty());
+		verifyNoInteractions(aiModelRegistry, agentDatasourceMapper);
+	}
+
+	@Test
+	void lookup_similarQuestion_reusesPlanAndSql() {
+		stubEmbeddings();
+		completeRun("t1", "1", false, "上月销售额");
+
+		Optional<String> plan = cache.lookup("t2", "1", false, "上个月的销售额");
+
+		assertEquals(Optional.of(PLAN), plan);
+		assertEquals(Optional.of("SELECT 1"), cache.cachedSql("t2", 1));
+		assertEquals(Optional.of("SELECT 2"), cache.cachedSql("t2", 2));
+		assertEquals(1, requests("hit"));
+		assertEquals(1, requests("miss"));
+	}
+
+	@Test
+	void lookup_belowThreshold_misses() {
+		stubEmbeddings();
+		completeRun("t1", "1", false, "上月销售额");
+
+		assertTrue(cache.lookup("t2", "1", false, "用户注册数").isEmpty());
+		assertTrue(cache.cachedSql("t2", 1).isEmpty());
+	}
+
+	@Test
+	void lookup_differentLiteral_missesEvenWithSameEmbedding() {
+		when(aiModelRegistry.getEmbeddingModel()).thenReturn(embeddingModel);
+		when(agentDatasourceMapper.selectActiveDatasourceIdByAgentId(anyLong())).thenReturn(7);
+		when(embeddingModel.embed(anyString())).thenReturn(new float[] { 1f, 0f, 0f });
+		completeRun("t1", "1", false, "2024-05 门店 S1001 的销售额");
+
+		assertTrue(cache.lookup("t2", "1", false, "2024-06 门店 S1001 的销售额").isEmpty());
+		assertTrue(cache.lookup("t3", "1", false, "2024-05 门店 S1002 的销售额").isEmpty());
+		assertTrue(cache.lookup("t4", "1", false, "统计“杭州”的订单数").isEmpty());
+		assertEquals(Optional.of(PLAN), cache.lookup("t5", "1", false, "门店 s1001 在 2024-05 的销售额"));
+	}
+
+	@Test
+	void literals_extractsNumbersQuotedTextAndChineseNumerals() {
+		assertEquals(Set.of("2024-05-01", "a1", "杭州", "三"), SemanticQueryCache.literals("2024-05-01 门店 A1 在“杭州”的前三名"));
+		assertTrue(SemanticQueryCache.literals("上个月的销售额").isEmpty());
+	}
+
+	@Test
+	void lookup_otherAgentOrMode_misses() {
+		stubEmbeddings();
+		completeRun("t1", "1", false, "上月销售额");
+
+		assertTrue(cache.lookup("t2", "2", false, "上月销售额").isEmpty());
+		assertTrue(cache.lookup("t3", "1", true, "上月销售额").isEmpty());
+	}
+
+	@Test
+	void complete_hitRun_isNotCachedAgain() {
+		stubEmbeddings();
+		completeRun("t1", "1", false, "上月销售额");
+
+		assertTrue(cache.lookup("t2", "1", false, "上个月的销售额").isPresent());
+		cache.recordSql("t2", 1, "SELECT 99");
+		cache.complete("t2", PLAN);
+
+		assertEquals(1, cache.size());
+		assertTrue(cache.lookup("t3", "1", false, "上月销售额").isPresent());
+		assertEquals(Optional.of("SELECT 1"), cache.cachedSql("t3", 1));
+	}
+
+	@Test
+	void schemaReplaced_invalidatesEntries() {
+		stubEmbeddings();
+		completeRun("t1", "1", false, "上月销售额");
+
+		cache.onSchemaVectorsReplaced(new SchemaVectorsReplacedEvent(this, 7));
+
+		assertEquals(0, cache.size());
+		assertTrue(cache.lookup("t2", "1", false, "上月销售额").isEmpty());
+	}
+
+	@Test
+	void schemaReplacedDuringRun_isNotCached() {
+		stubEmbeddings();
+		assertTrue(cache.lookup("t1", "1", false, "上月销售额").isEmpty());
+		cache.recordSql("t1", 1, "SELECT 1");
+
+		cache.invalidate(7);
+		cache.complete("t1", PLAN);
+
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void lookup_expiredEntry_misses() {
+		stubEmbeddings();
+		properties.getSemanticCache().setTtlMs(-1);
+		completeRun("t1", "1", false, "上月销售额");
+
+		assertTrue(cache.lookup("t2", "1", false, "上月销售额").isEmpty());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void lookup_embeddingFailure_fallsBackToMiss() {
+		when(agentDatasourceMapper.selectActiveDatasourceIdByAgentId(1L)).thenReturn(7);
+		when(aiModelRegistry.getEmbeddingModel()).thenThrow(new IllegalStateException("no embedding model"));
+
+		assertTrue(cache.lookup("t1", "1", false, "上月销售额").isEmpty());
+		assertEquals(1, requests("error"));
+	}
+
+	@Test
+	void complete_capsEntriesPerScope() {
+		stubEmbeddings();
+		properties.getSemanticCache().setMaxEntriesPerAgent(1);
+		completeRun("t1", "1", false, "上月销售额");
+		completeRun("t2", "1", false, "用户注册数");
+
+		assertEquals(1, cache.size());
+		assertTrue(cache.lookup("t3", "1", false, "上月销售额").isEmpty());
+	}
+
+}
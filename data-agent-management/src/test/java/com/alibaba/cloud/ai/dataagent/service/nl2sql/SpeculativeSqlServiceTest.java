@@ -0,0 +1,130 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.nl2sql;
+
+import com.alibaba.cloud.ai.dataagent.dto.prompt.SqlGenerationDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpeculativeSqlServiceTest {
+
+	@Mock
+	private Nl2SqlService nl2SqlService;
+
+	private DataAgentProperties properties;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private SpeculativeSqlService speculativeSqlService;
+
+	@BeforeEach
+	void setUp() {
+		properties = new DataAgentProperties();
+		meterRegistry = new SimpleMeterRegistry();
+		speculativeSqlService = new SpeculativeSqlService(nl2SqlService, properties, meterRegistry);
+	}
+
+	private static SqlGenerationDTO dto(String instruction) {
+		return SqlGenerationDTO.builder().executionDescription(instruction).previousStepResults("无").build();
+	}
+
+	@Test
+	void take_matchingInstruction_returnsSqlGeneratedBeforeTake() {
+		when(nl2SqlService.generateSql(any())).thenReturn(Flux.just("SELECT ", "month, SUM(amount) FROM orders"));
+
+		speculativeSqlService.start("run-1", 1, dto("按月统计订单金额"));
+
+		StepVerifier.create(speculativeSqlService.take("run-1", 1, "按月统计订单金额").orElseThrow())
+			.expectNext("SELECT month, SUM(amount) FROM orders")
+			.verifyComplete();
+		assertTrue(speculativeSqlService.take("run-1", 1, "按月统计订单金额").isEmpty());
+		assertEquals(1.0, meterRegistry.counter("dataagent.plan.speculation", "result", "hit").count());
+	}
+
+	@Test
+	void take_generationStillRunning_emitsWhenItCompletes() {
+		Sinks.Many<String> llm = Sinks.many().unicast().onBackpressureBuffer();
+		when(nl2SqlService.generateSql(any())).thenReturn(llm.asFlux());
+
+		speculativeSqlService.start("run-1", 1, dto("查询订单"));
+
+		StepVerifier.create(speculativeSqlService.take("run-1", 1, "查询订单").orElseThrow()).then(() -> {
+			llm.tryEmitNext("SELECT * FROM orders");
+			llm.tryEmitComplete();
+		}).expectNext("SELECT * FROM orders").verifyComplete();
+	}
+
+	@Test
+	void take_instructionChangedInFinalPlan_cancelsSpeculation() {
+		AtomicBoolean cancelled = new AtomicBoolean();
+		when(nl2SqlService.generateSql(any())).thenReturn(Flux.<String>never().doOnCancel(() -> cancelled.set(true)));
+
+		speculativeSqlService.start("run-1", 1, dto("查询订单"));
+
+		assertTrue(speculativeSqlService.take("run-1", 1, "查询退款订单").isEmpty());
+		assertTrue(cancelled.get());
+		assertEquals(1.0, meterRegistry.counter("dataagent.plan.speculation", "result", "mismatch").count());
+	}
+
+	@Test
+	void discard_planRejected_cancelsSpeculation() {
+		AtomicBoolean cancelled = new AtomicBoolean();
+		when(nl2SqlService.generateSql(any())).thenReturn(Flux.<String>never().doOnCancel(() -> cancelled.set(true)));
+
+		speculativeSqlService.start("run-1", 1, dto("查询订单"));
+		speculativeSqlService.discard("run-1");
+
+		assertTrue(cancelled.get());
+		assertTrue(speculativeSqlService.take("run-1", 1, "查询订单").isEmpty());
+		assertEquals(1.0, meterRegistry.counter("dataagent.plan.speculation", "result", "discarded").count());
+	}
+
+	@Test
+	void take_otherStep_keepsSpeculation() {
+		when(nl2SqlService.generateSql(any())).thenReturn(Flux.just("SELECT 1"));
+
+		speculativeSqlService.start("run-1", 1, dto("查询订单"));
+
+		assertTrue(speculativeSqlService.take("run-1", 2, "查询订单").isEmpty());
+		assertTrue(speculativeSqlService.take("run-1", 1, "查询订单").isPresent());
+	}
+
+	@Test
+	void start_disabledOrWithoutRun_doesNothing() {
+		speculativeSqlService.start(null, 1, dto("查询订单"));
+		properties.getPlanExecution().setSpeculativeFirstStep(false);
+		speculativeSqlService.start("run-1", 1, dto("查询订单"));
+
+		assertTrue(speculativeSqlService.take("run-1", 1, "查询订单").isEmpty());
+		verifyNoInteractions(nl2SqlService);
+	}
+
+}
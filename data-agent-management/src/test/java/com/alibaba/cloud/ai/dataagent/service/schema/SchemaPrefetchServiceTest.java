@@ -0,0 +1,167 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.service.schema;
+
+import com.alibaba.cloud.ai.dataagent.mapper.AgentDatasourceMapper;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SchemaPrefetchServiceTest {
+
+	@Mock
+	private SchemaService schemaService;
+
+	@Mock
+	private AgentDatasourceMapper agentDatasourceMapper;
+
+	private DataAgentProperties properties;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private SchemaPrefetchService prefetchService;
+
+	@BeforeEach
+	void setUp() {
+		properties = new DataAgentProperties();
+		meterRegistry = new SimpleMeterRegistry();
+		prefetchService = new SchemaPrefetchService(schemaService, agentDatasourceMapper, properties, meterRegistry);
+	}
+
+	@AfterEach
+	void tearDown() {
+		prefetchService.close();
+	}
+
+	@Test
+	void take_canonicalQueryCloseToRawQuestion_reusesPrefetchedSchema() {
+		List<Document> tables = List.of(new Document("orders table", Map.of("name", "orders")));
+		List<Document> columns = List.of(new Document("orders.amount"));
+		when(agentDatasourceMapper.selectActiveDatasourceIdByAgentId(1L)).thenReturn(100);
+		when(schemaService.getTableDocumentsByDatasource(100, "查询上周的销售额")).thenReturn(tables);
+		when(schemaService.getColumnDocumentsByTableName(100, List.of("orders"))).thenReturn(columns);
+
+		prefetchService.prefetch("run-1", "1", "查询上周的销售额");
+		SchemaPrefetchService.SchemaRecallResult result = prefetchService.take("run-1", 100, "查询上周销售额").orElseThrow();
+
+		assertEquals(tables, result.tableDocuments());
+		assertEquals(List.of("orders"), result.tableNames());
+		assertEquals(columns, result.columnDocuments());
+		assertEquals(1.0, meterRegistry.counter("dataagent.schema.prefetch", "result", "hit").count());
+		// 结果只能被取走一次
+		assertTrue(prefetchService.take("run-1", 100, "查询上周销售额").isEmpty());
+	}
+
+	@Test
+	void take_canonicalQueryDiverged_discardsPrefetch() {
+		// 预取可能在被丢弃前尚未开始执行
+		lenient().when(agentDatasourceMapper.selectActiveDatasourceIdByAgentId(1L)).thenReturn(100);
+		lenient().when(schemaService.getTableDocumentsByDatasource(eq(100), eq("那上个月呢"))).thenReturn(List.of());
+
+		prefetchService.prefetch("run-1", "1", "那上个月呢");
+
+		assertTrue(prefetchService.take("run-1", 100, "查询上个月各品类的退货率").isEmpty());
+		assertEquals(1.0, meterRegistry.counter("dataagent.schema.prefetch", "result", "diverged").count());
+	}
+
+	@Test
+	void take_datasourceChanged_discardsPrefetch() {
+		when(agentDatasourceMapper.selectActiveDatasourceIdByAgentId(1L)).thenReturn(100);
+		when(schemaService.getTableDocumentsByDatasource(100, "orders by month")).thenReturn(List.of());
+		when(schemaService.getColumnDocumentsByTableName(eq(100), anyList())).thenReturn(List.of());
+
+		prefetchService.prefetch("run-1", "1", "orders by month");
+
+		assertTrue(prefetchService.take("run-1", 200, "orders by month").isEmpty());
+	}
+
+	@Test
+	void take_prefetchStillRunningPastTimeout_fallsBack() throws Exception {
+		properties.getSchemaPrefetch().setWaitTimeoutMs(50);
+		CountDownLatch release = new CountDownLatch(1);
+		when(agentDatasourceMapper.selectActiveDatasourceIdByAgentId(1L)).thenAnswer(invocation -> {
+			release.await();
+			return 100;
+		});
+
+		prefetchService.prefetch("run-1", "1", "orders by month");
+
+		assertTrue(prefetchService.take("run-1", 100, "orders by month").isEmpty());
+		assertEquals(1.0, meterRegistry.counter("dataagent.schema.prefetch", "result", "timeout").count());
+		release.countDown();
+	}
+
+	@Test
+	void prefetch_executorSaturated_skipsPrefetchWithoutRunningOnCaller() throws Exception {
+		properties.getSchemaPrefetch().setThreads(1);
+		properties.getSchemaPrefetch().setQueueCapacity(1);
+		prefetchService.close();
+		prefetchService = new SchemaPrefetchService(schemaService, agentDatasourceMapper, properties, meterRegistry);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(agentDatasourceMapper.selectActiveDatasourceIdByAgentId(1L)).thenAnswer(invocation -> {
+			started.countDown();
+			release.await();
+			return null;
+		});
+
+		prefetchService.prefetch("run-1", "1", "orders by month");
+		// 等待唯一的工作线程被占用，run-2 进入队列，run-3 被拒绝
+		assertTrue(started.await(2, TimeUnit.SECONDS));
+		prefetchService.prefetch("run-2", "1", "orders by month");
+		prefetchService.prefetch("run-3", "1", "orders by month");
+
+		assertEquals(1.0, meterRegistry.counter("dataagent.schema.prefetch", "result", "rejected").count());
+		assertTrue(prefetchService.take("run-3", 100, "orders by month").isEmpty());
+		release.countDown();
+	}
+
+	@Test
+	void prefetch_disabledOrWithoutRun_doesNothing() {
+		prefetchService.prefetch(null, "1", "orders by month");
+		properties.getSchemaPrefetch().setEnabled(false);
+		prefetchService.prefetch("run-1", "1", "orders by month");
+
+		assertTrue(prefetchService.take("run-1", 100, "orders by month").isEmpty());
+		verifyNoInteractions(agentDatasourceMapper, schemaService);
+	}
+
+	@Test
+	void similarity_ignoresCaseWhitespaceAndPunctuation() {
+		assertEquals(1.0, SchemaPrefetchService.similarity("Orders, by Month?", "orders by month"));
+		assertTrue(SchemaPrefetchService.similarity("查询上周的销售额", "查询上周销售额") > 0.7);
+		assertTrue(SchemaPrefetchService.similarity("那上个月呢", "查询上个月各品类的退货率") < 0.5);
+		assertEquals(0.0, SchemaPrefetchService.similarity("", "orders"));
+	}
+
+}
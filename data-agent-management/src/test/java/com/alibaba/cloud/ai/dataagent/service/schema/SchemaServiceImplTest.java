@@ -18,8 +18,10 @@ package com.alibaba.cloud.ai.dataagent.service.schema;
 import com.alibaba.cloud.ai.dataagent.bo.DbConfigBO;
 import com.alibaba.cloud.ai.dataagent.bo.schema.ForeignKeyInfoBO;
 import com.alibaba.cloud.ai.dataagent.connector.accessor.AccessorFactory;
+import com.alibaba.cloud.ai.dataagent.constant.Constant;
 import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
 import com.alibaba.cloud.ai.dataagent.dto.schema.TableDTO;
+import com.alibaba.cloud.ai.dataagent.event.SchemaVectorsReplacedEvent;
 import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import com.alibaba.cloud.ai.dataagent.service.vectorstore.AgentVectorStoreService;
 import com.alibaba.cloud.ai.dataagent.service.vectorstore.DynamicFilterService;
@@ -32,6 +34,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.embedding.BatchingStrategy;
 import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.*;
 import java.util.concurrent.ExecutorService;
@@ -63,12 +66,15 @@ class SchemaServiceImplTest {
 
 	private SchemaServiceImpl schemaService;
 
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
 	@BeforeEach
 	void setUp() {
 		ExecutorService executor = Executors.newSingleThreadExecutor();
 		dataAgentProperties = new DataAgentProperties();
 		schemaService = new SchemaServiceImpl(executor, accessorFactory, tableMetadataService, batchingStrategy,
-				dynamicFilterService, dataAgentProperties, agentVectorStoreService);
+				dynamicFilterService, dataAgentProperties, agentVectorStoreService, eventPublisher);
 	}
 
 	private Document createTableDoc(String name) {
@@ -373,6 +379,19 @@ class SchemaServiceImplTest {
 		verify(agentVectorStoreService, times(2)).addDocuments(eq("1"), anyList());
 	}
 
+	@Test
+	void replaceSchemaDocuments_publishesReplacedEvent() {
+		Document colDoc = createColumnDoc("users", "name");
+		Document tableDoc = createTableDoc("users");
+
+		schemaService.replaceSchemaDocuments(3, List.of(colDoc), List.of(tableDoc));
+
+		verify(agentVectorStoreService).replaceDocumentsByMetadata(eq(Map.of(Constant.DATASOURCE_ID, "3")), anyList());
+		ArgumentCaptor<SchemaVectorsReplacedEvent> captor = ArgumentCaptor.forClass(SchemaVectorsReplacedEvent.class);
+		verify(eventPublisher).publishEvent(captor.capture());
+		assertEquals(3, captor.getValue().getDatasourceId());
+	}
+
 	@Test
 	void extractDatabaseName_mysql_noMatch_doesNotSet() {
 		SchemaDTO schemaDTO = new SchemaDTO();
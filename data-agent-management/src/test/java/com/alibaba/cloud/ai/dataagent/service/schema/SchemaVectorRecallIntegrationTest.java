@@ -24,6 +24,7 @@ import com.alibaba.cloud.ai.dataagent.service.vectorstore.MetadataAwareSimpleVec
 import com.alibaba.cloud.ai.dataagent.service.vectorstore.DynamicFilterService;
 import com.alibaba.cloud.ai.dataagent.service.vector.MetadataDocumentRetriever;
 import com.alibaba.cloud.ai.dataagent.support.KeywordEmbeddingModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -51,11 +52,15 @@ class SchemaVectorRecallIntegrationTest {
 		DataAgentProperties properties = new DataAgentProperties();
 		properties.getVectorStore().setTableTopkLimit(1);
 		properties.getVectorStore().setTableSimilarityThreshold(0.8);
-		SimpleVectorStore vectorStore = new MetadataAwareSimpleVectorStore(new KeywordEmbeddingModel());
+		KeywordEmbeddingModel embeddingModel = new KeywordEmbeddingModel();
+		SimpleVectorStore vectorStore = new MetadataAwareSimpleVectorStore(embeddingModel);
 		vectorStoreService = new AgentVectorStoreServiceImpl(vectorStore, Optional.empty(), properties,
-				new DynamicFilterService(null, null), new MetadataDocumentRetriever(new StandardEnvironment()));
+				new DynamicFilterService(null, null), new MetadataDocumentRetriever(new StandardEnvironment()),
+				embeddingModel, new SimpleMeterRegistry());
 		executorService = Executors.newSingleThreadExecutor();
-		schemaService = new SchemaServiceImpl(executorService, null, null, null, null, properties, vectorStoreService);
+		schemaService = new SchemaServiceImpl(executorService, null, null, null, null, properties, vectorStoreService,
+				event -> {
+				});
 
 		vectorStoreService.addDocuments("7",
 				List.of(tableDocument("orders", "订单销售数据"), tableDocument("users", "用户注册信息")));
@@ -17,6 +17,9 @@ package com.alibaba.cloud.ai.dataagent.service.vectorstore;
 
 import com.alibaba.cloud.ai.dataagent.dto.search.AgentSearchRequest;
 import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.AiModelRegistry;
+import com.alibaba.cloud.ai.dataagent.service.aimodelconfig.PinnedEmbeddingModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -24,6 +27,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.vectorstore.filter.Filter;
@@ -44,8 +48,13 @@ class AgentVectorStoreServiceImplTest {
 	@Mock
 	private DynamicFilterService dynamicFilterService;
 
+	@Mock
+	private EmbeddingModel embeddingModel;
+
 	private DataAgentProperties dataAgentProperties;
 
+	private SimpleMeterRegistry meterRegistry;
+
 	private AgentVectorStoreServiceImpl service;
 
 	@BeforeEach
@@ -58,8 +67,9 @@ class AgentVectorStoreServiceImplTest {
 		vsProps.setBatchDelTopkLimit(100);
 		dataAgentProperties.setVectorStore(vsProps);
 
+		meterRegistry = new SimpleMeterRegistry();
 		service = new AgentVectorStoreServiceImpl(vectorStore, Optional.empty(), dataAgentProperties,
-				dynamicFilterService);
+				dynamicFilterService, embeddingModel, meterRegistry);
 	}
 
 	@Test
@@ -198,6 +208,108 @@ class AgentVectorStoreServiceImplTest {
 		assertTrue(result.isEmpty());
 	}
 
+	@Test
+	void searchByTypes_appliesPerTypeTopKAndThreshold() {
+		FilterExpressionBuilder b = new FilterExpressionBuilder();
+		when(dynamicFilterService.buildDynamicFilter("1", "businessTerm")).thenReturn(b.eq("agentId", "1").build());
+		when(dynamicFilterService.buildDynamicFilter("1", "agentKnowledge")).thenReturn(b.eq("agentId", "1").build());
+		Document term = new Document("term");
+		Document knowledge = new Document("knowledge");
+		when(vectorStore.similaritySearch(argThat((SearchRequest r) -> r != null && r.getTopK() == 3)))
+			.thenReturn(List.of(term));
+		when(vectorStore.similaritySearch(argThat((SearchRequest r) -> r != null && r.getTopK() == 8)))
+			.thenReturn(List.of(knowledge));
+
+		Map<String, List<Document>> result = service.searchByTypes(List.of(
+				AgentSearchRequest.builder()
+					.agentId("1")
+					.docVectorType("businessTerm")
+					.query("sales")
+					.topK(3)
+					.similarityThreshold(0.7)
+					.build(),
+				AgentSearchRequest.builder()
+					.agentId("1")
+					.docVectorType("agentKnowledge")
+					.query("sales")
+					.topK(8)
+					.similarityThreshold(0.4)
+					.build()));
+
+		assertEquals(List.of("businessTerm", "agentKnowledge"), List.copyOf(result.keySet()));
+		assertEquals(List.of(term), result.get("businessTerm"));
+		assertEquals(List.of(knowledge), result.get("agentKnowledge"));
+		ArgumentCaptor<SearchRequest> captor = ArgumentCaptor.forClass(SearchRequest.class);
+		verify(vectorStore, times(2)).similaritySearch(captor.capture());
+		Map<Integer, Double> thresholds = new HashMap<>();
+		captor.getAllValues().forEach(r -> thresholds.put(r.getTopK(), r.getSimilarityThreshold()));
+		assertEquals(Map.of(3, 0.7, 8, 0.4), thresholds);
+	}
+
+	@Test
+	void searchByTypes_embedsSharedQueryOnce() {
+		AiModelRegistry registry = mock(AiModelRegistry.class);
+		when(registry.getEmbeddingModel()).thenReturn(embeddingModel);
+		when(embeddingModel.embed("sales")).thenReturn(new float[] { 1f });
+		PinnedEmbeddingModel pinnedEmbeddingModel = new PinnedEmbeddingModel(embeddingModel, registry);
+		service = new AgentVectorStoreServiceImpl(vectorStore, Optional.empty(), dataAgentProperties,
+				dynamicFilterService, pinnedEmbeddingModel, meterRegistry);
+		FilterExpressionBuilder b = new FilterExpressionBuilder();
+		when(dynamicFilterService.buildDynamicFilter(eq("1"), anyString())).thenReturn(b.eq("agentId", "1").build());
+		// 与向量库一样在检索线程上向量化查询文本
+		when(vectorStore.similaritySearch(any(SearchRequest.class))).thenAnswer(invocation -> {
+			assertArrayEquals(new float[] { 1f },
+					pinnedEmbeddingModel.embed(invocation.<SearchRequest>getArgument(0).getQuery()));
+			return List.of();
+		});
+
+		service.getDocumentsForAgent("1", "sales", List.of("businessTerm", "agentKnowledge"));
+
+		verify(embeddingModel).embed("sales");
+		verify(embeddingModel, never()).call(any());
+		verify(vectorStore, times(2)).similaritySearch(any(SearchRequest.class));
+		assertEquals(0, pinnedEmbeddingModel.size());
+	}
+
+	@Test
+	void searchByTypes_failedTypeReturnsEmptyList() {
+		FilterExpressionBuilder b = new FilterExpressionBuilder();
+		when(dynamicFilterService.buildDynamicFilter("1", "businessTerm")).thenReturn(b.eq("agentId", "1").build());
+		when(dynamicFilterService.buildDynamicFilter("1", "agentKnowledge")).thenReturn(b.eq("agentId", "2").build());
+		Document term = new Document("term");
+		when(vectorStore.similaritySearch(
+				argThat((SearchRequest r) -> r != null && r.getFilterExpression().toString().contains("1"))))
+			.thenReturn(List.of(term));
+		when(vectorStore.similaritySearch(
+				argThat((SearchRequest r) -> r != null && r.getFilterExpression().toString().contains("2"))))
+			.thenThrow(new RuntimeException("store down"));
+
+		Map<String, List<Document>> result = service.getDocumentsForAgent("1", "sales",
+				List.of("businessTerm", "agentKnowledge"));
+
+		assertEquals(List.of(term), result.get("businessTerm"));
+		assertEquals(List.of(), result.get("agentKnowledge"));
+		assertEquals(1, meterRegistry.counter("dataagent.vector.search.failures", "type", "agentKnowledge").count());
+		assertEquals(0, meterRegistry.counter("dataagent.vector.search.failures", "type", "businessTerm").count());
+	}
+
+	@Test
+	void searchByTypes_noFilters_skipsEmbeddingAndSearch() {
+		when(dynamicFilterService.buildDynamicFilter(eq("1"), anyString())).thenReturn(null);
+
+		Map<String, List<Document>> result = service.getDocumentsForAgent("1", "sales",
+				List.of("businessTerm", "agentKnowledge"));
+
+		assertEquals(Map.of("businessTerm", List.of(), "agentKnowledge", List.of()), result);
+		verifyNoInteractions(embeddingModel, vectorStore);
+	}
+
+	@Test
+	void searchByTypes_duplicateTypes_throws() {
+		assertThrows(IllegalArgumentException.class,
+				() -> service.getDocumentsForAgent("1", "sales", List.of("businessTerm", "businessTerm")));
+	}
+
 	@Test
 	void getDocumentsOnlyByFilter_nullFilter_throws() {
 		assertThrows(IllegalArgumentException.class, () -> service.getDocumentsOnlyByFilter(null, 10));
@@ -17,6 +17,8 @@ package com.alibaba.cloud.ai.dataagent.util;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.ai.chat.model.ChatResponse;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -49,4 +51,19 @@ class ChatResponseUtilTest {
 		assertEquals("test message", ChatResponseUtil.getText(response));
 	}
 
+	@Test
+	void collectText_restartMarker_discardsEarlierText() {
+		ChatResponse restart = ChatResponseUtil.createRestartResponse(7);
+		assertTrue(ChatResponseUtil.isRestart(restart));
+		assertEquals("", ChatResponseUtil.getText(restart));
+		assertEquals(7, ChatResponseUtil.getDiscardedChars(restart));
+		assertFalse(ChatResponseUtil.isRestart(ChatResponseUtil.createPureResponse("a")));
+		assertEquals(0, ChatResponseUtil.getDiscardedChars(ChatResponseUtil.createPureResponse("a")));
+
+		Flux<ChatResponse> responses = Flux.just(ChatResponseUtil.createPureResponse("{\"bad\""), restart,
+				ChatResponseUtil.createPureResponse("{\"ok\":"), ChatResponseUtil.createPureResponse("1}"));
+
+		StepVerifier.create(ChatResponseUtil.collectText(responses)).expectNext("{\"ok\":1}").verifyComplete();
+	}
+
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedTextBufferTest {
+
+	@Test
+	void append_joinsChunksInOrder() {
+		ChunkedTextBuffer buffer = new ChunkedTextBuffer();
+		buffer.append("SELECT ");
+		buffer.append(null);
+		buffer.append("");
+		buffer.append("1");
+
+		assertEquals("SELECT 1", buffer.toString());
+		assertEquals(2, buffer.chunkCount());
+		assertEquals(8, buffer.retainedChars());
+		assertFalse(buffer.isTruncated());
+	}
+
+	@Test
+	void append_mergesChunksIntoBlocks() {
+		ChunkedTextBuffer buffer = new ChunkedTextBuffer(-1, 8);
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			String token = "t" + i + ",";
+			buffer.append(token);
+			expected.append(token);
+		}
+
+		assertEquals(expected.toString(), buffer.toString());
+		assertEquals(100, buffer.chunkCount());
+		assertEquals(expected.length(), buffer.retainedChars());
+		assertEquals((expected.length() + 7) / 8, buffer.blockCount());
+		assertEquals(buffer.blockCount() * 8L * Character.BYTES, buffer.allocatedBytes());
+	}
+
+	@Test
+	void append_smallOutputUsesOneSmallBlock() {
+		ChunkedTextBuffer buffer = new ChunkedTextBuffer();
+		buffer.append("true");
+
+		assertEquals("true", buffer.toString());
+		assertEquals(1, buffer.blockCount());
+		assertTrue(buffer.allocatedBytes() < ChunkedTextBuffer.DEFAULT_BLOCK_CHARS * Character.BYTES);
+	}
+
+	@Test
+	void clear_dropsBlocks() {
+		ChunkedTextBuffer buffer = new ChunkedTextBuffer();
+		buffer.append("draft");
+		buffer.clear();
+		buffer.append("final");
+
+		assertEquals("final", buffer.toString());
+		assertEquals(1, buffer.chunkCount());
+	}
+
+	@Test
+	void append_dropsTailOnceCapIsReached() {
+		ChunkedTextBuffer buffer = new ChunkedTextBuffer(4);
+		buffer.append("abc");
+		buffer.append("de");
+		buffer.append("fgh");
+
+		assertEquals("abcde", buffer.toString());
+		assertEquals(5, buffer.retainedChars());
+		assertEquals(3, buffer.truncatedChars());
+		assertTrue(buffer.isTruncated());
+	}
+
+	@Test
+	void emptyBuffer_returnsEmptyString() {
+		ChunkedTextBuffer buffer = new ChunkedTextBuffer();
+
+		assertTrue(buffer.isEmpty());
+		assertEquals("", buffer.toString());
+	}
+
+}
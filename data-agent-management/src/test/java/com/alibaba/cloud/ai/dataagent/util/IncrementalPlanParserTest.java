@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.util;
+
+import com.alibaba.cloud.ai.dataagent.dto.planner.ExecutionStep;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalPlanParserTest {
+
+	private static final String PLAN = """
+			```json
+			{
+			  "thought_process": "先查 {订单} 再分析 [趋势]",
+			  "execution_plan": [
+			    {"step": 1, "tool_to_use": "SQL_GENERATE_NODE", "tool_parameters": {"instruction": "按月统计订单 \\"金额\\"", "sql_query": ""}, "depends_on": []},
+			    {"step": 2, "tool_to_use": "PYTHON_GENERATE_NODE", "tool_parameters": {"instruction": "分析趋势 😀"}, "extra": {"a": [1, 2]}}
+			  ]
+			}
+			```
+			""";
+
+	@Test
+	void feed_charByChar_emitsEachStepAsSoonAsItCloses() {
+		List<Integer> positions = new ArrayList<>();
+		List<ExecutionStep> steps = new ArrayList<>();
+		IncrementalPlanParser parser = new IncrementalPlanParser((position, step) -> {
+			positions.add(position);
+			steps.add(step);
+		});
+		int firstStepEnd = PLAN.indexOf("}, \"depends_on\": []}") + "}, \"depends_on\": []}".length();
+
+		for (int i = 0; i < PLAN.length(); i++) {
+			parser.feed(PLAN.substring(i, i + 1));
+			if (i == firstStepEnd - 2) {
+				assertTrue(steps.isEmpty());
+			}
+			if (i == firstStepEnd - 1) {
+				assertEquals(1, steps.size());
+			}
+		}
+
+		assertEquals(List.of(1, 2), positions);
+		assertEquals("按月统计订单 \"金额\"", steps.get(0).getToolParameters().getInstruction());
+		assertEquals(List.of(), steps.get(0).getDependsOn());
+		assertEquals("PYTHON_GENERATE_NODE", steps.get(1).getToolToUse());
+		assertEquals("分析趋势 😀", steps.get(1).getToolParameters().getInstruction());
+		assertTrue(parser.isFinished());
+	}
+
+	@Test
+	void feed_malformedJson_stopsWithoutFurtherSteps() {
+		List<ExecutionStep> steps = new ArrayList<>();
+		IncrementalPlanParser parser = new IncrementalPlanParser((position, step) -> steps.add(step));
+
+		parser.feed("{\"execution_plan\": [{\"step\": 1, \"tool_to_use\": \"SQL_GENERATE_NODE\"},");
+		parser.feed(" {\"step\": 2,, \"tool_to_use\": \"SQL_GENERATE_NODE\"}]}");
+		parser.feed(" {\"step\": 3}");
+
+		assertEquals(1, steps.size());
+		assertTrue(parser.isFinished());
+	}
+
+	@Test
+	void feed_objectsOutsideExecutionPlan_areIgnored() {
+		List<ExecutionStep> steps = new ArrayList<>();
+		IncrementalPlanParser parser = new IncrementalPlanParser((position, step) -> steps.add(step));
+
+		parser.feed("{\"other\": [{\"step\": 9}], \"execution_plan\": [{\"step\": 1, \"tool_to_use\": \"X\"}]} "
+				+ "{\"execution_plan\": [{\"step\": 2}]}");
+
+		assertEquals(1, steps.size());
+		assertEquals(1, steps.get(0).getStep());
+	}
+
+}
@@ -170,4 +170,25 @@ class JsonParseUtilTest {
 		assertEquals("val", result.get("key"));
 	}
 
+	@Test
+	void tryConvertToObject_commonFormatDefects_repairedLocallyWithoutLlm() {
+		String json = "以下是结果：\n```json\n{'name': 'test', 'tags': ['a', 'b',],}\n```";
+
+		Map result = jsonParseUtil.tryConvertToObject(json, Map.class);
+
+		assertEquals("test", result.get("name"));
+		assertEquals(List.of("a", "b"), result.get("tags"));
+		verifyNoInteractions(llmService);
+	}
+
+	@Test
+	void tryConvertToObject_truncatedJson_repairedLocallyWithoutLlm() {
+		List<Map<String, Object>> result = jsonParseUtil.tryConvertToObject("[{\"id\": 1}, {\"id\": 2",
+				new TypeReference<>() {
+				});
+
+		assertEquals(2, result.size());
+		verifyNoInteractions(llmService);
+	}
+
 }
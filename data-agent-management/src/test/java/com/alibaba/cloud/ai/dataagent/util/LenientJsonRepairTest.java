@@ -0,0 +1,87 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LenientJsonRepairTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private JsonNode repairAndParse(String text) throws Exception {
+		String repaired = LenientJsonRepair.repair(text);
+		assertNotNull(repaired, "expected a repair for: " + text);
+		return objectMapper.readTree(repaired);
+	}
+
+	@Test
+	void repair_validJson_returnsNull() {
+		assertNull(LenientJsonRepair.repair("{\"a\":1}"));
+		assertNull(LenientJsonRepair.repair("no json here"));
+		assertNull(LenientJsonRepair.repair(null));
+	}
+
+	@Test
+	void repair_trailingCommas_removed() throws Exception {
+		JsonNode node = repairAndParse("{\"a\":[1,2,],\"b\":\"x\",\n}");
+		assertEquals(2, node.get("a").size());
+		assertEquals("x", node.get("b").asText());
+	}
+
+	@Test
+	void repair_singleQuotes_convertedWithInnerQuotesEscaped() throws Exception {
+		JsonNode node = repairAndParse("{'name': 'it's a \"test\"', 'ok': True, 'none': None}");
+		assertEquals("it's a \"test\"", node.get("name").asText());
+		assertTrue(node.get("ok").asBoolean());
+		assertTrue(node.get("none").isNull());
+	}
+
+	@Test
+	void repair_unescapedNewlinesAndQuotesInStrings_escaped() throws Exception {
+		JsonNode node = repairAndParse("{\"sql\": \"SELECT *\nFROM t\twhere name = \"张三\"\", \"path\": \"C:\\data\"}");
+		assertEquals("SELECT *\nFROM t\twhere name = \"张三\"", node.get("sql").asText());
+		assertEquals("C:\\data", node.get("path").asText());
+	}
+
+	@Test
+	void repair_markdownFenceAndSurroundingProse_stripped() throws Exception {
+		JsonNode node = repairAndParse("好的，结果如下：\n```json\n{\"type\": \"bar\"}\n```\n如有问题请告知。");
+		assertEquals("bar", node.get("type").asText());
+	}
+
+	@Test
+	void repair_truncatedOutput_closesStringsAndContainers() throws Exception {
+		JsonNode node = repairAndParse("{\"steps\": [{\"id\": 1, \"desc\": \"查询订单");
+		assertEquals("查询订单", node.get("steps").get(0).get("desc").asText());
+
+		assertTrue(repairAndParse("{\"a\": 1, \"b\":").get("b").isNull());
+		assertTrue(repairAndParse("{\"a\": 1, \"b\"").get("b").isNull());
+		assertEquals(1, repairAndParse("[1, ").size());
+	}
+
+	@Test
+	void repair_unquotedKeysAndValues_quoted() throws Exception {
+		JsonNode node = repairAndParse("{type: bar, count: -1.5e2, nested: {flag: false}}");
+		assertEquals("bar", node.get("type").asText());
+		assertEquals(-150.0, node.get("count").asDouble());
+		assertFalse(node.get("nested").get("flag").asBoolean());
+	}
+
+}
@@ -22,6 +22,7 @@ import com.alibaba.cloud.ai.graph.OverAllState;
 import org.junit.jupiter.api.Test;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
@@ -144,4 +145,28 @@ class PlanProcessUtilTest {
 		assertEquals(1, existing.size());
 	}
 
+	@Test
+	void buildStepResults_includesOnlyRequestedStepsAndTruncates() {
+		Map<String, String> results = Map.of("step_1", "first", "step_2", "second", "step_3", "x".repeat(10_000));
+
+		assertEquals("step_1:\nfirst", PlanProcessUtil.buildStepResults(results, List.of(1)));
+		assertEquals("无", PlanProcessUtil.buildStepResults(results, List.of(4)));
+		String truncated = PlanProcessUtil.buildStepResults(results, List.of(2, 3));
+		assertTrue(truncated.startsWith("step_2:\nsecond"));
+		assertTrue(truncated.endsWith("...(历史结果已截断)"));
+		assertTrue(truncated.length() < 8_100);
+	}
+
+	@Test
+	void recordSqlQueries_setsSqlOfGivenStepsInSerializedPlan() throws Exception {
+		String planJson = TestFixtures.createMultiStepPlanJson();
+		OverAllState state = TestFixtures.createStateWith(Map.of(PLANNER_NODE_OUTPUT, planJson, PLAN_CURRENT_STEP, 1));
+
+		String updated = PlanProcessUtil.recordSqlQueries(state, Map.of(1, "SELECT 1"));
+
+		Plan plan = JsonUtil.getObjectMapper().readValue(updated, Plan.class);
+		assertEquals("SELECT 1", plan.getExecutionPlan().get(0).getToolParameters().getSqlQuery());
+		assertNull(plan.getExecutionPlan().get(1).getToolParameters().getSqlQuery());
+	}
+
 }
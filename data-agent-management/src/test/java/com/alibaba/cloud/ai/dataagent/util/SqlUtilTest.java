@@ -15,6 +15,7 @@
  */
 package com.alibaba.cloud.ai.dataagent.util;
 
+import com.alibaba.cloud.ai.dataagent.dto.datasource.SqlRetryDto;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -110,4 +111,12 @@ class SqlUtilTest {
 		assertTrue(error.isEmpty());
 	}
 
+	@Test
+	void isUnchangedExecutionRetry_ignoresTrailingSemicolonsAfterExecutionFailure() {
+		assertTrue(SqlUtil.isUnchangedExecutionRetry(SqlRetryDto.sqlExecute("error"), "SELECT 1;", "SELECT 1"));
+		assertFalse(SqlUtil.isUnchangedExecutionRetry(SqlRetryDto.sqlExecute("error"), "SELECT 1", "SELECT 2"));
+		assertFalse(SqlUtil.isUnchangedExecutionRetry(SqlRetryDto.semantic("mismatch"), "SELECT 1", "SELECT 1"));
+		assertFalse(SqlUtil.isUnchangedExecutionRetry(SqlRetryDto.sqlExecute("error"), null, "SELECT 1"));
+	}
+
 }
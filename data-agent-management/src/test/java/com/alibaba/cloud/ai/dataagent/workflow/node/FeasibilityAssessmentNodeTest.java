@@ -31,6 +31,9 @@ import com.alibaba.cloud.ai.dataagent.common.TestFixtures;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.FeasibilityAssessmentOutputDTO;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.QueryEnhanceOutputDTO;
 import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
@@ -52,9 +55,14 @@ class FeasibilityAssessmentNodeTest {
 
 	private FeasibilityAssessmentNode feasibilityAssessmentNode;
 
+	@Mock
+	private StateValueStore stateValueStore;
+
 	@BeforeEach
 	void setUp() {
-		feasibilityAssessmentNode = new FeasibilityAssessmentNode(llmService);
+		feasibilityAssessmentNode = new FeasibilityAssessmentNode(llmService,
+				new StateValueOffloader(stateValueStore, new DataAgentProperties.StateOffload()),
+				TestFixtures.schemaPromptCompactor());
 	}
 
 	private OverAllState createTestState() {
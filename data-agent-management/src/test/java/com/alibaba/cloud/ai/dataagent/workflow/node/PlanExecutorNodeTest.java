@@ -17,6 +17,7 @@ package com.alibaba.cloud.ai.dataagent.workflow.node;
 
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.ArrayList;
@@ -26,10 +27,14 @@ import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.alibaba.cloud.ai.dataagent.dto.planner.ExecutionStep;
 import com.alibaba.cloud.ai.dataagent.dto.planner.Plan;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SemanticQueryCache;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SpeculativeSqlService;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.StateGraph;
 import com.alibaba.cloud.ai.graph.state.strategy.ReplaceStrategy;
@@ -41,9 +46,18 @@ class PlanExecutorNodeTest {
 
 	private PlanExecutorNode planExecutorNode;
 
+	private DataAgentProperties properties;
+
+	@Mock
+	private SemanticQueryCache semanticQueryCache;
+
+	@Mock
+	private SpeculativeSqlService speculativeSqlService;
+
 	@BeforeEach
 	void setUp() {
-		planExecutorNode = new PlanExecutorNode();
+		properties = new DataAgentProperties();
+		planExecutorNode = new PlanExecutorNode(properties, semanticQueryCache, speculativeSqlService);
 	}
 
 	private OverAllState createTestState() {
@@ -89,6 +103,24 @@ class PlanExecutorNodeTest {
 		return plan;
 	}
 
+	private ExecutionStep sqlStep(int stepNumber, List<Integer> dependsOn) {
+		ExecutionStep step = new ExecutionStep();
+		step.setStep(stepNumber);
+		step.setToolToUse(SQL_GENERATE_NODE);
+		ExecutionStep.ToolParameters params = new ExecutionStep.ToolParameters();
+		params.setInstruction("查询指标" + stepNumber);
+		step.setToolParameters(params);
+		step.setDependsOn(dependsOn);
+		return step;
+	}
+
+	private Plan createPlan(ExecutionStep... steps) {
+		Plan plan = new Plan();
+		plan.setThoughtProcess("测试");
+		plan.setExecutionPlan(List.of(steps));
+		return plan;
+	}
+
 	// ==================== Phase 1: Happy Paths ====================
 
 	@Test
@@ -149,8 +181,79 @@ class PlanExecutorNodeTest {
 		assertEquals(SQL_GENERATE_NODE, result.get(PLAN_NEXT_NODE));
 	}
 
+	@Test
+	void independentSqlSteps_routesToParallelSqlExecuteNode() throws Exception {
+		OverAllState state = createTestState();
+		Plan plan = createPlan(sqlStep(1, List.of()), sqlStep(2, List.of()), sqlStep(3, List.of(1, 2)));
+		state.updateState(Map.of(PLANNER_NODE_OUTPUT, planToJson(plan), PLAN_CURRENT_STEP, 1, IS_ONLY_NL2SQL, false));
+
+		Map<String, Object> result = planExecutorNode.apply(state);
+
+		assertTrue((Boolean) result.get(PLAN_VALIDATION_STATUS));
+		assertEquals(PARALLEL_SQL_EXECUTE_NODE, result.get(PLAN_NEXT_NODE));
+	}
+
+	@Test
+	void sqlStepsWithoutDependsOn_executeSequentially() throws Exception {
+		OverAllState state = createTestState();
+		Plan plan = createPlan(sqlStep(1, null), sqlStep(2, null));
+		state.updateState(Map.of(PLANNER_NODE_OUTPUT, planToJson(plan), PLAN_CURRENT_STEP, 1, IS_ONLY_NL2SQL, false));
+
+		Map<String, Object> result = planExecutorNode.apply(state);
+
+		assertEquals(SQL_GENERATE_NODE, result.get(PLAN_NEXT_NODE));
+	}
+
+	@Test
+	void dependentSqlStep_afterCompletedDependency_executesSequentially() throws Exception {
+		OverAllState state = createTestState();
+		Plan plan = createPlan(sqlStep(1, List.of()), sqlStep(2, List.of()), sqlStep(3, List.of(1, 2)));
+		state.updateState(Map.of(PLANNER_NODE_OUTPUT, planToJson(plan), PLAN_CURRENT_STEP, 3, IS_ONLY_NL2SQL, false));
+
+		Map<String, Object> result = planExecutorNode.apply(state);
+
+		assertEquals(SQL_GENERATE_NODE, result.get(PLAN_NEXT_NODE));
+	}
+
+	@Test
+	void parallelSqlStepsDisabled_executesSequentially() throws Exception {
+		properties.getPlanExecution().setMaxParallelSqlSteps(1);
+		OverAllState state = createTestState();
+		Plan plan = createPlan(sqlStep(1, List.of()), sqlStep(2, List.of()));
+		state.updateState(Map.of(PLANNER_NODE_OUTPUT, planToJson(plan), PLAN_CURRENT_STEP, 1, IS_ONLY_NL2SQL, false));
+
+		Map<String, Object> result = planExecutorNode.apply(state);
+
+		assertEquals(SQL_GENERATE_NODE, result.get(PLAN_NEXT_NODE));
+	}
+
 	// ==================== Phase 2: Error Paths ====================
 
+	@Test
+	void dependsOnLaterStep_returnsValidationError() throws Exception {
+		OverAllState state = createTestState();
+		Plan plan = createPlan(sqlStep(1, List.of(2)), sqlStep(2, List.of()));
+		state.updateState(Map.of(PLANNER_NODE_OUTPUT, planToJson(plan), PLAN_CURRENT_STEP, 1));
+
+		Map<String, Object> result = planExecutorNode.apply(state);
+
+		assertFalse((Boolean) result.get(PLAN_VALIDATION_STATUS));
+		assertTrue(((String) result.get(PLAN_VALIDATION_ERROR)).contains("depends_on of step 1"));
+	}
+
+	@Test
+	void invalidPlan_discardsSpeculativeSql() throws Exception {
+		OverAllState state = createTestState();
+		state.registerKeyAndStrategy(TRACE_THREAD_ID, new ReplaceStrategy());
+		Plan plan = createPlan(sqlStep(1, List.of(2)), sqlStep(2, List.of()));
+		state.updateState(
+				Map.of(PLANNER_NODE_OUTPUT, planToJson(plan), PLAN_CURRENT_STEP, 1, TRACE_THREAD_ID, "thread-1"));
+
+		planExecutorNode.apply(state);
+
+		verify(speculativeSqlService).discard("thread-1");
+	}
+
 	@Test
 	void emptyExecutionPlan_returnsValidationError() throws Exception {
 		OverAllState state = createTestState();
@@ -43,6 +43,8 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -73,7 +75,7 @@ class QueryEnhanceNodeTest {
 	void apply_validQuery_returnsParsedQuery() throws Exception {
 		OverAllState state = createTestState();
 		state.updateState(Map.of(INPUT_KEY, "查询所有用户", EVIDENCE, "用户表包含id和name字段"));
-		when(llmService.callUser(anyString())).thenReturn(Flux.just(ChatResponseUtil
+		when(llmService.callUser(anyString(), eq(QueryEnhanceOutputDTO.class))).thenReturn(Flux.just(ChatResponseUtil
 			.createPureResponse("{\"canonical_query\":\"查询所有用户信息\",\"expanded_queries\":[\"查询用户\"]}")));
 
 		NodeExecution execution = execute(queryEnhanceNode.apply(state), QUERY_ENHANCE_NODE_OUTPUT);
@@ -81,21 +83,21 @@ class QueryEnhanceNodeTest {
 
 		assertEquals("查询所有用户信息", output.getCanonicalQuery());
 		assertEquals(List.of("查询用户"), output.getExpandedQueries());
-		verify(llmService).callUser(anyString());
+		verify(llmService).callUser(anyString(), eq(QueryEnhanceOutputDTO.class));
 	}
 
 	@Test
 	void apply_withMultiTurnContext_includesContextInPrompt() throws Exception {
 		OverAllState state = createTestState();
 		state.updateState(Map.of(INPUT_KEY, "查询所有用户", EVIDENCE, "test evidence", MULTI_TURN_CONTEXT, "之前查询了订单表"));
-		when(llmService.callUser(anyString()))
+		when(llmService.callUser(anyString(), eq(QueryEnhanceOutputDTO.class)))
 			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse("{\"canonical_query\":\"查询所有用户信息\"}")));
 
 		NodeExecution execution = execute(queryEnhanceNode.apply(state), QUERY_ENHANCE_NODE_OUTPUT);
 
 		assertEquals("查询所有用户信息", output(execution).getCanonicalQuery());
 		ArgumentCaptor<String> prompt = ArgumentCaptor.forClass(String.class);
-		verify(llmService).callUser(prompt.capture());
+		verify(llmService).callUser(prompt.capture(), eq(QueryEnhanceOutputDTO.class));
 		assertTrue(prompt.getValue().contains("之前查询了订单表"));
 	}
 
@@ -103,14 +105,14 @@ class QueryEnhanceNodeTest {
 	void apply_withoutMultiTurnContext_usesDefaultContext() throws Exception {
 		OverAllState state = createTestState();
 		state.updateState(Map.of(INPUT_KEY, "查询用户信息", EVIDENCE, "evidence data"));
-		when(llmService.callUser(anyString()))
+		when(llmService.callUser(anyString(), eq(QueryEnhanceOutputDTO.class)))
 			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse("{\"canonical_query\":\"查询用户信息\"}")));
 
 		NodeExecution execution = execute(queryEnhanceNode.apply(state), QUERY_ENHANCE_NODE_OUTPUT);
 
 		assertEquals("查询用户信息", output(execution).getCanonicalQuery());
 		ArgumentCaptor<String> prompt = ArgumentCaptor.forClass(String.class);
-		verify(llmService).callUser(prompt.capture());
+		verify(llmService).callUser(prompt.capture(), eq(QueryEnhanceOutputDTO.class));
 		assertTrue(prompt.getValue().contains("(无)"));
 	}
 
@@ -118,7 +120,7 @@ class QueryEnhanceNodeTest {
 	void apply_multipleResponseChunks_parsesCombinedJson() throws Exception {
 		OverAllState state = createTestState();
 		state.updateState(Map.of(INPUT_KEY, "查询用户", EVIDENCE, "evidence"));
-		when(llmService.callUser(anyString()))
+		when(llmService.callUser(anyString(), eq(QueryEnhanceOutputDTO.class)))
 			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse("{\"canonical_query\":"),
 					ChatResponseUtil.createPureResponse("\"查询所有用户\"}")));
 
@@ -127,6 +129,20 @@ class QueryEnhanceNodeTest {
 		assertEquals("查询所有用户", output(execution).getCanonicalQuery());
 	}
 
+	@Test
+	void apply_restartMarker_parsesRepairedOutputOnly() throws Exception {
+		OverAllState state = createTestState();
+		state.updateState(Map.of(INPUT_KEY, "查询用户", EVIDENCE, "evidence"));
+		when(llmService.callUser(anyString(), eq(QueryEnhanceOutputDTO.class))).thenReturn(Flux.just(
+				ChatResponseUtil.createPureResponse("{\"canonical\":"), ChatResponseUtil.createRestartResponse(13),
+				ChatResponseUtil.createPureResponse("{\"canonical_query\":\"查询所有用户\"}")));
+
+		NodeExecution execution = execute(queryEnhanceNode.apply(state), QUERY_ENHANCE_NODE_OUTPUT);
+
+		assertEquals("查询所有用户", output(execution).getCanonicalQuery());
+		verify(llmService, never()).callUser(anyString());
+	}
+
 	@Test
 	void apply_emptyInput_throwsIllegalStateException() {
 		OverAllState state = createTestState();
@@ -141,6 +157,8 @@ class QueryEnhanceNodeTest {
 	void apply_unparseableResponse_returnsEmptyFinalState() throws Exception {
 		OverAllState state = createTestState();
 		state.updateState(Map.of(INPUT_KEY, "长查询内容测试", EVIDENCE, "evidence data"));
+		when(llmService.callUser(anyString(), eq(QueryEnhanceOutputDTO.class)))
+			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse("response text")));
 		when(llmService.callUser(anyString()))
 			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse("response text")));
 		when(llmService.toStringFlux(any())).thenCallRealMethod();
@@ -148,7 +166,8 @@ class QueryEnhanceNodeTest {
 		NodeExecution execution = execute(queryEnhanceNode.apply(state), QUERY_ENHANCE_NODE_OUTPUT);
 
 		assertTrue(execution.finalResult().isEmpty());
-		verify(llmService, times(4)).callUser(anyString());
+		verify(llmService).callUser(anyString(), eq(QueryEnhanceOutputDTO.class));
+		verify(llmService, times(3)).callUser(anyString());
 	}
 
 	private QueryEnhanceOutputDTO output(NodeExecution execution) {
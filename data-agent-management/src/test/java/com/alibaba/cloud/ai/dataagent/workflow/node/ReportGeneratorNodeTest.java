@@ -29,6 +29,9 @@ import java.util.Map;
 import com.alibaba.cloud.ai.dataagent.common.TestFixtures;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.QueryEnhanceOutputDTO;
 import com.alibaba.cloud.ai.dataagent.enums.TextType;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import com.alibaba.cloud.ai.dataagent.service.prompt.UserPromptService;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
@@ -54,9 +57,13 @@ class ReportGeneratorNodeTest {
 
 	private ReportGeneratorNode reportGeneratorNode;
 
+	@Mock
+	private StateValueStore stateValueStore;
+
 	@BeforeEach
 	void setUp() {
-		reportGeneratorNode = new ReportGeneratorNode(llmService, promptConfigService);
+		reportGeneratorNode = new ReportGeneratorNode(llmService, promptConfigService,
+				new StateValueOffloader(stateValueStore, new DataAgentProperties.StateOffload()));
 	}
 
 	private OverAllState createTestState() {
@@ -19,6 +19,7 @@ import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
 import static com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.execute;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -26,10 +27,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import com.alibaba.cloud.ai.dataagent.common.TestFixtures;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.QueryEnhanceOutputDTO;
 import com.alibaba.cloud.ai.dataagent.mapper.AgentDatasourceMapper;
+import com.alibaba.cloud.ai.dataagent.service.schema.SchemaPrefetchService;
 import com.alibaba.cloud.ai.dataagent.service.schema.SchemaService;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
 import com.alibaba.cloud.ai.graph.OverAllState;
@@ -50,17 +53,21 @@ class SchemaRecallNodeTest {
 	@Mock
 	private AgentDatasourceMapper agentDatasourceMapper;
 
+	@Mock
+	private SchemaPrefetchService schemaPrefetchService;
+
 	private SchemaRecallNode schemaRecallNode;
 
 	@BeforeEach
 	void setUp() {
-		schemaRecallNode = new SchemaRecallNode(schemaService, agentDatasourceMapper);
+		schemaRecallNode = new SchemaRecallNode(schemaService, agentDatasourceMapper, schemaPrefetchService);
 	}
 
 	private OverAllState createTestState() {
 		OverAllState state = new OverAllState();
 		state.registerKeyAndStrategy(QUERY_ENHANCE_NODE_OUTPUT, new ReplaceStrategy());
 		state.registerKeyAndStrategy(AGENT_ID, new ReplaceStrategy());
+		state.registerKeyAndStrategy(TRACE_THREAD_ID, new ReplaceStrategy());
 		state.registerKeyAndStrategy(SCHEMA_RECALL_NODE_OUTPUT, new ReplaceStrategy());
 		state.registerKeyAndStrategy(TABLE_DOCUMENTS_FOR_SCHEMA_OUTPUT, new ReplaceStrategy());
 		state.registerKeyAndStrategy(COLUMN_DOCUMENTS__FOR_SCHEMA_OUTPUT, new ReplaceStrategy());
@@ -94,6 +101,26 @@ class SchemaRecallNodeTest {
 		assertTrue(execution.streamedText().contains("数量: 1，表名: users"));
 	}
 
+	@Test
+	void apply_prefetchedSchemaAvailable_reusesItWithoutRecalling() throws Exception {
+		OverAllState state = createTestState();
+		state.updateState(Map.of(QUERY_ENHANCE_NODE_OUTPUT, createQueryEnhanceDTO("查询用户"), AGENT_ID, "1",
+				TRACE_THREAD_ID, "run-1"));
+
+		when(agentDatasourceMapper.selectActiveDatasourceIdByAgentId(1L)).thenReturn(100);
+		List<Document> tableDocs = List.of(createTableDocument("users"));
+		List<Document> columnDocs = List.of(new Document("col doc"));
+		when(schemaPrefetchService.take("run-1", 100, "查询用户")).thenReturn(Optional
+			.of(new SchemaPrefetchService.SchemaRecallResult(100, tableDocs, List.of("users"), columnDocs)));
+
+		NodeExecution execution = execute(schemaRecallNode.apply(state), SCHEMA_RECALL_NODE_OUTPUT);
+
+		assertEquals(tableDocs, execution.finalResult().get(TABLE_DOCUMENTS_FOR_SCHEMA_OUTPUT));
+		assertEquals(columnDocs, execution.finalResult().get(COLUMN_DOCUMENTS__FOR_SCHEMA_OUTPUT));
+		assertTrue(execution.streamedText().contains("数量: 1，表名: users"));
+		verify(schemaService, never()).getTableDocumentsByDatasource(anyInt(), anyString());
+	}
+
 	@Test
 	void apply_noDatasource_returnsEmptySchemaGenerator() throws Exception {
 		OverAllState state = createTestState();
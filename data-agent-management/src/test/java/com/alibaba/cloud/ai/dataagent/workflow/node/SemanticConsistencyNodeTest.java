@@ -31,7 +31,12 @@ import com.alibaba.cloud.ai.dataagent.dto.datasource.SqlRetryDto;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.QueryEnhanceOutputDTO;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.SemanticConsistencyDTO;
 import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import com.alibaba.cloud.ai.dataagent.service.nl2sql.Nl2SqlService;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SqlStepService;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
 import com.alibaba.cloud.ai.graph.OverAllState;
@@ -52,9 +57,17 @@ class SemanticConsistencyNodeTest {
 
 	private SemanticConsistencyNode semanticConsistencyNode;
 
+	@Mock
+	private LlmService llmService;
+
+	@Mock
+	private StateValueStore stateValueStore;
+
 	@BeforeEach
 	void setUp() {
-		semanticConsistencyNode = new SemanticConsistencyNode(nl2SqlService);
+		semanticConsistencyNode = new SemanticConsistencyNode(nl2SqlService,
+				new SqlStepService(llmService, new DataAgentProperties(), TestFixtures.schemaPromptCompactor()),
+				new StateValueOffloader(stateValueStore, new DataAgentProperties.StateOffload()));
 	}
 
 	private OverAllState createTestState() {
@@ -34,6 +34,9 @@ import com.alibaba.cloud.ai.dataagent.dto.schema.SchemaDTO;
 import com.alibaba.cloud.ai.dataagent.entity.AgentDatasource;
 import com.alibaba.cloud.ai.dataagent.service.datasource.AgentDatasourceService;
 import com.alibaba.cloud.ai.dataagent.service.datasource.DatasourceService;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
 import com.alibaba.cloud.ai.dataagent.service.nl2sql.Nl2SqlService;
 import com.alibaba.cloud.ai.dataagent.service.schema.SchemaService;
 import com.alibaba.cloud.ai.dataagent.service.semantic.SemanticModelService;
@@ -71,12 +74,16 @@ class TableRelationNodeTest {
 	@Mock
 	private AgentDatasourceService agentDatasourceService;
 
+	@Mock
+	private StateValueStore stateValueStore;
+
 	private TableRelationNode tableRelationNode;
 
 	@BeforeEach
 	void setUp() {
 		tableRelationNode = new TableRelationNode(schemaService, nl2SqlService, semanticModelService, databaseUtil,
-				datasourceService, agentDatasourceService);
+				datasourceService, agentDatasourceService,
+				new StateValueOffloader(stateValueStore, new DataAgentProperties.StateOffload()));
 	}
 
 	private OverAllState createTestState() {
@@ -18,15 +18,22 @@ package com.alibaba.cloud.ai.dataagent.workflow.node.orchestration;
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
 import static com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.execute;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import com.alibaba.cloud.ai.dataagent.common.TestFixtures;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -35,9 +42,15 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SemanticQueryCache;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SpeculativeSqlService;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import com.alibaba.cloud.ai.dataagent.dto.planner.Plan;
+import com.alibaba.cloud.ai.dataagent.dto.prompt.SqlGenerationDTO;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
 import com.alibaba.cloud.ai.dataagent.util.JsonUtil;
 import com.alibaba.cloud.ai.dataagent.workflow.node.PlannerNode;
@@ -117,9 +130,20 @@ class PlannerNodeTest {
 
 	private PlannerNode plannerNode;
 
+	@Mock
+	private SemanticQueryCache semanticQueryCache;
+
+	@Mock
+	private SpeculativeSqlService speculativeSqlService;
+
+	@Mock
+	private StateValueStore stateValueStore;
+
 	@BeforeEach
 	void setUp() {
-		plannerNode = new PlannerNode(llmService);
+		plannerNode = new PlannerNode(llmService, semanticQueryCache, speculativeSqlService,
+				new StateValueOffloader(stateValueStore, new DataAgentProperties.StateOffload()),
+				TestFixtures.schemaPromptCompactor());
 	}
 
 	private OverAllState createTestState() {
@@ -173,6 +197,52 @@ class PlannerNodeTest {
 		assertEquals("分析销售趋势", plan.getExecutionPlan().get(1).getToolParameters().getInstruction());
 	}
 
+	@Test
+	void apply_firstStepParsed_startsSpeculativeSqlBeforePlanCompletes() throws Exception {
+		OverAllState state = createTestState();
+		state.registerKeyAndStrategy(TRACE_THREAD_ID, new ReplaceStrategy());
+		state.registerKeyAndStrategy(DB_DIALECT_TYPE, new ReplaceStrategy());
+		setupBasicState(state);
+		state.updateState(Map.of(TRACE_THREAD_ID, "thread-1", DB_DIALECT_TYPE, "mysql"));
+
+		int split = MULTI_STEP_PLAN_JSON.indexOf("\"step\": 2");
+		AtomicInteger emittedChunks = new AtomicInteger();
+		AtomicInteger chunksAtSpeculation = new AtomicInteger();
+		when(llmService.callUser(anyString())).thenReturn(Flux
+			.just(ChatResponseUtil.createPureResponse(MULTI_STEP_PLAN_JSON.substring(0, split)),
+					ChatResponseUtil.createPureResponse(MULTI_STEP_PLAN_JSON.substring(split)))
+			.doOnNext(response -> emittedChunks.incrementAndGet()));
+		doAnswer(invocation -> {
+			chunksAtSpeculation.set(emittedChunks.get());
+			return null;
+		}).when(speculativeSqlService).start(eq("thread-1"), eq(1), any());
+
+		Plan plan = parsePlan(execute(plannerNode.apply(state), PLANNER_NODE_OUTPUT));
+		ArgumentCaptor<SqlGenerationDTO> dtoCaptor = ArgumentCaptor.forClass(SqlGenerationDTO.class);
+		verify(speculativeSqlService).start(eq("thread-1"), eq(1), dtoCaptor.capture());
+
+		assertEquals(2, plan.getExecutionPlan().size());
+		assertEquals(1, chunksAtSpeculation.get());
+		assertEquals("查询销售数据", dtoCaptor.getValue().getExecutionDescription());
+		assertEquals("无", dtoCaptor.getValue().getPreviousStepResults());
+		assertEquals("mysql", dtoCaptor.getValue().getDialect());
+		verify(speculativeSqlService).discard("thread-1");
+	}
+
+	@Test
+	void apply_semanticCacheHit_reusesPlanWithoutLlm() throws Exception {
+		OverAllState state = createTestState();
+		setupBasicState(state);
+
+		when(semanticQueryCache.lookup(any(), any(), anyBoolean(), any()))
+			.thenReturn(Optional.of(MULTI_STEP_PLAN_JSON));
+
+		Plan plan = parsePlan(execute(plannerNode.apply(state), PLANNER_NODE_OUTPUT));
+
+		assertEquals(2, plan.getExecutionPlan().size());
+		verifyNoInteractions(llmService);
+	}
+
 	@Test
 	void apply_nl2SqlOnly_returnsFixedPlan() throws Exception {
 		OverAllState state = createTestState();
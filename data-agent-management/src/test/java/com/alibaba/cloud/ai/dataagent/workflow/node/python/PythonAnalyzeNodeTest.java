@@ -37,6 +37,9 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeErrorExecution;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
@@ -76,11 +79,15 @@ class PythonAnalyzeNodeTest {
 	@Mock
 	private LlmService llmService;
 
+	@Mock
+	private StateValueStore stateValueStore;
+
 	private PythonAnalyzeNode pythonAnalyzeNode;
 
 	@BeforeEach
 	void setUp() {
-		pythonAnalyzeNode = new PythonAnalyzeNode(llmService);
+		pythonAnalyzeNode = new PythonAnalyzeNode(llmService,
+				new StateValueOffloader(stateValueStore, new DataAgentProperties.StateOffload()));
 	}
 
 	private OverAllState createTestState() {
@@ -34,9 +34,12 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.alibaba.cloud.ai.dataagent.properties.CodeExecutorProperties;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
 import com.alibaba.cloud.ai.dataagent.service.code.PythonCodeExecutorService;
 import com.alibaba.cloud.ai.dataagent.service.code.sandbox.dependency.PythonDependencyMetadataParser;
 import com.alibaba.cloud.ai.dataagent.service.code.sandbox.dependency.PythonDependencyPolicy;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
 import com.alibaba.cloud.ai.dataagent.util.JsonParseUtil;
 import com.alibaba.cloud.ai.dataagent.workflow.node.PythonExecuteNode;
@@ -58,13 +61,17 @@ class PythonExecuteNodeTest {
 
 	private PythonExecuteNode pythonExecuteNode;
 
+	@Mock
+	private StateValueStore stateValueStore;
+
 	@BeforeEach
 	void setUp() {
 		codeExecutorProperties = new CodeExecutorProperties();
 		dependencyMetadataParser = new PythonDependencyMetadataParser(
 				new PythonDependencyPolicy(codeExecutorProperties));
 		pythonExecuteNode = new PythonExecuteNode(pythonCodeExecutor, dependencyMetadataParser, jsonParseUtil,
-				codeExecutorProperties);
+				codeExecutorProperties,
+				new StateValueOffloader(stateValueStore, new DataAgentProperties.StateOffload()));
 	}
 
 	private OverAllState createTestState() {
@@ -36,6 +36,9 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.alibaba.cloud.ai.dataagent.properties.CodeExecutorProperties;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
@@ -97,11 +100,14 @@ class PythonGenerateNodeTest {
 
 	private PythonGenerateNode pythonGenerateNode;
 
+	@Mock
+	private StateValueStore stateValueStore;
+
 	@BeforeEach
 	void setUp() {
 		when(codeExecutorProperties.getLimitMemory()).thenReturn(500L);
 		when(codeExecutorProperties.getCodeTimeout()).thenReturn(Duration.ofSeconds(60));
-		pythonGenerateNode = new PythonGenerateNode(codeExecutorProperties, llmService);
+		pythonGenerateNode = new PythonGenerateNode(codeExecutorProperties, llmService, new StateValueOffloader(stateValueStore, new DataAgentProperties.StateOffload()));
 	}
 
 	private OverAllState createTestState() {
@@ -18,7 +18,9 @@ package com.alibaba.cloud.ai.dataagent.workflow.node.rag;
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
 import static com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.execute;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.util.ArrayList;
@@ -38,6 +40,7 @@ import com.alibaba.cloud.ai.dataagent.entity.AgentKnowledge;
 import com.alibaba.cloud.ai.dataagent.enums.KnowledgeType;
 import com.alibaba.cloud.ai.dataagent.mapper.AgentKnowledgeMapper;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
+import com.alibaba.cloud.ai.dataagent.service.schema.SchemaPrefetchService;
 import com.alibaba.cloud.ai.dataagent.service.vectorstore.AgentVectorStoreService;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
@@ -68,13 +71,16 @@ class EvidenceRecallNodeTest {
 	@Mock
 	private AgentKnowledgeMapper agentKnowledgeMapper;
 
+	@Mock
+	private SchemaPrefetchService schemaPrefetchService;
+
 	private EvidenceRecallNode evidenceRecallNode;
 
 	@BeforeEach
 	void setUp() {
 		jsonParseUtil = new JsonParseUtil(llmService);
-		evidenceRecallNode = new EvidenceRecallNode(llmService, vectorStoreService, jsonParseUtil,
-				agentKnowledgeMapper);
+		evidenceRecallNode = new EvidenceRecallNode(llmService, vectorStoreService, jsonParseUtil, agentKnowledgeMapper,
+				schemaPrefetchService);
 	}
 
 	private OverAllState createTestState() {
@@ -90,6 +96,13 @@ class EvidenceRecallNodeTest {
 		state.updateState(Map.of(INPUT_KEY, "查询上周销售额", AGENT_ID, "1"));
 	}
 
+	private void stubDocuments(List<Document> businessDocs, List<Document> knowledgeDocs) {
+		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(),
+				eq(List.of(DocumentMetadataConstant.BUSINESS_TERM, DocumentMetadataConstant.AGENT_KNOWLEDGE))))
+			.thenReturn(Map.of(DocumentMetadataConstant.BUSINESS_TERM, businessDocs,
+					DocumentMetadataConstant.AGENT_KNOWLEDGE, knowledgeDocs));
+	}
+
 	private Document createBusinessTermDocument(String content) {
 		return new Document(content,
 				Map.of(DocumentMetadataConstant.VECTOR_TYPE, DocumentMetadataConstant.BUSINESS_TERM));
@@ -111,12 +124,7 @@ class EvidenceRecallNodeTest {
 			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse(LLM_REWRITE_RESPONSE)));
 
 		List<Document> businessDocs = List.of(createBusinessTermDocument("销售额=sum(order_amount)"));
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(),
-				org.mockito.ArgumentMatchers.eq(DocumentMetadataConstant.BUSINESS_TERM)))
-			.thenReturn(businessDocs);
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(),
-				org.mockito.ArgumentMatchers.eq(DocumentMetadataConstant.AGENT_KNOWLEDGE)))
-			.thenReturn(new ArrayList<>());
+		stubDocuments(businessDocs, new ArrayList<>());
 
 		NodeExecution execution = execute(evidenceRecallNode.apply(state), EVIDENCE);
 		assertTrue(execution.finalResult().get(EVIDENCE).toString().contains("销售额=sum(order_amount)"));
@@ -140,12 +148,7 @@ class EvidenceRecallNodeTest {
 		knowledge.setTitle("PV定义");
 		knowledge.setContent("PV是Page View的缩写");
 
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(),
-				org.mockito.ArgumentMatchers.eq(DocumentMetadataConstant.BUSINESS_TERM)))
-			.thenReturn(businessDocs);
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(),
-				org.mockito.ArgumentMatchers.eq(DocumentMetadataConstant.AGENT_KNOWLEDGE)))
-			.thenReturn(knowledgeDocs);
+		stubDocuments(businessDocs, knowledgeDocs);
 		when(agentKnowledgeMapper.selectById(1)).thenReturn(knowledge);
 
 		NodeExecution execution = execute(evidenceRecallNode.apply(state), EVIDENCE);
@@ -169,12 +172,7 @@ class EvidenceRecallNodeTest {
 		knowledge.setTitle("退款FAQ");
 		knowledge.setContent("只统计已入库退货");
 
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(),
-				org.mockito.ArgumentMatchers.eq(DocumentMetadataConstant.BUSINESS_TERM)))
-			.thenReturn(new ArrayList<>());
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(),
-				org.mockito.ArgumentMatchers.eq(DocumentMetadataConstant.AGENT_KNOWLEDGE)))
-			.thenReturn(List.of(faqDoc));
+		stubDocuments(new ArrayList<>(), List.of(faqDoc));
 		when(agentKnowledgeMapper.selectById(2)).thenReturn(knowledge);
 
 		NodeExecution execution = execute(evidenceRecallNode.apply(state), EVIDENCE);
@@ -197,18 +195,29 @@ class EvidenceRecallNodeTest {
 		knowledge.setSourceFilename("销售数据.md");
 		knowledge.setContent("详细报告内容");
 
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(),
-				org.mockito.ArgumentMatchers.eq(DocumentMetadataConstant.BUSINESS_TERM)))
-			.thenReturn(new ArrayList<>());
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(),
-				org.mockito.ArgumentMatchers.eq(DocumentMetadataConstant.AGENT_KNOWLEDGE)))
-			.thenReturn(List.of(docKnowledge));
+		stubDocuments(new ArrayList<>(), List.of(docKnowledge));
 		when(agentKnowledgeMapper.selectById(3)).thenReturn(knowledge);
 
 		NodeExecution execution = execute(evidenceRecallNode.apply(state), EVIDENCE);
 		assertTrue(execution.finalResult().get(EVIDENCE).toString().contains("[来源: 2025Q3报告-销售数据.md] 华东地区销售数据增长20%"));
 	}
 
+	@Test
+	void apply_retrievesAllTypesInSingleCall() throws Exception {
+		OverAllState state = createTestState();
+		setupBasicState(state);
+
+		when(llmService.callUser(anyString()))
+			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse(LLM_REWRITE_RESPONSE)));
+		stubDocuments(List.of(createBusinessTermDocument("GMV=总成交额")), List.of());
+
+		execute(evidenceRecallNode.apply(state), EVIDENCE);
+
+		verify(vectorStoreService).getDocumentsForAgent("1", "查询上周销售额数据",
+				List.of(DocumentMetadataConstant.BUSINESS_TERM, DocumentMetadataConstant.AGENT_KNOWLEDGE));
+		verify(vectorStoreService, never()).getDocumentsForAgent(anyString(), anyString(), anyString());
+	}
+
 	@Test
 	void apply_llmRewriteFailure_usesOriginalQuery() throws Exception {
 		OverAllState state = createTestState();
@@ -228,7 +237,7 @@ class EvidenceRecallNodeTest {
 		when(llmService.callUser(anyString()))
 			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse(LLM_REWRITE_RESPONSE)));
 
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(), anyString()))
+		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(), anyList()))
 			.thenThrow(new RuntimeException("Vector store connection failed"));
 
 		NodeExecution execution = execute(evidenceRecallNode.apply(state), EVIDENCE);
@@ -256,8 +265,7 @@ class EvidenceRecallNodeTest {
 		when(llmService.callUser(anyString()))
 			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse(LLM_REWRITE_RESPONSE)));
 
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(), anyString()))
-			.thenReturn(new ArrayList<>());
+		stubDocuments(new ArrayList<>(), new ArrayList<>());
 
 		NodeExecution execution = execute(evidenceRecallNode.apply(state), EVIDENCE);
 		assertEquals("无", execution.finalResult().get(EVIDENCE));
@@ -272,8 +280,7 @@ class EvidenceRecallNodeTest {
 		when(llmService.callUser(anyString()))
 			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse(LLM_REWRITE_RESPONSE)));
 
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(), anyString()))
-			.thenReturn(new ArrayList<>());
+		stubDocuments(new ArrayList<>(), new ArrayList<>());
 
 		NodeExecution execution = execute(evidenceRecallNode.apply(state), EVIDENCE);
 		assertEquals("无", execution.finalResult().get(EVIDENCE));
@@ -291,12 +298,8 @@ class EvidenceRecallNodeTest {
 			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse(LLM_REWRITE_RESPONSE)));
 
 		List<Document> businessDocs = List.of(createBusinessTermDocument("GMV=总成交额"));
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(),
-				org.mockito.ArgumentMatchers.eq(DocumentMetadataConstant.BUSINESS_TERM)))
-			.thenReturn(businessDocs);
-		when(vectorStoreService.getDocumentsForAgent(anyString(), anyString(),
-				org.mockito.ArgumentMatchers.eq(DocumentMetadataConstant.AGENT_KNOWLEDGE)))
-			.thenThrow(new RuntimeException("Partial vector store failure"));
+		// 单个类型检索失败时，服务为该类型返回空列表
+		stubDocuments(businessDocs, List.of());
 
 		NodeExecution execution = execute(evidenceRecallNode.apply(state), EVIDENCE);
 		assertTrue(execution.finalResult().get(EVIDENCE).toString().contains("GMV=总成交额"));
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2024-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cloud.ai.dataagent.workflow.node.sql;
+
+import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
+import static com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.execute;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.alibaba.cloud.ai.dataagent.common.TestFixtures;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.alibaba.cloud.ai.dataagent.bo.DbConfigBO;
+import com.alibaba.cloud.ai.dataagent.bo.schema.DisplayStyleBO;
+import com.alibaba.cloud.ai.dataagent.bo.schema.ResultSetBO;
+import com.alibaba.cloud.ai.dataagent.connector.DbQueryParameter;
+import com.alibaba.cloud.ai.dataagent.connector.accessor.Accessor;
+import com.alibaba.cloud.ai.dataagent.dto.planner.ExecutionStep;
+import com.alibaba.cloud.ai.dataagent.dto.planner.Plan;
+import com.alibaba.cloud.ai.dataagent.dto.prompt.SemanticConsistencyDTO;
+import com.alibaba.cloud.ai.dataagent.dto.prompt.SqlGenerationDTO;
+import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.Nl2SqlService;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SemanticQueryCache;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SpeculativeSqlService;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SqlStepService;
+import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
+import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
+import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
+import com.alibaba.cloud.ai.dataagent.util.DatabaseUtil;
+import com.alibaba.cloud.ai.dataagent.util.JsonUtil;
+import com.alibaba.cloud.ai.dataagent.workflow.node.ParallelSqlExecuteNode;
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.StateGraph;
+import com.alibaba.cloud.ai.graph.state.strategy.ReplaceStrategy;
+import reactor.core.publisher.Flux;
+
+@ExtendWith(MockitoExtension.class)
+class ParallelSqlExecuteNodeTest {
+
+	private static final Map<String, Object> TEST_QUERY_ENHANCE;
+
+	private static final Map<String, Object> TEST_SCHEMA;
+
+	static {
+		Map<String, Object> table = new HashMap<>();
+		table.put("name", "orders");
+		table.put("description", "订单表");
+		table.put("column", new ArrayList<>());
+		table.put("primaryKeys", new ArrayList<>());
+
+		Map<String, Object> schema = new HashMap<>();
+		schema.put("name", "test_schema");
+		schema.put("description", "测试schema");
+		schema.put("tableCount", 1);
+		schema.put("table", new ArrayList<>(List.of(table)));
+		schema.put("foreignKeys", new ArrayList<>());
+
+		Map<String, Object> queryEnhance = new HashMap<>();
+		queryEnhance.put("canonical_query", "统计订单指标");
+		queryEnhance.put("expanded_queries", new ArrayList<>(List.of("订单指标")));
+
+		TEST_SCHEMA = schema;
+		TEST_QUERY_ENHANCE = queryEnhance;
+	}
+
+	@Mock
+	private Nl2SqlService nl2SqlService;
+
+	@Mock
+	private DatabaseUtil databaseUtil;
+
+	@Mock
+	private Accessor accessor;
+
+	@Mock
+	private StateValueStore stateValueStore;
+
+	private DataAgentProperties properties;
+
+	private ParallelSqlExecuteNode parallelSqlExecuteNode;
+
+	@Mock
+	private SemanticQueryCache semanticQueryCache;
+
+	@Mock
+	private SpeculativeSqlService speculativeSqlService;
+
+	@Mock
+	private LlmService llmService;
+
+	@BeforeEach
+	void setUp() {
+		properties = new DataAgentProperties();
+		properties.setEnableSqlResultChart(false);
+		parallelSqlExecuteNode = new ParallelSqlExecuteNode(nl2SqlService, databaseUtil, properties,
+				new StateValueOffloader(stateValueStore, properties.getStateOffload()), semanticQueryCache,
+				speculativeSqlService,
+				new SqlStepService(llmService, properties, TestFixtures.schemaPromptCompactor()));
+
+		DbConfigBO dbConfig = new DbConfigBO();
+		dbConfig.setSchema("test_schema");
+		when(databaseUtil.getAgentDbConfig(1L)).thenReturn(dbConfig);
+		when(databaseUtil.getAgentAccessor(1L)).thenReturn(accessor);
+		when(nl2SqlService.sqlTrim(any())).thenAnswer(invocation -> invocation.getArgument(0));
+		// 指令 "查询指标N" 生成 "SELECT N"
+		when(nl2SqlService.generateSql(any())).thenAnswer(invocation -> {
+			SqlGenerationDTO dto = invocation.getArgument(0);
+			return Flux.just("SELECT ", dto.getExecutionDescription().replace("查询指标", ""));
+		});
+		when(nl2SqlService.performSemanticConsistency(any()))
+			.thenAnswer(invocation -> Flux.just(ChatResponseUtil.createPureResponse("{\"passed\": true, "),
+					ChatResponseUtil.createPureResponse("\"reason\": \"ok\"}")));
+	}
+
+	private OverAllState createTestState(Plan plan, int currentStep, Map<String, String> existingResults) {
+		OverAllState state = new OverAllState();
+		state.registerKeyAndStrategy(AGENT_ID, new ReplaceStrategy());
+		state.registerKeyAndStrategy(PLANNER_NODE_OUTPUT, new ReplaceStrategy());
+		state.registerKeyAndStrategy(PLAN_CURRENT_STEP, new ReplaceStrategy());
+		state.registerKeyAndStrategy(EVIDENCE, new ReplaceStrategy());
+		state.registerKeyAndStrategy(TABLE_RELATION_OUTPUT, new ReplaceStrategy());
+		state.registerKeyAndStrategy(DB_DIALECT_TYPE, new ReplaceStrategy());
+		state.registerKeyAndStrategy(QUERY_ENHANCE_NODE_OUTPUT, new ReplaceStrategy());
+		state.registerKeyAndStrategy(SQL_EXECUTE_NODE_OUTPUT, new ReplaceStrategy());
+		state.updateState(Map.of(AGENT_ID, "1", PLANNER_NODE_OUTPUT, planToJson(plan), PLAN_CURRENT_STEP, currentStep,
+				EVIDENCE, "test evidence", DB_DIALECT_TYPE, "mysql", QUERY_ENHANCE_NODE_OUTPUT, TEST_QUERY_ENHANCE,
+				TABLE_RELATION_OUTPUT, TEST_SCHEMA, SQL_EXECUTE_NODE_OUTPUT, existingResults));
+		return state;
+	}
+
+	private String planToJson(Plan plan) {
+		try {
+			return JsonUtil.getObjectMapper().writeValueAsString(plan);
+		}
+		catch (Exception e) {
+			throw new RuntimeException("Failed to serialize plan", e);
+		}
+	}
+
+	private ExecutionStep sqlStep(int stepNumber, List<Integer> dependsOn) {
+		ExecutionStep step = new ExecutionStep();
+		step.setStep(stepNumber);
+		step.setToolToUse(SQL_GENERATE_NODE);
+		ExecutionStep.ToolParameters params = new ExecutionStep.ToolParameters();
+		params.setInstruction("查询指标" + stepNumber);
+		step.setToolParameters(params);
+		step.setDependsOn(dependsOn);
+		return step;
+	}
+
+	private Plan createPlan(ExecutionStep... steps) {
+		Plan plan = new Plan();
+		plan.setThoughtProcess("测试");
+		plan.setExecutionPlan(List.of(steps));
+		return plan;
+	}
+
+	private ResultSetBO resultSet(String sql) {
+		ResultSetBO resultSetBO = new ResultSetBO();
+		resultSetBO.setColumn(List.of("value"));
+		resultSetBO.setData(List.of(Map.of("value", sql)));
+		return resultSetBO;
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void independentSteps_executeConcurrently_andMergeResultsInStepOrder() throws Exception {
+		CountDownLatch bothStarted = new CountDownLatch(2);
+		AtomicBoolean overlapped = new AtomicBoolean(true);
+		when(accessor.executeSqlAndReturnObject(any(), any())).thenAnswer(invocation -> {
+			DbQueryParameter parameter = invocation.getArgument(1);
+			bothStarted.countDown();
+			if (!bothStarted.await(1, TimeUnit.SECONDS)) {
+				overlapped.set(false);
+			}
+			// 让步骤1晚于步骤2完成，验证结果仍按步骤顺序输出
+			if ("SELECT 1".equals(parameter.getSql())) {
+				Thread.sleep(100);
+			}
+			return resultSet(parameter.getSql());
+		});
+		Plan plan = createPlan(sqlStep(1, List.of()), sqlStep(2, List.of()), sqlStep(3, List.of(1, 2)));
+
+		NodeExecution execution = execute(parallelSqlExecuteNode.apply(createTestState(plan, 1, new HashMap<>())),
+				SQL_EXECUTE_NODE_OUTPUT);
+
+		assertTrue(overlapped.get(), "independent steps should run concurrently");
+		Map<String, Object> result = execution.finalResult();
+		assertEquals(3, result.get(PLAN_CURRENT_STEP));
+		assertEquals("SELECT 2", result.get(SQL_GENERATE_OUTPUT));
+		assertEquals(List.of(Map.of("value", "SELECT 2")), result.get(SQL_RESULT_LIST_MEMORY));
+		Map<String, String> merged = (Map<String, String>) result.get(SQL_EXECUTE_NODE_OUTPUT);
+		assertEquals(2, merged.size());
+		assertTrue(merged.get("step_1").contains("SELECT 1"));
+		assertTrue(merged.get("step_2").contains("SELECT 2"));
+		String text = execution.streamedText();
+		assertTrue(text.indexOf("步骤1执行SQL") < text.indexOf("步骤2执行SQL"));
+	}
+
+	@Test
+	void successfulSteps_publishChartConfigAndRecordSqlInPlan() throws Exception {
+		properties.setEnableSqlResultChart(true);
+		when(llmService.call(anyString(), anyString(), eq(DisplayStyleBO.class)))
+			.thenAnswer(invocation -> Flux.just(ChatResponseUtil.createPureResponse("{\"type\":\"bar\"}")));
+		when(accessor.executeSqlAndReturnObject(any(), any()))
+			.thenAnswer(invocation -> resultSet(((DbQueryParameter) invocation.getArgument(1)).getSql()));
+		Plan plan = createPlan(sqlStep(1, List.of()), sqlStep(2, List.of()), sqlStep(3, List.of(1, 2)));
+
+		NodeExecution execution = execute(parallelSqlExecuteNode.apply(createTestState(plan, 1, new HashMap<>())),
+				SQL_EXECUTE_NODE_OUTPUT);
+
+		String text = execution.streamedText();
+		assertEquals(2, countOccurrences(text, "\"type\":\"table\""));
+		assertEquals(2, countOccurrences(text, "\"type\":\"bar\""));
+		verify(llmService, times(2)).call(anyString(), anyString(), eq(DisplayStyleBO.class));
+		Plan updatedPlan = JsonUtil.getObjectMapper()
+			.readValue((String) execution.finalResult().get(PLANNER_NODE_OUTPUT), Plan.class);
+		assertEquals("SELECT 1", updatedPlan.getExecutionPlan().get(0).getToolParameters().getSqlQuery());
+		assertEquals("SELECT 2", updatedPlan.getExecutionPlan().get(1).getToolParameters().getSqlQuery());
+		assertNull(updatedPlan.getExecutionPlan().get(2).getToolParameters().getSqlQuery());
+	}
+
+	private int countOccurrences(String text, String token) {
+		int count = 0;
+		for (int index = text.indexOf(token); index >= 0; index = text.indexOf(token, index + token.length())) {
+			count++;
+		}
+		return count;
+	}
+
+	@Test
+	void parallelism_isLimitedByProperty() throws Exception {
+		properties.getPlanExecution().setMaxParallelSqlSteps(2);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		when(accessor.executeSqlAndReturnObject(any(), any())).thenAnswer(invocation -> {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			Thread.sleep(100);
+			inFlight.decrementAndGet();
+			DbQueryParameter parameter = invocation.getArgument(1);
+			return resultSet(parameter.getSql());
+		});
+		Plan plan = createPlan(sqlStep(1, List.of()), sqlStep(2, List.of()), sqlStep(3, List.of()),
+				sqlStep(4, List.of()));
+
+		NodeExecution execution = execute(parallelSqlExecuteNode.apply(createTestState(plan, 1, new HashMap<>())),
+				SQL_EXECUTE_NODE_OUTPUT);
+
+		assertEquals(5, execution.finalResult().get(PLAN_CURRENT_STEP));
+		assertTrue(maxInFlight.get() <= 2, "at most two steps should be in flight");
+	}
+
+	@Test
+	void stepPrompt_containsOnlyDeclaredDependencyResults() throws Exception {
+		when(accessor.executeSqlAndReturnObject(any(), any()))
+			.thenAnswer(invocation -> resultSet(((DbQueryParameter) invocation.getArgument(1)).getSql()));
+		Plan plan = createPlan(sqlStep(1, List.of()), sqlStep(2, List.of()), sqlStep(3, List.of(1)),
+				sqlStep(4, List.of()));
+		Map<String, String> existingResults = new HashMap<>(
+				Map.of("step_1", "{\"value\":\"first\"}", "step_2", "{\"value\":\"second\"}"));
+
+		NodeExecution execution = execute(parallelSqlExecuteNode.apply(createTestState(plan, 3, existingResults)),
+				SQL_EXECUTE_NODE_OUTPUT);
+
+		assertEquals(5, execution.finalResult().get(PLAN_CURRENT_STEP));
+		ArgumentCaptor<SqlGenerationDTO> requests = ArgumentCaptor.forClass(SqlGenerationDTO.class);
+		verify(nl2SqlService, times(2)).generateSql(requests.capture());
+		SqlGenerationDTO step3 = requests.getAllValues()
+			.stream()
+			.filter(dto -> dto.getExecutionDescription().equals("查询指标3"))
+			.findFirst()
+			.orElseThrow();
+		SqlGenerationDTO step4 = requests.getAllValues()
+			.stream()
+			.filter(dto -> dto.getExecutionDescription().equals("查询指标4"))
+			.findFirst()
+			.orElseThrow();
+		assertTrue(step3.getPreviousStepResults().contains("first"));
+		assertFalse(step3.getPreviousStepResults().contains("second"));
+		assertEquals("无", step4.getPreviousStepResults());
+	}
+
+	@Test
+	void cachedSqlFailingValidation_isRegeneratedInsteadOfExecuted() throws Exception {
+		when(semanticQueryCache.cachedSql(any(), eq(1))).thenReturn(Optional.of("SELECT 'cached'"));
+		when(nl2SqlService.performSemanticConsistency(any())).thenAnswer(invocation -> {
+			SemanticConsistencyDTO dto = invocation.getArgument(0);
+			boolean passed = !dto.getSql().contains("cached");
+			return Flux.just(ChatResponseUtil.createPureResponse("{\"passed\": " + passed + ", \"reason\": \"城市不一致\"}"));
+		});
+		when(accessor.executeSqlAndReturnObject(any(), any()))
+			.thenAnswer(invocation -> resultSet(((DbQueryParameter) invocation.getArgument(1)).getSql()));
+		Plan plan = createPlan(sqlStep(1, List.of()));
+
+		NodeExecution execution = execute(parallelSqlExecuteNode.apply(createTestState(plan, 1, new HashMap<>())),
+				SQL_EXECUTE_NODE_OUTPUT);
+
+		assertEquals(2, execution.finalResult().get(PLAN_CURRENT_STEP));
+		verify(nl2SqlService).generateSql(any());
+		verify(accessor, never())
+			.executeSqlAndReturnObject(any(), argThat(p -> p.getSql().contains("cached")));
+		verify(semanticQueryCache).recordSql(any(), eq(1), eq("SELECT 1"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void unchangedSqlAfterExecutionFailure_endsRun() throws Exception {
+		when(accessor.executeSqlAndReturnObject(any(), any())).thenAnswer(invocation -> {
+			DbQueryParameter parameter = invocation.getArgument(1);
+			if ("SELECT 2".equals(parameter.getSql())) {
+				throw new IllegalStateException("table not found");
+			}
+			return resultSet(parameter.getSql());
+		});
+		Plan plan = createPlan(sqlStep(1, List.of()), sqlStep(2, List.of()));
+
+		NodeExecution execution = execute(parallelSqlExecuteNode.apply(createTestState(plan, 1, new HashMap<>())),
+				SQL_EXECUTE_NODE_OUTPUT);
+
+		Map<String, Object> result = execution.finalResult();
+		assertEquals(StateGraph.END, result.get(SQL_GENERATE_OUTPUT));
+		assertFalse(result.containsKey(PLAN_CURRENT_STEP));
+		assertTrue(((Map<String, String>) result.get(SQL_EXECUTE_NODE_OUTPUT)).containsKey("step_1"));
+		assertTrue(execution.streamedText().contains("table not found"));
+	}
+
+}
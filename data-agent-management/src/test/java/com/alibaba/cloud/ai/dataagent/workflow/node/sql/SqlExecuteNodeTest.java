@@ -25,6 +25,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import com.alibaba.cloud.ai.dataagent.common.TestFixtures;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -50,9 +51,14 @@ import com.alibaba.cloud.ai.dataagent.bo.schema.ResultSetBO;
 import com.alibaba.cloud.ai.dataagent.connector.DbQueryParameter;
 import com.alibaba.cloud.ai.dataagent.connector.accessor.Accessor;
 import com.alibaba.cloud.ai.dataagent.dto.datasource.SqlRetryDto;
+import com.alibaba.cloud.ai.dataagent.dto.planner.Plan;
 import com.alibaba.cloud.ai.dataagent.enums.TextType;
 import com.alibaba.cloud.ai.dataagent.service.llm.LlmService;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
 import com.alibaba.cloud.ai.dataagent.service.nl2sql.Nl2SqlService;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SemanticQueryCache;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SqlStepService;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
 import com.alibaba.cloud.ai.dataagent.util.ChatResponseUtil;
 import com.alibaba.cloud.ai.dataagent.util.DatabaseUtil;
@@ -108,11 +114,21 @@ class SqlExecuteNodeTest {
 	@Mock
 	private Accessor accessor;
 
+	@Mock
+	private StateValueStore stateValueStore;
+
 	private SqlExecuteNode sqlExecuteNode;
 
+	@Mock
+	private SemanticQueryCache semanticQueryCache;
+
 	@BeforeEach
 	void setUp() {
-		sqlExecuteNode = new SqlExecuteNode(databaseUtil, nl2SqlService, llmService, properties);
+		DataAgentProperties.StateOffload stateOffload = new DataAgentProperties.StateOffload();
+		stateOffload.setEnabled(true);
+		sqlExecuteNode = new SqlExecuteNode(databaseUtil, nl2SqlService,
+				new SqlStepService(llmService, properties, TestFixtures.schemaPromptCompactor()),
+				new StateValueOffloader(stateValueStore, stateOffload), semanticQueryCache);
 	}
 
 	private OverAllState createTestState() {
@@ -331,6 +347,10 @@ class SqlExecuteNodeTest {
 		assertEquals(2, stepResults.size());
 		assertTrue(stepResults.get("step_1").contains("sales"));
 		assertTrue(stepResults.get("step_2").contains("engineering"));
+		Plan plan = JsonUtil.getObjectMapper()
+			.readValue((String) execution.finalResult().get(PLANNER_NODE_OUTPUT), Plan.class);
+		assertNull(plan.getExecutionPlan().get(0).getToolParameters().getSqlQuery());
+		assertEquals("SELECT * FROM users", plan.getExecutionPlan().get(1).getToolParameters().getSqlQuery());
 	}
 
 	@Test
@@ -367,7 +387,6 @@ class SqlExecuteNodeTest {
 		when(properties.getEnrichSqlResultTimeout()).thenReturn(1000L);
 		when(llmService.call(anyString(), anyString(), eq(DisplayStyleBO.class)))
 			.thenReturn(Flux.just(ChatResponseUtil.createPureResponse("{\"type\":\"bar\"}")));
-		when(llmService.toStringFlux(any())).thenCallRealMethod();
 
 		NodeExecution execution = execute(sqlExecuteNode.apply(state), SQL_EXECUTE_NODE_OUTPUT);
 		List<ResultBO> payloads = extractResultSetPayloads(execution.streamedText());
@@ -391,7 +410,6 @@ class SqlExecuteNodeTest {
 		when(properties.isEnableSqlResultChart()).thenReturn(true);
 		when(properties.getEnrichSqlResultTimeout()).thenReturn(1L);
 		when(llmService.call(anyString(), anyString(), eq(DisplayStyleBO.class))).thenReturn(Flux.never());
-		when(llmService.toStringFlux(any())).thenCallRealMethod();
 
 		NodeExecution execution = execute(sqlExecuteNode.apply(state), SQL_EXECUTE_NODE_OUTPUT);
 		ResultBO payload = extractResultSetPayload(execution.streamedText());
@@ -421,7 +439,6 @@ class SqlExecuteNodeTest {
 			chartSubscribed.countDown();
 			return chartResponse.asMono().flux();
 		}));
-		when(llmService.toStringFlux(any())).thenCallRealMethod();
 
 		Map<String, Object> result = sqlExecuteNode.apply(state);
 		Flux<GraphResponse<StreamingOutput>> generator = (Flux<GraphResponse<StreamingOutput>>) result
@@ -515,7 +532,14 @@ class SqlExecuteNodeTest {
 		assertEquals(1000, actual.getData().size());
 		assertEquals(Map.of("id", "0", "name", "user_0"), actual.getData().get(0));
 		assertEquals(Map.of("id", "999", "name", "user_999"), actual.getData().get(999));
-		assertEquals(largeData, execution.finalResult().get(SQL_RESULT_LIST_MEMORY));
+
+		// 大结果集外置存储，状态中只保留引用，外置内容保留全部行
+		Object memory = execution.finalResult().get(SQL_RESULT_LIST_MEMORY);
+		assertTrue(StateValueOffloader.isHandle(memory));
+		ArgumentCaptor<String> content = ArgumentCaptor.forClass(String.class);
+		verify(stateValueStore).put(eq(((String) memory).substring(StateValueOffloader.HANDLE_PREFIX.length())),
+				content.capture());
+		assertEquals(largeData, JsonUtil.getObjectMapper().readValue(content.getValue(), List.class));
 	}
 
 }
@@ -17,6 +17,10 @@ package com.alibaba.cloud.ai.dataagent.workflow.node.sql;
 
 import com.alibaba.cloud.ai.dataagent.dto.datasource.SqlRetryDto;
 import com.alibaba.cloud.ai.dataagent.dto.prompt.SqlGenerationDTO;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueOffloader;
+import com.alibaba.cloud.ai.dataagent.service.graph.offload.StateValueStore;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SemanticQueryCache;
+import com.alibaba.cloud.ai.dataagent.service.nl2sql.SpeculativeSqlService;
 import com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.NodeExecution;
 import com.alibaba.cloud.ai.dataagent.workflow.node.SqlGenerateNode;
 import com.alibaba.cloud.ai.dataagent.properties.DataAgentProperties;
@@ -31,16 +35,19 @@ import org.mockito.Mock;
 import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static com.alibaba.cloud.ai.dataagent.constant.Constant.*;
 import static com.alibaba.cloud.ai.dataagent.support.GraphNodeTestSupport.execute;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -95,9 +102,19 @@ class SqlGenerateNodeTest {
 
 	private SqlGenerateNode sqlGenerateNode;
 
+	@Mock
+	private SemanticQueryCache semanticQueryCache;
+
+	@Mock
+	private SpeculativeSqlService speculativeSqlService;
+
+	@Mock
+	private StateValueStore stateValueStore;
+
 	@BeforeEach
 	void setUp() {
-		sqlGenerateNode = new SqlGenerateNode(nl2SqlService, properties);
+		sqlGenerateNode = new SqlGenerateNode(nl2SqlService, properties, semanticQueryCache, speculativeSqlService,
+				new StateValueOffloader(stateValueStore, new DataAgentProperties.StateOffload()));
 	}
 
 	private OverAllState createTestState() {
@@ -164,6 +181,39 @@ class SqlGenerateNodeTest {
 		assertEquals(sql, execution.finalResult().get(SQL_GENERATE_OUTPUT));
 	}
 
+	@Test
+	void apply_speculativeSqlAvailable_usesItWithoutGenerating() throws Exception {
+		OverAllState state = createTestState();
+		setupBasicState(state);
+
+		when(properties.getMaxSqlRetryCount()).thenReturn(10);
+		when(speculativeSqlService.take(any(), eq(1), any()))
+			.thenReturn(Optional.of(Mono.just("SELECT id FROM users")));
+		when(nl2SqlService.sqlTrim(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+		NodeExecution execution = execute(sqlGenerateNode.apply(state), SQL_GENERATE_OUTPUT);
+
+		assertEquals("SELECT id FROM users", execution.finalResult().get(SQL_GENERATE_OUTPUT));
+		assertTrue(execution.streamedText().contains("提前生成的SQL"));
+		verify(nl2SqlService, never()).generateSql(any());
+	}
+
+	@Test
+	void apply_speculativeSqlFailed_fallsBackToGeneration() throws Exception {
+		OverAllState state = createTestState();
+		setupBasicState(state);
+
+		when(properties.getMaxSqlRetryCount()).thenReturn(10);
+		when(speculativeSqlService.take(any(), eq(1), any()))
+			.thenReturn(Optional.of(Mono.error(new RuntimeException("model timeout"))));
+		stubGeneratedSql("SELECT * FROM users");
+
+		NodeExecution execution = execute(sqlGenerateNode.apply(state), SQL_GENERATE_OUTPUT);
+
+		assertEquals("SELECT * FROM users", execution.finalResult().get(SQL_GENERATE_OUTPUT));
+		verify(nl2SqlService).generateSql(any());
+	}
+
 	@Test
 	void maxRetryCountReached_returnsErrorResponse() throws Exception {
 		OverAllState state = createTestState();